@@ -3,6 +3,7 @@ package com.pahanaedu.controllers;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.List;
+import java.util.Map;
 
 import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
@@ -13,6 +14,7 @@ import javax.servlet.http.HttpSession;
 
 import com.pahanaedu.dao.UserDAO;
 import com.pahanaedu.models.User;
+import com.pahanaedu.utils.Log;
 
 /**
  * Admin Controller - Handles admin operations
@@ -21,6 +23,7 @@ import com.pahanaedu.models.User;
 @WebServlet("/admin/*")
 public class AdminController extends HttpServlet {
     private static final long serialVersionUID = 1L;
+    private static final Log LOG = Log.get(AdminController.class);
     
     private UserDAO userDAO;
     
@@ -28,9 +31,9 @@ public class AdminController extends HttpServlet {
     public void init() throws ServletException {
         try {
             userDAO = new UserDAO();
-            System.out.println("AdminController: UserDAO initialized successfully");
+            LOG.info("UserDAO initialized successfully");
         } catch (Exception e) {
-            System.err.println("AdminController: Failed to initialize UserDAO - " + e.getMessage());
+            LOG.error("Failed to initialize UserDAO", "error", e.getMessage());
             throw new ServletException("Failed to initialize UserDAO", e);
         }
     }
@@ -158,7 +161,7 @@ public class AdminController extends HttpServlet {
             out.print(jsonBuilder.toString());
             
         } catch (Exception e) {
-            System.err.println("AdminController: Error getting users - " + e.getMessage());
+            LOG.error("Error getting users", "error", e.getMessage());
             out.print("{\"success\": false, \"message\": \"Error retrieving users\"}");
         } finally {
             out.close();
@@ -177,19 +180,20 @@ public class AdminController extends HttpServlet {
         PrintWriter out = response.getWriter();
         
         try {
-        	int adminCount = userDAO.getUserCountByRole(User.ROLE_ADMIN);
-            int managerCount = userDAO.getUserCountByRole(User.ROLE_MANAGER);
-            int cashierCount = userDAO.getUserCountByRole(User.ROLE_CASHIER);  // මෙය අමතක වෙලා තිබුණා
-            int customerCount = userDAO.getUserCountByRole(User.ROLE_CUSTOMER);
+            Map<String, Integer> roleCounts = userDAO.getUserCountsByRole();
+            int adminCount = roleCounts.getOrDefault(User.ROLE_ADMIN, 0);
+            int managerCount = roleCounts.getOrDefault(User.ROLE_MANAGER, 0);
+            int cashierCount = roleCounts.getOrDefault(User.ROLE_CASHIER, 0);
+            int customerCount = roleCounts.getOrDefault(User.ROLE_CUSTOMER, 0);
             int totalUsers = adminCount + managerCount + cashierCount + customerCount;
             
             // Debug logging
-            System.out.println("AdminController: User Stats Debug:");
-            System.out.println("  Admin Count: " + adminCount);
-            System.out.println("  Manager Count: " + managerCount);
-            System.out.println("  Cashier Count: " + cashierCount);
-            System.out.println("  Customer Count: " + customerCount);
-            System.out.println("  Total Users: " + totalUsers);
+            LOG.debug("User Stats Debug",
+                    "adminCount", adminCount,
+                    "managerCount", managerCount,
+                    "cashierCount", cashierCount,
+                    "customerCount", customerCount,
+                    "totalUsers", totalUsers);
             
             String jsonResponse = String.format(
                 "{\"success\": true, \"stats\": {" +
@@ -205,8 +209,7 @@ public class AdminController extends HttpServlet {
             out.print(jsonResponse);
             
         } catch (Exception e) {
-            System.err.println("AdminController: Error getting user stats - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error getting user stats", e);
             out.print("{\"success\": false, \"message\": \"Error retrieving statistics\"}");
         } finally {
             out.close();
@@ -267,7 +270,7 @@ public class AdminController extends HttpServlet {
             }
             
         } catch (Exception e) {
-            System.err.println("AdminController: Error creating user - " + e.getMessage());
+            LOG.error("Error creating user", "error", e.getMessage());
             sendErrorResponse(response, "Error creating user");
         } finally {
             out.close();
@@ -349,7 +352,7 @@ public class AdminController extends HttpServlet {
             // Handle password update if provided
             if (password != null && !password.trim().isEmpty()) {
                 if (userDAO.updatePassword(existingUser.getEmail(), password)) {
-                    System.out.println("AdminController: Password updated for user - " + existingUser.getEmail());
+                    LOG.debug("Password updated for user", "email", existingUser.getEmail());
                 } else {
                     sendErrorResponse(response, "Failed to update password");
                     return;
@@ -366,8 +369,7 @@ public class AdminController extends HttpServlet {
         } catch (NumberFormatException e) {
             sendErrorResponse(response, "Invalid user ID");
         } catch (Exception e) {
-            System.err.println("AdminController: Error updating user - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error updating user", e);
             sendErrorResponse(response, "Error updating user");
         } finally {
             out.close();
@@ -417,7 +419,7 @@ public class AdminController extends HttpServlet {
         } catch (NumberFormatException e) {
             sendErrorResponse(response, "Invalid user ID");
         } catch (Exception e) {
-            System.err.println("AdminController: Error deleting user - " + e.getMessage());
+            LOG.error("Error deleting user", "error", e.getMessage());
             sendErrorResponse(response, "Error deleting user");
         } finally {
             out.close();
@@ -473,7 +475,7 @@ public class AdminController extends HttpServlet {
     
     @Override
     public void destroy() {
-        System.out.println("AdminController: Controller being destroyed");
+        LOG.info("Controller being destroyed");
         userDAO = null;
         super.destroy();
     }
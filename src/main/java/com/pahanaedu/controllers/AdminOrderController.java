@@ -3,9 +3,11 @@ package com.pahanaedu.controllers;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.math.BigDecimal;
+import java.sql.Timestamp;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
@@ -18,7 +20,12 @@ import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import com.pahanaedu.dao.OrderDAO;
+import com.pahanaedu.dao.OrderStatsDAO;
+import com.pahanaedu.dao.SalesLedgerDAO;
+import com.pahanaedu.dao.SalesRollupDAO;
 import com.pahanaedu.models.Order;
+import com.pahanaedu.services.OrderStatusService;
+import com.pahanaedu.utils.Log;
 
 /**
  * Enhanced Admin Order Management Controller with Comprehensive Promo Code Support
@@ -27,17 +34,29 @@ import com.pahanaedu.models.Order;
 @WebServlet({"/admin/orders/*", "/admin/order-stats"})
 public class AdminOrderController extends HttpServlet {
     private static final long serialVersionUID = 1L;
+    private static final Log LOG = Log.get(AdminOrderController.class);
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final int MAX_BULK_ORDER_IDS = 5000;
     private OrderDAO orderDAO;
+    private OrderStatsDAO orderStatsDAO;
+    private SalesRollupDAO salesRollupDAO;
+    private SalesLedgerDAO salesLedgerDAO;
+    private OrderStatusService orderStatusService;
     private Gson gson;
 
     @Override
     public void init() throws ServletException {
         try {
             orderDAO = new OrderDAO();
+            orderStatsDAO = new OrderStatsDAO();
+            salesRollupDAO = new SalesRollupDAO();
+            salesLedgerDAO = new SalesLedgerDAO();
+            orderStatusService = new OrderStatusService(orderDAO);
             gson = new Gson();
-            System.out.println("AdminOrderController: Initialized successfully with promo code support");
+            LOG.info("Initialized successfully with promo code support");
         } catch (Exception e) {
-            System.err.println("AdminOrderController: Failed to initialize - " + e.getMessage());
+            LOG.error("Failed to initialize", "error", e.getMessage());
             throw new ServletException("Failed to initialize", e);
         }
     }
@@ -54,7 +73,7 @@ public class AdminOrderController extends HttpServlet {
         String servletPath = request.getServletPath();
         String pathInfo = request.getPathInfo();
         
-        System.out.println("AdminOrderController: ServletPath = " + servletPath + ", PathInfo = " + pathInfo);
+        LOG.debug("Request", "servletPath", servletPath, "pathInfo", pathInfo);
         
         // Handle statistics endpoint
         if ("/admin/order-stats".equals(servletPath)) {
@@ -68,6 +87,8 @@ public class AdminOrderController extends HttpServlet {
                 handleGetOrders(request, response);
             } else if (pathInfo.equals("/stats")) {
                 handleGetOrderStats(request, response);
+            } else if (pathInfo.equals("/sales")) {
+                handleGetSales(request, response);
             } else {
                 sendErrorResponse(response, "Invalid operation: " + pathInfo);
             }
@@ -94,6 +115,8 @@ public class AdminOrderController extends HttpServlet {
 
         if (pathInfo.equals("/update-status")) {
             handleUpdateOrderStatus(request, response);
+        } else if (pathInfo.equals("/bulk-update-status")) {
+            handleBulkUpdateOrderStatus(request, response);
         } else {
             sendErrorResponse(response, "Invalid operation: " + pathInfo);
         }
@@ -105,14 +128,14 @@ public class AdminOrderController extends HttpServlet {
     private boolean isAdminAuthorized(HttpServletRequest request) {
         HttpSession session = request.getSession(false);
         if (session == null) {
-            System.out.println("AdminOrderController: No session found");
+            LOG.debug("No session found");
             return false;
         }
         
         Boolean isLoggedIn = (Boolean) session.getAttribute("isLoggedIn");
         String userRole = (String) session.getAttribute("userRole");
         
-        System.out.println("AdminOrderController: isLoggedIn=" + isLoggedIn + ", userRole=" + userRole);
+        LOG.debug("Session check", "isLoggedIn", isLoggedIn, "userRole", userRole);
         return Boolean.TRUE.equals(isLoggedIn) && "ADMIN".equals(userRole);
     }
 
@@ -131,43 +154,45 @@ public class AdminOrderController extends HttpServlet {
             String paymentFilter = request.getParameter("payment");
             String dateFilter = request.getParameter("date");
 
-            System.out.println("AdminOrderController: Filters - Status: " + statusFilter + 
-                             ", Payment: " + paymentFilter + ", Date: " + dateFilter);
+            LOG.debug("Filters", "status", statusFilter, "payment", paymentFilter, "date", dateFilter);
 
-            List<Order> allOrders = orderDAO.getAllOrders();
-            System.out.println("AdminOrderController: Total orders from DAO: " + allOrders.size());
+            OrderDAO.OrderQuery query = new OrderDAO.OrderQuery();
+            query.status = statusFilter;
+            query.paymentMethod = paymentFilter;
+            query.createdFrom = getDateFilterStart(dateFilter);
+            query.pageSize = parsePageSize(request.getParameter("pageSize"));
             
-            // Apply filters
-            List<Order> filteredOrders = allOrders.stream()
-                .filter(order -> {
-                    if (statusFilter != null && !statusFilter.isEmpty() && 
-                        !statusFilter.equals(order.getStatus())) return false;
-                    if (paymentFilter != null && !paymentFilter.isEmpty() && 
-                        !paymentFilter.equals(order.getPaymentMethod())) return false;
-                    if (dateFilter != null && !dateFilter.isEmpty() && 
-                        !matchesDateFilter(order, dateFilter)) return false;
-                    return true;
-                })
-                .collect(Collectors.toList());
-
-            System.out.println("AdminOrderController: Filtered orders: " + filteredOrders.size());
-
-            // Count orders with promo codes for logging
-            long ordersWithPromo = filteredOrders.stream()
-                .filter(order -> order.getPromoCode() != null && !order.getPromoCode().trim().isEmpty())
-                .count();
-            System.out.println("AdminOrderController: Orders with promo codes: " + ordersWithPromo);
+            // Counts are only needed for the first page
+            String cursor = request.getParameter("cursor");
+            boolean firstPage = cursor == null || cursor.isEmpty();
+            query.includeCounts = firstPage;
+            if (!firstPage && !applyCursor(query, cursor)) {
+                sendErrorResponse(response, "Invalid cursor");
+                return;
+            }
+
+            OrderDAO.OrderPage page = orderDAO.findOrders(query);
+            LOG.debug("Orders page loaded", "orders", page.orders.size(), "hasMore", page.hasMore);
 
             // Build response
             JsonObject responseObj = new JsonObject();
             responseObj.addProperty("success", true);
             responseObj.addProperty("message", "Orders retrieved successfully");
-            responseObj.addProperty("totalCount", allOrders.size());
-            responseObj.addProperty("filteredCount", filteredOrders.size());
-            responseObj.addProperty("ordersWithPromo", ordersWithPromo);
+            if (firstPage) {
+                responseObj.addProperty("totalCount", orderDAO.countAllOrders());
+                responseObj.addProperty("filteredCount", page.filteredCount);
+                responseObj.addProperty("ordersWithPromo", page.ordersWithPromo);
+            }
+            responseObj.addProperty("pageSize", query.pageSize);
+            responseObj.addProperty("hasMore", page.hasMore);
+            if (page.hasMore) {
+                // An order without created_at gets an id-only cursor
+                String createdAt = page.nextCreatedAt != null ? String.valueOf(page.nextCreatedAt.getTime()) : "";
+                responseObj.addProperty("nextCursor", createdAt + "_" + page.nextId);
+            }
 
             JsonArray ordersArray = new JsonArray();
-            for (Order order : filteredOrders) {
+            for (Order order : page.orders) {
                 JsonObject orderObj = createOrderJsonObject(order);
                 ordersArray.add(orderObj);
             }
@@ -175,11 +200,10 @@ public class AdminOrderController extends HttpServlet {
             responseObj.add("orders", ordersArray);
             out.print(responseObj.toString());
 
-            System.out.println("AdminOrderController: Response sent successfully");
+            LOG.debug("Response sent successfully");
 
         } catch (Exception e) {
-            System.err.println("AdminOrderController: Error retrieving orders - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error retrieving orders", e);
             sendErrorResponse(response, "Error retrieving orders: " + e.getMessage());
         } finally {
             out.close();
@@ -197,76 +221,29 @@ public class AdminOrderController extends HttpServlet {
         PrintWriter out = response.getWriter();
 
         try {
-            System.out.println("AdminOrderController: Getting order statistics with promo analytics...");
+            LOG.debug("Getting order statistics with promo analytics...");
             
-            List<Order> allOrders = orderDAO.getAllOrders();
-            System.out.println("AdminOrderController: Total orders for stats: " + allOrders.size());
+            OrderStatsDAO.OrderStats stats = orderStatsDAO.getOrderStats();
             
-            // Calculate basic statistics
-            int totalOrders = allOrders.size();
-            int pendingOrders = 0;
-            int confirmedOrders = 0;
-            int shippedOrders = 0;
-            int deliveredOrders = 0;
-            int cancelledOrders = 0;
-            BigDecimal totalRevenue = BigDecimal.ZERO;
+            int totalOrders = stats.totalOrders;
+            int pendingOrders = stats.pendingOrders;
+            int confirmedOrders = stats.confirmedOrders;
+            int shippedOrders = stats.shippedOrders;
+            int deliveredOrders = stats.deliveredOrders;
+            int cancelledOrders = stats.cancelledOrders;
+            BigDecimal totalRevenue = stats.totalRevenue;
             
             // Enhanced statistics for promo codes
-            int ordersWithPromo = 0;
-            BigDecimal totalDiscount = BigDecimal.ZERO;
-            BigDecimal revenueWithoutDiscount = BigDecimal.ZERO;
-
-            for (Order order : allOrders) {
-                String status = order.getStatus();
-                switch (status != null ? status : "unknown") {
-                    case Order.STATUS_PENDING: 
-                        pendingOrders++; 
-                        break;
-                    case Order.STATUS_CONFIRMED: 
-                        confirmedOrders++; 
-                        break;
-                    case Order.STATUS_SHIPPED: 
-                        shippedOrders++; 
-                        break;
-                    case Order.STATUS_DELIVERED: 
-                        deliveredOrders++; 
-                        break;
-                    case Order.STATUS_CANCELLED: 
-                        cancelledOrders++; 
-                        break;
-                    default:
-                        System.out.println("AdminOrderController: Unknown status: " + status);
-                        break;
-                }
-                
-                // Calculate revenue (exclude cancelled orders)
-                if (!Order.STATUS_CANCELLED.equals(order.getStatus())) {
-                    BigDecimal amount = order.getTotalAmount();
-                    if (amount != null) {
-                        totalRevenue = totalRevenue.add(amount);
-                        
-                        // Calculate promo code statistics
-                        if (order.getPromoCode() != null && !order.getPromoCode().trim().isEmpty()) {
-                            ordersWithPromo++;
-                            
-                            // Calculate discount amount
-                            BigDecimal discount = calculateOrderDiscount(order);
-                            if (discount.compareTo(BigDecimal.ZERO) > 0) {
-                                totalDiscount = totalDiscount.add(discount);
-                                revenueWithoutDiscount = revenueWithoutDiscount.add(amount.add(discount));
-                            } else {
-                                revenueWithoutDiscount = revenueWithoutDiscount.add(amount);
-                            }
-                        } else {
-                            revenueWithoutDiscount = revenueWithoutDiscount.add(amount);
-                        }
-                    }
-                }
-            }
+            int ordersWithPromo = stats.ordersWithPromo;
+            BigDecimal totalDiscount = stats.totalDiscount;
+            BigDecimal revenueWithoutDiscount = stats.revenueWithoutDiscount;
 
-            System.out.println("AdminOrderController: Stats calculated - Pending: " + pendingOrders + 
-                             ", Confirmed: " + confirmedOrders + ", Revenue: " + totalRevenue +
-                             ", Orders with promo: " + ordersWithPromo + ", Total discount: " + totalDiscount);
+            LOG.debug("Stats calculated",
+                    "pending", pendingOrders,
+                    "confirmed", confirmedOrders,
+                    "revenue", totalRevenue,
+                    "ordersWithPromo", ordersWithPromo,
+                    "totalDiscount", totalDiscount);
 
             // Build response
             JsonObject responseObj = new JsonObject();
@@ -291,20 +268,109 @@ public class AdminOrderController extends HttpServlet {
             double promoUsageRate = totalOrders > 0 ? (double) ordersWithPromo / totalOrders * 100 : 0;
             statsObj.addProperty("promoUsageRate", Math.round(promoUsageRate * 100.0) / 100.0);
 
+            // Today's sales per channel from the daily rollups
+            JsonObject todayObj = new JsonObject();
+            for (Map.Entry<String, SalesRollupDAO.DailySales> entry : salesRollupDAO.getTodayByChannel().entrySet()) {
+                JsonObject channelObj = new JsonObject();
+                channelObj.addProperty("orders", entry.getValue().orderCount);
+                channelObj.addProperty("cancelledOrders", entry.getValue().cancelledCount);
+                channelObj.addProperty("revenue", entry.getValue().revenue);
+                todayObj.add(entry.getKey(), channelObj);
+            }
+            statsObj.add("today", todayObj);
+
             responseObj.add("stats", statsObj);
             out.print(responseObj.toString());
 
-            System.out.println("AdminOrderController: Enhanced stats response sent successfully");
+            LOG.debug("Enhanced stats response sent successfully");
 
         } catch (Exception e) {
-            System.err.println("AdminOrderController: Error getting statistics - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error getting statistics", e);
             sendErrorResponse(response, "Error retrieving statistics: " + e.getMessage());
         } finally {
             out.close();
         }
     }
 
+    /**
+     * Handle sales ledger query: ?from=yyyy-MM-dd&to=yyyy-MM-dd&groupBy=day|channel|cashier|item|category[&channel=online|pos]
+     */
+    private void handleGetSales(HttpServletRequest request, HttpServletResponse response) 
+            throws IOException {
+        
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        PrintWriter out = response.getWriter();
+
+        try {
+            LocalDate from;
+            LocalDate to;
+            try {
+                from = LocalDate.parse(request.getParameter("from"));
+                to = LocalDate.parse(request.getParameter("to"));
+            } catch (Exception e) {
+                sendErrorResponse(response, "Valid from and to dates (yyyy-MM-dd) are required");
+                return;
+            }
+            if (to.isBefore(from)) {
+                sendErrorResponse(response, "The to date must not be before the from date");
+                return;
+            }
+
+            SalesLedgerDAO.GroupBy groupBy;
+            String groupByParam = request.getParameter("groupBy");
+            try {
+                groupBy = groupByParam == null || groupByParam.isEmpty() ? SalesLedgerDAO.GroupBy.DAY
+                        : SalesLedgerDAO.GroupBy.valueOf(groupByParam.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                sendErrorResponse(response, "Invalid groupBy: " + groupByParam);
+                return;
+            }
+
+            String channel = request.getParameter("channel");
+            if (channel != null && channel.trim().isEmpty()) {
+                channel = null;
+            }
+            if (channel != null && !SalesRollupDAO.CHANNEL_ONLINE.equals(channel)
+                    && !SalesRollupDAO.CHANNEL_POS.equals(channel)) {
+                sendErrorResponse(response, "Invalid channel: " + channel);
+                return;
+            }
+
+            List<SalesLedgerDAO.LedgerRow> rows = salesLedgerDAO.query(from, to, groupBy, channel);
+
+            JsonObject responseObj = new JsonObject();
+            responseObj.addProperty("success", true);
+            responseObj.addProperty("from", from.toString());
+            responseObj.addProperty("to", to.toString());
+            responseObj.addProperty("groupBy", groupBy.name().toLowerCase());
+
+            BigDecimal totalRevenue = BigDecimal.ZERO;
+            JsonArray rowsArray = new JsonArray();
+            for (SalesLedgerDAO.LedgerRow row : rows) {
+                JsonObject rowObj = new JsonObject();
+                rowObj.addProperty("key", row.key);
+                if (row.label != null) {
+                    rowObj.addProperty("label", row.label);
+                }
+                rowObj.addProperty("quantity", row.quantity);
+                rowObj.addProperty("revenue", row.revenue);
+                rowsArray.add(rowObj);
+                totalRevenue = totalRevenue.add(row.revenue);
+            }
+
+            responseObj.addProperty("totalRevenue", totalRevenue);
+            responseObj.add("rows", rowsArray);
+            out.print(responseObj.toString());
+
+        } catch (Exception e) {
+            LOG.error("Error querying sales", e);
+            sendErrorResponse(response, "Error querying sales: " + e.getMessage());
+        } finally {
+            out.close();
+        }
+    }
+
     /**
      * Handle update order status
      */
@@ -319,8 +385,7 @@ public class AdminOrderController extends HttpServlet {
             String orderIdStr = request.getParameter("orderId");
             String newStatus = request.getParameter("status");
 
-            System.out.println("AdminOrderController: Update status request - OrderID: " + orderIdStr + 
-                             ", Status: " + newStatus);
+            LOG.debug("Update status request", "orderID", orderIdStr, "status", newStatus);
 
             // Validation
             if (orderIdStr == null || orderIdStr.trim().isEmpty()) {
@@ -346,46 +411,143 @@ public class AdminOrderController extends HttpServlet {
                 return;
             }
 
-            Order currentOrder = orderDAO.getOrderById(orderId);
-            if (currentOrder == null) {
+            // The transition is checked against the locked order row, without loading the order
+            OrderDAO.StatusChange change = orderStatusService.changeStatus(orderId, newStatus);
+
+            if (!change.found) {
                 sendErrorResponse(response, "Order not found with ID: " + orderId);
                 return;
             }
 
-            if (!isValidStatusTransition(currentOrder.getStatus(), newStatus)) {
+            if (!change.allowed) {
                 sendErrorResponse(response, "Invalid status transition from " + 
-                                getStatusDisplay(currentOrder.getStatus()) + " to " + 
+                                getStatusDisplay(change.previousStatus) + " to " + 
                                 getStatusDisplay(newStatus));
                 return;
             }
 
-            boolean success = orderDAO.updateOrderStatus(orderId, newStatus);
-
-            if (success) {
+            if (change.updated) {
                 JsonObject responseObj = new JsonObject();
                 responseObj.addProperty("success", true);
                 responseObj.addProperty("message", "Order status updated to " + getStatusDisplay(newStatus));
                 responseObj.addProperty("orderId", orderId);
                 responseObj.addProperty("newStatus", newStatus);
-                responseObj.addProperty("previousStatus", currentOrder.getStatus());
-                
-                // Log promo code information if available
-                if (currentOrder.getPromoCode() != null && !currentOrder.getPromoCode().trim().isEmpty()) {
-                    System.out.println("AdminOrderController: Updated order " + orderId + 
-                                     " with promo code " + currentOrder.getPromoCode());
-                }
+                responseObj.addProperty("previousStatus", change.previousStatus);
+                responseObj.addProperty("restockedLines", change.restockedLines.size());
+                responseObj.addProperty("promoReleased", change.promoReleased);
                 
                 out.print(responseObj.toString());
                 
-                System.out.println("AdminOrderController: Order " + orderId + " status updated from " + 
-                                 currentOrder.getStatus() + " to " + newStatus);
+                LOG.debug("Order status updated",
+                        "orderId", orderId,
+                        "status", change.previousStatus,
+                        "newStatus", newStatus);
             } else {
                 sendErrorResponse(response, "Failed to update order status in database");
             }
 
         } catch (Exception e) {
-            System.err.println("AdminOrderController: Error updating order status - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error updating order status", e);
+            sendErrorResponse(response, "Error updating order status: " + e.getMessage());
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Handle bulk status update: orderIds is a comma-separated list, status applies to all.
+     * Each order is validated against its own current status and reported individually.
+     */
+    private void handleBulkUpdateOrderStatus(HttpServletRequest request, HttpServletResponse response) 
+            throws IOException {
+        
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        PrintWriter out = response.getWriter();
+
+        try {
+            String orderIdsParam = request.getParameter("orderIds");
+            String newStatus = request.getParameter("status");
+
+            if (orderIdsParam == null || orderIdsParam.trim().isEmpty()) {
+                sendErrorResponse(response, "Order IDs are required");
+                return;
+            }
+
+            if (newStatus == null || newStatus.trim().isEmpty()) {
+                sendErrorResponse(response, "Status is required");
+                return;
+            }
+
+            if (!isValidStatus(newStatus)) {
+                sendErrorResponse(response, "Invalid status value: " + newStatus);
+                return;
+            }
+
+            List<Integer> orderIds = new ArrayList<>();
+            for (String token : orderIdsParam.split("[,\\s]+")) {
+                if (token.isEmpty()) continue;
+                try {
+                    orderIds.add(Integer.parseInt(token));
+                } catch (NumberFormatException e) {
+                    sendErrorResponse(response, "Invalid order ID format: " + token);
+                    return;
+                }
+            }
+
+            if (orderIds.size() > MAX_BULK_ORDER_IDS) {
+                sendErrorResponse(response, "At most " + MAX_BULK_ORDER_IDS + " orders can be updated at once");
+                return;
+            }
+
+            Map<Integer, OrderDAO.StatusChange> changes = orderStatusService.changeStatuses(orderIds, newStatus);
+
+            int updatedCount = 0;
+            JsonArray resultsArray = new JsonArray();
+            for (Map.Entry<Integer, OrderDAO.StatusChange> entry : changes.entrySet()) {
+                OrderDAO.StatusChange change = entry.getValue();
+                JsonObject resultObj = new JsonObject();
+                resultObj.addProperty("orderId", entry.getKey());
+                resultObj.addProperty("success", change.updated);
+                if (change.previousStatus != null) {
+                    resultObj.addProperty("previousStatus", change.previousStatus);
+                }
+
+                if (change.updated) {
+                    updatedCount++;
+                    if (!change.restockedLines.isEmpty()) {
+                        resultObj.addProperty("restockedLines", change.restockedLines.size());
+                    }
+                    if (change.promoReleased) {
+                        resultObj.addProperty("promoReleased", true);
+                    }
+                } else if (!change.found) {
+                    resultObj.addProperty("message", "Order not found");
+                } else if (!change.allowed) {
+                    resultObj.addProperty("message", "Invalid status transition from " + 
+                                          getStatusDisplay(change.previousStatus) + " to " + 
+                                          getStatusDisplay(newStatus));
+                } else {
+                    resultObj.addProperty("message", "Failed to update order status in database");
+                }
+                resultsArray.add(resultObj);
+            }
+
+            JsonObject responseObj = new JsonObject();
+            responseObj.addProperty("success", true);
+            responseObj.addProperty("message", updatedCount + " of " + changes.size() + 
+                                    " orders updated to " + getStatusDisplay(newStatus));
+            responseObj.addProperty("newStatus", newStatus);
+            responseObj.addProperty("requested", changes.size());
+            responseObj.addProperty("updated", updatedCount);
+            responseObj.add("results", resultsArray);
+            out.print(responseObj.toString());
+
+            LOG.debug("Bulk status update", "requested", changes.size(), "updated", updatedCount, 
+                      "newStatus", newStatus);
+
+        } catch (Exception e) {
+            LOG.error("Error in bulk status update", e);
             sendErrorResponse(response, "Error updating order status: " + e.getMessage());
         } finally {
             out.close();
@@ -428,7 +590,7 @@ public class AdminOrderController extends HttpServlet {
         // Promo code information
         if (order.getPromoCode() != null && !order.getPromoCode().trim().isEmpty()) {
             orderObj.addProperty("promoCode", order.getPromoCode());
-            System.out.println("AdminOrderController: Order " + order.getId() + " has promo code: " + order.getPromoCode());
+            LOG.debug("Order has promo code", "id", order.getId(), "promoCode", order.getPromoCode());
         }
         
         // Transaction ID for online payments
@@ -514,49 +676,49 @@ public class AdminOrderController extends HttpServlet {
     }
 
     /**
-     * Calculate discount amount for an order
-     */
-    private BigDecimal calculateOrderDiscount(Order order) {
-        if (order.getDiscountAmount() != null) {
-            return order.getDiscountAmount();
-        }
-        
-        // Calculate discount if not stored directly
-        if (order.getOrderItems() != null && order.getTotalAmount() != null) {
-            BigDecimal subtotal = order.getOrderItems().stream()
-                .map(item -> item.getPrice().multiply(new BigDecimal(item.getQuantity())))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-            
-            BigDecimal shipping = subtotal.compareTo(new BigDecimal("3000")) >= 0 ? 
-                                 BigDecimal.ZERO : new BigDecimal("250");
-            
-            BigDecimal expectedTotal = subtotal.add(shipping);
-            BigDecimal discount = expectedTotal.subtract(order.getTotalAmount());
-            
-            return discount.compareTo(BigDecimal.ZERO) > 0 ? discount : BigDecimal.ZERO;
-        }
-        
-        return BigDecimal.ZERO;
-    }
-
-    /**
-     * Check if date matches filter
+     * Get the earliest creation time matched by a date filter, or null for no date filter
      */
-    private boolean matchesDateFilter(Order order, String dateFilter) {
-        if (order.getCreatedAt() == null) return false;
+    private Timestamp getDateFilterStart(String dateFilter) {
+        if (dateFilter == null || dateFilter.isEmpty()) return null;
         
-        LocalDate orderDate = order.getCreatedAt().toLocalDateTime().toLocalDate();
         LocalDate today = LocalDate.now();
         
         switch (dateFilter) {
             case "today": 
-                return orderDate.equals(today);
+                return Timestamp.valueOf(today.atStartOfDay());
             case "week": 
-                return orderDate.isAfter(today.minusDays(7));
+                return Timestamp.valueOf(today.minusDays(6).atStartOfDay());
             case "month": 
-                return orderDate.isAfter(today.minusDays(30));
+                return Timestamp.valueOf(today.minusDays(29).atStartOfDay());
             default: 
-                return true;
+                return null;
+        }
+    }
+
+    /**
+     * Parse requested page size, falling back to the default
+     */
+    private int parsePageSize(String pageSizeParam) {
+        if (pageSizeParam == null || pageSizeParam.isEmpty()) return DEFAULT_PAGE_SIZE;
+        try {
+            return Math.max(1, Math.min(Integer.parseInt(pageSizeParam), MAX_PAGE_SIZE));
+        } catch (NumberFormatException e) {
+            return DEFAULT_PAGE_SIZE;
+        }
+    }
+
+    /**
+     * Decode a "createdAtMillis_id" cursor, or "_id" past an order without created_at, into the query
+     */
+    private boolean applyCursor(OrderDAO.OrderQuery query, String cursor) {
+        int separator = cursor.indexOf('_');
+        if (separator < 0) return false;
+        try {
+            query.cursorCreatedAt = separator > 0 ? new Timestamp(Long.parseLong(cursor.substring(0, separator))) : null;
+            query.cursorId = Integer.parseInt(cursor.substring(separator + 1));
+            return query.cursorCreatedAt != null || query.cursorId > 0;
+        } catch (NumberFormatException e) {
+            return false;
         }
     }
 
@@ -571,30 +733,6 @@ public class AdminOrderController extends HttpServlet {
                status.equals(Order.STATUS_CANCELLED);
     }
 
-    /**
-     * Check if status transition is valid
-     */
-    private boolean isValidStatusTransition(String currentStatus, String newStatus) {
-        // Cannot change from delivered or cancelled
-        if (Order.STATUS_DELIVERED.equals(currentStatus) && !Order.STATUS_DELIVERED.equals(newStatus)) 
-            return false;
-        if (Order.STATUS_CANCELLED.equals(currentStatus) && !Order.STATUS_CANCELLED.equals(newStatus)) 
-            return false;
-            
-        // Cannot go back to pending
-        if (!Order.STATUS_PENDING.equals(currentStatus) && Order.STATUS_PENDING.equals(newStatus)) 
-            return false;
-            
-        // Cannot skip steps (with some flexibility for admin)
-        if (Order.STATUS_PENDING.equals(currentStatus) && Order.STATUS_SHIPPED.equals(newStatus)) 
-            return false;
-        if ((Order.STATUS_PENDING.equals(currentStatus) || Order.STATUS_CONFIRMED.equals(currentStatus)) 
-            && Order.STATUS_DELIVERED.equals(newStatus)) 
-            return false;
-            
-        return true;
-    }
-
     /**
      * Get status display text
      */
@@ -627,13 +765,17 @@ public class AdminOrderController extends HttpServlet {
         out.print(responseObj.toString());
         out.flush();
         
-        System.err.println("AdminOrderController: Error response sent - " + message);
+        LOG.warn("Error response sent", "message", message);
     }
 
     @Override
     public void destroy() {
-        System.out.println("AdminOrderController: Being destroyed");
+        LOG.info("Being destroyed");
         orderDAO = null;
+        orderStatsDAO = null;
+        salesRollupDAO = null;
+        salesLedgerDAO = null;
+        orderStatusService = null;
         gson = null;
         super.destroy();
     }
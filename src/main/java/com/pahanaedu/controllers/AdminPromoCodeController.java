@@ -20,6 +20,7 @@ import com.google.gson.JsonObject;
 import com.pahanaedu.dao.PromoCodeDAO;
 import com.pahanaedu.dao.PromoCodeDAO.PromoCodeStats;
 import com.pahanaedu.models.PromoCode;
+import com.pahanaedu.utils.Log;
 
 /**
  * Admin Promo Code Management Controller
@@ -28,6 +29,7 @@ import com.pahanaedu.models.PromoCode;
 @WebServlet({"/admin/promo-codes/*", "/admin/promo-stats"})
 public class AdminPromoCodeController extends HttpServlet {
     private static final long serialVersionUID = 1L;
+    private static final Log LOG = Log.get(AdminPromoCodeController.class);
     
     private PromoCodeDAO promoCodeDAO;
     private Gson gson;
@@ -39,9 +41,9 @@ public class AdminPromoCodeController extends HttpServlet {
             promoCodeDAO = new PromoCodeDAO();
             gson = new Gson();
             dateFormat = new SimpleDateFormat("yyyy-MM-dd");
-            System.out.println("AdminPromoCodeController: Initialized successfully");
+            LOG.info("Initialized successfully");
         } catch (Exception e) {
-            System.err.println("AdminPromoCodeController: Failed to initialize - " + e.getMessage());
+            LOG.error("Failed to initialize", "error", e.getMessage());
             throw new ServletException("Failed to initialize", e);
         }
     }
@@ -58,7 +60,7 @@ public class AdminPromoCodeController extends HttpServlet {
         String servletPath = request.getServletPath();
         String pathInfo = request.getPathInfo();
         
-        System.out.println("DEBUG: ServletPath = " + servletPath + ", PathInfo = " + pathInfo);
+        LOG.debug("Request", "servletPath", servletPath, "pathInfo", pathInfo);
         
         // Handle statistics endpoint
         if ("/admin/promo-stats".equals(servletPath)) {
@@ -156,18 +158,18 @@ public class AdminPromoCodeController extends HttpServlet {
                         java.lang.reflect.Method getIdMethod = userObj.getClass().getMethod("getId");
                         userId = (Integer) getIdMethod.invoke(userObj);
                     } catch (Exception e) {
-                        System.err.println("Error getting user ID from user object: " + e.getMessage());
+                        LOG.error("Error getting user ID from user object", "error", e.getMessage());
                     }
                 }
             }
             
             if (userId != null && userId > 0) {
-                System.out.println("DEBUG: Found admin user ID: " + userId);
+                LOG.debug("Found admin user ID", "userId", userId);
                 return userId;
             }
         }
         
-        System.err.println("WARNING: Could not find valid admin user ID in session, using default admin ID: 1");
+        LOG.warn("Could not find valid admin user ID in session, using default admin ID: 1");
         // Return a default admin user ID (assuming there's an admin user with ID 1)
         // You should replace this with a valid admin user ID from your database
         return 1;
@@ -202,11 +204,10 @@ public class AdminPromoCodeController extends HttpServlet {
             responseObj.add("promoCodes", gson.toJsonTree(promoCodes));
             
             out.print(responseObj.toString());
-            System.out.println("DEBUG: Retrieved " + promoCodes.size() + " promo codes");
+            LOG.debug("Retrieved promo codes", "promoCodesCount", promoCodes.size());
             
         } catch (Exception e) {
-            System.err.println("AdminPromoCodeController: Error retrieving promo codes - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error retrieving promo codes", e);
             sendErrorResponse(response, "Error retrieving promo codes: " + e.getMessage());
         } finally {
             out.close();
@@ -238,7 +239,7 @@ public class AdminPromoCodeController extends HttpServlet {
             }
             
         } catch (Exception e) {
-            System.err.println("AdminPromoCodeController: Error retrieving promo code - " + e.getMessage());
+            LOG.error("Error retrieving promo code", "error", e.getMessage());
             sendErrorResponse(response, "Error retrieving promo code: " + e.getMessage());
         } finally {
             out.close();
@@ -272,11 +273,10 @@ public class AdminPromoCodeController extends HttpServlet {
             responseObj.add("stats", statsObj);
             out.print(responseObj.toString());
             
-            System.out.println("DEBUG: Promo stats - Total: " + stats.totalCodes + 
-                             ", Active: " + stats.activeCodes + ", Usage: " + stats.totalUsage);
+            LOG.debug("Promo stats", "total", stats.totalCodes, "active", stats.activeCodes, "usage", stats.totalUsage);
             
         } catch (Exception e) {
-            System.err.println("AdminPromoCodeController: Error getting statistics - " + e.getMessage());
+            LOG.error("Error getting statistics", "error", e.getMessage());
             sendErrorResponse(response, "Error retrieving statistics: " + e.getMessage());
         } finally {
             out.close();
@@ -296,7 +296,7 @@ public class AdminPromoCodeController extends HttpServlet {
         try {
             // Get current admin ID first and validate
             int currentAdminId = getCurrentAdminId(request);
-            System.out.println("DEBUG: Creating promo code with admin ID: " + currentAdminId);
+            LOG.debug("Creating promo code with admin ID", "currentAdminId", currentAdminId);
             
             // Get form parameters
             String code = request.getParameter("code");
@@ -310,12 +310,12 @@ public class AdminPromoCodeController extends HttpServlet {
             String status = request.getParameter("status");
             
             // Debug log parameters
-            System.out.println("DEBUG: Promo code parameters:");
-            System.out.println("  Code: " + code);
-            System.out.println("  Description: " + description);
-            System.out.println("  Discount Type: " + discountType);
-            System.out.println("  Discount Value: " + discountValueStr);
-            System.out.println("  Status: " + status);
+            LOG.debug("Promo code parameters",
+                    "code", code,
+                    "description", description,
+                    "discountType", discountType,
+                    "discountValue", discountValueStr,
+                    "status", status);
             
             // Validation
             if (code == null || code.trim().isEmpty()) {
@@ -413,11 +413,11 @@ public class AdminPromoCodeController extends HttpServlet {
             promoCode.setStatus(status != null ? status : "active");
             promoCode.setCreatedBy(currentAdminId);
             
-            System.out.println("DEBUG: PromoCode object created:");
-            System.out.println("  ID: " + promoCode.getId());
-            System.out.println("  Code: " + promoCode.getCode());
-            System.out.println("  Created By: " + promoCode.getCreatedBy());
-            System.out.println("  Discount Type: " + promoCode.getDiscountType());
+            LOG.debug("PromoCode object created",
+                    "id", promoCode.getId(),
+                    "code", promoCode.getCode(),
+                    "createdBy", promoCode.getCreatedBy(),
+                    "discountType", promoCode.getDiscountType());
             
             // Save to database
             if (promoCodeDAO.createPromoCode(promoCode)) {
@@ -428,14 +428,13 @@ public class AdminPromoCodeController extends HttpServlet {
                 
                 out.print(responseObj.toString());
                 
-                System.out.println("DEBUG: Created promo code successfully - " + promoCode.getCode());
+                LOG.debug("Created promo code successfully", "code", promoCode.getCode());
             } else {
                 sendErrorResponse(response, "Failed to create promo code");
             }
             
         } catch (Exception e) {
-            System.err.println("AdminPromoCodeController: Error creating promo code - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error creating promo code", e);
             sendErrorResponse(response, "Error creating promo code: " + e.getMessage());
         } finally {
             out.close();
@@ -582,14 +581,13 @@ public class AdminPromoCodeController extends HttpServlet {
                 
                 out.print(responseObj.toString());
                 
-                System.out.println("DEBUG: Updated promo code - " + existingPromoCode.getCode());
+                LOG.debug("Updated promo code", "code", existingPromoCode.getCode());
             } else {
                 sendErrorResponse(response, "Failed to update promo code");
             }
             
         } catch (Exception e) {
-            System.err.println("AdminPromoCodeController: Error updating promo code - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error updating promo code", e);
             sendErrorResponse(response, "Error updating promo code: " + e.getMessage());
         } finally {
             out.close();
@@ -637,13 +635,13 @@ public class AdminPromoCodeController extends HttpServlet {
                 
                 out.print(responseObj.toString());
                 
-                System.out.println("DEBUG: Deleted promo code - " + existingPromoCode.getCode());
+                LOG.debug("Deleted promo code", "code", existingPromoCode.getCode());
             } else {
                 sendErrorResponse(response, "Failed to delete promo code");
             }
             
         } catch (Exception e) {
-            System.err.println("AdminPromoCodeController: Error deleting promo code - " + e.getMessage());
+            LOG.error("Error deleting promo code", "error", e.getMessage());
             sendErrorResponse(response, "Error deleting promo code: " + e.getMessage());
         } finally {
             out.close();
@@ -705,7 +703,7 @@ public class AdminPromoCodeController extends HttpServlet {
             out.print(responseObj.toString());
             
         } catch (Exception e) {
-            System.err.println("AdminPromoCodeController: Error validating promo code - " + e.getMessage());
+            LOG.error("Error validating promo code", "error", e.getMessage());
             sendErrorResponse(response, "Error validating promo code: " + e.getMessage());
         } finally {
             out.close();
@@ -759,12 +757,12 @@ public class AdminPromoCodeController extends HttpServlet {
         out.print(responseObj.toString());
         out.flush();
         
-        System.err.println("DEBUG: Error response sent - " + message);
+        LOG.warn("Error response sent", "message", message);
     }
     
     @Override
     public void destroy() {
-        System.out.println("AdminPromoCodeController: Being destroyed");
+        LOG.info("Being destroyed");
         promoCodeDAO = null;
         gson = null;
         dateFormat = null;
@@ -3,6 +3,7 @@ package com.pahanaedu.controllers;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.math.BigDecimal;
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -17,12 +18,16 @@ import com.pahanaedu.dao.CashierOrderDAO;
 import com.pahanaedu.dao.ItemDAO;
 import com.pahanaedu.dao.OrderDAO;
 import com.pahanaedu.dao.PromoCodeDAO;
+import com.pahanaedu.dao.SalesRollupDAO;
 import com.pahanaedu.models.CashierOrder;
 import com.pahanaedu.models.CashierOrderItem;
 import com.pahanaedu.models.Item;
 import com.pahanaedu.models.Order;
 import com.pahanaedu.models.PromoCode;
 import com.pahanaedu.models.User;
+import com.pahanaedu.utils.CashierOrderItemParser;
+import com.pahanaedu.utils.JsonStreamWriter;
+import com.pahanaedu.utils.Log;
 
 /**
  * Cashier Controller - Handles cashier operations
@@ -31,6 +36,7 @@ import com.pahanaedu.models.User;
 @WebServlet("/cashier/*")
 public class CashierController extends HttpServlet {
     private static final long serialVersionUID = 1L;
+    private static final Log LOG = Log.get(CashierController.class);
     
     private CashierOrderDAO cashierOrderDAO;
     private ItemDAO itemDAO;
@@ -44,9 +50,9 @@ public class CashierController extends HttpServlet {
             itemDAO = new ItemDAO();
             orderDAO = new OrderDAO();
             promoCodeDAO = new PromoCodeDAO();
-            System.out.println("CashierController: All DAOs initialized successfully");
+            LOG.info("All DAOs initialized successfully");
         } catch (Exception e) {
-            System.err.println("CashierController: Failed to initialize DAOs - " + e.getMessage());
+            LOG.error("Failed to initialize DAOs", "error", e.getMessage());
             throw new ServletException("Failed to initialize DAOs", e);
         }
     }
@@ -153,7 +159,7 @@ public class CashierController extends HttpServlet {
                     Integer userId = (Integer) getIdMethod.invoke(userObj);
                     return userId != null ? userId : 1;
                 } catch (Exception e) {
-                    System.err.println("Error getting cashier ID: " + e.getMessage());
+                    LOG.error("Error getting cashier ID", "error", e.getMessage());
                 }
             }
         }
@@ -166,42 +172,34 @@ public class CashierController extends HttpServlet {
     private void handleGetItems(HttpServletRequest request, HttpServletResponse response) 
             throws IOException {
         
-        response.setContentType("application/json");
-        response.setCharacterEncoding("UTF-8");
-        
-        PrintWriter out = response.getWriter();
+        JsonStreamWriter json = JsonStreamWriter.open(response);
         
         try {
-            List<Item> items = itemDAO.getActiveItems();
-            
-            // Convert to JSON
-            StringBuilder jsonBuilder = new StringBuilder();
-            jsonBuilder.append("{\"success\": true, \"items\": [");
-            
-            for (int i = 0; i < items.size(); i++) {
-                Item item = items.get(i);
-                if (i > 0) jsonBuilder.append(",");
-                
-                jsonBuilder.append("{")
-                    .append("\"id\": ").append(item.getId()).append(",")
-                    .append("\"title\": \"").append(escapeJsonString(item.getTitle())).append("\",")
-                    .append("\"author\": \"").append(escapeJsonString(item.getAuthor())).append("\",")
-                    .append("\"categoryName\": \"").append(escapeJsonString(item.getCategoryName())).append("\",")
-                    .append("\"price\": ").append(item.getPrice()).append(",")
-                    .append("\"offerPrice\": ").append(item.getOfferPrice() != null ? item.getOfferPrice() : "null").append(",")
-                    .append("\"stock\": ").append(item.getStock()).append(",")
-                    .append("\"imagePath\": \"").append(escapeJsonString(item.getImagePath())).append("\"")
-                    .append("}");
-            }
-            
-            jsonBuilder.append("]}");
-            out.print(jsonBuilder.toString());
-            
+            json.beginObject().beginArray("items");
+            
+            itemDAO.forEachActiveItem(item -> json.beginObject()
+                .property("id", item.getId())
+                .property("title", item.getTitle())
+                .property("author", item.getAuthor())
+                .property("categoryName", item.getCategoryName())
+                .property("price", item.getPrice())
+                .property("offerPrice", item.getOfferPrice())
+                .property("stock", item.getStock())
+                .property("imagePath", item.getImagePath())
+                .endObject());
+            
+            json.endList();
+            
+        } catch (SQLException e) {
+            LOG.error("Error getting items", "error", e.getMessage());
+            json.failList("Error retrieving items");
         } catch (Exception e) {
-            System.err.println("CashierController: Error getting items - " + e.getMessage());
-            out.print("{\"success\": false, \"message\": \"Error retrieving items\"}");
+            LOG.error("Error getting items", "error", e.getMessage());
+            if (!json.isStarted()) {
+                json.writeError("Error retrieving items");
+            }
         } finally {
-            out.close();
+            json.close();
         }
     }
     
@@ -249,7 +247,7 @@ public class CashierController extends HttpServlet {
             out.print(jsonBuilder.toString());
             
         } catch (Exception e) {
-            System.err.println("CashierController: Error searching items - " + e.getMessage());
+            LOG.error("Error searching items", "error", e.getMessage());
             out.print("{\"success\": false, \"message\": \"Error searching items\"}");
         } finally {
             out.close();
@@ -268,7 +266,7 @@ public class CashierController extends HttpServlet {
         PrintWriter out = response.getWriter();
         
         try {
-            List<Order> orders = orderDAO.getAllOrders();
+            List<Order> orders = orderDAO.getAllOrders(false);
             
             // Convert to JSON
             StringBuilder jsonBuilder = new StringBuilder();
@@ -294,7 +292,7 @@ public class CashierController extends HttpServlet {
             out.print(jsonBuilder.toString());
             
         } catch (Exception e) {
-            System.err.println("CashierController: Error getting customer orders - " + e.getMessage());
+            LOG.error("Error getting customer orders", "error", e.getMessage());
             out.print("{\"success\": false, \"message\": \"Error retrieving customer orders\"}");
         } finally {
             out.close();
@@ -343,7 +341,7 @@ public class CashierController extends HttpServlet {
             out.print(jsonBuilder.toString());
             
         } catch (Exception e) {
-            System.err.println("CashierController: Error getting cashier orders - " + e.getMessage());
+            LOG.error("Error getting cashier orders", "error", e.getMessage());
             out.print("{\"success\": false, \"message\": \"Error retrieving cashier orders\"}");
         } finally {
             out.close();
@@ -365,12 +363,13 @@ public class CashierController extends HttpServlet {
             int cashierId = getCurrentCashierId(request);
             
             // Get cashier-specific stats
-            int todayOrders = cashierOrderDAO.getTodayOrdersCount(cashierId);
-            BigDecimal todayRevenue = cashierOrderDAO.getTodayRevenue(cashierId);
+            SalesRollupDAO.DailySales today = cashierOrderDAO.getTodaySales(cashierId);
+            int todayOrders = today.orderCount;
+            BigDecimal todayRevenue = today.revenue;
             int totalOrders = cashierOrderDAO.getTotalOrdersCount(cashierId);
             
             // Get general stats
-            int totalItems = itemDAO.countItemsByStatus("active");
+            int totalItems = itemDAO.getItemCountsByStatus().getOrDefault(Item.STATUS_ACTIVE, 0);
             
             String jsonResponse = String.format(
                 "{\"success\": true, \"stats\": {" +
@@ -386,7 +385,7 @@ public class CashierController extends HttpServlet {
             out.print(jsonResponse);
             
         } catch (Exception e) {
-            System.err.println("CashierController: Error getting stats - " + e.getMessage());
+            LOG.error("Error getting stats", "error", e.getMessage());
             out.print("{\"success\": false, \"message\": \"Error retrieving statistics\"}");
         } finally {
             out.close();
@@ -428,7 +427,7 @@ public class CashierController extends HttpServlet {
                 return;
             }
             
-            // Parse items (simple JSON parsing)
+            // Parse items
             List<CashierOrderItem> orderItems = parseOrderItems(itemsJson);
             if (orderItems.isEmpty()) {
                 sendErrorResponse(response, "Invalid order items");
@@ -442,13 +441,14 @@ public class CashierController extends HttpServlet {
             }
             
             BigDecimal discountAmount = BigDecimal.ZERO;
+            Integer redeemedPromoId = null;
             
             // Apply promo code if provided
             if (promoCode != null && !promoCode.trim().isEmpty()) {
                 PromoCode promo = promoCodeDAO.getPromoCodeByCode(promoCode.trim());
-                if (promo != null && promo.isValidForOrder(subtotal)) {
+                if (promo != null && promo.isValidForOrder(subtotal) && promoCodeDAO.redeemUsage(promo.getId())) {
                     discountAmount = promo.calculateDiscount(subtotal);
-                    promoCodeDAO.incrementUsageCount(promo.getId());
+                    redeemedPromoId = promo.getId();
                 }
             }
             
@@ -472,11 +472,14 @@ public class CashierController extends HttpServlet {
             if (cashierOrderDAO.createOrder(order)) {
                 sendSuccessResponse(response, "Order created successfully", order.getId());
             } else {
+                if (redeemedPromoId != null) {
+                    promoCodeDAO.releaseUsage(redeemedPromoId);
+                }
                 sendErrorResponse(response, "Failed to create order");
             }
             
         } catch (Exception e) {
-            System.err.println("CashierController: Error creating order - " + e.getMessage());
+            LOG.error("Error creating order", "error", e.getMessage());
             sendErrorResponse(response, "Error creating order");
         } finally {
             out.close();
@@ -536,7 +539,7 @@ public class CashierController extends HttpServlet {
             out.print(jsonResponse);
             
         } catch (Exception e) {
-            System.err.println("CashierController: Error validating promo - " + e.getMessage());
+            LOG.error("Error validating promo", "error", e.getMessage());
             sendErrorResponse(response, "Error validating promo code");
         } finally {
             out.close();
@@ -573,7 +576,7 @@ public class CashierController extends HttpServlet {
         } catch (NumberFormatException e) {
             sendErrorResponse(response, "Invalid order ID");
         } catch (Exception e) {
-            System.err.println("CashierController: Error printing order - " + e.getMessage());
+            LOG.error("Error printing order", "error", e.getMessage());
             sendErrorResponse(response, "Error printing order");
         } finally {
             out.close();
@@ -611,7 +614,7 @@ public class CashierController extends HttpServlet {
         } catch (NumberFormatException e) {
             sendErrorResponse(response, "Invalid order ID");
         } catch (Exception e) {
-            System.err.println("CashierController: Error updating order status - " + e.getMessage());
+            LOG.error("Error updating order status", "error", e.getMessage());
             sendErrorResponse(response, "Error updating order status");
         } finally {
             out.close();
@@ -619,57 +622,15 @@ public class CashierController extends HttpServlet {
     }
     
     /**
-     * Parse order items from JSON string (simple parsing)
+     * Parse order items from the POS items payload
      */
     private List<CashierOrderItem> parseOrderItems(String itemsJson) {
-        List<CashierOrderItem> items = new ArrayList<>();
-        
         try {
-            // Simple JSON parsing - expecting format: [{"itemId":1,"quantity":2,"price":100.00}]
-            itemsJson = itemsJson.trim();
-            if (itemsJson.startsWith("[") && itemsJson.endsWith("]")) {
-                itemsJson = itemsJson.substring(1, itemsJson.length() - 1);
-                
-                String[] itemStrings = itemsJson.split("\\},\\{");
-                
-                for (String itemStr : itemStrings) {
-                    itemStr = itemStr.replace("{", "").replace("}", "");
-                    String[] pairs = itemStr.split(",");
-                    
-                    CashierOrderItem item = new CashierOrderItem();
-                    
-                    for (String pair : pairs) {
-                        String[] keyValue = pair.split(":");
-                        if (keyValue.length == 2) {
-                            String key = keyValue[0].replace("\"", "").trim();
-                            String value = keyValue[1].replace("\"", "").trim();
-                            
-                            switch (key) {
-                                case "itemId":
-                                    item.setItemId(Integer.parseInt(value));
-                                    break;
-                                case "quantity":
-                                    item.setQuantity(Integer.parseInt(value));
-                                    break;
-                                case "price":
-                                    BigDecimal unitPrice = new BigDecimal(value);
-                                    item.setUnitPrice(unitPrice);
-                                    item.setTotalPrice(unitPrice.multiply(new BigDecimal(item.getQuantity())));
-                                    break;
-                            }
-                        }
-                    }
-                    
-                    if (item.getItemId() > 0 && item.getQuantity() > 0) {
-                        items.add(item);
-                    }
-                }
-            }
-        } catch (Exception e) {
-            System.err.println("CashierController: Error parsing order items - " + e.getMessage());
+            return CashierOrderItemParser.parse(itemsJson);
+        } catch (IllegalArgumentException e) {
+            LOG.error("Error parsing order items", "error", e.getMessage());
+            return new ArrayList<>();
         }
-        
-        return items;
     }
     
     /**
@@ -731,7 +692,7 @@ public class CashierController extends HttpServlet {
     
     @Override
     public void destroy() {
-        System.out.println("CashierController: Controller being destroyed");
+        LOG.info("Controller being destroyed");
         cashierOrderDAO = null;
         itemDAO = null;
         orderDAO = null;
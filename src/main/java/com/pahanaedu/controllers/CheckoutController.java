@@ -5,7 +5,18 @@ import java.io.PrintWriter;
 import java.math.BigDecimal;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
@@ -27,18 +38,36 @@ import com.pahanaedu.models.OrderItem;
 import com.pahanaedu.models.Cart;
 import com.pahanaedu.models.Item;
 import com.pahanaedu.models.PromoCode;
+import com.pahanaedu.services.PaymentGateway;
+import com.pahanaedu.services.PaymentResult;
+import com.pahanaedu.services.StubPaymentGateway;
+import com.pahanaedu.utils.Log;
 
 /**
  * Checkout Controller - Enhanced with Promo Code Support
+ * 
+ * Orders are placed through an asynchronous pipeline: the payment gateway call,
+ * the stock reservation and order insert, and the cart/promo follow-up each run
+ * as a stage off the request thread, and the response is written when the last
+ * stage completes.
  */
-@WebServlet("/checkout/*")
+@WebServlet(urlPatterns = "/checkout/*", asyncSupported = true)
 public class CheckoutController extends HttpServlet {
     private static final long serialVersionUID = 1L;
+    private static final Log LOG = Log.get(CheckoutController.class);
+    
+    // Worker pool for the database stages of the checkout pipeline
+    private static final int CHECKOUT_CORE_THREADS = 4;
+    private static final int CHECKOUT_MAX_THREADS = 16;
+    private static final int CHECKOUT_QUEUE_CAPACITY = 200;
+    private static final long CHECKOUT_TIMEOUT_MS = 60000;
     
     private OrderDAO orderDAO;
     private CartDAO cartDAO;
     private ItemDAO itemDAO;
     private PromoCodeDAO promoCodeDAO;
+    private PaymentGateway paymentGateway;
+    private ThreadPoolExecutor checkoutExecutor;
     
     @Override
     public void init() throws ServletException {
@@ -47,10 +76,12 @@ public class CheckoutController extends HttpServlet {
             cartDAO = new CartDAO();
             itemDAO = new ItemDAO();
             promoCodeDAO = new PromoCodeDAO();
+            paymentGateway = new StubPaymentGateway();
+            checkoutExecutor = createCheckoutExecutor();
             new Gson();
-            System.out.println("CheckoutController: Initialized with promo code support");
+            LOG.info("Initialized with promo code support");
         } catch (Exception e) {
-            System.err.println("CheckoutController: Failed to initialize - " + e.getMessage());
+            LOG.error("Failed to initialize", "error", e.getMessage());
             throw new ServletException("Failed to initialize", e);
         }
     }
@@ -137,6 +168,24 @@ public class CheckoutController extends HttpServlet {
         return null;
     }
     
+    /**
+     * Create the bounded worker pool for checkout pipeline stages
+     */
+    private ThreadPoolExecutor createCheckoutExecutor() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                CHECKOUT_CORE_THREADS, CHECKOUT_MAX_THREADS, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(CHECKOUT_QUEUE_CAPACITY),
+                r -> {
+                    Thread thread = new Thread(r, "checkout-worker-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+    
     /**
      * Handle place order request with promo code support
      */
@@ -146,281 +195,412 @@ public class CheckoutController extends HttpServlet {
         response.setContentType("application/json");
         response.setCharacterEncoding("UTF-8");
         
-        PrintWriter out = response.getWriter();
+        CheckoutRequest checkout;
         
         try {
-            Integer userId = getCurrentUserId(request);
-            if (userId == null) {
-                sendErrorResponse(response, "User not logged in");
-                return;
-            }
-            
-            // Read JSON request body
-            StringBuilder jsonBuilder = new StringBuilder();
-            String line;
-            while ((line = request.getReader().readLine()) != null) {
-                jsonBuilder.append(line);
+            checkout = readCheckoutRequest(request, response);
+        } catch (Exception e) {
+            LOG.error("Error placing order", e);
+            sendErrorResponse(response, "Error processing order: " + e.getMessage());
+            return;
+        }
+        
+        if (checkout == null) {
+            // Validation failed and the error response has been sent
+            return;
+        }
+        
+        // Shed load before charging a card we could not turn into an order
+        if (checkoutExecutor.getQueue().remainingCapacity() == 0) {
+            releasePromoUsage(checkout);
+            sendErrorResponse(response, HttpServletResponse.SC_SERVICE_UNAVAILABLE,
+                              "Checkout is busy. Please try again in a moment.");
+            return;
+        }
+        
+        if (!request.isAsyncSupported()) {
+            // Some filter in the chain is not async capable, so wait on the request thread
+            Throwable error = null;
+            try {
+                startCheckoutPipeline(checkout).join();
+            } catch (CompletionException e) {
+                error = e.getCause();
             }
-            
-            String jsonString = jsonBuilder.toString();
-            JsonObject jsonObject = JsonParser.parseString(jsonString).getAsJsonObject();
-            
-            // Extract order data
-            String fullName = jsonObject.get("fullName").getAsString();
-            String contactNumber = jsonObject.get("contactNumber").getAsString();
-            String shippingAddress = jsonObject.get("shippingAddress").getAsString();
-            String orderNotes = jsonObject.has("orderNotes") ? jsonObject.get("orderNotes").getAsString() : "";
-            String paymentMethod = jsonObject.get("paymentMethod").getAsString();
-            
-            // Extract pricing details with promo code
-            BigDecimal subtotal = jsonObject.get("subtotal").getAsBigDecimal();
-            BigDecimal shipping = jsonObject.get("shipping").getAsBigDecimal();
-            BigDecimal discount = jsonObject.has("discount") ? jsonObject.get("discount").getAsBigDecimal() : BigDecimal.ZERO;
-            String promoCode = jsonObject.has("promoCode") && !jsonObject.get("promoCode").isJsonNull() ? 
-                              jsonObject.get("promoCode").getAsString() : null;
-            BigDecimal totalAmount = jsonObject.get("totalAmount").getAsBigDecimal();
-            
-            // Log pricing details
-            System.out.println("CheckoutController: Order pricing - Subtotal: " + subtotal + 
-                             ", Shipping: " + shipping + ", Discount: " + discount + 
-                             ", Promo: " + promoCode + ", Total: " + totalAmount);
-            
-            // Validate promo code if provided
-            if (promoCode != null && !promoCode.trim().isEmpty()) {
-                PromoCode promoCodeObj = promoCodeDAO.getPromoCodeByCode(promoCode.trim());
-                if (promoCodeObj == null || !promoCodeObj.isValidForOrder(subtotal)) {
-                    sendErrorResponse(response, "Invalid or expired promo code");
-                    return;
-                }
-                
-                // Verify discount amount matches
-                BigDecimal calculatedDiscount = promoCodeObj.calculateDiscount(subtotal);
-                if (calculatedDiscount.compareTo(discount) != 0) {
-                    System.out.println("CheckoutController: Discount mismatch - Expected: " + calculatedDiscount + 
-                                     ", Received: " + discount);
-                    // Use the calculated discount for safety
-                    discount = calculatedDiscount;
-                    totalAmount = subtotal.add(shipping).subtract(discount);
+            sendCheckoutResponse(response, checkout, error);
+            return;
+        }
+        
+        AsyncContext asyncContext = request.startAsync();
+        asyncContext.setTimeout(CHECKOUT_TIMEOUT_MS);
+        AtomicBoolean responded = new AtomicBoolean(false);
+        
+        asyncContext.addListener(new AsyncListener() {
+            @Override
+            public void onTimeout(AsyncEvent event) throws IOException {
+                if (responded.compareAndSet(false, true)) {
+                    LOG.warn("Checkout timed out for user", "userId", checkout.userId);
+                    sendErrorResponse((HttpServletResponse) event.getSuppliedResponse(),
+                                      HttpServletResponse.SC_SERVICE_UNAVAILABLE,
+                                      "Checkout is taking longer than expected. Please check your orders before retrying.");
+                    asyncContext.complete();
                 }
             }
             
-            // Enhanced validation
-            if (fullName == null || fullName.trim().isEmpty()) {
-                sendErrorResponse(response, "Full name is required");
-                return;
+            @Override
+            public void onError(AsyncEvent event) {
+                responded.set(true);
+                LOG.error("Checkout connection error", event.getThrowable());
             }
             
-            if (contactNumber == null || contactNumber.trim().isEmpty()) {
-                sendErrorResponse(response, "Contact number is required");
-                return;
+            @Override
+            public void onComplete(AsyncEvent event) {
             }
             
-            if (shippingAddress == null || shippingAddress.trim().isEmpty()) {
-                sendErrorResponse(response, "Shipping address is required");
-                return;
+            @Override
+            public void onStartAsync(AsyncEvent event) {
             }
-            
-            // Enhanced payment processing
-            PaymentResult paymentResult = processPayment(paymentMethod, jsonObject, totalAmount);
-            
-            if (!paymentResult.isSuccess()) {
-                sendErrorResponse(response, paymentResult.getErrorMessage());
-                return;
+        });
+        
+        startCheckoutPipeline(checkout).whenComplete((result, error) -> {
+            Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+            if (cause != null) {
+                // Compensate even if a timeout or connection error has already answered the request
+                try {
+                    compensateFailedCheckout(checkout);
+                } catch (Exception e) {
+                    LOG.error("Error compensating failed checkout", e, "userId", checkout.userId);
+                }
             }
             
-            // Get cart items
-            List<Cart> cartItems = cartDAO.getCartItems(userId);
-            
-            if (cartItems.isEmpty()) {
-                sendErrorResponse(response, "Cart is empty");
+            if (!responded.compareAndSet(false, true)) {
                 return;
             }
-            
-            // Create order with all pricing details
-            Order order = new Order();
-            order.setUserId(userId);
-            order.setSubtotal(subtotal);
-            order.setShippingAmount(shipping);
-            order.setDiscountAmount(discount);
-            order.setPromoCode(promoCode);
-            order.setTotalAmount(totalAmount);
-            order.setShippingAddress(shippingAddress);
-            order.setContactNumber(contactNumber);
-            order.setPaymentMethod(paymentMethod);
-            order.setOrderNotes(orderNotes);
-            order.setStatus(Order.STATUS_PENDING);
-            
-            // Set transaction ID for online payments
-            if ("online".equals(paymentMethod) && paymentResult.getTransactionId() != null) {
-                order.setTransactionId(paymentResult.getTransactionId());
+            try {
+                sendCheckoutResponse((HttpServletResponse) asyncContext.getResponse(), checkout, cause);
+            } catch (Exception e) {
+                LOG.error("Error writing checkout response", "error", e.getMessage());
+            } finally {
+                asyncContext.complete();
             }
-            
-            // Convert cart items to order items
-            List<OrderItem> orderItems = new ArrayList<>();
-            for (Cart cartItem : cartItems) {
-                OrderItem orderItem = new OrderItem();
-                orderItem.setItemId(cartItem.getItemId());
-                orderItem.setQuantity(cartItem.getQuantity());
-                orderItem.setPrice(cartItem.getEffectivePrice());
-                orderItems.add(orderItem);
+        });
+    }
+    
+    /**
+     * Read and validate the checkout request on the request thread
+     * @return Validated checkout, or null if an error response has been sent
+     */
+    private CheckoutRequest readCheckoutRequest(HttpServletRequest request, HttpServletResponse response) 
+            throws IOException {
+        
+        Integer userId = getCurrentUserId(request);
+        if (userId == null) {
+            sendErrorResponse(response, "User not logged in");
+            return null;
+        }
+        
+        // Read JSON request body
+        StringBuilder jsonBuilder = new StringBuilder();
+        String line;
+        while ((line = request.getReader().readLine()) != null) {
+            jsonBuilder.append(line);
+        }
+        
+        String jsonString = jsonBuilder.toString();
+        JsonObject jsonObject = JsonParser.parseString(jsonString).getAsJsonObject();
+        
+        CheckoutRequest checkout = new CheckoutRequest();
+        checkout.userId = userId;
+        
+        // Extract order data
+        checkout.fullName = jsonObject.get("fullName").getAsString();
+        checkout.contactNumber = jsonObject.get("contactNumber").getAsString();
+        checkout.shippingAddress = jsonObject.get("shippingAddress").getAsString();
+        checkout.orderNotes = jsonObject.has("orderNotes") ? jsonObject.get("orderNotes").getAsString() : "";
+        checkout.paymentMethod = jsonObject.get("paymentMethod").getAsString();
+        
+        // Extract pricing details with promo code
+        checkout.subtotal = jsonObject.get("subtotal").getAsBigDecimal();
+        checkout.shipping = jsonObject.get("shipping").getAsBigDecimal();
+        checkout.discount = jsonObject.has("discount") ? jsonObject.get("discount").getAsBigDecimal() : BigDecimal.ZERO;
+        checkout.promoCode = jsonObject.has("promoCode") && !jsonObject.get("promoCode").isJsonNull() ? 
+                             jsonObject.get("promoCode").getAsString() : null;
+        checkout.totalAmount = jsonObject.get("totalAmount").getAsBigDecimal();
+        
+        // Log pricing details
+        LOG.debug("Order pricing",
+                "subtotal", checkout.subtotal,
+                "shipping", checkout.shipping,
+                "discount", checkout.discount,
+                "promo", checkout.promoCode,
+                "total", checkout.totalAmount);
+        
+        // Validate promo code if provided
+        if (checkout.hasPromoCode()) {
+            PromoCode promoCodeObj = promoCodeDAO.getPromoCodeByCode(checkout.promoCode.trim());
+            if (promoCodeObj == null || !promoCodeObj.isValidForOrder(checkout.subtotal)) {
+                sendErrorResponse(response, "Invalid or expired promo code");
+                return null;
             }
-            
-            order.setOrderItems(orderItems);
-            
-            // Enhanced stock validation
-            for (OrderItem orderItem : orderItems) {
-                Item item = itemDAO.getItemById(orderItem.getItemId());
-                if (item == null || !item.isActive()) {
-                    // Refund payment if processed
-                    if ("online".equals(paymentMethod) && paymentResult.getTransactionId() != null) {
-                        refundPayment(paymentResult.getTransactionId(), totalAmount);
-                    }
-                    sendErrorResponse(response, "One or more items are no longer available");
-                    return;
-                }
-                
-                if (item.getStock() < orderItem.getQuantity()) {
-                    // Refund payment if processed
-                    if ("online".equals(paymentMethod) && paymentResult.getTransactionId() != null) {
-                        refundPayment(paymentResult.getTransactionId(), totalAmount);
-                    }
-                    sendErrorResponse(response, "Insufficient stock for item: " + item.getTitle());
-                    return;
-                }
+            checkout.promoCodeId = promoCodeObj.getId();
+            
+            // Verify discount amount matches
+            BigDecimal calculatedDiscount = promoCodeObj.calculateDiscount(checkout.subtotal);
+            if (calculatedDiscount.compareTo(checkout.discount) != 0) {
+                LOG.debug("Discount mismatch", "expected", calculatedDiscount, "received", checkout.discount);
+                // Use the calculated discount for safety
+                checkout.discount = calculatedDiscount;
+                checkout.totalAmount = checkout.subtotal.add(checkout.shipping).subtract(checkout.discount);
             }
-            
-            // Create order in database
-            int orderId = orderDAO.createOrder(order);
-            
-            if (orderId > 0) {
-                // Clear cart after successful order
-                cartDAO.clearCart(userId);
-                
-                // Update stock quantities
-                for (OrderItem orderItem : orderItems) {
-                    Item item = itemDAO.getItemById(orderItem.getItemId());
-                    int newStock = item.getStock() - orderItem.getQuantity();
-                    itemDAO.updateStock(orderItem.getItemId(), newStock);
-                }
-                
-             // Update promo code usage count if applicable
-                if (promoCode != null && !promoCode.trim().isEmpty()) {
-                    PromoCode promoCodeObj = promoCodeDAO.getPromoCodeByCode(promoCode.trim());
-                    if (promoCodeObj != null) {
-                        promoCodeDAO.incrementUsageCount(promoCodeObj.getId());
-                    }
-                }
-                
-                // Build enhanced success response
-                JsonObject responseObj = new JsonObject();
-                responseObj.addProperty("success", true);
-                responseObj.addProperty("orderId", orderId);
-                responseObj.addProperty("totalAmount", totalAmount);
-                responseObj.addProperty("discount", discount);
-                responseObj.addProperty("promoCode", promoCode);
-                
-                // Return the raw payment method value for frontend processing
-                responseObj.addProperty("paymentMethod", paymentMethod);
-                
-                if ("online".equals(paymentMethod)) {
-                    responseObj.addProperty("message", "Payment processed successfully! Order placed.");
-                    responseObj.addProperty("transactionId", paymentResult.getTransactionId());
-                    responseObj.addProperty("paymentStatus", "completed");
-                } else {
-                    responseObj.addProperty("message", "Order placed successfully!");
-                }
-                
-                out.print(responseObj.toString());
-                
-                System.out.println("CheckoutController: Order placed successfully - ID: " + orderId + 
-                                 ", Payment Method: " + paymentMethod + 
-                                 ", Total: " + totalAmount +
-                                 (promoCode != null ? ", Promo: " + promoCode + " (Discount: " + discount + ")" : "") +
-                                 (paymentResult.getTransactionId() != null ? ", Transaction: " + paymentResult.getTransactionId() : ""));
-                
-            } else {
-                // Refund payment if order creation failed
-                if ("online".equals(paymentMethod) && paymentResult.getTransactionId() != null) {
-                    refundPayment(paymentResult.getTransactionId(), totalAmount);
-                }
-                sendErrorResponse(response, "Failed to place order. Please try again.");
+        }
+        
+        // Enhanced validation
+        if (checkout.fullName == null || checkout.fullName.trim().isEmpty()) {
+            sendErrorResponse(response, "Full name is required");
+            return null;
+        }
+        
+        if (checkout.contactNumber == null || checkout.contactNumber.trim().isEmpty()) {
+            sendErrorResponse(response, "Contact number is required");
+            return null;
+        }
+        
+        if (checkout.shippingAddress == null || checkout.shippingAddress.trim().isEmpty()) {
+            sendErrorResponse(response, "Shipping address is required");
+            return null;
+        }
+        
+        if (checkout.isOnlinePayment() && jsonObject.has("cardDetails")) {
+            String cardError = validateCardDetails(jsonObject.getAsJsonObject("cardDetails"));
+            if (cardError != null) {
+                sendErrorResponse(response, cardError);
+                return null;
             }
-            
-        } catch (Exception e) {
-            System.err.println("CheckoutController: Error placing order - " + e.getMessage());
-            e.printStackTrace();
-            sendErrorResponse(response, "Error processing order: " + e.getMessage());
-        } finally {
-            out.close();
         }
+        
+        // Get cart items
+        checkout.cartItems = cartDAO.getCartItems(userId);
+        
+        if (checkout.cartItems.isEmpty()) {
+            sendErrorResponse(response, "Cart is empty");
+            return null;
+        }
+        
+        // Reserve a promo code use now so the usage limit holds across concurrent checkouts
+        if (checkout.promoCodeId != null) {
+            if (!promoCodeDAO.redeemUsage(checkout.promoCodeId)) {
+                sendErrorResponse(response, "Promo code usage limit has been reached");
+                return null;
+            }
+            checkout.promoRedeemed = true;
+        }
+        
+        return checkout;
     }
     
     /**
-     * Enhanced payment processing
+     * Basic card validation
+     * @return Error message, or null if the card details are acceptable
      */
-    private PaymentResult processPayment(String paymentMethod, JsonObject jsonObject, BigDecimal totalAmount) {
-        try {
-            if ("online".equals(paymentMethod)) {
-                // Validate card details if provided
-                if (jsonObject.has("cardDetails")) {
-                    JsonObject cardDetails = jsonObject.getAsJsonObject("cardDetails");
-                    
-                    // Basic card validation
-                    String cardNumber = cardDetails.get("cardNumber").getAsString();
-                    String cardHolder = cardDetails.get("cardHolder").getAsString();
-                    String expiryDate = cardDetails.get("expiryDate").getAsString();
-                    String cvv = cardDetails.get("cvv").getAsString();
-                    
-                    if (cardNumber == null || cardNumber.length() < 13) {
-                        return new PaymentResult(false, null, "Invalid card number");
-                    }
-                    
-                    if (cardHolder == null || cardHolder.trim().isEmpty()) {
-                        return new PaymentResult(false, null, "Card holder name is required");
-                    }
-                    
-                    if (expiryDate == null || !expiryDate.matches("\\d{2}/\\d{2}")) {
-                        return new PaymentResult(false, null, "Invalid expiry date format");
-                    }
-                    
-                    if (cvv == null || cvv.length() != 3) {
-                        return new PaymentResult(false, null, "Invalid CVV");
-                    }
-                }
-                
-                // Simulate payment processing delay
-                Thread.sleep(1500);
-                
-                // Generate transaction ID
-                String transactionId = "TXN" + System.currentTimeMillis() + String.format("%04d", (int)(Math.random() * 10000));
-                
-                System.out.println("CheckoutController: Payment processed - Transaction ID: " + transactionId);
-                return new PaymentResult(true, transactionId, null);
-                
-            } else {
-                // Cash on delivery - no processing needed
-                return new PaymentResult(true, null, null);
-            }
-            
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            return new PaymentResult(false, null, "Payment processing was interrupted");
-        } catch (Exception e) {
-            System.err.println("CheckoutController: Payment processing error - " + e.getMessage());
-            return new PaymentResult(false, null, "Payment processing failed");
+    private String validateCardDetails(JsonObject cardDetails) {
+        String cardNumber = cardDetails.get("cardNumber").getAsString();
+        String cardHolder = cardDetails.get("cardHolder").getAsString();
+        String expiryDate = cardDetails.get("expiryDate").getAsString();
+        String cvv = cardDetails.get("cvv").getAsString();
+        
+        if (cardNumber == null || cardNumber.length() < 13) {
+            return "Invalid card number";
+        }
+        
+        if (cardHolder == null || cardHolder.trim().isEmpty()) {
+            return "Card holder name is required";
+        }
+        
+        if (expiryDate == null || !expiryDate.matches("\\d{2}/\\d{2}")) {
+            return "Invalid expiry date format";
+        }
+        
+        if (cvv == null || cvv.length() != 3) {
+            return "Invalid CVV";
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Chain the checkout stages: payment, then stock reservation and order
+     * creation in one transaction, then cart and promo code follow-up
+     */
+    private CompletableFuture<CheckoutRequest> startCheckoutPipeline(CheckoutRequest checkout) {
+        // Cash on delivery - no processing needed
+        CompletableFuture<PaymentResult> payment = checkout.isOnlinePayment() ?
+                paymentGateway.charge(checkout.totalAmount, "USER-" + checkout.userId) :
+                CompletableFuture.completedFuture(PaymentResult.approved(null));
+        
+        return payment
+                .thenApplyAsync(result -> placeOrder(checkout, result), checkoutExecutor)
+                .thenApplyAsync(this::completeOrder, checkoutExecutor);
+    }
+    
+    /**
+     * Pipeline stage: create the order and reserve stock once payment is approved
+     */
+    private CheckoutRequest placeOrder(CheckoutRequest checkout, PaymentResult paymentResult) {
+        checkout.paymentResult = paymentResult;
+        if (!paymentResult.isSuccess()) {
+            return checkout;
+        }
+        
+        // Create order with all pricing details
+        Order order = new Order();
+        order.setUserId(checkout.userId);
+        order.setSubtotal(checkout.subtotal);
+        order.setShippingAmount(checkout.shipping);
+        order.setDiscountAmount(checkout.discount);
+        order.setPromoCode(checkout.promoCode);
+        order.setTotalAmount(checkout.totalAmount);
+        order.setShippingAddress(checkout.shippingAddress);
+        order.setContactNumber(checkout.contactNumber);
+        order.setPaymentMethod(checkout.paymentMethod);
+        order.setOrderNotes(checkout.orderNotes);
+        order.setStatus(Order.STATUS_PENDING);
+        
+        // Set transaction ID for online payments
+        if (checkout.isOnlinePayment() && paymentResult.getTransactionId() != null) {
+            order.setTransactionId(paymentResult.getTransactionId());
+        }
+        
+        // Convert cart items to order items
+        List<OrderItem> orderItems = new ArrayList<>();
+        for (Cart cartItem : checkout.cartItems) {
+            OrderItem orderItem = new OrderItem();
+            orderItem.setItemId(cartItem.getItemId());
+            orderItem.setQuantity(cartItem.getQuantity());
+            orderItem.setPrice(cartItem.getEffectivePrice());
+            orderItems.add(orderItem);
+        }
+        
+        order.setOrderItems(orderItems);
+        
+        // Create order and reserve stock for every line in one transaction
+        checkout.placement = orderDAO.placeOrder(order);
+        return checkout;
+    }
+    
+    /**
+     * Pipeline stage: clear the cart, or refund and release the promo use of a failed order
+     */
+    private CheckoutRequest completeOrder(CheckoutRequest checkout) {
+        if (!checkout.isPlaced()) {
+            compensateFailedCheckout(checkout);
+            return checkout;
         }
+        
+        // Clear cart after successful order
+        cartDAO.clearCart(checkout.userId);
+        
+        LOG.debug("Order placed successfully",
+                "id", checkout.placement.orderId,
+                "paymentMethod", checkout.paymentMethod,
+                "total", checkout.totalAmount,
+                "promoCode", checkout.promoCode,
+                "discount", checkout.discount,
+                "transactionId", checkout.paymentResult.getTransactionId());
+        
+        return checkout;
     }
     
     /**
-     * Refund payment (simulation)
+     * Undo the side effects of a checkout whose order was not placed; safe to call more than once
      */
-    private void refundPayment(String transactionId, BigDecimal amount) {
+    private void compensateFailedCheckout(CheckoutRequest checkout) {
+        refundIfCharged(checkout);
+        releasePromoUsage(checkout);
+    }
+    
+    /**
+     * Refund an approved online payment whose order was not placed
+     */
+    private void refundIfCharged(CheckoutRequest checkout) {
+        PaymentResult paymentResult = checkout.paymentResult;
+        if (checkout.refunded || checkout.isPlaced() || paymentResult == null || 
+                !paymentResult.isSuccess() || paymentResult.getTransactionId() == null) {
+            return;
+        }
+        
+        checkout.refunded = true;
         try {
-            System.out.println("CheckoutController: Processing refund - Transaction: " + transactionId + ", Amount: " + amount);
-            // In real implementation, call payment gateway refund API
+            paymentGateway.refund(paymentResult.getTransactionId(), checkout.totalAmount);
         } catch (Exception e) {
-            System.err.println("CheckoutController: Error processing refund - " + e.getMessage());
+            LOG.error("Error processing refund", "error", e.getMessage());
+        }
+    }
+    
+    /**
+     * Give back the promo code use reserved for an order that was not placed
+     */
+    private void releasePromoUsage(CheckoutRequest checkout) {
+        if (checkout.promoRedeemed && !checkout.isPlaced()) {
+            checkout.promoRedeemed = false;
+            promoCodeDAO.releaseUsage(checkout.promoCodeId);
+        }
+    }
+    
+    /**
+     * Write the outcome of a finished checkout pipeline
+     */
+    private void sendCheckoutResponse(HttpServletResponse response, CheckoutRequest checkout, Throwable error) 
+            throws IOException {
+        
+        if (error != null) {
+            compensateFailedCheckout(checkout);
+            
+            if (error instanceof RejectedExecutionException) {
+                sendErrorResponse(response, HttpServletResponse.SC_SERVICE_UNAVAILABLE,
+                                  "Checkout is busy. Please try again in a moment.");
+            } else {
+                LOG.error("Error placing order", error);
+                sendErrorResponse(response, "Error processing order: " + error.getMessage());
+            }
+            return;
+        }
+        
+        if (!checkout.paymentResult.isSuccess()) {
+            sendErrorResponse(response, checkout.paymentResult.getErrorMessage());
+            return;
+        }
+        
+        if (!checkout.placement.failedLines.isEmpty()) {
+            sendStockErrorResponse(response, checkout.cartItems, checkout.placement.failedLines);
+            return;
+        }
+        
+        if (!checkout.isPlaced()) {
+            sendErrorResponse(response, "Failed to place order. Please try again.");
+            return;
+        }
+        
+        // Build enhanced success response
+        JsonObject responseObj = new JsonObject();
+        responseObj.addProperty("success", true);
+        responseObj.addProperty("orderId", checkout.placement.orderId);
+        responseObj.addProperty("totalAmount", checkout.totalAmount);
+        responseObj.addProperty("discount", checkout.discount);
+        responseObj.addProperty("promoCode", checkout.promoCode);
+        
+        // Return the raw payment method value for frontend processing
+        responseObj.addProperty("paymentMethod", checkout.paymentMethod);
+        
+        if (checkout.isOnlinePayment()) {
+            responseObj.addProperty("message", "Payment processed successfully! Order placed.");
+            responseObj.addProperty("transactionId", checkout.paymentResult.getTransactionId());
+            responseObj.addProperty("paymentStatus", "completed");
+        } else {
+            responseObj.addProperty("message", "Order placed successfully!");
         }
+        
+        PrintWriter out = response.getWriter();
+        out.print(responseObj.toString());
+        out.flush();
     }
     
     /**
@@ -491,7 +671,7 @@ public class CheckoutController extends HttpServlet {
             out.print(responseObj.toString());
             
         } catch (Exception e) {
-            System.err.println("CheckoutController: Error validating order - " + e.getMessage());
+            LOG.error("Error validating order", "error", e.getMessage());
             sendErrorResponse(response, "Error validating order");
         } finally {
             out.close();
@@ -579,7 +759,7 @@ public class CheckoutController extends HttpServlet {
             out.print(responseObj.toString());
             
         } catch (Exception e) {
-            System.err.println("CheckoutController: Error getting order summary - " + e.getMessage());
+            LOG.error("Error getting order summary", "error", e.getMessage());
             sendErrorResponse(response, "Error retrieving order summary");
         } finally {
             out.close();
@@ -590,7 +770,11 @@ public class CheckoutController extends HttpServlet {
      * Send error response
      */
     private void sendErrorResponse(HttpServletResponse response, String message) throws IOException {
-        response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+        sendErrorResponse(response, HttpServletResponse.SC_BAD_REQUEST, message);
+    }
+    
+    private void sendErrorResponse(HttpServletResponse response, int status, String message) throws IOException {
+        response.setStatus(status);
         response.setContentType("application/json");
         response.setCharacterEncoding("UTF-8");
         
@@ -604,40 +788,102 @@ public class CheckoutController extends HttpServlet {
         out.flush();
     }
     
+    /**
+     * Send error response listing the cart lines whose stock could not be reserved
+     */
+    private void sendStockErrorResponse(HttpServletResponse response, List<Cart> cartItems, 
+                                        List<OrderItem> failedLines) throws IOException {
+        response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        
+        PrintWriter out = response.getWriter();
+        
+        JsonArray failedArray = new JsonArray();
+        String firstTitle = null;
+        
+        for (OrderItem line : failedLines) {
+            String title = null;
+            for (Cart cartItem : cartItems) {
+                if (cartItem.getItemId() == line.getItemId()) {
+                    title = cartItem.getItemTitle();
+                    break;
+                }
+            }
+            if (firstTitle == null) {
+                firstTitle = title;
+            }
+            
+            JsonObject lineObj = new JsonObject();
+            lineObj.addProperty("itemId", line.getItemId());
+            lineObj.addProperty("title", title);
+            lineObj.addProperty("requestedQuantity", line.getQuantity());
+            failedArray.add(lineObj);
+        }
+        
+        JsonObject responseObj = new JsonObject();
+        responseObj.addProperty("success", false);
+        responseObj.addProperty("message", failedLines.size() == 1 && firstTitle != null ?
+                "Insufficient stock for item: " + firstTitle :
+                "One or more items are no longer available in the requested quantity");
+        responseObj.add("unavailableItems", failedArray);
+        
+        out.print(responseObj.toString());
+        out.flush();
+    }
+    
     @Override
     public void destroy() {
-        System.out.println("CheckoutController: Controller being destroyed");
+        LOG.info("Controller being destroyed");
         orderDAO = null;
         cartDAO = null;
         itemDAO = null;
         promoCodeDAO = null;
+        if (checkoutExecutor != null) {
+            checkoutExecutor.shutdown();
+            checkoutExecutor = null;
+        }
+        if (paymentGateway != null) {
+            paymentGateway.shutdown();
+            paymentGateway = null;
+        }
         super.destroy();
     }
     
     /**
-     * Payment Result class for structured payment responses
+     * State of one checkout as it moves through the pipeline stages
      */
-    private static class PaymentResult {
-        private final boolean success;
-        private final String transactionId;
-        private final String errorMessage;
+    private static class CheckoutRequest {
+        private int userId;
+        private String fullName;
+        private String contactNumber;
+        private String shippingAddress;
+        private String orderNotes;
+        private String paymentMethod;
+        private BigDecimal subtotal;
+        private BigDecimal shipping;
+        private BigDecimal discount;
+        private String promoCode;
+        private Integer promoCodeId;
+        private BigDecimal totalAmount;
+        private List<Cart> cartItems;
         
-        public PaymentResult(boolean success, String transactionId, String errorMessage) {
-            this.success = success;
-            this.transactionId = transactionId;
-            this.errorMessage = errorMessage;
-        }
+        // Stage results
+        private PaymentResult paymentResult;
+        private OrderDAO.OrderPlacement placement;
+        private boolean refunded;
+        private boolean promoRedeemed;
         
-        public boolean isSuccess() {
-            return success;
+        private boolean isOnlinePayment() {
+            return "online".equals(paymentMethod);
         }
         
-        public String getTransactionId() {
-            return transactionId;
+        private boolean hasPromoCode() {
+            return promoCode != null && !promoCode.trim().isEmpty();
         }
         
-        public String getErrorMessage() {
-            return errorMessage;
+        private boolean isPlaced() {
+            return placement != null && placement.isSuccess();
         }
     }
-}
\ No newline at end of file
+}
@@ -3,6 +3,7 @@ package com.pahanaedu.controllers;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.math.BigDecimal;
+import java.sql.SQLException;
 import java.util.List;
 
 import javax.servlet.ServletException;
@@ -21,6 +22,8 @@ import com.pahanaedu.models.Item;
 import com.pahanaedu.models.Cart;
 import com.pahanaedu.models.User;
 import com.pahanaedu.models.PromoCode;
+import com.pahanaedu.utils.JsonStreamWriter;
+import com.pahanaedu.utils.Log;
 
 /**
  * Customer Controller - Handles customer-facing operations with Promo Code Integration
@@ -29,6 +32,7 @@ import com.pahanaedu.models.PromoCode;
 @WebServlet("/customer/*")
 public class CustomerController extends HttpServlet {
     private static final long serialVersionUID = 1L;
+    private static final Log LOG = Log.get(CustomerController.class);
     
     private ItemDAO itemDAO;
     private CategoryDAO categoryDAO;
@@ -42,9 +46,9 @@ public class CustomerController extends HttpServlet {
             categoryDAO = new CategoryDAO();
             cartDAO = new CartDAO();
             promoCodeDAO = new PromoCodeDAO();
-            System.out.println("CustomerController: DAOs initialized successfully with PromoCode support");
+            LOG.info("DAOs initialized successfully with PromoCode support");
         } catch (Exception e) {
-            System.err.println("CustomerController: Failed to initialize DAOs - " + e.getMessage());
+            LOG.error("Failed to initialize DAOs", "error", e.getMessage());
             throw new ServletException("Failed to initialize DAOs", e);
         }
     }
@@ -190,7 +194,7 @@ public class CustomerController extends HttpServlet {
             out.print(jsonBuilder.toString());
             
         } catch (Exception e) {
-            System.err.println("CustomerController: Error getting categories - " + e.getMessage());
+            LOG.error("Error getting categories", "error", e.getMessage());
             out.print("{\"success\": false, \"message\": \"Error retrieving categories\"}");
         } finally {
             out.close();
@@ -203,33 +207,36 @@ public class CustomerController extends HttpServlet {
     private void handleGetProducts(HttpServletRequest request, HttpServletResponse response) 
             throws IOException {
         
-        response.setContentType("application/json");
-        response.setCharacterEncoding("UTF-8");
-        
-        PrintWriter out = response.getWriter();
+        JsonStreamWriter json = JsonStreamWriter.open(response);
         
         try {
             String categoryFilter = request.getParameter("category");
             String searchQuery = request.getParameter("search");
             
-            List<Item> items;
-            
             if (searchQuery != null && !searchQuery.trim().isEmpty()) {
-                items = itemDAO.searchItems(searchQuery.trim());
+                writeItemsJsonResponse(json, itemDAO.searchItems(searchQuery.trim()), "items");
             } else if (categoryFilter != null && !categoryFilter.trim().isEmpty()) {
                 int categoryId = Integer.parseInt(categoryFilter);
-                items = itemDAO.getItemsByCategory(categoryId);
+                json.beginObject().beginArray("items");
+                itemDAO.forEachItemInCategory(categoryId, item -> writeItemJson(json, item));
+                json.endList();
             } else {
-                items = itemDAO.getActiveItems();
+                // Stream the full catalog row by row
+                json.beginObject().beginArray("items");
+                itemDAO.forEachActiveItem(item -> writeItemJson(json, item));
+                json.endList();
             }
             
-            out.print(buildItemsJsonResponse(items));
-            
+        } catch (SQLException e) {
+            LOG.error("Error getting products", "error", e.getMessage());
+            json.failList("Error retrieving products");
         } catch (Exception e) {
-            System.err.println("CustomerController: Error getting products - " + e.getMessage());
-            out.print("{\"success\": false, \"message\": \"Error retrieving products\"}");
+            LOG.error("Error getting products", "error", e.getMessage());
+            if (!json.isStarted()) {
+                json.writeError("Error retrieving products");
+            }
         } finally {
-            out.close();
+            json.close();
         }
     }
     
@@ -239,23 +246,22 @@ public class CustomerController extends HttpServlet {
     private void handleGetRecentProducts(HttpServletRequest request, HttpServletResponse response) 
             throws IOException {
         
-        response.setContentType("application/json");
-        response.setCharacterEncoding("UTF-8");
-        
-        PrintWriter out = response.getWriter();
+        JsonStreamWriter json = JsonStreamWriter.open(response);
         
         try {
             String limitStr = request.getParameter("limit");
             int limit = limitStr != null ? Integer.parseInt(limitStr) : 8;
             
             List<Item> items = itemDAO.getRecentItems(limit);
-            out.print(buildItemsJsonResponse(items, "products"));
+            writeItemsJsonResponse(json, items, "products");
             
         } catch (Exception e) {
-            System.err.println("CustomerController: Error getting recent products - " + e.getMessage());
-            out.print("{\"success\": false, \"message\": \"Error retrieving recent products\"}");
+            LOG.error("Error getting recent products", "error", e.getMessage());
+            if (!json.isStarted()) {
+                json.writeError("Error retrieving recent products");
+            }
         } finally {
-            out.close();
+            json.close();
         }
     }
     
@@ -265,10 +271,7 @@ public class CustomerController extends HttpServlet {
     private void handleGetFeaturedProducts(HttpServletRequest request, HttpServletResponse response) 
             throws IOException {
         
-        response.setContentType("application/json");
-        response.setCharacterEncoding("UTF-8");
-        
-        PrintWriter out = response.getWriter();
+        JsonStreamWriter json = JsonStreamWriter.open(response);
         
         try {
             String limitStr = request.getParameter("limit");
@@ -276,13 +279,15 @@ public class CustomerController extends HttpServlet {
             
             // For demo, return items with offers as featured
             List<Item> items = itemDAO.getFeaturedItems(limit);
-            out.print(buildItemsJsonResponse(items, "products"));
+            writeItemsJsonResponse(json, items, "products");
             
         } catch (Exception e) {
-            System.err.println("CustomerController: Error getting featured products - " + e.getMessage());
-            out.print("{\"success\": false, \"message\": \"Error retrieving featured products\"}");
+            LOG.error("Error getting featured products", "error", e.getMessage());
+            if (!json.isStarted()) {
+                json.writeError("Error retrieving featured products");
+            }
         } finally {
-            out.close();
+            json.close();
         }
     }
     
@@ -343,7 +348,7 @@ public class CustomerController extends HttpServlet {
         } catch (NumberFormatException e) {
             sendErrorResponse(response, "Invalid number format");
         } catch (Exception e) {
-            System.err.println("CustomerController: Error adding to cart - " + e.getMessage());
+            LOG.error("Error adding to cart", "error", e.getMessage());
             sendErrorResponse(response, "Error adding product to cart");
         } finally {
             out.close();
@@ -394,7 +399,7 @@ public class CustomerController extends HttpServlet {
             out.print(jsonBuilder.toString());
             
         } catch (Exception e) {
-            System.err.println("CustomerController: Error getting cart items - " + e.getMessage());
+            LOG.error("Error getting cart items", "error", e.getMessage());
             out.print("{\"success\": false, \"message\": \"Error retrieving cart items\"}");
         } finally {
             out.close();
@@ -423,7 +428,7 @@ public class CustomerController extends HttpServlet {
             out.print("{\"success\": true, \"count\": " + count + "}");
             
         } catch (Exception e) {
-            System.err.println("CustomerController: Error getting cart count - " + e.getMessage());
+            LOG.error("Error getting cart count", "error", e.getMessage());
             out.print("{\"success\": false, \"message\": \"Error retrieving cart count\"}");
         } finally {
             out.close();
@@ -488,7 +493,7 @@ public class CustomerController extends HttpServlet {
         } catch (NumberFormatException e) {
             sendErrorResponse(response, "Invalid number format");
         } catch (Exception e) {
-            System.err.println("CustomerController: Error updating cart - " + e.getMessage());
+            LOG.error("Error updating cart", "error", e.getMessage());
             sendErrorResponse(response, "Error updating cart");
         } finally {
             out.close();
@@ -539,7 +544,7 @@ public class CustomerController extends HttpServlet {
         } catch (NumberFormatException e) {
             sendErrorResponse(response, "Invalid cart item ID");
         } catch (Exception e) {
-            System.err.println("CustomerController: Error removing from cart - " + e.getMessage());
+            LOG.error("Error removing from cart", "error", e.getMessage());
             sendErrorResponse(response, "Error removing item from cart");
         } finally {
             out.close();
@@ -572,7 +577,7 @@ public class CustomerController extends HttpServlet {
             }
             
         } catch (Exception e) {
-            System.err.println("CustomerController: Error clearing cart - " + e.getMessage());
+            LOG.error("Error clearing cart", "error", e.getMessage());
             sendErrorResponse(response, "Error clearing cart");
         } finally {
             out.close();
@@ -618,13 +623,13 @@ public class CustomerController extends HttpServlet {
                 cartTotal = cartTotal.add(itemTotal);
             }
             
-            System.out.println("CustomerController: Applying promo code '" + promoCode + "' for cart total: Rs. " + cartTotal);
+            LOG.debug("Applying promo code", "promoCode", promoCode, "cartTotal", cartTotal);
             
             // Get promo code from database
             PromoCode promoCodeObj = promoCodeDAO.getPromoCodeByCode(promoCode.trim().toUpperCase());
             
             if (promoCodeObj == null) {
-                System.out.println("CustomerController: Promo code not found: " + promoCode);
+                LOG.debug("Promo code not found", "promoCode", promoCode);
                 sendErrorResponse(response, "Invalid promo code");
                 return;
             }
@@ -632,7 +637,7 @@ public class CustomerController extends HttpServlet {
             // Validate promo code
             if (!promoCodeObj.isValidForOrder(cartTotal)) {
                 String reason = getValidationFailureReason(promoCodeObj, cartTotal);
-                System.out.println("CustomerController: Promo code validation failed: " + reason);
+                LOG.debug("Promo code validation failed", "reason", reason);
                 sendErrorResponse(response, reason);
                 return;
             }
@@ -661,12 +666,10 @@ public class CustomerController extends HttpServlet {
             
             out.print(jsonResponse.toString());
             
-            System.out.println("CustomerController: Promo code applied successfully - Code: " + promoCodeObj.getCode() + 
-                             ", Discount: Rs. " + discountAmount);
+            LOG.debug("Promo code applied successfully", "code", promoCodeObj.getCode(), "discount", discountAmount);
             
         } catch (Exception e) {
-            System.err.println("CustomerController: Error applying promo code - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error applying promo code", e);
             sendErrorResponse(response, "Error applying promo code: " + e.getMessage());
         } finally {
             out.close();
@@ -733,7 +736,7 @@ public class CustomerController extends HttpServlet {
             out.print(jsonResponse.toString());
             
         } catch (Exception e) {
-            System.err.println("CustomerController: Error validating promo code - " + e.getMessage());
+            LOG.error("Error validating promo code", "error", e.getMessage());
             sendErrorResponse(response, "Error validating promo code: " + e.getMessage());
         } finally {
             out.close();
@@ -772,37 +775,34 @@ public class CustomerController extends HttpServlet {
     }
     
     /**
-     * Build JSON response for items
+     * Write JSON response for items
      */
-    private String buildItemsJsonResponse(List<Item> items) {
-        return buildItemsJsonResponse(items, "items");
+    private void writeItemsJsonResponse(JsonStreamWriter json, List<Item> items, String arrayName) 
+            throws IOException {
+        json.beginObject().property("success", true).beginArray(arrayName);
+        for (Item item : items) {
+            writeItemJson(json, item);
+        }
+        json.endArray().endObject();
     }
     
-    private String buildItemsJsonResponse(List<Item> items, String arrayName) {
-        StringBuilder jsonBuilder = new StringBuilder();
-        jsonBuilder.append("{\"success\": true, \"").append(arrayName).append("\": [");
-        
-        for (int i = 0; i < items.size(); i++) {
-            Item item = items.get(i);
-            if (i > 0) jsonBuilder.append(",");
-            
-            jsonBuilder.append("{")
-                .append("\"id\": ").append(item.getId()).append(",")
-                .append("\"title\": \"").append(escapeJsonString(item.getTitle())).append("\",")
-                .append("\"author\": \"").append(escapeJsonString(item.getAuthor())).append("\",")
-                .append("\"categoryId\": ").append(item.getCategoryId()).append(",")
-                .append("\"categoryName\": \"").append(escapeJsonString(item.getCategoryName())).append("\",")
-                .append("\"price\": ").append(item.getPrice()).append(",")
-                .append("\"offerPrice\": ").append(item.getOfferPrice() != null ? item.getOfferPrice() : "null").append(",")
-                .append("\"stock\": ").append(item.getStock()).append(",")
-                .append("\"description\": \"").append(escapeJsonString(item.getDescription())).append("\",")
-                .append("\"imagePath\": \"").append(escapeJsonString(item.getImagePath())).append("\",")
-                .append("\"status\": \"").append(escapeJsonString(item.getStatus())).append("\"")
-                .append("}");
-        }
-        
-        jsonBuilder.append("]}");
-        return jsonBuilder.toString();
+    /**
+     * Write a single item as a JSON object
+     */
+    private void writeItemJson(JsonStreamWriter json, Item item) throws IOException {
+        json.beginObject()
+            .property("id", item.getId())
+            .property("title", item.getTitle())
+            .property("author", item.getAuthor())
+            .property("categoryId", item.getCategoryId())
+            .property("categoryName", item.getCategoryName())
+            .property("price", item.getPrice())
+            .property("offerPrice", item.getOfferPrice())
+            .property("stock", item.getStock())
+            .property("description", item.getDescription())
+            .property("imagePath", item.getImagePath())
+            .property("status", item.getStatus())
+            .endObject();
     }
     
     /**
@@ -854,7 +854,7 @@ public class CustomerController extends HttpServlet {
     
     @Override
     public void destroy() {
-        System.out.println("CustomerController: Controller being destroyed");
+        LOG.info("Controller being destroyed");
         itemDAO = null;
         categoryDAO = null;
         cartDAO = null;
@@ -18,6 +18,8 @@ import com.google.gson.JsonArray;
 
 import com.pahanaedu.dao.OrderDAO;
 import com.pahanaedu.models.Order;
+import com.pahanaedu.services.OrderStatusService;
+import com.pahanaedu.utils.Log;
 
 /**
  * Customer Orders Controller - Enhanced with Promo Code Support
@@ -25,16 +27,19 @@ import com.pahanaedu.models.Order;
 @WebServlet("/customer/orders/*")
 public class CustomerOrdersController extends HttpServlet {
     private static final long serialVersionUID = 1L;
+    private static final Log LOG = Log.get(CustomerOrdersController.class);
     
     private OrderDAO orderDAO;
+    private OrderStatusService orderStatusService;
     @Override
     public void init() throws ServletException {
         try {
             orderDAO = new OrderDAO();
+            orderStatusService = new OrderStatusService(orderDAO);
             new Gson();
-            System.out.println("CustomerOrdersController: Initialized successfully with promo code support");
+            LOG.info("Initialized successfully with promo code support");
         } catch (Exception e) {
-            System.err.println("CustomerOrdersController: Failed to initialize - " + e.getMessage());
+            LOG.error("Failed to initialize", "error", e.getMessage());
             throw new ServletException("Failed to initialize", e);
         }
     }
@@ -90,14 +95,14 @@ public class CustomerOrdersController extends HttpServlet {
         HttpSession session = request.getSession(false);
         
         if (session == null) {
-            System.out.println("CustomerOrdersController: No session found");
+            LOG.debug("No session found");
             return false;
         }
         
         Boolean isLoggedIn = (Boolean) session.getAttribute("isLoggedIn");
         String userRole = (String) session.getAttribute("userRole");
         
-        System.out.println("CustomerOrdersController: isLoggedIn=" + isLoggedIn + ", userRole=" + userRole);
+        LOG.debug("Session check", "isLoggedIn", isLoggedIn, "userRole", userRole);
         
         return Boolean.TRUE.equals(isLoggedIn) && "CUSTOMER".equals(userRole);
     }
@@ -127,17 +132,17 @@ public class CustomerOrdersController extends HttpServlet {
         try {
             Integer userId = getCurrentUserId(request);
             if (userId == null) {
-                System.out.println("CustomerOrdersController: No user ID in session");
+                LOG.debug("No user ID in session");
                 sendErrorResponse(response, "User not logged in");
                 return;
             }
             
-            System.out.println("CustomerOrdersController: Getting orders for user ID: " + userId);
+            LOG.debug("Getting orders for user ID", "userId", userId);
             
             // Get user orders
             List<Order> orders = orderDAO.getOrdersByUser(userId);
             
-            System.out.println("CustomerOrdersController: Found " + orders.size() + " orders");
+            LOG.debug("Found orders", "ordersCount", orders.size());
             
             JsonObject responseObj = new JsonObject();
             responseObj.addProperty("success", true);
@@ -154,11 +159,10 @@ public class CustomerOrdersController extends HttpServlet {
             
             out.print(responseObj.toString());
             
-            System.out.println("CustomerOrdersController: Successfully returned " + orders.size() + " orders with promo code data");
+            LOG.debug("Successfully returned orders with promo code data", "ordersCount", orders.size());
             
         } catch (Exception e) {
-            System.err.println("CustomerOrdersController: Error getting user orders - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error getting user orders", e);
             sendErrorResponse(response, "Error retrieving orders: " + e.getMessage());
         } finally {
             out.close();
@@ -206,11 +210,10 @@ public class CustomerOrdersController extends HttpServlet {
             
             out.print(responseObj.toString());
             
-            System.out.println("CustomerOrdersController: Successfully returned order " + orderId + " with promo code data");
+            LOG.debug("Successfully returned order with promo code data", "orderId", orderId);
             
         } catch (Exception e) {
-            System.err.println("CustomerOrdersController: Error getting order by ID - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error getting order by ID", e);
             sendErrorResponse(response, "Error retrieving order");
         } finally {
             out.close();
@@ -251,7 +254,7 @@ public class CustomerOrdersController extends HttpServlet {
         // Promo code information
         if (order.getPromoCode() != null && !order.getPromoCode().trim().isEmpty()) {
             orderObj.addProperty("promoCode", order.getPromoCode());
-            System.out.println("CustomerOrdersController: Order " + order.getId() + " has promo code: " + order.getPromoCode());
+            LOG.debug("Order has promo code", "id", order.getId(), "promoCode", order.getPromoCode());
         }
         
         // Transaction ID for online payments
@@ -374,10 +377,15 @@ public class CustomerOrdersController extends HttpServlet {
                 return;
             }
             
-            // Update order status to cancelled
-            boolean success = orderDAO.updateOrderStatus(orderId, Order.STATUS_CANCELLED);
+            // Cancel, restock and release the promo code use; the status is re-checked under lock
+            OrderDAO.StatusChange change = orderStatusService.cancelByCustomer(orderId);
             
-            if (success) {
+            if (change.found && !change.allowed) {
+                sendErrorResponse(response, "Order cannot be cancelled in current status: " + change.previousStatus);
+                return;
+            }
+            
+            if (change.updated) {
                 JsonObject responseObj = new JsonObject();
                 responseObj.addProperty("success", true);
                 responseObj.addProperty("message", "Order cancelled successfully");
@@ -386,20 +394,18 @@ public class CustomerOrdersController extends HttpServlet {
                 
                 // If order had promo code, log the cancellation
                 if (order.getPromoCode() != null && !order.getPromoCode().trim().isEmpty()) {
-                    System.out.println("CustomerOrdersController: Cancelled order " + orderId + 
-                                     " with promo code: " + order.getPromoCode());
+                    LOG.debug("Cancelled order with promo code", "orderId", orderId, "promoCode", order.getPromoCode());
                 }
                 
                 out.print(responseObj.toString());
                 
-                System.out.println("CustomerOrdersController: Order cancelled - ID: " + orderId);
+                LOG.debug("Order cancelled", "id", orderId);
             } else {
                 sendErrorResponse(response, "Failed to cancel order");
             }
             
         } catch (Exception e) {
-            System.err.println("CustomerOrdersController: Error cancelling order - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error cancelling order", e);
             sendErrorResponse(response, "Error cancelling order");
         } finally {
             out.close();
@@ -426,8 +432,9 @@ public class CustomerOrdersController extends HttpServlet {
     
     @Override
     public void destroy() {
-        System.out.println("CustomerOrdersController: Being destroyed");
+        LOG.info("Being destroyed");
         orderDAO = null;
+        orderStatusService = null;
         super.destroy();
     }
 }
\ No newline at end of file
@@ -4,6 +4,8 @@ import java.io.IOException;
 import java.io.PrintWriter;
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
@@ -17,6 +19,9 @@ import com.pahanaedu.dao.ItemDAO;
 import com.pahanaedu.models.Category;
 import com.pahanaedu.models.Item;
 import com.pahanaedu.models.User;
+import com.pahanaedu.services.ItemImportService;
+import com.pahanaedu.utils.JsonStreamWriter;
+import com.pahanaedu.utils.Log;
 
 /**
  * Item Controller - Handles item management operations
@@ -25,18 +30,21 @@ import com.pahanaedu.models.User;
 @WebServlet("/admin/items/*")
 public class ItemController extends HttpServlet {
     private static final long serialVersionUID = 1L;
+    private static final Log LOG = Log.get(ItemController.class);
     
     private ItemDAO itemDAO;
     private CategoryDAO categoryDAO;
+    private ItemImportService importService;
     
     @Override
     public void init() throws ServletException {
         try {
             itemDAO = new ItemDAO();
             categoryDAO = new CategoryDAO();
-            System.out.println("ItemController: DAOs initialized successfully");
+            importService = new ItemImportService(itemDAO, categoryDAO);
+            LOG.info("DAOs initialized successfully");
         } catch (Exception e) {
-            System.err.println("ItemController: Failed to initialize DAOs - " + e.getMessage());
+            LOG.error("Failed to initialize DAOs", "error", e.getMessage());
             throw new ServletException("Failed to initialize DAOs", e);
         }
     }
@@ -109,6 +117,9 @@ public class ItemController extends HttpServlet {
             case "/delete-category":
                 handleDeleteCategory(request, response);
                 break;
+            case "/import":
+                handleImportItems(request, response);
+                break;
             default:
                 sendErrorResponse(response, "Invalid operation");
         }
@@ -184,7 +195,7 @@ public class ItemController extends HttpServlet {
             out.print(jsonBuilder.toString());
             
         } catch (Exception e) {
-            System.err.println("ItemController: Error getting items - " + e.getMessage());
+            LOG.error("Error getting items", "error", e.getMessage());
             out.print("{\"success\": false, \"message\": \"Error retrieving items\"}");
         } finally {
             out.close();
@@ -204,6 +215,7 @@ public class ItemController extends HttpServlet {
         
         try {
             List<Category> categories = categoryDAO.getActiveCategories();
+            Map<Integer, Integer> itemCounts = categoryDAO.getItemCounts();
             
             // Convert to JSON
             StringBuilder jsonBuilder = new StringBuilder();
@@ -216,7 +228,8 @@ public class ItemController extends HttpServlet {
                 jsonBuilder.append("{")
                     .append("\"id\": ").append(category.getId()).append(",")
                     .append("\"name\": \"").append(escapeJsonString(category.getName())).append("\",")
-                    .append("\"description\": \"").append(escapeJsonString(category.getDescription())).append("\"")
+                    .append("\"description\": \"").append(escapeJsonString(category.getDescription())).append("\",")
+                    .append("\"itemCount\": ").append(itemCounts.getOrDefault(category.getId(), 0))
                     .append("}");
             }
             
@@ -224,7 +237,7 @@ public class ItemController extends HttpServlet {
             out.print(jsonBuilder.toString());
             
         } catch (Exception e) {
-            System.err.println("ItemController: Error getting categories - " + e.getMessage());
+            LOG.error("Error getting categories", "error", e.getMessage());
             out.print("{\"success\": false, \"message\": \"Error retrieving categories\"}");
         } finally {
             out.close();
@@ -243,11 +256,12 @@ public class ItemController extends HttpServlet {
         PrintWriter out = response.getWriter();
         
         try {
-            int activeItems = itemDAO.countItemsByStatus(Item.STATUS_ACTIVE);
-            int inactiveItems = itemDAO.countItemsByStatus(Item.STATUS_INACTIVE);
-            int outOfStockItems = itemDAO.countItemsByStatus(Item.STATUS_OUT_OF_STOCK);
+            Map<String, Integer> statusCounts = itemDAO.getItemCountsByStatus();
+            int activeItems = statusCounts.getOrDefault(Item.STATUS_ACTIVE, 0);
+            int inactiveItems = statusCounts.getOrDefault(Item.STATUS_INACTIVE, 0);
+            int outOfStockItems = statusCounts.getOrDefault(Item.STATUS_OUT_OF_STOCK, 0);
             int totalItems = activeItems + inactiveItems + outOfStockItems;
-            int totalCategories = categoryDAO.getActiveCategories().size();
+            int totalCategories = categoryDAO.countActiveCategories();
             
             String jsonResponse = String.format(
                 "{\"success\": true, \"stats\": {" +
@@ -263,7 +277,7 @@ public class ItemController extends HttpServlet {
             out.print(jsonResponse);
             
         } catch (Exception e) {
-            System.err.println("ItemController: Error getting item stats - " + e.getMessage());
+            LOG.error("Error getting item stats", "error", e.getMessage());
             out.print("{\"success\": false, \"message\": \"Error retrieving statistics\"}");
         } finally {
             out.close();
@@ -330,7 +344,7 @@ public class ItemController extends HttpServlet {
         } catch (NumberFormatException e) {
             sendErrorResponse(response, "Invalid number format in input");
         } catch (Exception e) {
-            System.err.println("ItemController: Error creating item - " + e.getMessage());
+            LOG.error("Error creating item", "error", e.getMessage());
             sendErrorResponse(response, "Error creating item");
         } finally {
             out.close();
@@ -400,7 +414,7 @@ public class ItemController extends HttpServlet {
         } catch (NumberFormatException e) {
             sendErrorResponse(response, "Invalid number format");
         } catch (Exception e) {
-            System.err.println("ItemController: Error updating item - " + e.getMessage());
+            LOG.error("Error updating item", "error", e.getMessage());
             sendErrorResponse(response, "Error updating item");
         } finally {
             out.close();
@@ -445,7 +459,7 @@ public class ItemController extends HttpServlet {
         } catch (NumberFormatException e) {
             sendErrorResponse(response, "Invalid item ID");
         } catch (Exception e) {
-            System.err.println("ItemController: Error deleting item - " + e.getMessage());
+            LOG.error("Error deleting item", "error", e.getMessage());
             sendErrorResponse(response, "Error deleting item");
         } finally {
             out.close();
@@ -488,7 +502,7 @@ public class ItemController extends HttpServlet {
             }
             
         } catch (Exception e) {
-            System.err.println("ItemController: Error creating category - " + e.getMessage());
+            LOG.error("Error creating category", "error", e.getMessage());
             sendErrorResponse(response, "Error creating category");
         } finally {
             out.close();
@@ -548,7 +562,7 @@ public class ItemController extends HttpServlet {
         } catch (NumberFormatException e) {
             sendErrorResponse(response, "Invalid category ID");
         } catch (Exception e) {
-            System.err.println("ItemController: Error updating category - " + e.getMessage());
+            LOG.error("Error updating category", "error", e.getMessage());
             sendErrorResponse(response, "Error updating category");
         } finally {
             out.close();
@@ -600,13 +614,127 @@ public class ItemController extends HttpServlet {
         } catch (NumberFormatException e) {
             sendErrorResponse(response, "Invalid category ID");
         } catch (Exception e) {
-            System.err.println("ItemController: Error deleting category - " + e.getMessage());
+            LOG.error("Error deleting category", "error", e.getMessage());
             sendErrorResponse(response, "Error deleting category");
         } finally {
             out.close();
         }
     }
     
+    /**
+     * Handle bulk item import request.
+     * The request body is the CSV or NDJSON file; format and batchSize are read
+     * from the query string. The response is NDJSON: a progress line after each
+     * batch, an error line per rejected row and a final summary line.
+     */
+    private void handleImportItems(HttpServletRequest request, HttpServletResponse response) 
+            throws IOException {
+        
+        String format = resolveImportFormat(request);
+        if (format == null) {
+            sendErrorResponse(response, "Unsupported import format. Use csv or ndjson");
+            return;
+        }
+        
+        int batchSize = ItemImportService.DEFAULT_BATCH_SIZE;
+        String batchSizeStr = request.getParameter("batchSize");
+        if (batchSizeStr != null && !batchSizeStr.trim().isEmpty()) {
+            try {
+                batchSize = Integer.parseInt(batchSizeStr.trim());
+            } catch (NumberFormatException e) {
+                sendErrorResponse(response, "Invalid batch size");
+                return;
+            }
+            if (batchSize < 1 || batchSize > ItemImportService.MAX_BATCH_SIZE) {
+                sendErrorResponse(response, "Batch size must be between 1 and " + ItemImportService.MAX_BATCH_SIZE);
+                return;
+            }
+        }
+        
+        if (request.getCharacterEncoding() == null) {
+            request.setCharacterEncoding("UTF-8");
+        }
+        
+        JsonStreamWriter json = JsonStreamWriter.openLines(response);
+        
+        try {
+            ItemImportService.ImportSummary summary = importService.importItems(
+                    request.getReader(), format, batchSize, new ItemImportService.ImportListener() {
+                
+                @Override
+                public void onRowError(long rowNumber, String message) throws IOException {
+                    json.beginObject()
+                        .property("type", "error")
+                        .property("row", rowNumber)
+                        .property("message", message)
+                        .endObject().endLine();
+                }
+                
+                @Override
+                public void onBatchComplete(ItemImportService.ImportSummary progress) throws IOException {
+                    json.beginObject()
+                        .property("type", "progress")
+                        .property("rowsRead", progress.rowsRead)
+                        .property("rowsImported", progress.rowsImported)
+                        .property("rowsFailed", progress.rowsFailed)
+                        .property("batches", progress.batches)
+                        .endObject().endLine();
+                }
+            });
+            
+            json.beginObject()
+                .property("type", "summary")
+                .property("success", true)
+                .property("rowsRead", summary.rowsRead)
+                .property("rowsImported", summary.rowsImported)
+                .property("rowsFailed", summary.rowsFailed)
+                .property("batches", summary.batches)
+                .property("errorsTruncated", summary.errorsTruncated)
+                .property("elapsedMs", summary.elapsedMs)
+                .endObject().endLine();
+            
+        } catch (IllegalArgumentException e) {
+            json.beginObject()
+                .property("type", "summary")
+                .property("success", false)
+                .property("message", e.getMessage())
+                .endObject().endLine();
+        } catch (IOException e) {
+            LOG.error("Error importing items", e);
+        } finally {
+            json.close();
+        }
+    }
+    
+    /**
+     * Determine the import format from the format parameter or the content type
+     */
+    private String resolveImportFormat(HttpServletRequest request) {
+        String format = request.getParameter("format");
+        if (format != null && !format.trim().isEmpty()) {
+            format = format.trim().toLowerCase(Locale.ROOT);
+            if ("jsonl".equals(format)) {
+                return ItemImportService.FORMAT_NDJSON;
+            }
+            if (ItemImportService.FORMAT_CSV.equals(format) || ItemImportService.FORMAT_NDJSON.equals(format)) {
+                return format;
+            }
+            return null;
+        }
+        
+        String contentType = request.getContentType();
+        if (contentType != null) {
+            contentType = contentType.toLowerCase(Locale.ROOT);
+            if (contentType.contains("csv")) {
+                return ItemImportService.FORMAT_CSV;
+            }
+            if (contentType.contains("ndjson") || contentType.contains("jsonl")) {
+                return ItemImportService.FORMAT_NDJSON;
+            }
+        }
+        return null;
+    }
+    
     /**
      * Send success response
      */
@@ -656,9 +784,10 @@ public class ItemController extends HttpServlet {
     
     @Override
     public void destroy() {
-        System.out.println("ItemController: Controller being destroyed");
+        LOG.info("Controller being destroyed");
         itemDAO = null;
         categoryDAO = null;
+        importService = null;
         super.destroy();
     }
 }
\ No newline at end of file
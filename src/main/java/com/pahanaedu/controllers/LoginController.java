@@ -12,6 +12,7 @@ import javax.servlet.http.HttpSession;
 
 import com.pahanaedu.dao.UserDAO;
 import com.pahanaedu.models.User;
+import com.pahanaedu.utils.Log;
 
 /**
  * Login Controller - Handles user authentication
@@ -20,6 +21,7 @@ import com.pahanaedu.models.User;
 @WebServlet("/login")
 public class LoginController extends HttpServlet {
     private static final long serialVersionUID = 1L;
+    private static final Log LOG = Log.get(LoginController.class);
     
     // Default admin credentials
     private static final String ADMIN_EMAIL = "admin@pahanaedu.lk";
@@ -39,9 +41,9 @@ public class LoginController extends HttpServlet {
     public void init() throws ServletException {
         try {
             userDAO = new UserDAO();
-            System.out.println("LoginController: UserDAO initialized successfully");
+            LOG.info("UserDAO initialized successfully");
         } catch (Exception e) {
-            System.err.println("LoginController: Failed to initialize UserDAO - " + e.getMessage());
+            LOG.error("Failed to initialize UserDAO", "error", e.getMessage());
             throw new ServletException("Failed to initialize UserDAO", e);
         }
     }
@@ -67,7 +69,7 @@ public class LoginController extends HttpServlet {
             String password = request.getParameter("password");
             String rememberMe = request.getParameter("rememberMe");
             
-            System.out.println("LoginController: Processing login request for: " + email);
+            LOG.debug("Processing login request", "email", email);
             
             // Input validation
             if (email == null || email.trim().isEmpty()) {
@@ -104,8 +106,7 @@ public class LoginController extends HttpServlet {
             authenticateUser(email, password, request, response, out, rememberMe);
             
         } catch (Exception e) {
-            System.err.println("LoginController: Unexpected error during login - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Unexpected error during login", e);
             
             if (out != null) {
                 sendErrorResponse(response, out, "An unexpected error occurred. Please try again.");
@@ -123,7 +124,7 @@ public class LoginController extends HttpServlet {
     private void handleCashierLogin(HttpServletRequest request, HttpServletResponse response, 
                                    PrintWriter out, String rememberMe) throws IOException {
         
-        System.out.println("LoginController: Processing cashier login");
+        LOG.debug("Processing cashier login");
         
         // Create cashier user object
         User cashierUser = new User();
@@ -138,7 +139,7 @@ public class LoginController extends HttpServlet {
         // Configure session
         configureSession(request, cashierUser, rememberMe);
         
-        System.out.println("LoginController: Cashier login successful");
+        LOG.debug("Cashier login successful");
         
         // Send success response
         sendSuccessResponse(response, out, "Cashier login successful!", 
@@ -151,7 +152,7 @@ public class LoginController extends HttpServlet {
     private void handleAdminLogin(HttpServletRequest request, HttpServletResponse response, 
                                   PrintWriter out, String rememberMe) throws IOException {
         
-        System.out.println("LoginController: Processing admin login");
+        LOG.debug("Processing admin login");
         
         // Create admin user object
         User adminUser = new User();
@@ -166,7 +167,7 @@ public class LoginController extends HttpServlet {
         // Configure session
         configureSession(request, adminUser, rememberMe);
         
-        System.out.println("LoginController: Admin login successful");
+        LOG.debug("Admin login successful");
         
         // Send success response
         sendSuccessResponse(response, out, "Admin login successful!", 
@@ -179,7 +180,7 @@ public class LoginController extends HttpServlet {
     private void handleManagerLogin(HttpServletRequest request, HttpServletResponse response, 
                                    PrintWriter out, String rememberMe) throws IOException {
         
-        System.out.println("LoginController: Processing manager login");
+        LOG.debug("Processing manager login");
         
         // Create manager user object
         User managerUser = new User();
@@ -194,7 +195,7 @@ public class LoginController extends HttpServlet {
         // Configure session
         configureSession(request, managerUser, rememberMe);
         
-        System.out.println("LoginController: Manager login successful");
+        LOG.debug("Manager login successful");
         
         // Send success response
         sendSuccessResponse(response, out, "Manager login successful!", 
@@ -208,21 +209,31 @@ public class LoginController extends HttpServlet {
                                  HttpServletResponse response, PrintWriter out, String rememberMe) 
                                  throws IOException {
         
-        System.out.println("LoginController: Authenticating user: " + email);
+        LOG.debug("Authenticating user", "email", email);
         
         try {
             // Validate credentials using UserDAO
-            User user = userDAO.validateLogin(email, password);
+            UserDAO.LoginResult result = userDAO.authenticate(email, password);
+            
+            if (result.busy) {
+                LOG.debug("Authentication busy, rejecting login", "email", email);
+                response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                out.print("{\"success\": false, \"message\": \"Too many login attempts right now. Please try again in a moment.\"}");
+                out.flush();
+                return;
+            }
+            
+            User user = result.user;
             
             if (user == null) {
-                System.out.println("LoginController: Authentication failed for: " + email);
+                LOG.debug("Authentication failed", "email", email);
                 sendErrorResponse(response, out, "Invalid email or password");
                 return;
             }
             
             // Check if user account is active
             if (!user.isActive()) {
-                System.out.println("LoginController: Account inactive for: " + email);
+                LOG.debug("Account inactive", "email", email);
                 
                 String message = getUserInactiveMessage(user);
                 sendErrorResponse(response, out, message);
@@ -235,16 +246,14 @@ public class LoginController extends HttpServlet {
             // Determine redirect URL
             String redirectUrl = determineRedirectUrl(user.getRole());
             
-            System.out.println("LoginController: User authentication successful - " + email + 
-                             " (Role: " + user.getRole() + ")");
+            LOG.debug("User authentication successful", "email", email, "role", user.getRole());
             
             // Send success response
             String successMessage = getSuccessMessage(user.getRole());
             sendSuccessResponse(response, out, successMessage, user.getRole(), redirectUrl);
             
         } catch (Exception e) {
-            System.err.println("LoginController: Error during authentication - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error during authentication", e);
             sendErrorResponse(response, out, "Authentication error. Please try again.");
         }
     }
@@ -253,7 +262,7 @@ public class LoginController extends HttpServlet {
      * Configure user session
      */
     private void configureSession(HttpServletRequest request, User user, String rememberMe) {
-        System.out.println("LoginController: Configuring session for: " + user.getEmail());
+        LOG.debug("Configuring session", "email", user.getEmail());
         
         // Invalidate existing session
         HttpSession oldSession = request.getSession(false);
@@ -294,7 +303,7 @@ public class LoginController extends HttpServlet {
             session.setAttribute("rememberMe", false);
         }
         
-        System.out.println("LoginController: Session configured successfully");
+        LOG.debug("Session configured successfully");
     }
     
     /**
@@ -426,7 +435,7 @@ public class LoginController extends HttpServlet {
     
     @Override
     public void destroy() {
-        System.out.println("LoginController: Controller being destroyed");
+        LOG.info("Controller being destroyed");
         userDAO = null;
         super.destroy();
     }
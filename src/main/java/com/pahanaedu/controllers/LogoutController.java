@@ -10,6 +10,8 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 
+import com.pahanaedu.utils.Log;
+
 /**
  * Logout Controller - Handles user logout
  * Destroys session and redirects to login page
@@ -17,6 +19,7 @@ import javax.servlet.http.HttpSession;
 @WebServlet("/logout")
 public class LogoutController extends HttpServlet {
     private static final long serialVersionUID = 1L;
+    private static final Log LOG = Log.get(LogoutController.class);
     
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response) 
@@ -42,12 +45,12 @@ public class LogoutController extends HttpServlet {
             String userEmail = (String) session.getAttribute("userEmail");
             String userRole = (String) session.getAttribute("userRole");
             
-            System.out.println("LogoutController: User logging out - " + userEmail + " (Role: " + userRole + ")");
+            LOG.debug("User logging out", "userEmail", userEmail, "role", userRole);
             
             // Invalidate session
             session.invalidate();
             
-            System.out.println("LogoutController: Session invalidated successfully");
+            LOG.debug("Session invalidated successfully");
         }
         
         // Clear any cookies if needed
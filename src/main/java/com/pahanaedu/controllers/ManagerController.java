@@ -3,7 +3,9 @@ package com.pahanaedu.controllers;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.math.BigDecimal;
+import java.sql.SQLException;
 import java.util.List;
+import java.util.Map;
 
 import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
@@ -16,10 +18,15 @@ import com.pahanaedu.dao.UserDAO;
 import com.pahanaedu.dao.ItemDAO;
 import com.pahanaedu.dao.CategoryDAO;
 import com.pahanaedu.dao.OrderDAO;
+import com.pahanaedu.dao.OrderStatsDAO;
 import com.pahanaedu.models.User;
 import com.pahanaedu.models.Item;
 import com.pahanaedu.models.Category;
 import com.pahanaedu.models.Order;
+import com.pahanaedu.models.OrderItem;
+import com.pahanaedu.services.OrderStatusService;
+import com.pahanaedu.utils.JsonStreamWriter;
+import com.pahanaedu.utils.Log;
 
 /**
  * Manager Controller - Handles manager operations
@@ -28,11 +35,14 @@ import com.pahanaedu.models.Order;
 @WebServlet("/manager/*")
 public class ManagerController extends HttpServlet {
     private static final long serialVersionUID = 1L;
+    private static final Log LOG = Log.get(ManagerController.class);
     
     private UserDAO userDAO;
     private ItemDAO itemDAO;
     private CategoryDAO categoryDAO;
     private OrderDAO orderDAO;
+    private OrderStatsDAO orderStatsDAO;
+    private OrderStatusService orderStatusService;
     
     @Override
     public void init() throws ServletException {
@@ -41,9 +51,11 @@ public class ManagerController extends HttpServlet {
             itemDAO = new ItemDAO();
             categoryDAO = new CategoryDAO();
             orderDAO = new OrderDAO();
-            System.out.println("ManagerController: All DAOs initialized successfully");
+            orderStatsDAO = new OrderStatsDAO();
+            orderStatusService = new OrderStatusService(orderDAO);
+            LOG.info("All DAOs initialized successfully");
         } catch (Exception e) {
-            System.err.println("ManagerController: Failed to initialize DAOs - " + e.getMessage());
+            LOG.error("Failed to initialize DAOs", "error", e.getMessage());
             throw new ServletException("Failed to initialize DAOs", e);
         }
     }
@@ -206,7 +218,7 @@ public class ManagerController extends HttpServlet {
             out.print(jsonBuilder.toString());
             
         } catch (Exception e) {
-            System.err.println("ManagerController: Error getting users - " + e.getMessage());
+            LOG.error("Error getting users", "error", e.getMessage());
             out.print("{\"success\": false, \"message\": \"Error retrieving users\"}");
         } finally {
             out.close();
@@ -225,9 +237,10 @@ public class ManagerController extends HttpServlet {
         PrintWriter out = response.getWriter();
         
         try {
-            int managerCount = userDAO.getUserCountByRole(User.ROLE_MANAGER);
-            int cashierCount = userDAO.getUserCountByRole(User.ROLE_CASHIER);
-            int customerCount = userDAO.getUserCountByRole(User.ROLE_CUSTOMER);
+            Map<String, Integer> roleCounts = userDAO.getUserCountsByRole();
+            int managerCount = roleCounts.getOrDefault(User.ROLE_MANAGER, 0);
+            int cashierCount = roleCounts.getOrDefault(User.ROLE_CASHIER, 0);
+            int customerCount = roleCounts.getOrDefault(User.ROLE_CUSTOMER, 0);
             int totalUsers = managerCount + cashierCount + customerCount;
             
             String jsonResponse = String.format(
@@ -243,7 +256,7 @@ public class ManagerController extends HttpServlet {
             out.print(jsonResponse);
             
         } catch (Exception e) {
-            System.err.println("ManagerController: Error getting user stats - " + e.getMessage());
+            LOG.error("Error getting user stats", "error", e.getMessage());
             out.print("{\"success\": false, \"message\": \"Error retrieving statistics\"}");
         } finally {
             out.close();
@@ -302,7 +315,7 @@ public class ManagerController extends HttpServlet {
             out.print(jsonBuilder.toString());
             
         } catch (Exception e) {
-            System.err.println("ManagerController: Error getting items - " + e.getMessage());
+            LOG.error("Error getting items", "error", e.getMessage());
             out.print("{\"success\": false, \"message\": \"Error retrieving items\"}");
         } finally {
             out.close();
@@ -342,7 +355,7 @@ public class ManagerController extends HttpServlet {
             out.print(jsonBuilder.toString());
             
         } catch (Exception e) {
-            System.err.println("ManagerController: Error getting categories - " + e.getMessage());
+            LOG.error("Error getting categories", "error", e.getMessage());
             out.print("{\"success\": false, \"message\": \"Error retrieving categories\"}");
         } finally {
             out.close();
@@ -361,11 +374,12 @@ public class ManagerController extends HttpServlet {
         PrintWriter out = response.getWriter();
         
         try {
-            int activeItems = itemDAO.countItemsByStatus(Item.STATUS_ACTIVE);
-            int inactiveItems = itemDAO.countItemsByStatus(Item.STATUS_INACTIVE);
-            int outOfStockItems = itemDAO.countItemsByStatus(Item.STATUS_OUT_OF_STOCK);
+            Map<String, Integer> statusCounts = itemDAO.getItemCountsByStatus();
+            int activeItems = statusCounts.getOrDefault(Item.STATUS_ACTIVE, 0);
+            int inactiveItems = statusCounts.getOrDefault(Item.STATUS_INACTIVE, 0);
+            int outOfStockItems = statusCounts.getOrDefault(Item.STATUS_OUT_OF_STOCK, 0);
             int totalItems = activeItems + inactiveItems + outOfStockItems;
-            int totalCategories = categoryDAO.getActiveCategories().size();
+            int totalCategories = categoryDAO.countActiveCategories();
             
             String jsonResponse = String.format(
                 "{\"success\": true, \"stats\": {" +
@@ -381,7 +395,7 @@ public class ManagerController extends HttpServlet {
             out.print(jsonResponse);
             
         } catch (Exception e) {
-            System.err.println("ManagerController: Error getting item stats - " + e.getMessage());
+            LOG.error("Error getting item stats", "error", e.getMessage());
             out.print("{\"success\": false, \"message\": \"Error retrieving statistics\"}");
         } finally {
             out.close();
@@ -394,63 +408,55 @@ public class ManagerController extends HttpServlet {
     private void handleGetOrders(HttpServletRequest request, HttpServletResponse response) 
             throws IOException {
         
-        response.setContentType("application/json");
-        response.setCharacterEncoding("UTF-8");
-        
-        PrintWriter out = response.getWriter();
+        JsonStreamWriter json = JsonStreamWriter.open(response);
         
         try {
-            List<Order> orders = orderDAO.getAllOrders();
-            
-            // Convert to JSON with complete order information
-            StringBuilder jsonBuilder = new StringBuilder();
-            jsonBuilder.append("{\"success\": true, \"orders\": [");
-            
-            for (int i = 0; i < orders.size(); i++) {
-                Order order = orders.get(i);
-                if (i > 0) jsonBuilder.append(",");
-                
-                jsonBuilder.append("{")
-                    .append("\"id\": ").append(order.getId()).append(",")
-                    .append("\"customerName\": \"").append(escapeJsonString(order.getCustomerName())).append("\",")
-                    .append("\"customerEmail\": \"").append(escapeJsonString(order.getCustomerEmail())).append("\",")
-                    .append("\"totalAmount\": ").append(order.getTotalAmount()).append(",")
-                    .append("\"status\": \"").append(escapeJsonString(order.getStatus())).append("\",")
-                    .append("\"paymentMethod\": \"").append(escapeJsonString(order.getPaymentMethod())).append("\",")
-                    .append("\"contactNumber\": \"").append(escapeJsonString(order.getContactNumber())).append("\",")
-                    .append("\"shippingAddress\": \"").append(escapeJsonString(order.getShippingAddress())).append("\",")
-                    .append("\"createdAt\": \"").append(order.getCreatedAt() != null ? order.getCreatedAt().toString() : "").append("\",");
+            // Stream orders page by page instead of building the whole response in memory
+            json.beginObject().beginArray("orders");
+            
+            orderDAO.forEachOrder(true, order -> {
+                json.beginObject()
+                    .property("id", order.getId())
+                    .property("customerName", order.getCustomerName())
+                    .property("customerEmail", order.getCustomerEmail())
+                    .property("totalAmount", order.getTotalAmount())
+                    .property("status", order.getStatus())
+                    .property("paymentMethod", order.getPaymentMethod())
+                    .property("contactNumber", order.getContactNumber())
+                    .property("shippingAddress", order.getShippingAddress())
+                    .property("createdAt", order.getCreatedAt() != null ? order.getCreatedAt().toString() : "");
                 
                 // Add order items as JSON array
-                jsonBuilder.append("\"orderItems\": [");
+                json.beginArray("orderItems");
                 if (order.getOrderItems() != null) {
-                    for (int j = 0; j < order.getOrderItems().size(); j++) {
-                        var item = order.getOrderItems().get(j);
-                        if (j > 0) jsonBuilder.append(",");
-                        
-                        jsonBuilder.append("{")
-                            .append("\"itemId\": ").append(item.getItemId()).append(",")
-                            .append("\"itemTitle\": \"").append(escapeJsonString(item.getItemTitle())).append("\",")
-                            .append("\"itemAuthor\": \"").append(escapeJsonString(item.getItemAuthor())).append("\",")
-                            .append("\"itemImagePath\": \"").append(escapeJsonString(item.getItemImagePath())).append("\",")
-                            .append("\"quantity\": ").append(item.getQuantity()).append(",")
-                            .append("\"price\": ").append(item.getPrice())
-                            .append("}");
+                    for (OrderItem item : order.getOrderItems()) {
+                        json.beginObject()
+                            .property("itemId", item.getItemId())
+                            .property("itemTitle", item.getItemTitle())
+                            .property("itemAuthor", item.getItemAuthor())
+                            .property("itemImagePath", item.getItemImagePath())
+                            .property("quantity", item.getQuantity())
+                            .property("price", item.getPrice())
+                            .endObject();
                     }
                 }
-                jsonBuilder.append("]");
+                json.endArray();
                 
-                jsonBuilder.append("}");
-            }
+                json.endObject();
+            });
             
-            jsonBuilder.append("]}");
-            out.print(jsonBuilder.toString());
+            json.endList();
             
+        } catch (SQLException e) {
+            LOG.error("Error getting orders", "error", e.getMessage());
+            json.failList("Error retrieving orders");
         } catch (Exception e) {
-            System.err.println("ManagerController: Error getting orders - " + e.getMessage());
-            out.print("{\"success\": false, \"message\": \"Error retrieving orders\"}");
+            LOG.error("Error getting orders", "error", e.getMessage());
+            if (!json.isStarted()) {
+                json.writeError("Error retrieving orders");
+            }
         } finally {
-            out.close();
+            json.close();
         }
     }
     
@@ -466,44 +472,7 @@ public class ManagerController extends HttpServlet {
         PrintWriter out = response.getWriter();
         
         try {
-            List<Order> allOrders = orderDAO.getAllOrders();
-            
-            int totalOrders = allOrders.size();
-            int pendingOrders = 0;
-            int confirmedOrders = 0;
-            int shippedOrders = 0;
-            int deliveredOrders = 0;
-            int cancelledOrders = 0;
-            BigDecimal totalRevenue = BigDecimal.ZERO;
-            
-            for (Order order : allOrders) {
-                String status = order.getStatus();
-                switch (status != null ? status : "unknown") {
-                    case Order.STATUS_PENDING: 
-                        pendingOrders++; 
-                        break;
-                    case Order.STATUS_CONFIRMED: 
-                        confirmedOrders++; 
-                        break;
-                    case Order.STATUS_SHIPPED: 
-                        shippedOrders++; 
-                        break;
-                    case Order.STATUS_DELIVERED: 
-                        deliveredOrders++; 
-                        break;
-                    case Order.STATUS_CANCELLED: 
-                        cancelledOrders++; 
-                        break;
-                }
-                
-                // Calculate revenue (exclude cancelled orders)
-                if (!Order.STATUS_CANCELLED.equals(order.getStatus())) {
-                    BigDecimal amount = order.getTotalAmount();
-                    if (amount != null) {
-                        totalRevenue = totalRevenue.add(amount);
-                    }
-                }
-            }
+            OrderStatsDAO.OrderStats stats = orderStatsDAO.getOrderStats();
             
             String jsonResponse = String.format(
                 "{\"success\": true, \"stats\": {" +
@@ -515,14 +484,14 @@ public class ManagerController extends HttpServlet {
                 "\"cancelledOrders\": %d, " +
                 "\"totalRevenue\": %s" +
                 "}}",
-                totalOrders, pendingOrders, confirmedOrders, shippedOrders, 
-                deliveredOrders, cancelledOrders, totalRevenue
+                stats.totalOrders, stats.pendingOrders, stats.confirmedOrders, stats.shippedOrders, 
+                stats.deliveredOrders, stats.cancelledOrders, stats.totalRevenue
             );
             
             out.print(jsonResponse);
             
         } catch (Exception e) {
-            System.err.println("ManagerController: Error getting order stats - " + e.getMessage());
+            LOG.error("Error getting order stats", "error", e.getMessage());
             out.print("{\"success\": false, \"message\": \"Error retrieving statistics\"}");
         } finally {
             out.close();
@@ -584,7 +553,7 @@ public class ManagerController extends HttpServlet {
             }
             
         } catch (Exception e) {
-            System.err.println("ManagerController: Error creating user - " + e.getMessage());
+            LOG.error("Error creating user", "error", e.getMessage());
             sendErrorResponse(response, "Error creating user");
         } finally {
             out.close();
@@ -666,7 +635,7 @@ public class ManagerController extends HttpServlet {
             
             if (password != null && !password.trim().isEmpty()) {
                 if (userDAO.updatePassword(existingUser.getEmail(), password)) {
-                    System.out.println("ManagerController: Password updated for user - " + existingUser.getEmail());
+                    LOG.debug("Password updated for user", "email", existingUser.getEmail());
                 } else {
                     sendErrorResponse(response, "Failed to update password");
                     return;
@@ -682,7 +651,7 @@ public class ManagerController extends HttpServlet {
         } catch (NumberFormatException e) {
             sendErrorResponse(response, "Invalid user ID");
         } catch (Exception e) {
-            System.err.println("ManagerController: Error updating user - " + e.getMessage());
+            LOG.error("Error updating user", "error", e.getMessage());
             sendErrorResponse(response, "Error updating user");
         } finally {
             out.close();
@@ -731,7 +700,7 @@ public class ManagerController extends HttpServlet {
         } catch (NumberFormatException e) {
             sendErrorResponse(response, "Invalid user ID");
         } catch (Exception e) {
-            System.err.println("ManagerController: Error deleting user - " + e.getMessage());
+            LOG.error("Error deleting user", "error", e.getMessage());
             sendErrorResponse(response, "Error deleting user");
         } finally {
             out.close();
@@ -798,7 +767,7 @@ public class ManagerController extends HttpServlet {
         } catch (NumberFormatException e) {
             sendErrorResponse(response, "Invalid number format in input");
         } catch (Exception e) {
-            System.err.println("ManagerController: Error creating item - " + e.getMessage());
+            LOG.error("Error creating item", "error", e.getMessage());
             sendErrorResponse(response, "Error creating item");
         } finally {
             out.close();
@@ -865,7 +834,7 @@ public class ManagerController extends HttpServlet {
         } catch (NumberFormatException e) {
             sendErrorResponse(response, "Invalid number format");
         } catch (Exception e) {
-            System.err.println("ManagerController: Error updating item - " + e.getMessage());
+            LOG.error("Error updating item", "error", e.getMessage());
             sendErrorResponse(response, "Error updating item");
         } finally {
             out.close();
@@ -908,7 +877,7 @@ public class ManagerController extends HttpServlet {
         } catch (NumberFormatException e) {
             sendErrorResponse(response, "Invalid item ID");
         } catch (Exception e) {
-            System.err.println("ManagerController: Error deleting item - " + e.getMessage());
+            LOG.error("Error deleting item", "error", e.getMessage());
             sendErrorResponse(response, "Error deleting item");
         } finally {
             out.close();
@@ -949,7 +918,7 @@ public class ManagerController extends HttpServlet {
             }
             
         } catch (Exception e) {
-            System.err.println("ManagerController: Error creating category - " + e.getMessage());
+            LOG.error("Error creating category", "error", e.getMessage());
             sendErrorResponse(response, "Error creating category");
         } finally {
             out.close();
@@ -994,15 +963,20 @@ public class ManagerController extends HttpServlet {
                 return;
             }
             
-            Order currentOrder = orderDAO.getOrderById(orderId);
-            if (currentOrder == null) {
+            OrderDAO.StatusChange change = orderStatusService.changeStatus(orderId, newStatus);
+            
+            if (!change.found) {
                 sendErrorResponse(response, "Order not found with ID: " + orderId);
                 return;
             }
             
-            boolean success = orderDAO.updateOrderStatus(orderId, newStatus);
+            if (!change.allowed) {
+                sendErrorResponse(response, "Invalid status transition from " + 
+                                getStatusDisplay(change.previousStatus) + " to " + getStatusDisplay(newStatus));
+                return;
+            }
             
-            if (success) {
+            if (change.updated) {
                 String jsonResponse = String.format(
                     "{\"success\": true, \"message\": \"Order status updated to %s\", \"orderId\": %d, \"newStatus\": \"%s\"}",
                     getStatusDisplay(newStatus), orderId, newStatus
@@ -1013,7 +987,7 @@ public class ManagerController extends HttpServlet {
             }
             
         } catch (Exception e) {
-            System.err.println("ManagerController: Error updating order status - " + e.getMessage());
+            LOG.error("Error updating order status", "error", e.getMessage());
             sendErrorResponse(response, "Error updating order status: " + e.getMessage());
         } finally {
             out.close();
@@ -1096,11 +1070,13 @@ public class ManagerController extends HttpServlet {
     
     @Override
     public void destroy() {
-        System.out.println("ManagerController: Controller being destroyed");
+        LOG.info("Controller being destroyed");
         userDAO = null;
         itemDAO = null;
         categoryDAO = null;
         orderDAO = null;
+        orderStatsDAO = null;
+        orderStatusService = null;
         super.destroy();
     }
 }
\ No newline at end of file
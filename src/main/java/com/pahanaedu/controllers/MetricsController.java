@@ -0,0 +1,300 @@
+package com.pahanaedu.controllers;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+
+import com.pahanaedu.dao.ItemDAO;
+import com.pahanaedu.dao.PromoCodeDAO;
+import com.pahanaedu.dao.UserDAO;
+import com.pahanaedu.models.User;
+import com.pahanaedu.utils.ConnectionPool;
+import com.pahanaedu.utils.DatabaseConnection;
+import com.pahanaedu.utils.JsonStreamWriter;
+import com.pahanaedu.utils.LatencyHistogram;
+import com.pahanaedu.utils.Log;
+import com.pahanaedu.utils.Metrics;
+import com.pahanaedu.utils.QueryCache;
+import com.pahanaedu.utils.SingleFlight;
+
+/**
+ * Metrics Controller - Exposes request, SQL, pool and cache metrics
+ * Only accessible by users with ADMIN role. Responds with JSON, or with the
+ * Prometheus text format for ?format=prometheus or an Accept of text/plain.
+ */
+@WebServlet("/admin/metrics")
+public class MetricsController extends HttpServlet {
+    private static final long serialVersionUID = 1L;
+    private static final Log LOG = Log.get(MetricsController.class);
+
+    // Histogram bucket bounds for the Prometheus output, in seconds
+    private static final double[] BUCKET_BOUNDS_SECONDS = {
+        0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10
+    };
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+
+        if (!isAdminAuthenticated(request)) {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN);
+            return;
+        }
+
+        if (wantsPrometheus(request)) {
+            writePrometheus(response);
+        } else {
+            writeJson(response);
+        }
+    }
+
+    /**
+     * Check if user is authenticated as admin
+     */
+    private boolean isAdminAuthenticated(HttpServletRequest request) {
+        HttpSession session = request.getSession(false);
+
+        if (session == null) {
+            return false;
+        }
+
+        Boolean isLoggedIn = (Boolean) session.getAttribute("isLoggedIn");
+        String userRole = (String) session.getAttribute("userRole");
+
+        return Boolean.TRUE.equals(isLoggedIn) && User.ROLE_ADMIN.equals(userRole);
+    }
+
+    private boolean wantsPrometheus(HttpServletRequest request) {
+        String format = request.getParameter("format");
+        if (format != null) {
+            return "prometheus".equalsIgnoreCase(format.trim());
+        }
+        String accept = request.getHeader("Accept");
+        return accept != null && accept.toLowerCase(Locale.ROOT).startsWith("text/plain");
+    }
+
+    /**
+     * Write all metrics as one JSON document
+     */
+    private void writeJson(HttpServletResponse response) throws IOException {
+        JsonStreamWriter json = JsonStreamWriter.open(response);
+
+        try {
+            json.beginObject()
+                .property("success", true)
+                .property("uptimeMs", System.currentTimeMillis() - Metrics.getStartedAt());
+
+            json.beginArray("endpoints");
+            for (Map.Entry<String, Metrics.Timer> entry : Metrics.getEndpoints().entrySet()) {
+                writeTimerJson(json, "endpoint", entry.getKey(), entry.getValue());
+            }
+            json.endArray();
+
+            json.beginArray("statements");
+            for (Map.Entry<String, Metrics.Timer> entry : Metrics.getStatements().entrySet()) {
+                writeTimerJson(json, "sql", entry.getKey(), entry.getValue());
+            }
+            json.endArray();
+
+            ConnectionPool pool = DatabaseConnection.getPool();
+            json.beginObject("connectionPool")
+                .property("active", pool.getActiveCount())
+                .property("idle", pool.getIdleCount())
+                .property("total", pool.getTotalCount())
+                .property("waiting", pool.getWaitingCount())
+                .property("max", pool.getMaxSize())
+                .endObject();
+
+            DatabaseConnection.StatementCacheStats statementStats = DatabaseConnection.getStatementCacheStats();
+            if (statementStats != null) {
+                json.beginObject("preparedStatements")
+                    .property("serverPrepares", statementStats.prepares)
+                    .property("serverExecutes", statementStats.executes)
+                    .property("serverOpen", statementStats.openStatements)
+                    .endObject();
+            }
+
+            json.beginObject("logging")
+                .property("level", Log.getLevel().name())
+                .property("dropped", Log.getDroppedCount())
+                .endObject();
+
+            json.beginArray("caches");
+            writeCacheJson(json, ItemDAO.getCatalogCacheStats());
+            writeCacheJson(json, PromoCodeDAO.getPromoCacheStats());
+            writeCacheJson(json, ItemDAO.getStatusCountCacheStats());
+            writeCacheJson(json, UserDAO.getRoleCountCacheStats());
+            json.endArray();
+
+            json.beginArray("singleFlights");
+            for (SingleFlight.Stats stats : ItemDAO.getReadCoalescingStats()) {
+                writeSingleFlightJson(json, stats);
+            }
+            writeSingleFlightJson(json, PromoCodeDAO.getActiveReadStats());
+            json.endArray();
+
+            json.endObject();
+
+        } catch (IOException e) {
+            LOG.error("Error writing metrics", "error", e.getMessage());
+        } finally {
+            json.close();
+        }
+    }
+
+    private void writeTimerJson(JsonStreamWriter json, String nameProperty, String name, Metrics.Timer timer)
+            throws IOException {
+        LatencyHistogram.Snapshot latency = timer.getLatency();
+        json.beginObject()
+            .property(nameProperty, name)
+            .property("count", latency.count)
+            .property("errors", timer.getErrors())
+            .property("inFlight", timer.getInFlight())
+            .property("meanMs", latency.meanMicros() / 1000.0)
+            .property("p50Ms", latency.percentile(50) / 1000.0)
+            .property("p90Ms", latency.percentile(90) / 1000.0)
+            .property("p99Ms", latency.percentile(99) / 1000.0)
+            .property("p999Ms", latency.percentile(99.9) / 1000.0)
+            .property("maxMs", latency.maxMicros / 1000.0)
+            .endObject();
+    }
+
+    private void writeCacheJson(JsonStreamWriter json, QueryCache.Stats stats) throws IOException {
+        json.beginObject()
+            .property("name", stats.name)
+            .property("hits", stats.hits)
+            .property("misses", stats.misses)
+            .property("evictions", stats.evictions)
+            .property("coalesced", stats.coalesced)
+            .property("size", stats.size)
+            .property("maxEntries", stats.maxEntries)
+            .endObject();
+    }
+
+    private void writeSingleFlightJson(JsonStreamWriter json, SingleFlight.Stats stats) throws IOException {
+        json.beginObject()
+            .property("name", stats.name)
+            .property("executions", stats.executions)
+            .property("shared", stats.shared)
+            .property("inFlight", stats.inFlight)
+            .endObject();
+    }
+
+    /**
+     * Write all metrics in the Prometheus text exposition format
+     */
+    private void writePrometheus(HttpServletResponse response) throws IOException {
+        response.setContentType("text/plain; version=0.0.4");
+        response.setCharacterEncoding("UTF-8");
+
+        PrintWriter out = response.getWriter();
+
+        try {
+            StringBuilder text = new StringBuilder(16 * 1024);
+
+            writeTimersPrometheus(text, "pahanaedu_http_request", "endpoint", Metrics.getEndpoints());
+            writeTimersPrometheus(text, "pahanaedu_sql_statement", "sql", Metrics.getStatements());
+
+            ConnectionPool pool = DatabaseConnection.getPool();
+            appendGauge(text, "pahanaedu_db_pool_active_connections", pool.getActiveCount());
+            appendGauge(text, "pahanaedu_db_pool_idle_connections", pool.getIdleCount());
+            appendGauge(text, "pahanaedu_db_pool_waiting_threads", pool.getWaitingCount());
+            appendGauge(text, "pahanaedu_db_pool_max_connections", pool.getMaxSize());
+
+            DatabaseConnection.StatementCacheStats statementStats = DatabaseConnection.getStatementCacheStats();
+            if (statementStats != null) {
+                appendCounter(text, "pahanaedu_db_server_statement_prepares_total", statementStats.prepares);
+                appendCounter(text, "pahanaedu_db_server_statement_executes_total", statementStats.executes);
+                appendGauge(text, "pahanaedu_db_server_prepared_statements", statementStats.openStatements);
+            }
+
+            appendCounter(text, "pahanaedu_log_dropped_total", Log.getDroppedCount());
+
+            text.append("# TYPE pahanaedu_cache_hits_total counter\n");
+            appendCacheSample(text, "pahanaedu_cache_hits_total", ItemDAO.getCatalogCacheStats(), true);
+            appendCacheSample(text, "pahanaedu_cache_hits_total", PromoCodeDAO.getPromoCacheStats(), true);
+            appendCacheSample(text, "pahanaedu_cache_hits_total", ItemDAO.getStatusCountCacheStats(), true);
+            appendCacheSample(text, "pahanaedu_cache_hits_total", UserDAO.getRoleCountCacheStats(), true);
+            text.append("# TYPE pahanaedu_cache_misses_total counter\n");
+            appendCacheSample(text, "pahanaedu_cache_misses_total", ItemDAO.getCatalogCacheStats(), false);
+            appendCacheSample(text, "pahanaedu_cache_misses_total", PromoCodeDAO.getPromoCacheStats(), false);
+            appendCacheSample(text, "pahanaedu_cache_misses_total", ItemDAO.getStatusCountCacheStats(), false);
+            appendCacheSample(text, "pahanaedu_cache_misses_total", UserDAO.getRoleCountCacheStats(), false);
+
+            out.print(text);
+            out.flush();
+
+        } finally {
+            out.close();
+        }
+    }
+
+    private void writeTimersPrometheus(StringBuilder text, String prefix, String label,
+                                       Map<String, Metrics.Timer> timers) {
+        String histogram = prefix + "_duration_seconds";
+        String errors = prefix + "_errors_total";
+        String inFlight = prefix + "_in_flight";
+
+        text.append("# TYPE ").append(histogram).append(" histogram\n");
+        for (Map.Entry<String, Metrics.Timer> entry : timers.entrySet()) {
+            String labelValue = escapeLabel(entry.getKey());
+            LatencyHistogram.Snapshot latency = entry.getValue().getLatency();
+
+            for (double bound : BUCKET_BOUNDS_SECONDS) {
+                text.append(histogram).append("_bucket{").append(label).append("=\"").append(labelValue)
+                    .append("\",le=\"").append(bound).append("\"} ")
+                    .append(latency.countAtOrBelow((long) (bound * 1_000_000))).append('\n');
+            }
+            text.append(histogram).append("_bucket{").append(label).append("=\"").append(labelValue)
+                .append("\",le=\"+Inf\"} ").append(latency.count).append('\n');
+            text.append(histogram).append("_sum{").append(label).append("=\"").append(labelValue)
+                .append("\"} ").append(latency.sumMicros / 1_000_000.0).append('\n');
+            text.append(histogram).append("_count{").append(label).append("=\"").append(labelValue)
+                .append("\"} ").append(latency.count).append('\n');
+        }
+
+        text.append("# TYPE ").append(errors).append(" counter\n");
+        for (Map.Entry<String, Metrics.Timer> entry : timers.entrySet()) {
+            text.append(errors).append('{').append(label).append("=\"").append(escapeLabel(entry.getKey()))
+                .append("\"} ").append(entry.getValue().getErrors()).append('\n');
+        }
+
+        text.append("# TYPE ").append(inFlight).append(" gauge\n");
+        for (Map.Entry<String, Metrics.Timer> entry : timers.entrySet()) {
+            text.append(inFlight).append('{').append(label).append("=\"").append(escapeLabel(entry.getKey()))
+                .append("\"} ").append(entry.getValue().getInFlight()).append('\n');
+        }
+    }
+
+    private void appendGauge(StringBuilder text, String name, long value) {
+        text.append("# TYPE ").append(name).append(" gauge\n")
+            .append(name).append(' ').append(value).append('\n');
+    }
+
+    private void appendCounter(StringBuilder text, String name, long value) {
+        text.append("# TYPE ").append(name).append(" counter\n")
+            .append(name).append(' ').append(value).append('\n');
+    }
+
+    private void appendCacheSample(StringBuilder text, String name, QueryCache.Stats stats, boolean hits) {
+        text.append(name).append("{cache=\"").append(escapeLabel(stats.name)).append("\"} ")
+            .append(hits ? stats.hits : stats.misses).append('\n');
+    }
+
+    /**
+     * Escape a Prometheus label value
+     */
+    private String escapeLabel(String value) {
+        return value.replace("\\", "\\\\")
+                    .replace("\"", "\\\"")
+                    .replace("\n", "\\n");
+    }
+}
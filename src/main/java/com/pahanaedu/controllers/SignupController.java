@@ -12,6 +12,7 @@ import javax.servlet.http.HttpSession;
 
 import com.pahanaedu.dao.UserDAO;
 import com.pahanaedu.models.User;
+import com.pahanaedu.utils.Log;
 
 /**
  * Signup Controller - Handles customer registration
@@ -20,6 +21,7 @@ import com.pahanaedu.models.User;
 @WebServlet("/signup")
 public class SignupController extends HttpServlet {
     private static final long serialVersionUID = 1L;
+    private static final Log LOG = Log.get(SignupController.class);
     
     private UserDAO userDAO;
     
@@ -27,9 +29,9 @@ public class SignupController extends HttpServlet {
     public void init() throws ServletException {
         try {
             userDAO = new UserDAO();
-            System.out.println("SignupController: UserDAO initialized successfully");
+            LOG.info("UserDAO initialized successfully");
         } catch (Exception e) {
-            System.err.println("SignupController: Failed to initialize UserDAO - " + e.getMessage());
+            LOG.error("Failed to initialize UserDAO", "error", e.getMessage());
             throw new ServletException("Failed to initialize UserDAO", e);
         }
     }
@@ -58,7 +60,7 @@ public class SignupController extends HttpServlet {
             String password = request.getParameter("password");
             String confirmPassword = request.getParameter("confirmPassword");
             
-            System.out.println("SignupController: Processing signup request for: " + email);
+            LOG.debug("Processing signup request", "email", email);
             
             // Input validation
             if (firstName == null || firstName.trim().isEmpty()) {
@@ -137,7 +139,7 @@ public class SignupController extends HttpServlet {
             
             // Create user in database
             if (userDAO.createUser(newUser)) {
-                System.out.println("SignupController: Customer registration successful - " + email);
+                LOG.debug("Customer registration successful", "email", email);
                 
                 // Create session for immediate login
                 createUserSession(request, newUser);
@@ -148,13 +150,12 @@ public class SignupController extends HttpServlet {
                     User.ROLE_CUSTOMER, "customer-dashboard.jsp");
                 
             } else {
-                System.err.println("SignupController: Database error during registration - " + email);
+                LOG.warn("Database error during registration", "email", email);
                 sendErrorResponse(response, out, "Failed to create account. Please try again.");
             }
             
         } catch (Exception e) {
-            System.err.println("SignupController: Unexpected error during signup - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Unexpected error during signup", e);
             
             if (out != null) {
                 sendErrorResponse(response, out, "Registration error occurred. Please try again.");
@@ -170,7 +171,7 @@ public class SignupController extends HttpServlet {
      * Create user session after successful registration
      */
     private void createUserSession(HttpServletRequest request, User user) {
-        System.out.println("SignupController: Creating session for new user: " + user.getEmail());
+        LOG.debug("Creating session for new user", "email", user.getEmail());
         
         // Invalidate existing session
         HttpSession oldSession = request.getSession(false);
@@ -204,7 +205,7 @@ public class SignupController extends HttpServlet {
         session.setMaxInactiveInterval(30 * 60);
         session.setAttribute("rememberMe", false);
         
-        System.out.println("SignupController: Session created successfully");
+        LOG.debug("Session created successfully");
     }
     
     /**
@@ -249,7 +250,7 @@ public class SignupController extends HttpServlet {
         out.print(jsonResponse);
         out.flush();
         
-        System.out.println("SignupController: Success response sent");
+        LOG.debug("Success response sent");
     }
     
     /**
@@ -266,7 +267,7 @@ public class SignupController extends HttpServlet {
         out.print(jsonResponse);
         out.flush();
         
-        System.out.println("SignupController: Error response sent - " + message);
+        LOG.debug("Error response sent", "message", message);
     }
     
     /**
@@ -309,7 +310,7 @@ public class SignupController extends HttpServlet {
     
     @Override
     public void destroy() {
-        System.out.println("SignupController: Controller being destroyed");
+        LOG.info("Controller being destroyed");
         userDAO = null;
         super.destroy();
     }
@@ -1,32 +1,52 @@
 package com.pahanaedu.dao;
 
-import java.math.BigDecimal;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLDataException;
 import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import com.pahanaedu.models.Cart;
+import com.pahanaedu.models.Item;
 import com.pahanaedu.utils.DatabaseConnection;
+import com.pahanaedu.utils.Log;
 
 /**
  * Data Access Object for Cart operations
+ * 
+ * Carts are cached per user, so item counts and cart listings are answered from
+ * memory, with item details taken from ItemDAO's cached active catalog. Quantities
+ * added to a cart are coalesced and written behind in batched upserts. Quantity
+ * updates, removals and clears are written through. Every database access for a
+ * user's cart, including its load and the background flush of its additions, runs
+ * under that cart's monitor, so a flush can never bring back lines that a checkout
+ * has just cleared, while different users' carts never wait on each other.
+ * Additions the database rejects (for example for an item deleted meanwhile) are
+ * dropped and logged; additions that fail for other reasons are retried.
  */
 public class CartDAO {
     
+    private static final Log LOG = Log.get(CartDAO.class);
+    
     // SQL Queries
     private static final String INSERT_CART_ITEM = 
         "INSERT INTO cart (user_id, item_id, quantity) VALUES (?, ?, ?) " +
         "ON DUPLICATE KEY UPDATE quantity = quantity + VALUES(quantity)";
     
-    private static final String SELECT_CART_ITEMS = 
-        "SELECT c.*, i.title, i.author, i.price, i.offer_price, i.image_path, i.stock " +
-        "FROM cart c " +
-        "JOIN items i ON c.item_id = i.id " +
-        "WHERE c.user_id = ? AND i.status = 'active' " +
-        "ORDER BY c.updated_at DESC";
+    private static final String SELECT_USER_CART_ROWS = 
+        "SELECT id, item_id, quantity, added_at, updated_at FROM cart WHERE user_id = ?";
     
     private static final String SELECT_CART_ITEM_BY_ID = 
         "SELECT c.*, i.title, i.author, i.price, i.offer_price, i.image_path, i.stock " +
@@ -34,6 +54,9 @@ public class CartDAO {
         "JOIN items i ON c.item_id = i.id " +
         "WHERE c.id = ?";
     
+    private static final String SELECT_CART_ITEM_OWNER = 
+        "SELECT user_id, item_id FROM cart WHERE id = ?";
+    
     private static final String UPDATE_CART_QUANTITY = 
         "UPDATE cart SET quantity = ?, updated_at = CURRENT_TIMESTAMP WHERE id = ?";
     
@@ -43,54 +66,67 @@ public class CartDAO {
     private static final String DELETE_USER_CART = 
         "DELETE FROM cart WHERE user_id = ?";
     
-    private static final String COUNT_CART_ITEMS = 
-        "SELECT SUM(quantity) FROM cart c " +
-        "JOIN items i ON c.item_id = i.id " +
-        "WHERE c.user_id = ? AND i.status = 'active'";
+    // Write-behind settings
+    private static final long FLUSH_INTERVAL_MS = 2000;
+    private static final long IDLE_EVICTION_MS = 30 * 60 * 1000;
+    
+    // Cached carts by user id, shared by all CartDAO instances
+    private static final Map<Integer, UserCart> CARTS = new ConcurrentHashMap<>();
     
-    private static final String CHECK_EXISTING_CART_ITEM = 
-        "SELECT id, quantity FROM cart WHERE user_id = ? AND item_id = ?";
+    private static final ScheduledExecutorService FLUSHER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "cart-write-behind");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    static {
+        FLUSHER.scheduleWithFixedDelay(CartDAO::flushPendingAdditions,
+                                       FLUSH_INTERVAL_MS, FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+    
+    private final ItemDAO itemDAO = new ItemDAO();
+    
+    /**
+     * Stop the write-behind flusher and persist any pending cart additions
+     */
+    public static void shutdown() {
+        FLUSHER.shutdown();
+        flushPendingAdditions();
+    }
     
     /**
-     * Add item to cart or update quantity if exists
+     * Add item to cart or update quantity if exists.
+     * The addition is persisted by the next write-behind flush.
      */
     public boolean addToCart(int userId, int itemId, int quantity) {
-        try (Connection connection = DatabaseConnection.getConnection()) {
-            
-            // Check if item already exists in cart
-            try (PreparedStatement checkStmt = connection.prepareStatement(CHECK_EXISTING_CART_ITEM)) {
-                checkStmt.setInt(1, userId);
-                checkStmt.setInt(2, itemId);
-                ResultSet rs = checkStmt.executeQuery();
-                
-                if (rs.next()) {
-                    // Item exists, update quantity
-                    int cartId = rs.getInt("id");
-                    int currentQuantity = rs.getInt("quantity");
-                    return updateCartItemQuantity(cartId, currentQuantity + quantity);
-                }
+        while (true) {
+            UserCart cart = getUserCart(userId);
+            if (cart == null) {
+                return false;
             }
             
-            // Item doesn't exist, insert new
-            try (PreparedStatement statement = connection.prepareStatement(INSERT_CART_ITEM)) {
-                statement.setInt(1, userId);
-                statement.setInt(2, itemId);
-                statement.setInt(3, quantity);
-                
-                int rowsAffected = statement.executeUpdate();
+            synchronized (cart) {
+                if (cart.evicted) {
+                    // Evicted after lookup; load it again
+                    continue;
+                }
                 
-                if (rowsAffected > 0) {
-                    System.out.println("CartDAO: Item added to cart - User: " + userId + ", Item: " + itemId);
-                    return true;
+                long now = System.currentTimeMillis();
+                CartLine line = cart.lines.get(itemId);
+                if (line == null) {
+                    line = new CartLine(itemId, now);
+                    cart.lines.put(itemId, line);
                 }
+                line.quantity += quantity;
+                line.pendingQuantity += quantity;
+                line.updatedAt = now;
+                cart.dirty = true;
+                cart.lastAccessAt = now;
             }
             
-        } catch (SQLException e) {
-            System.err.println("CartDAO: Error adding to cart - " + e.getMessage());
-            e.printStackTrace();
+            LOG.debug("Item added to cart", "user", userId, "item", itemId);
+            return true;
         }
-        
-        return false;
     }
     
     /**
@@ -99,21 +135,31 @@ public class CartDAO {
     public List<Cart> getCartItems(int userId) {
         List<Cart> cartItems = new ArrayList<>();
         
-        try (Connection connection = DatabaseConnection.getConnection();
-             PreparedStatement statement = connection.prepareStatement(SELECT_CART_ITEMS)) {
-            
-            statement.setInt(1, userId);
-            ResultSet resultSet = statement.executeQuery();
-            
-            while (resultSet.next()) {
-                cartItems.add(extractCartFromResultSet(resultSet));
+        UserCart cart = getUserCart(userId);
+        if (cart == null) {
+            return cartItems;
+        }
+        
+        synchronized (cart) {
+            if (cart.hasUnsavedLines()) {
+                // Cart item ids are assigned by the database, so persist new lines and reload them
+                syncUserCart(cart);
             }
-            
-        } catch (SQLException e) {
-            System.err.println("CartDAO: Error getting cart items - " + e.getMessage());
-            e.printStackTrace();
         }
         
+        Map<Integer, Item> activeItems = itemDAO.getActiveItemIndex();
+        
+        synchronized (cart) {
+            cart.lastAccessAt = System.currentTimeMillis();
+            for (CartLine line : cart.lines.values()) {
+                Item item = activeItems.get(line.itemId);
+                if (item != null) {
+                    cartItems.add(toCart(userId, line, item));
+                }
+            }
+        }
+        
+        cartItems.sort(Comparator.comparing(Cart::getUpdatedAt).reversed());
         return cartItems;
     }
     
@@ -132,8 +178,7 @@ public class CartDAO {
             }
             
         } catch (SQLException e) {
-            System.err.println("CartDAO: Error getting cart item by ID - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error getting cart item by ID", e);
         }
         
         return null;
@@ -143,22 +188,32 @@ public class CartDAO {
      * Update cart item quantity
      */
     public boolean updateCartItemQuantity(int cartItemId, int newQuantity) {
-        try (Connection connection = DatabaseConnection.getConnection();
-             PreparedStatement statement = connection.prepareStatement(UPDATE_CART_QUANTITY)) {
+        try (Connection connection = DatabaseConnection.getConnection()) {
             
-            statement.setInt(1, newQuantity);
-            statement.setInt(2, cartItemId);
+            UserCart cart = findCartOfItem(connection, cartItemId);
+            if (cart == null) {
+                return false;
+            }
             
-            int rowsAffected = statement.executeUpdate();
+            boolean updated;
+            synchronized (cart) {
+                updated = executeCartItemUpdate(connection, UPDATE_CART_QUANTITY, cartItemId, newQuantity);
+                CartLine line = cart.findLine(cartItemId);
+                if (updated && line != null) {
+                    // The new quantity supersedes any additions not yet flushed
+                    line.quantity = newQuantity;
+                    line.pendingQuantity = 0;
+                    line.updatedAt = System.currentTimeMillis();
+                }
+            }
             
-            if (rowsAffected > 0) {
-                System.out.println("CartDAO: Cart item quantity updated - ID: " + cartItemId + ", Quantity: " + newQuantity);
+            if (updated) {
+                LOG.debug("Cart item quantity updated", "id", cartItemId, "quantity", newQuantity);
                 return true;
             }
             
         } catch (SQLException e) {
-            System.err.println("CartDAO: Error updating cart item quantity - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error updating cart item quantity", e);
         }
         
         return false;
@@ -168,66 +223,348 @@ public class CartDAO {
      * Remove item from cart
      */
     public boolean removeFromCart(int cartItemId) {
-        try (Connection connection = DatabaseConnection.getConnection();
-             PreparedStatement statement = connection.prepareStatement(DELETE_CART_ITEM)) {
+        try (Connection connection = DatabaseConnection.getConnection()) {
             
-            statement.setInt(1, cartItemId);
-            int rowsAffected = statement.executeUpdate();
+            UserCart cart = findCartOfItem(connection, cartItemId);
+            if (cart == null) {
+                return false;
+            }
             
-            if (rowsAffected > 0) {
-                System.out.println("CartDAO: Cart item removed - ID: " + cartItemId);
+            boolean removed;
+            synchronized (cart) {
+                removed = executeCartItemUpdate(connection, DELETE_CART_ITEM, cartItemId, null);
+                CartLine line = cart.findLine(cartItemId);
+                if (removed && line != null) {
+                    cart.lines.remove(line.itemId);
+                }
+            }
+            
+            if (removed) {
+                LOG.debug("Cart item removed", "id", cartItemId);
                 return true;
             }
             
         } catch (SQLException e) {
-            System.err.println("CartDAO: Error removing from cart - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error removing from cart", e);
         }
         
         return false;
     }
     
     /**
-     * Clear entire cart for a user
+     * Clear entire cart for a user, including additions not yet flushed
      */
     public boolean clearCart(int userId) {
-        try (Connection connection = DatabaseConnection.getConnection();
-             PreparedStatement statement = connection.prepareStatement(DELETE_USER_CART)) {
+        // Registering the cart first keeps a concurrent load from caching lines read before the delete
+        UserCart cart = CARTS.computeIfAbsent(userId, UserCart::new);
+        
+        synchronized (cart) {
+            try (Connection connection = DatabaseConnection.getConnection();
+                 PreparedStatement statement = connection.prepareStatement(DELETE_USER_CART)) {
+                
+                statement.setInt(1, userId);
+                int rowsAffected = statement.executeUpdate();
+                
+                // Pending additions are discarded along with the rows; the cart is now known to be empty
+                cart.lines = new LinkedHashMap<>();
+                cart.dirty = false;
+                cart.loaded = true;
+                
+                LOG.debug("Cart cleared", "userId", userId, "itemsRemoved", rowsAffected);
+                return true; // Return true even if no items were removed
+                
+            } catch (SQLException e) {
+                LOG.error("Error clearing cart", e);
+            }
+        }
+        
+        return false;
+    }
+    
+    /**
+     * Get total count of items in cart for a user
+     */
+    public int getCartItemCount(int userId) {
+        UserCart cart = getUserCart(userId);
+        if (cart == null) {
+            return 0;
+        }
+        
+        Map<Integer, Item> activeItems = itemDAO.getActiveItemIndex();
+        int count = 0;
+        
+        synchronized (cart) {
+            cart.lastAccessAt = System.currentTimeMillis();
+            for (CartLine line : cart.lines.values()) {
+                if (activeItems.containsKey(line.itemId)) {
+                    count += line.quantity;
+                }
+            }
+        }
+        
+        return count;
+    }
+    
+    /**
+     * Get the cached cart of a user, loading it from the database on first use
+     * @return The cart, or null if it could not be loaded
+     */
+    private UserCart getUserCart(int userId) {
+        while (true) {
+            UserCart cart = CARTS.computeIfAbsent(userId, UserCart::new);
             
-            statement.setInt(1, userId);
-            int rowsAffected = statement.executeUpdate();
+            synchronized (cart) {
+                if (cart.evicted) {
+                    // Evicted after lookup; register it again
+                    continue;
+                }
+                
+                if (!cart.loaded) {
+                    try (Connection connection = DatabaseConnection.getConnection()) {
+                        cart.lines = readCartLines(connection, userId);
+                        cart.loaded = true;
+                    } catch (SQLException e) {
+                        LOG.error("Error loading cart for user", e, "userId", userId);
+                        return null;
+                    }
+                }
+                return cart;
+            }
+        }
+    }
+    
+    /**
+     * Flush a cart's pending additions and reload its lines from the database.
+     * Must be called while holding the cart's monitor.
+     */
+    private void syncUserCart(UserCart cart) {
+        try (Connection connection = DatabaseConnection.getConnection()) {
+            if (connection == null) {
+                return;
+            }
+            
+            List<PendingAddition> batch = new ArrayList<>();
+            cart.drainPending(batch);
             
-            System.out.println("CartDAO: Cart cleared for user - ID: " + userId + ", Items removed: " + rowsAffected);
-            return true; // Return true even if no items were removed
+            // Keep the cached lines if some additions are still waiting to be retried
+            if (writeAdditions(connection, batch)) {
+                cart.lines = readCartLines(connection, cart.userId);
+            }
             
         } catch (SQLException e) {
-            System.err.println("CartDAO: Error clearing cart - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error saving cart for user", e, "userId", cart.userId);
+        }
+    }
+    
+    /**
+     * Write each dirty cart's pending additions and evict idle carts.
+     * Carts are locked one at a time, so users are only held up while their own cart is written.
+     */
+    private static void flushPendingAdditions() {
+        Connection connection = null;
+        try {
+            long now = System.currentTimeMillis();
+            
+            Iterator<UserCart> iterator = CARTS.values().iterator();
+            while (iterator.hasNext()) {
+                UserCart cart = iterator.next();
+                synchronized (cart) {
+                    if (cart.dirty) {
+                        if (connection == null) {
+                            connection = DatabaseConnection.getConnection();
+                            if (connection == null) {
+                                return; // Already logged; retried by the next flush
+                            }
+                        }
+                        List<PendingAddition> batch = new ArrayList<>();
+                        cart.drainPending(batch);
+                        writeAdditions(connection, batch);
+                    } else if (now - cart.lastAccessAt > IDLE_EVICTION_MS) {
+                        cart.evicted = true;
+                        iterator.remove();
+                    }
+                }
+            }
+            
+        } catch (Exception e) {
+            LOG.error("Cart flush failed", e);
+        } finally {
+            DatabaseConnection.closeConnection(connection);
+        }
+    }
+    
+    /**
+     * Upsert one cart's drained additions in a single transaction. If the batch fails,
+     * rows are written one by one: rows the database rejects are dropped and logged,
+     * rows that fail for other reasons are put back for the next flush.
+     * Must be called while holding the cart's monitor.
+     * @return true if no addition was put back
+     */
+    private static boolean writeAdditions(Connection connection, List<PendingAddition> batch) {
+        if (batch.isEmpty() || writeAdditionBatch(connection, batch)) {
+            return true;
         }
         
-        return false;
+        boolean allWritten = true;
+        for (PendingAddition addition : batch) {
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_CART_ITEM)) {
+                bindAddition(statement, addition);
+                statement.executeUpdate();
+            } catch (SQLException e) {
+                if (isRejected(e)) {
+                    dropAddition(addition, e);
+                } else {
+                    restorePending(addition);
+                    allWritten = false;
+                }
+            }
+        }
+        return allWritten;
     }
     
     /**
-     * Get total count of items in cart for a user
+     * Upsert additions in one transaction
+     * @return false if the batch was rolled back
      */
-    public int getCartItemCount(int userId) {
-        try (Connection connection = DatabaseConnection.getConnection();
-             PreparedStatement statement = connection.prepareStatement(COUNT_CART_ITEMS)) {
+    private static boolean writeAdditionBatch(Connection connection, List<PendingAddition> batch) {
+        try {
+            connection.setAutoCommit(false);
             
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_CART_ITEM)) {
+                for (PendingAddition addition : batch) {
+                    bindAddition(statement, addition);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                connection.commit();
+                return true;
+                
+            } catch (SQLException e) {
+                LOG.error("Cart addition batch failed, retrying rows individually", 
+                          "batchCount", batch.size(), "error", e.getMessage());
+                connection.rollback();
+                return false;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            LOG.error("Error resetting connection after cart addition batch", "error", e.getMessage());
+            return false;
+        }
+    }
+    
+    private static void bindAddition(PreparedStatement statement, PendingAddition addition) throws SQLException {
+        statement.setInt(1, addition.cart.userId);
+        statement.setInt(2, addition.line.itemId);
+        statement.setInt(3, addition.quantity);
+    }
+    
+    /**
+     * Check if the database rejected a row, so retrying it can never succeed
+     */
+    private static boolean isRejected(SQLException e) {
+        String state = e.getSQLState();
+        return e instanceof SQLIntegrityConstraintViolationException
+            || e instanceof SQLDataException
+            || (state != null && (state.startsWith("23") || state.startsWith("22")));
+    }
+    
+    /**
+     * Take a rejected addition back out of the cached cart
+     */
+    private static void dropAddition(PendingAddition addition, SQLException e) {
+        LOG.warn("Dropping cart addition rejected by the database",
+                 "userId", addition.cart.userId, "itemId", addition.line.itemId,
+                 "quantity", addition.quantity, "error", e.getMessage());
+        
+        CartLine line = addition.line;
+        line.quantity -= addition.quantity;
+        if (line.id == 0 || line.quantity <= 0) {
+            addition.cart.lines.remove(line.itemId);
+        }
+    }
+    
+    /**
+     * Put an addition that failed to flush back so the next flush retries it
+     */
+    private static void restorePending(PendingAddition addition) {
+        addition.line.pendingQuantity += addition.quantity;
+        addition.cart.dirty = true;
+    }
+    
+    private static Map<Integer, CartLine> readCartLines(Connection connection, int userId) throws SQLException {
+        Map<Integer, CartLine> lines = new LinkedHashMap<>();
+        
+        try (PreparedStatement statement = connection.prepareStatement(SELECT_USER_CART_ROWS)) {
             statement.setInt(1, userId);
-            ResultSet resultSet = statement.executeQuery();
             
-            if (resultSet.next()) {
-                return resultSet.getInt(1);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    CartLine line = new CartLine(resultSet.getInt("item_id"), 0);
+                    line.id = resultSet.getInt("id");
+                    line.quantity = resultSet.getInt("quantity");
+                    line.addedAt = toMillis(resultSet.getTimestamp("added_at"));
+                    line.updatedAt = toMillis(resultSet.getTimestamp("updated_at"));
+                    lines.put(line.itemId, line);
+                }
             }
+        }
+        
+        return lines;
+    }
+    
+    /**
+     * Find the cart holding a cart row, registering it unloaded if it is not cached,
+     * so its monitor orders the write against a concurrent load
+     * @return The owner's cart, or null if the row does not exist
+     */
+    private UserCart findCartOfItem(Connection connection, int cartItemId) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(SELECT_CART_ITEM_OWNER)) {
+            statement.setInt(1, cartItemId);
             
-        } catch (SQLException e) {
-            System.err.println("CartDAO: Error getting cart item count - " + e.getMessage());
-            e.printStackTrace();
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? CARTS.computeIfAbsent(resultSet.getInt("user_id"), UserCart::new) : null;
+            }
         }
+    }
+    
+    private boolean executeCartItemUpdate(Connection connection, String sql, int cartItemId, Integer quantity) 
+            throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            int index = 1;
+            if (quantity != null) {
+                statement.setInt(index++, quantity);
+            }
+            statement.setInt(index, cartItemId);
+            return statement.executeUpdate() > 0;
+        }
+    }
+    
+    private static long toMillis(Timestamp timestamp) {
+        return timestamp != null ? timestamp.getTime() : 0L;
+    }
+    
+    /**
+     * Build a Cart row from a cached line and its active item
+     */
+    private Cart toCart(int userId, CartLine line, Item item) {
+        Cart cart = new Cart();
+        cart.setId(line.id);
+        cart.setUserId(userId);
+        cart.setItemId(line.itemId);
+        cart.setQuantity(line.quantity);
+        cart.setAddedAt(new Timestamp(line.addedAt));
+        cart.setUpdatedAt(new Timestamp(line.updatedAt));
         
-        return 0;
+        // Item details
+        cart.setItemTitle(item.getTitle());
+        cart.setItemAuthor(item.getAuthor());
+        cart.setItemPrice(item.getPrice());
+        cart.setItemOfferPrice(item.getOfferPrice());
+        cart.setItemImagePath(item.getImagePath());
+        cart.setItemStock(item.getStock());
+        
+        return cart;
     }
     
     /**
@@ -252,4 +589,82 @@ public class CartDAO {
         
         return cart;
     }
-}
\ No newline at end of file
+    
+    /**
+     * Cached cart of one user; guarded by its own monitor, which is also held
+     * across every database access for the user's cart
+     */
+    private static class UserCart {
+        private final int userId;
+        private Map<Integer, CartLine> lines = new LinkedHashMap<>();
+        private boolean loaded;
+        private boolean dirty;
+        private boolean evicted;
+        private long lastAccessAt = System.currentTimeMillis();
+        
+        private UserCart(int userId) {
+            this.userId = userId;
+        }
+        
+        private synchronized boolean hasUnsavedLines() {
+            for (CartLine line : lines.values()) {
+                if (line.id == 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        
+        private CartLine findLine(int cartItemId) {
+            for (CartLine line : lines.values()) {
+                if (line.id == cartItemId) {
+                    return line;
+                }
+            }
+            return null;
+        }
+        
+        private void drainPending(List<PendingAddition> batch) {
+            for (CartLine line : lines.values()) {
+                if (line.pendingQuantity != 0) {
+                    batch.add(new PendingAddition(this, line, line.pendingQuantity));
+                    line.pendingQuantity = 0;
+                }
+            }
+            dirty = false;
+        }
+    }
+    
+    /**
+     * One item in a cached cart; id is 0 until the row has been read back from the database
+     */
+    private static class CartLine {
+        private int id;
+        private final int itemId;
+        private int quantity;
+        private int pendingQuantity;
+        private long addedAt;
+        private long updatedAt;
+        
+        private CartLine(int itemId, long now) {
+            this.itemId = itemId;
+            this.addedAt = now;
+            this.updatedAt = now;
+        }
+    }
+    
+    /**
+     * Quantity taken from a cart line for a write-behind flush
+     */
+    private static class PendingAddition {
+        private final UserCart cart;
+        private final CartLine line;
+        private final int quantity;
+        
+        private PendingAddition(UserCart cart, CartLine line, int quantity) {
+            this.cart = cart;
+            this.line = line;
+            this.quantity = quantity;
+        }
+    }
+}
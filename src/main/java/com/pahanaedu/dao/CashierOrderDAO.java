@@ -13,12 +13,15 @@ import java.util.List;
 import com.pahanaedu.models.CashierOrder;
 import com.pahanaedu.models.CashierOrderItem;
 import com.pahanaedu.utils.DatabaseConnection;
+import com.pahanaedu.utils.Log;
 
 /**
  * Data Access Object for Cashier Order operations
  */
 public class CashierOrderDAO {
     
+    private static final Log LOG = Log.get(CashierOrderDAO.class);
+    
     // SQL Queries
     private static final String INSERT_ORDER = 
         "INSERT INTO cashier_orders (cashier_id, customer_name, customer_phone, customer_email, " +
@@ -41,6 +44,9 @@ public class CashierOrderDAO {
         "LEFT JOIN items i ON oi.item_id = i.id " +
         "WHERE oi.cashier_order_id = ?";
     
+    private static final String SELECT_ORDER_STATUS_FOR_UPDATE = 
+        "SELECT status FROM cashier_orders WHERE id = ? FOR UPDATE";
+    
     private static final String UPDATE_ORDER_STATUS = 
         "UPDATE cashier_orders SET status = ?, updated_at = CURRENT_TIMESTAMP WHERE id = ?";
     
@@ -56,6 +62,9 @@ public class CashierOrderDAO {
     private static final String COUNT_TOTAL_ORDERS = 
         "SELECT COUNT(*) FROM cashier_orders WHERE cashier_id = ?";
     
+    private final SalesRollupDAO salesRollupDAO = new SalesRollupDAO();
+    private final SalesLedgerDAO salesLedgerDAO = new SalesLedgerDAO();
+    
     /**
      * Create new cashier order with items
      */
@@ -65,6 +74,10 @@ public class CashierOrderDAO {
         PreparedStatement itemStatement = null;
         
         try {
+            // Must run before the transaction starts, as they may create their tables
+            salesRollupDAO.prepare();
+            salesLedgerDAO.prepare();
+            
             connection = DatabaseConnection.getConnection();
             connection.setAutoCommit(false); // Start transaction
             
@@ -106,8 +119,11 @@ public class CashierOrderDAO {
                         itemStatement.executeBatch();
                     }
                     
+                    salesRollupDAO.recordOrderCreated(connection, SalesRollupDAO.CHANNEL_POS, orderId, order.getStatus());
+                    salesLedgerDAO.recordOrderCreated(connection, SalesRollupDAO.CHANNEL_POS, orderId, order.getStatus());
+                    
                     connection.commit(); // Commit transaction
-                    System.out.println("CashierOrderDAO: Order created successfully - ID: " + orderId);
+                    LOG.debug("Order created successfully", "id", orderId);
                     return true;
                 }
             }
@@ -115,14 +131,13 @@ public class CashierOrderDAO {
             connection.rollback(); // Rollback on failure
             
         } catch (SQLException e) {
-            System.err.println("CashierOrderDAO: Error creating order - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error creating order", e);
             
             if (connection != null) {
                 try {
                     connection.rollback();
                 } catch (SQLException rollbackEx) {
-                    System.err.println("CashierOrderDAO: Error rolling back transaction - " + rollbackEx.getMessage());
+                    LOG.error("Error rolling back transaction", "error", rollbackEx.getMessage());
                 }
             }
         } finally {
@@ -134,7 +149,7 @@ public class CashierOrderDAO {
                     connection.close();
                 }
             } catch (SQLException e) {
-                System.err.println("CashierOrderDAO: Error closing resources - " + e.getMessage());
+                LOG.error("Error closing resources", "error", e.getMessage());
             }
         }
         
@@ -159,11 +174,10 @@ public class CashierOrderDAO {
                 orders.add(order);
             }
             
-            System.out.println("CashierOrderDAO: Retrieved " + orders.size() + " orders for cashier " + cashierId);
+            LOG.debug("Retrieved orders for cashier", "ordersCount", orders.size(), "cashierId", cashierId);
             
         } catch (SQLException e) {
-            System.err.println("CashierOrderDAO: Error getting orders by cashier - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error getting orders by cashier", e);
         }
         
         return orders;
@@ -186,8 +200,7 @@ public class CashierOrderDAO {
             }
             
         } catch (SQLException e) {
-            System.err.println("CashierOrderDAO: Error getting order by ID - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error getting order by ID", e);
         }
         
         return null;
@@ -221,8 +234,7 @@ public class CashierOrderDAO {
             }
             
         } catch (SQLException e) {
-            System.err.println("CashierOrderDAO: Error getting order items - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error getting order items", e);
         }
         
         return items;
@@ -232,22 +244,48 @@ public class CashierOrderDAO {
      * Update order status
      */
     public boolean updateOrderStatus(int orderId, String status) {
-        try (Connection connection = DatabaseConnection.getConnection();
-             PreparedStatement statement = connection.prepareStatement(UPDATE_ORDER_STATUS)) {
-            
-            statement.setString(1, status);
-            statement.setInt(2, orderId);
-            
-            int rowsAffected = statement.executeUpdate();
+        salesRollupDAO.prepare();
+        salesLedgerDAO.prepare();
+        
+        try (Connection connection = DatabaseConnection.getConnection()) {
+            connection.setAutoCommit(false);
             
-            if (rowsAffected > 0) {
-                System.out.println("CashierOrderDAO: Order status updated - ID: " + orderId + ", Status: " + status);
+            try (PreparedStatement selectStatement = connection.prepareStatement(SELECT_ORDER_STATUS_FOR_UPDATE);
+                 PreparedStatement statement = connection.prepareStatement(UPDATE_ORDER_STATUS)) {
+                
+                // Lock the row so concurrent changes adjust the rollup one at a time
+                selectStatement.setInt(1, orderId);
+                String previousStatus;
+                try (ResultSet resultSet = selectStatement.executeQuery()) {
+                    if (!resultSet.next()) {
+                        connection.rollback();
+                        return false;
+                    }
+                    previousStatus = resultSet.getString("status");
+                }
+                
+                statement.setString(1, status);
+                statement.setInt(2, orderId);
+                statement.executeUpdate();
+                
+                salesRollupDAO.recordStatusChanged(connection, SalesRollupDAO.CHANNEL_POS, orderId,
+                                                   previousStatus, status);
+                salesLedgerDAO.recordStatusChanged(connection, SalesRollupDAO.CHANNEL_POS, orderId,
+                                                   previousStatus, status);
+                connection.commit();
+                
+                LOG.debug("Order status updated", "id", orderId, "status", status);
                 return true;
+                
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
             }
             
         } catch (SQLException e) {
-            System.err.println("CashierOrderDAO: Error updating order status - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error updating order status", e);
         }
         
         return false;
@@ -265,22 +303,52 @@ public class CashierOrderDAO {
             int rowsAffected = statement.executeUpdate();
             
             if (rowsAffected > 0) {
-                System.out.println("CashierOrderDAO: Order marked as printed - ID: " + orderId);
+                LOG.debug("Order marked as printed", "id", orderId);
                 return true;
             }
             
         } catch (SQLException e) {
-            System.err.println("CashierOrderDAO: Error marking order as printed - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error marking order as printed", e);
         }
         
         return false;
     }
     
+    /**
+     * Get today's order count and revenue for cashier from the daily rollup,
+     * falling back to the order table when rollups are unavailable
+     */
+    public SalesRollupDAO.DailySales getTodaySales(int cashierId) {
+        SalesRollupDAO.DailySales sales = salesRollupDAO.getCashierToday(cashierId);
+        if (sales != null) {
+            return sales;
+        }
+        
+        sales = new SalesRollupDAO.DailySales();
+        sales.orderCount = countTodayOrders(cashierId);
+        BigDecimal revenue = sumTodayRevenue(cashierId);
+        sales.revenue = revenue != null ? revenue : BigDecimal.ZERO;
+        return sales;
+    }
+    
     /**
      * Get today's orders count for cashier
      */
     public int getTodayOrdersCount(int cashierId) {
+        return getTodaySales(cashierId).orderCount;
+    }
+    
+    /**
+     * Get today's revenue for cashier
+     */
+    public BigDecimal getTodayRevenue(int cashierId) {
+        return getTodaySales(cashierId).revenue;
+    }
+    
+    /**
+     * Count today's orders for cashier by scanning the order table
+     */
+    private int countTodayOrders(int cashierId) {
         try (Connection connection = DatabaseConnection.getConnection();
              PreparedStatement statement = connection.prepareStatement(COUNT_TODAY_ORDERS)) {
             
@@ -292,17 +360,16 @@ public class CashierOrderDAO {
             }
             
         } catch (SQLException e) {
-            System.err.println("CashierOrderDAO: Error getting today's orders count - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error getting today's orders count", e);
         }
         
         return 0;
     }
     
     /**
-     * Get today's revenue for cashier
+     * Sum today's revenue for cashier by scanning the order table
      */
-    public BigDecimal getTodayRevenue(int cashierId) {
+    private BigDecimal sumTodayRevenue(int cashierId) {
         try (Connection connection = DatabaseConnection.getConnection();
              PreparedStatement statement = connection.prepareStatement(GET_TODAY_REVENUE)) {
             
@@ -314,8 +381,7 @@ public class CashierOrderDAO {
             }
             
         } catch (SQLException e) {
-            System.err.println("CashierOrderDAO: Error getting today's revenue - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error getting today's revenue", e);
         }
         
         return BigDecimal.ZERO;
@@ -336,8 +402,7 @@ public class CashierOrderDAO {
             }
             
         } catch (SQLException e) {
-            System.err.println("CashierOrderDAO: Error getting total orders count - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error getting total orders count", e);
         }
         
         return 0;
@@ -4,17 +4,34 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import com.pahanaedu.models.Category;
 import com.pahanaedu.utils.DatabaseConnection;
+import com.pahanaedu.utils.Log;
 
 /**
  * Data Access Object for Category operations
+ * 
+ * Categories and their item counts are served from a process-wide registry:
+ * an immutable snapshot loaded with two queries and replaced as a whole
+ * (copy-on-write) whenever a category is created, updated or deleted, or
+ * ItemDAO reports an item added, moved or removed. Reads take no lock and run
+ * no query. The registry is loaded at application startup and reloaded
+ * periodically to absorb changes made outside this process. A created or
+ * updated category is read back so its database-set timestamps are current. Name checks and the count guarding a category delete
+ * still query the database.
  */
 public class CategoryDAO {
     
+    private static final Log LOG = Log.get(CategoryDAO.class);
+    
     // SQL Queries
     private static final String INSERT_CATEGORY = 
         "INSERT INTO categories (name, description, status) VALUES (?, ?, ?)";
@@ -22,9 +39,6 @@ public class CategoryDAO {
     private static final String SELECT_ALL_CATEGORIES = 
         "SELECT * FROM categories ORDER BY name ASC";
     
-    private static final String SELECT_ACTIVE_CATEGORIES = 
-        "SELECT * FROM categories WHERE status = 'active' ORDER BY name ASC";
-    
     private static final String SELECT_CATEGORY_BY_ID = 
         "SELECT * FROM categories WHERE id = ?";
     
@@ -43,12 +57,25 @@ public class CategoryDAO {
     private static final String COUNT_ITEMS_IN_CATEGORY = 
         "SELECT COUNT(*) FROM items WHERE category_id = ?";
     
+    private static final String COUNT_ITEMS_BY_CATEGORY = 
+        "SELECT category_id, COUNT(*) FROM items GROUP BY category_id";
+    
+    // Maximum age of the registry before it is reloaded from the database
+    private static final long REGISTRY_REFRESH_INTERVAL_MS = 5 * 60 * 1000;
+    
+    private static final Comparator<Category> BY_NAME =
+        Comparator.comparing(Category::getName, Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER));
+    
+    private static final Object REGISTRY_LOCK = new Object();
+    private static volatile Registry registry;
+    
+    
     /**
      * Create new category
      */
     public boolean createCategory(Category category) {
         try (Connection connection = DatabaseConnection.getConnection();
-             PreparedStatement statement = connection.prepareStatement(INSERT_CATEGORY)) {
+             PreparedStatement statement = connection.prepareStatement(INSERT_CATEGORY, Statement.RETURN_GENERATED_KEYS)) {
             
             statement.setString(1, category.getName());
             statement.setString(2, category.getDescription());
@@ -57,13 +84,19 @@ public class CategoryDAO {
             int rowsAffected = statement.executeUpdate();
             
             if (rowsAffected > 0) {
-                System.out.println("CategoryDAO: Category created successfully - " + category.getName());
+                ResultSet keys = statement.getGeneratedKeys();
+                if (keys.next()) {
+                    category.setId(keys.getInt(1));
+                    categoryChanged(connection, category.getId());
+                } else {
+                    invalidateRegistry();
+                }
+                LOG.debug("Category created successfully", "name", category.getName());
                 return true;
             }
             
         } catch (SQLException e) {
-            System.err.println("CategoryDAO: Error creating category - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error creating category", e);
         }
         
         return false;
@@ -73,68 +106,29 @@ public class CategoryDAO {
      * Get all categories
      */
     public List<Category> getAllCategories() {
-        List<Category> categories = new ArrayList<>();
-        
-        try (Connection connection = DatabaseConnection.getConnection();
-             PreparedStatement statement = connection.prepareStatement(SELECT_ALL_CATEGORIES)) {
-            
-            ResultSet resultSet = statement.executeQuery();
-            
-            while (resultSet.next()) {
-                categories.add(extractCategoryFromResultSet(resultSet));
-            }
-            
-        } catch (SQLException e) {
-            System.err.println("CategoryDAO: Error getting all categories - " + e.getMessage());
-            e.printStackTrace();
-        }
-        
-        return categories;
+        return copyOf(currentRegistry().all);
     }
     
     /**
      * Get active categories only
      */
     public List<Category> getActiveCategories() {
-        List<Category> categories = new ArrayList<>();
-        
-        try (Connection connection = DatabaseConnection.getConnection();
-             PreparedStatement statement = connection.prepareStatement(SELECT_ACTIVE_CATEGORIES)) {
-            
-            ResultSet resultSet = statement.executeQuery();
-            
-            while (resultSet.next()) {
-                categories.add(extractCategoryFromResultSet(resultSet));
-            }
-            
-        } catch (SQLException e) {
-            System.err.println("CategoryDAO: Error getting active categories - " + e.getMessage());
-            e.printStackTrace();
-        }
-        
-        return categories;
+        return copyOf(currentRegistry().active);
+    }
+    
+    /**
+     * Count active categories
+     */
+    public int countActiveCategories() {
+        return currentRegistry().active.size();
     }
     
     /**
      * Get category by ID
      */
     public Category getCategoryById(int id) {
-        try (Connection connection = DatabaseConnection.getConnection();
-             PreparedStatement statement = connection.prepareStatement(SELECT_CATEGORY_BY_ID)) {
-            
-            statement.setInt(1, id);
-            ResultSet resultSet = statement.executeQuery();
-            
-            if (resultSet.next()) {
-                return extractCategoryFromResultSet(resultSet);
-            }
-            
-        } catch (SQLException e) {
-            System.err.println("CategoryDAO: Error getting category by ID - " + e.getMessage());
-            e.printStackTrace();
-        }
-        
-        return null;
+        Category category = currentRegistry().byId.get(id);
+        return category != null ? copyOf(category) : null;
     }
     
     /**
@@ -152,13 +146,14 @@ public class CategoryDAO {
             int rowsAffected = statement.executeUpdate();
             
             if (rowsAffected > 0) {
-                System.out.println("CategoryDAO: Category updated successfully - " + category.getName());
+                LOG.debug("Category updated successfully", "name", category.getName());
+                categoryChanged(connection, category.getId());
+                ItemSearchIndex.getInstance().markStale(); // Category names are indexed
                 return true;
             }
             
         } catch (SQLException e) {
-            System.err.println("CategoryDAO: Error updating category - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error updating category", e);
         }
         
         return false;
@@ -175,13 +170,14 @@ public class CategoryDAO {
             int rowsAffected = statement.executeUpdate();
             
             if (rowsAffected > 0) {
-                System.out.println("CategoryDAO: Category deleted successfully - ID: " + id);
+                LOG.debug("Category deleted successfully", "id", id);
+                categoryDeleted(id);
+                ItemSearchIndex.getInstance().markStale(); // Category names are indexed
                 return true;
             }
             
         } catch (SQLException e) {
-            System.err.println("CategoryDAO: Error deleting category - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error deleting category", e);
         }
         
         return false;
@@ -202,8 +198,7 @@ public class CategoryDAO {
             }
             
         } catch (SQLException e) {
-            System.err.println("CategoryDAO: Error checking category name existence - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error checking category name existence", e);
         }
         
         return false;
@@ -225,15 +220,22 @@ public class CategoryDAO {
             }
             
         } catch (SQLException e) {
-            System.err.println("CategoryDAO: Error checking category name existence (excluding ID) - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error checking category name existence (excluding ID)", e);
         }
         
         return false;
     }
     
     /**
-     * Count items in category
+     * Get the number of items in each category from the registry
+     * @return Item counts by category id; categories without items are absent
+     */
+    public Map<Integer, Integer> getItemCounts() {
+        return currentRegistry().itemCounts;
+    }
+    
+    /**
+     * Count items in category with a query, for checks that must not act on a stale count
      */
     public int countItemsInCategory(int categoryId) {
         try (Connection connection = DatabaseConnection.getConnection();
@@ -247,17 +249,184 @@ public class CategoryDAO {
             }
             
         } catch (SQLException e) {
-            System.err.println("CategoryDAO: Error counting items in category - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error counting items in category", e);
         }
         
         return 0;
     }
     
+    /**
+     * Record item count changes reported by ItemDAO
+     * @param deltas Change in item count by category id
+     */
+    static void itemCountsChanged(Map<Integer, Integer> deltas) {
+        if (deltas.isEmpty()) return;
+        
+        synchronized (REGISTRY_LOCK) {
+            Registry current = registry;
+            if (current == null) return;
+            
+            Map<Integer, Integer> counts = new HashMap<>(current.itemCounts);
+            for (Map.Entry<Integer, Integer> delta : deltas.entrySet()) {
+                int count = counts.getOrDefault(delta.getKey(), 0) + delta.getValue();
+                if (count > 0) {
+                    counts.put(delta.getKey(), count);
+                } else {
+                    counts.remove(delta.getKey());
+                }
+            }
+            registry = new Registry(current.byId.values(), counts, current.loadedAt);
+        }
+    }
+    
+    static void itemAdded(int categoryId) {
+        itemCountsChanged(Collections.singletonMap(categoryId, 1));
+    }
+    
+    static void itemRemoved(int categoryId) {
+        itemCountsChanged(Collections.singletonMap(categoryId, -1));
+    }
+    
+    static void itemMoved(int fromCategoryId, int toCategoryId) {
+        if (fromCategoryId == toCategoryId) return;
+        
+        Map<Integer, Integer> deltas = new HashMap<>();
+        deltas.put(fromCategoryId, -1);
+        deltas.put(toCategoryId, 1);
+        itemCountsChanged(deltas);
+    }
+    
+    /**
+     * Load the category registry now instead of on first read
+     */
+    public static void preload() {
+        currentRegistry();
+    }
+    
+    /**
+     * Read a created or updated category back into the registry, so columns set
+     * by the database such as created_at and updated_at are current
+     */
+    private static void categoryChanged(Connection connection, int id) {
+        try (PreparedStatement statement = connection.prepareStatement(SELECT_CATEGORY_BY_ID)) {
+            statement.setInt(1, id);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (resultSet.next()) {
+                    categoryChanged(extractCategoryFromResultSet(resultSet));
+                    return;
+                }
+            }
+        } catch (SQLException e) {
+            LOG.error("Error reading back category", e, "id", id);
+        }
+        
+        invalidateRegistry();
+    }
+    
+    private static void categoryChanged(Category category) {
+        synchronized (REGISTRY_LOCK) {
+            Registry current = registry;
+            if (current == null) return;
+            
+            Map<Integer, Category> categories = new HashMap<>(current.byId);
+            categories.put(category.getId(), copyOf(category));
+            registry = new Registry(categories.values(), current.itemCounts, current.loadedAt);
+        }
+    }
+    
+    private static void categoryDeleted(int id) {
+        synchronized (REGISTRY_LOCK) {
+            Registry current = registry;
+            if (current == null) return;
+            
+            Map<Integer, Category> categories = new HashMap<>(current.byId);
+            categories.remove(id);
+            Map<Integer, Integer> counts = new HashMap<>(current.itemCounts);
+            counts.remove(id);
+            registry = new Registry(categories.values(), counts, current.loadedAt);
+        }
+    }
+    
+    private static void invalidateRegistry() {
+        synchronized (REGISTRY_LOCK) {
+            registry = null;
+        }
+    }
+    
+    /**
+     * Get the current registry, loading it when missing or due for a refresh
+     */
+    private static Registry currentRegistry() {
+        Registry current = registry;
+        if (current != null && System.currentTimeMillis() - current.loadedAt < REGISTRY_REFRESH_INTERVAL_MS) {
+            return current;
+        }
+        
+        synchronized (REGISTRY_LOCK) {
+            // Another thread may have loaded it while this one waited
+            if (registry != current && registry != null) {
+                return registry;
+            }
+            
+            Registry loaded = loadRegistry();
+            if (loaded != null) {
+                registry = loaded;
+                return loaded;
+            }
+            
+            // Keep serving the previous snapshot if the database is unavailable
+            return current != null ? current : Registry.EMPTY;
+        }
+    }
+    
+    private static Registry loadRegistry() {
+        try (Connection connection = DatabaseConnection.getConnection();
+             Statement statement = connection.createStatement()) {
+            
+            List<Category> categories = new ArrayList<>();
+            try (ResultSet resultSet = statement.executeQuery(SELECT_ALL_CATEGORIES)) {
+                while (resultSet.next()) {
+                    categories.add(extractCategoryFromResultSet(resultSet));
+                }
+            }
+            
+            Map<Integer, Integer> counts = new HashMap<>();
+            try (ResultSet resultSet = statement.executeQuery(COUNT_ITEMS_BY_CATEGORY)) {
+                while (resultSet.next()) {
+                    counts.put(resultSet.getInt(1), resultSet.getInt(2));
+                }
+            }
+            
+            LOG.debug("Category registry loaded", "categories", categories.size());
+            return new Registry(categories, counts, System.currentTimeMillis());
+            
+        } catch (SQLException e) {
+            LOG.error("Error loading category registry", e);
+        }
+        
+        return null;
+    }
+    
+    private static List<Category> copyOf(List<Category> categories) {
+        List<Category> copies = new ArrayList<>(categories.size());
+        for (Category category : categories) {
+            copies.add(copyOf(category));
+        }
+        return copies;
+    }
+    
+    private static Category copyOf(Category category) {
+        Category copy = new Category(category.getId(), category.getName(),
+                                     category.getDescription(), category.getStatus());
+        copy.setCreatedAt(category.getCreatedAt());
+        copy.setUpdatedAt(category.getUpdatedAt());
+        return copy;
+    }
+    
     /**
      * Extract Category object from ResultSet
      */
-    private Category extractCategoryFromResultSet(ResultSet resultSet) throws SQLException {
+    private static Category extractCategoryFromResultSet(ResultSet resultSet) throws SQLException {
         Category category = new Category();
         category.setId(resultSet.getInt("id"));
         category.setName(resultSet.getString("name"));
@@ -267,4 +436,39 @@ public class CategoryDAO {
         category.setUpdatedAt(resultSet.getTimestamp("updated_at"));
         return category;
     }
-}
\ No newline at end of file
+    
+    /**
+     * Immutable snapshot of all categories and their item counts
+     */
+    private static final class Registry {
+        static final Registry EMPTY = new Registry(Collections.emptyList(), Collections.emptyMap(), 0);
+        
+        final List<Category> all;
+        final List<Category> active;
+        final Map<Integer, Category> byId;
+        final Map<Integer, Integer> itemCounts;
+        final long loadedAt;
+        
+        Registry(Iterable<Category> categories, Map<Integer, Integer> itemCounts, long loadedAt) {
+            List<Category> all = new ArrayList<>();
+            List<Category> active = new ArrayList<>();
+            Map<Integer, Category> byId = new HashMap<>();
+            for (Category category : categories) {
+                all.add(category);
+                byId.put(category.getId(), category);
+            }
+            all.sort(BY_NAME);
+            for (Category category : all) {
+                if (Category.STATUS_ACTIVE.equals(category.getStatus())) {
+                    active.add(category);
+                }
+            }
+            
+            this.all = Collections.unmodifiableList(all);
+            this.active = Collections.unmodifiableList(active);
+            this.byId = Collections.unmodifiableMap(byId);
+            this.itemCounts = Collections.unmodifiableMap(new HashMap<>(itemCounts));
+            this.loadedAt = loadedAt;
+        }
+    }
+}
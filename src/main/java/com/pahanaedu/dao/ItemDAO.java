@@ -1,5 +1,6 @@
 package com.pahanaedu.dao;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
@@ -7,16 +8,29 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Supplier;
 
 import com.pahanaedu.models.Item;
+import com.pahanaedu.models.OrderItem;
 import com.pahanaedu.utils.DatabaseConnection;
+import com.pahanaedu.utils.Log;
+import com.pahanaedu.utils.QueryCache;
+import com.pahanaedu.utils.SingleFlight;
+import com.pahanaedu.utils.RowHandler;
 
 /**
  * Data Access Object for Item operations
  */
 public class ItemDAO {
     
+    private static final Log LOG = Log.get(ItemDAO.class);
+    
     // SQL Queries
     private static final String INSERT_ITEM = 
         "INSERT INTO items (title, author, category_id, price, offer_price, stock, description, image_path, reference_no, status) " +
@@ -54,6 +68,9 @@ public class ItemDAO {
     private static final String DELETE_ITEM = 
         "DELETE FROM items WHERE id = ?";
     
+    private static final String SELECT_ITEM_CATEGORY = 
+        "SELECT category_id FROM items WHERE id = ?";
+    
     private static final String CHECK_REFERENCE_EXISTS = 
         "SELECT COUNT(*) FROM items WHERE reference_no = ?";
     
@@ -63,8 +80,13 @@ public class ItemDAO {
     private static final String COUNT_ITEMS_BY_STATUS = 
         "SELECT COUNT(*) FROM items WHERE status = ?";
     
-    private static final String GET_NEXT_REFERENCE_NUMBER = 
-        "SELECT COUNT(*) + 1 FROM items";
+    private static final String COUNT_ITEMS_GROUPED_BY_STATUS = 
+        "SELECT status, COUNT(*) FROM items GROUP BY status";
+    
+    // Seeds the reference sequence from the highest REF-nnnn number already in use
+    private static final String SEED_REFERENCE_SEQUENCE = 
+        "SELECT ?, COALESCE(MAX(CAST(SUBSTRING(reference_no, 5) AS UNSIGNED)), 0) FROM items " +
+        "WHERE reference_no REGEXP '^REF-[0-9]{1,9}$'";
     
     // Customer-specific queries
     private static final String SELECT_ACTIVE_ITEMS = 
@@ -108,46 +130,84 @@ public class ItemDAO {
     private static final String UPDATE_ITEM_STATUS = 
         "UPDATE items SET status = ?, updated_at = CURRENT_TIMESTAMP WHERE id = ?";
     
+    // Stock reservation: a conditional decrement that only succeeds for sellable items
+    private static final String RESERVE_STOCK = 
+        DECREASE_STOCK + " AND status = 'active'";
+    
+    private static final String SELECT_SOLD_OUT_ITEMS = 
+        "SELECT id FROM items WHERE status = 'active' AND stock = 0 AND id IN ";
+    
+    private static final String MARK_SOLD_OUT_ITEMS = 
+        "UPDATE items SET status = 'out_of_stock', updated_at = CURRENT_TIMESTAMP " +
+        "WHERE status = 'active' AND stock = 0 AND id IN ";
+    
+    private static final String SELECT_RESTOCKED_ITEMS = 
+        "SELECT id FROM items WHERE status = 'out_of_stock' AND stock > 0 AND id IN ";
+    
+    private static final String MARK_RESTOCKED_ITEMS = 
+        "UPDATE items SET status = 'active', updated_at = CURRENT_TIMESTAMP " +
+        "WHERE status = 'out_of_stock' AND stock > 0 AND id IN ";
+    
+    // Catalog cache for storefront listings, shared by all ItemDAO instances
+    private static final String CACHE_KEY_ACTIVE = "active";
+    private static final String CACHE_KEY_CATEGORY = "category:";
+    private static final String CACHE_KEY_RECENT = "recent:";
+    private static final String CACHE_KEY_FEATURED = "featured:";
+    
+    private static final QueryCache<String, List<Item>> CATALOG_CACHE =
+        new QueryCache<>("catalog", 256, 60 * 1000);
+    
+    // Concurrent identical reads that bypass the catalog cache share one query
+    private static final SingleFlight<String, List<Item>> LIST_READS = new SingleFlight<>("item-lists");
+    private static final SingleFlight<String, Item> ITEM_READS = new SingleFlight<>("item-lookups");
+    
+    // Dashboard counts; not invalidated on writes, so they lag by at most the TTL
+    private static final String CACHE_KEY_STATUS_COUNTS = "status-counts";
+    private static final QueryCache<String, Map<String, Integer>> STATUS_COUNT_CACHE =
+        new QueryCache<>("item-status-counts", 1, 5 * 1000);
+    
+    // Id lookup over the cached active listing, rebuilt when that listing is reloaded
+    private static volatile ActiveItemIndex activeItemIndex;
+    
+    // Search results are ranked by ItemSearchIndex and loaded by primary key
+    private static final String SELECT_ACTIVE_ITEMS_BY_IDS = 
+        "SELECT i.*, c.name as category_name FROM items i " +
+        "LEFT JOIN categories c ON i.category_id = c.id " +
+        "WHERE i.status = 'active' AND i.id IN ";
+    
+    private static final int SEARCH_RESULT_LIMIT = 200;
+    
+    private static final ItemSearchIndex SEARCH_INDEX = ItemSearchIndex.getInstance();
+    
+    // Reference numbers are reserved from a database sequence in blocks of this size
+    private static final int REFERENCE_BLOCK_SIZE = 50;
+    
+    private static final ReferenceNumberAllocator REFERENCE_NUMBERS =
+        new ReferenceNumberAllocator("item_reference", REFERENCE_BLOCK_SIZE, SEED_REFERENCE_SEQUENCE);
+    
     /**
      * Generate unique reference number
      */
     public String generateReferenceNumber() {
-        Connection connection = null;
-        PreparedStatement statement = null;
-        ResultSet resultSet = null;
+        long nextNumber = REFERENCE_NUMBERS.next();
         
-        try {
-            connection = DatabaseConnection.getConnection();
-            statement = connection.prepareStatement(GET_NEXT_REFERENCE_NUMBER);
-            
-            resultSet = statement.executeQuery();
-            
-            if (resultSet.next()) {
-                int nextNumber = resultSet.getInt(1);
-                String refNo = String.format("REF-%04d", nextNumber); // 4-digit padding
-                System.out.println("ItemDAO: Generated reference number: " + refNo);
-                return refNo;
-            }
-            
-        } catch (SQLException e) {
-            System.err.println("ItemDAO: Error generating reference number - " + e.getMessage());
-            e.printStackTrace();
-        } finally {
-            try {
-                if (resultSet != null) resultSet.close();
-                if (statement != null) statement.close();
-                if (connection != null) connection.close();
-            } catch (SQLException e) {
-                System.err.println("ItemDAO: Error closing resources in generateReferenceNumber - " + e.getMessage());
-            }
+        if (nextNumber > 0) {
+            String refNo = formatReferenceNumber(nextNumber);
+            LOG.debug("Generated reference number", "refNo", refNo);
+            return refNo;
         }
         
         // Fallback to timestamp-based reference
         long timestamp = System.currentTimeMillis();
         String fallbackRef = "REF-" + timestamp;
-        System.out.println("ItemDAO: Using fallback reference number: " + fallbackRef);
+        LOG.debug("Using fallback reference number", "fallbackRef", fallbackRef);
         return fallbackRef;
     }
+    
+    private static String formatReferenceNumber(long number) {
+        return String.format("REF-%04d", number); // 4-digit padding
+    }
+    
     /**
      * Create new item
      */
@@ -163,7 +223,7 @@ public class ItemDAO {
             if (item.getReferenceNo() == null || item.getReferenceNo().trim().isEmpty()) {
                 String refNo = generateReferenceNumber();
                 item.setReferenceNo(refNo);
-                System.out.println("ItemDAO: Generated reference number: " + refNo);
+                LOG.debug("Generated reference number", "refNo", refNo);
             }
             
             // Ensure reference number is unique
@@ -172,15 +232,15 @@ public class ItemDAO {
                 String newRefNo = generateReferenceNumber();
                 item.setReferenceNo(newRefNo);
                 attempts++;
-                System.out.println("ItemDAO: Reference conflict, trying new: " + newRefNo);
+                LOG.debug("Reference conflict, trying new", "newRefNo", newRefNo);
             }
             
             if (attempts >= 5) {
-                System.err.println("ItemDAO: Failed to generate unique reference number after 5 attempts");
+                LOG.warn("Failed to generate unique reference number after 5 attempts");
                 return false;
             }
             
-            System.out.println("ItemDAO: Final reference number: " + item.getReferenceNo());
+            LOG.debug("Final reference number", "referenceNo", item.getReferenceNo());
             
             // Prepare statement
             statement = connection.prepareStatement(INSERT_ITEM, Statement.RETURN_GENERATED_KEYS);
@@ -225,17 +285,19 @@ public class ItemDAO {
             statement.setString(10, status);
             
             // Debug: Print the prepared statement parameters
-            System.out.println("ItemDAO: Executing INSERT with parameters:");
-            System.out.println("  1. title = " + item.getTitle());
-            System.out.println("  2. author = " + item.getAuthor());
-            System.out.println("  3. category_id = " + item.getCategoryId());
-            System.out.println("  4. price = " + item.getPrice());
-            System.out.println("  5. offer_price = " + item.getOfferPrice());
-            System.out.println("  6. stock = " + item.getStock());
-            System.out.println("  7. description = " + (item.getDescription() != null ? item.getDescription().length() + " chars" : "null"));
-            System.out.println("  8. image_path = " + (item.getImagePath() != null ? item.getImagePath().length() + " chars" : "null"));
-            System.out.println("  9. reference_no = " + item.getReferenceNo());
-            System.out.println("  10. status = " + status);
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Executing INSERT with parameters",
+                        "title", item.getTitle(),
+                        "author", item.getAuthor(),
+                        "categoryId", item.getCategoryId(),
+                        "price", item.getPrice(),
+                        "offerPrice", item.getOfferPrice(),
+                        "stock", item.getStock(),
+                        "descriptionChars", item.getDescription() != null ? item.getDescription().length() : null,
+                        "imagePathChars", item.getImagePath() != null ? item.getImagePath().length() : null,
+                        "referenceNo", item.getReferenceNo(),
+                        "status", status);
+            }
             
             // Execute the statement
             int rowsAffected = statement.executeUpdate();
@@ -245,36 +307,35 @@ public class ItemDAO {
                 generatedKeys = statement.getGeneratedKeys();
                 if (generatedKeys.next()) {
                     item.setId(generatedKeys.getInt(1));
-                    System.out.println("ItemDAO: Item created successfully - ID: " + item.getId() + ", Title: " + item.getTitle());
+                    LOG.debug("Item created successfully", "id", item.getId(), "title", item.getTitle());
+                    CategoryDAO.itemAdded(item.getCategoryId());
+                    invalidateCatalogForItem(item.getId(), item.getCategoryId(), status, item.getOfferPrice());
+                    SEARCH_INDEX.refreshItem(item.getId());
                     return true;
                 } else {
-                    System.err.println("ItemDAO: No generated keys returned");
+                    LOG.warn("No generated keys returned");
                     return false;
                 }
             } else {
-                System.err.println("ItemDAO: No rows affected during insert");
+                LOG.warn("No rows affected during insert");
                 return false;
             }
             
         } catch (SQLException e) {
-            System.err.println("ItemDAO: SQL Error creating item - " + e.getMessage());
-            System.err.println("ItemDAO: SQL State: " + e.getSQLState());
-            System.err.println("ItemDAO: Error Code: " + e.getErrorCode());
-            e.printStackTrace();
+            LOG.error("SQL Error creating item", e, "sqlState", e.getSQLState(), "errorCode", e.getErrorCode());
             
             // Check for specific SQL errors
             if (e.getErrorCode() == 1062) { // Duplicate entry
-                System.err.println("ItemDAO: Duplicate reference number detected");
+                LOG.warn("Duplicate reference number detected");
             } else if (e.getErrorCode() == 1364) { // Field doesn't have default value
-                System.err.println("ItemDAO: Missing required field value");
+                LOG.warn("Missing required field value");
             } else if (e.getErrorCode() == 1452) { // Foreign key constraint
-                System.err.println("ItemDAO: Invalid category_id - foreign key constraint failed");
+                LOG.warn("Invalid category_id - foreign key constraint failed");
             }
             
             return false;
         } catch (Exception e) {
-            System.err.println("ItemDAO: Unexpected error creating item - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Unexpected error creating item", e);
             return false;
         } finally {
             // Clean up resources
@@ -283,15 +344,164 @@ public class ItemDAO {
                 if (statement != null) statement.close();
                 if (connection != null) connection.close();
             } catch (SQLException e) {
-                System.err.println("ItemDAO: Error closing resources - " + e.getMessage());
+                LOG.error("Error closing resources", "error", e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Insert items in one JDBC batch and transaction, for bulk imports.
+     * Items without a reference number get one from a reserved block. If the
+     * batch fails, rows are inserted one by one to isolate the failing ones.
+     * @return Error message by index of each row that was not inserted
+     */
+    public Map<Integer, String> insertItems(List<Item> items) {
+        Map<Integer, String> failures = new HashMap<>();
+        if (items.isEmpty()) {
+            return failures;
+        }
+        
+        int missingReferences = 0;
+        for (Item item : items) {
+            if (item.getReferenceNo() == null || item.getReferenceNo().trim().isEmpty()) {
+                missingReferences++;
+            }
+        }
+        
+        if (missingReferences > 0) {
+            long nextNumber = REFERENCE_NUMBERS.reserve(missingReferences);
+            if (nextNumber < 0) {
+                for (int i = 0; i < items.size(); i++) {
+                    failures.put(i, "Could not allocate a reference number");
+                }
+                return failures;
+            }
+            for (Item item : items) {
+                if (item.getReferenceNo() == null || item.getReferenceNo().trim().isEmpty()) {
+                    item.setReferenceNo(formatReferenceNumber(nextNumber++));
+                }
+            }
+        }
+        
+        try (Connection connection = DatabaseConnection.getConnection()) {
+            
+            if (!insertItemBatch(connection, items)) {
+                insertItemsIndividually(connection, items, failures);
+            }
+            
+        } catch (SQLException e) {
+            LOG.error("Error importing items", e);
+            for (int i = 0; i < items.size(); i++) {
+                failures.putIfAbsent(i, "Database error: " + e.getMessage());
+            }
+        }
+        
+        if (failures.size() < items.size()) {
+            Map<Integer, Integer> addedByCategory = new HashMap<>();
+            for (int i = 0; i < items.size(); i++) {
+                if (!failures.containsKey(i)) {
+                    addedByCategory.merge(items.get(i).getCategoryId(), 1, Integer::sum);
+                }
+            }
+            CategoryDAO.itemCountsChanged(addedByCategory);
+            CATALOG_CACHE.invalidateAll();
+            forgetInFlightReads();
+            SEARCH_INDEX.markStale();
+        }
+        
+        return failures;
+    }
+    
+    /**
+     * Insert all items in a single transaction
+     * @return false if the batch was rolled back
+     */
+    private boolean insertItemBatch(Connection connection, List<Item> items) throws SQLException {
+        connection.setAutoCommit(false);
+        
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_ITEM)) {
+            for (Item item : items) {
+                bindItemInsert(statement, item);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+            connection.commit();
+            return true;
+            
+        } catch (SQLException e) {
+            LOG.error("Batch insert failed, retrying rows individually", "error", e.getMessage());
+            connection.rollback();
+            return false;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+    
+    private void insertItemsIndividually(Connection connection, List<Item> items, Map<Integer, String> failures) 
+            throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_ITEM)) {
+            for (int i = 0; i < items.size(); i++) {
+                try {
+                    bindItemInsert(statement, items.get(i));
+                    statement.executeUpdate();
+                } catch (SQLException e) {
+                    failures.put(i, describeInsertError(e));
+                }
             }
         }
     }
     
+    private void bindItemInsert(PreparedStatement statement, Item item) throws SQLException {
+        statement.setString(1, item.getTitle() != null ? item.getTitle().trim() : "");
+        statement.setString(2, item.getAuthor() != null ? item.getAuthor().trim() : "");
+        statement.setInt(3, item.getCategoryId());
+        statement.setBigDecimal(4, item.getPrice());
+        
+        if (item.getOfferPrice() != null) {
+            statement.setBigDecimal(5, item.getOfferPrice());
+        } else {
+            statement.setNull(5, java.sql.Types.DECIMAL);
+        }
+        
+        statement.setInt(6, item.getStock());
+        
+        if (item.getDescription() != null && !item.getDescription().trim().isEmpty()) {
+            statement.setString(7, item.getDescription().trim());
+        } else {
+            statement.setNull(7, java.sql.Types.LONGVARCHAR);
+        }
+        
+        if (item.getImagePath() != null && !item.getImagePath().trim().isEmpty()) {
+            statement.setString(8, item.getImagePath().trim());
+        } else {
+            statement.setNull(8, java.sql.Types.LONGVARCHAR);
+        }
+        
+        statement.setString(9, item.getReferenceNo());
+        
+        String status = item.getStatus();
+        statement.setString(10, status != null && !status.trim().isEmpty() ? status : Item.STATUS_ACTIVE);
+    }
+    
+    private static String describeInsertError(SQLException e) {
+        switch (e.getErrorCode()) {
+            case 1062: // Duplicate entry
+                return "Duplicate reference number";
+            case 1452: // Foreign key constraint
+                return "Invalid category";
+            default:
+                return e.getMessage();
+        }
+    }
+    
     /**
      * Get all items
      */
     public List<Item> getAllItems() {
+        return sharedList("all", this::loadAllItems);
+    }
+    
+    private List<Item> loadAllItems() {
         List<Item> items = new ArrayList<>();
         
         try (Connection connection = DatabaseConnection.getConnection();
@@ -304,8 +514,7 @@ public class ItemDAO {
             }
             
         } catch (SQLException e) {
-            System.err.println("ItemDAO: Error getting all items - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error getting all items", e);
         }
         
         return items;
@@ -315,6 +524,10 @@ public class ItemDAO {
      * Get items by category
      */
     public List<Item> getItemsByCategory(int categoryId) {
+        return cachedList(CACHE_KEY_CATEGORY + categoryId, () -> loadItemsByCategory(categoryId));
+    }
+    
+    private List<Item> loadItemsByCategory(int categoryId) {
         List<Item> items = new ArrayList<>();
         
         try (Connection connection = DatabaseConnection.getConnection();
@@ -328,8 +541,8 @@ public class ItemDAO {
             }
             
         } catch (SQLException e) {
-            System.err.println("ItemDAO: Error getting items by category - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error getting items by category", e);
+            return null;
         }
         
         return items;
@@ -339,6 +552,10 @@ public class ItemDAO {
      * Get items by status
      */
     public List<Item> getItemsByStatus(String status) {
+        return sharedList("status:" + status, () -> loadItemsByStatus(status));
+    }
+    
+    private List<Item> loadItemsByStatus(String status) {
         List<Item> items = new ArrayList<>();
         
         try (Connection connection = DatabaseConnection.getConnection();
@@ -352,8 +569,7 @@ public class ItemDAO {
             }
             
         } catch (SQLException e) {
-            System.err.println("ItemDAO: Error getting items by status - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error getting items by status", e);
         }
         
         return items;
@@ -363,6 +579,10 @@ public class ItemDAO {
      * Get item by ID
      */
     public Item getItemById(int id) {
+        return sharedItem("id:" + id, () -> loadItemById(id));
+    }
+    
+    private Item loadItemById(int id) {
         try (Connection connection = DatabaseConnection.getConnection();
              PreparedStatement statement = connection.prepareStatement(SELECT_ITEM_BY_ID)) {
             
@@ -374,8 +594,7 @@ public class ItemDAO {
             }
             
         } catch (SQLException e) {
-            System.err.println("ItemDAO: Error getting item by ID - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error getting item by ID", e);
         }
         
         return null;
@@ -385,6 +604,10 @@ public class ItemDAO {
      * Get item by reference number
      */
     public Item getItemByReference(String referenceNo) {
+        return sharedItem("ref:" + referenceNo, () -> loadItemByReference(referenceNo));
+    }
+    
+    private Item loadItemByReference(String referenceNo) {
         try (Connection connection = DatabaseConnection.getConnection();
              PreparedStatement statement = connection.prepareStatement(SELECT_ITEM_BY_REFERENCE)) {
             
@@ -396,8 +619,7 @@ public class ItemDAO {
             }
             
         } catch (SQLException e) {
-            System.err.println("ItemDAO: Error getting item by reference - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error getting item by reference", e);
         }
         
         return null;
@@ -410,6 +632,8 @@ public class ItemDAO {
         try (Connection connection = DatabaseConnection.getConnection();
              PreparedStatement statement = connection.prepareStatement(UPDATE_ITEM)) {
             
+            int previousCategoryId = readCategoryId(connection, item.getId());
+            
             statement.setString(1, item.getTitle());
             statement.setString(2, item.getAuthor());
             statement.setInt(3, item.getCategoryId());
@@ -424,13 +648,17 @@ public class ItemDAO {
             int rowsAffected = statement.executeUpdate();
             
             if (rowsAffected > 0) {
-                System.out.println("ItemDAO: Item updated successfully - " + item.getTitle());
+                LOG.debug("Item updated successfully", "title", item.getTitle());
+                if (previousCategoryId > 0) {
+                    CategoryDAO.itemMoved(previousCategoryId, item.getCategoryId());
+                }
+                invalidateCatalogForItem(item.getId(), item.getCategoryId(), item.getStatus(), item.getOfferPrice());
+                SEARCH_INDEX.refreshItem(item.getId());
                 return true;
             }
             
         } catch (SQLException e) {
-            System.err.println("ItemDAO: Error updating item - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error updating item", e);
         }
         
         return false;
@@ -443,22 +671,41 @@ public class ItemDAO {
         try (Connection connection = DatabaseConnection.getConnection();
              PreparedStatement statement = connection.prepareStatement(DELETE_ITEM)) {
             
+            int categoryId = readCategoryId(connection, id);
+            
             statement.setInt(1, id);
             int rowsAffected = statement.executeUpdate();
             
             if (rowsAffected > 0) {
-                System.out.println("ItemDAO: Item deleted successfully - ID: " + id);
+                LOG.debug("Item deleted successfully", "id", id);
+                if (categoryId > 0) {
+                    CategoryDAO.itemRemoved(categoryId);
+                }
+                invalidateCatalogEntriesContaining(id);
+                SEARCH_INDEX.removeItem(id);
                 return true;
             }
             
         } catch (SQLException e) {
-            System.err.println("ItemDAO: Error deleting item - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error deleting item", e);
         }
         
         return false;
     }
     
+    /**
+     * Read an item's category so the category registry can be adjusted after a write
+     * @return The category id, or 0 if the item does not exist
+     */
+    private int readCategoryId(Connection connection, int itemId) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(SELECT_ITEM_CATEGORY)) {
+            statement.setInt(1, itemId);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? resultSet.getInt(1) : 0;
+            }
+        }
+    }
+    
     /**
      * Check if reference number exists
      */
@@ -474,8 +721,7 @@ public class ItemDAO {
             }
             
         } catch (SQLException e) {
-            System.err.println("ItemDAO: Error checking reference existence - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error checking reference existence", e);
         }
         
         return false;
@@ -497,8 +743,7 @@ public class ItemDAO {
             }
             
         } catch (SQLException e) {
-            System.err.println("ItemDAO: Error checking reference existence (excluding ID) - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error checking reference existence (excluding ID)", e);
         }
         
         return false;
@@ -519,19 +764,47 @@ public class ItemDAO {
             }
             
         } catch (SQLException e) {
-            System.err.println("ItemDAO: Error counting items by status - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error counting items by status", e);
         }
         
         return 0;
     }
     
+    /**
+     * Count items in every status with one grouped query, shared by concurrent callers for a few seconds
+     * @return Item count by status; statuses without items are absent
+     */
+    public Map<String, Integer> getItemCountsByStatus() {
+        Map<String, Integer> counts = STATUS_COUNT_CACHE.getOrLoad(CACHE_KEY_STATUS_COUNTS, () -> {
+            try (Connection connection = DatabaseConnection.getConnection();
+                 PreparedStatement statement = connection.prepareStatement(COUNT_ITEMS_GROUPED_BY_STATUS);
+                 ResultSet resultSet = statement.executeQuery()) {
+                
+                Map<String, Integer> loaded = new HashMap<>();
+                while (resultSet.next()) {
+                    loaded.put(resultSet.getString(1), resultSet.getInt(2));
+                }
+                return Collections.unmodifiableMap(loaded);
+                
+            } catch (SQLException e) {
+                LOG.error("Error counting items grouped by status", e);
+                return null;
+            }
+        });
+        
+        return counts != null ? counts : Collections.emptyMap();
+    }
+    
     // ==================== CUSTOMER METHODS ====================
     
     /**
      * Get active items only (for customer view)
      */
     public List<Item> getActiveItems() {
+        return cachedList(CACHE_KEY_ACTIVE, this::loadActiveItems);
+    }
+    
+    private List<Item> loadActiveItems() {
         List<Item> items = new ArrayList<>();
         
         try (Connection connection = DatabaseConnection.getConnection();
@@ -544,17 +817,125 @@ public class ItemDAO {
             }
             
         } catch (SQLException e) {
-            System.err.println("ItemDAO: Error getting active items - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error getting active items", e);
+            return null;
         }
         
         return items;
     }
     
     /**
-     * Search items by title or author
+     * Get active items keyed by id, served from the catalog cache.
+     * The returned map and items are shared and must not be modified.
+     */
+    Map<Integer, Item> getActiveItemIndex() {
+        List<Item> items = cachedListView(CACHE_KEY_ACTIVE, this::loadActiveItems);
+        if (items == null) {
+            return Collections.emptyMap();
+        }
+        
+        ActiveItemIndex index = activeItemIndex;
+        if (index == null || index.source != items) {
+            index = new ActiveItemIndex(items);
+            activeItemIndex = index;
+        }
+        return index.itemsById;
+    }
+    
+    /**
+     * Hand each active item to the handler from the shared catalog cache listing.
+     * A miss loads the listing once into the cache, so no connection is held
+     * while the handler writes to a slow client.
+     * @throws SQLException if the listing could not be loaded
+     */
+    public void forEachActiveItem(RowHandler<Item> handler) throws IOException, SQLException {
+        forEachCachedItem(cachedListView(CACHE_KEY_ACTIVE, this::loadActiveItems), handler);
+    }
+    
+    /**
+     * Hand each item of a category to the handler from the shared catalog cache listing
+     * @throws SQLException if the listing could not be loaded
+     */
+    public void forEachItemInCategory(int categoryId, RowHandler<Item> handler) throws IOException, SQLException {
+        forEachCachedItem(cachedListView(CACHE_KEY_CATEGORY + categoryId, 
+                () -> loadItemsByCategory(categoryId)), handler);
+    }
+    
+    private void forEachCachedItem(List<Item> items, RowHandler<Item> handler) throws IOException, SQLException {
+        if (items == null) {
+            throw new SQLException("Item listing is unavailable");
+        }
+        for (Item item : items) {
+            handler.handle(item);
+        }
+    }
+    
+    /**
+     * Search active items by title, author or category name, best match first
      */
     public List<Item> searchItems(String searchQuery) {
+        return sharedList("search:" + searchQuery, () -> loadSearchResults(searchQuery));
+    }
+    
+    private List<Item> loadSearchResults(String searchQuery) {
+        List<Integer> rankedIds = SEARCH_INDEX.search(searchQuery, SEARCH_RESULT_LIMIT);
+        
+        if (rankedIds == null) {
+            // Index unavailable or query has no searchable terms
+            return searchItemsByPattern(searchQuery);
+        }
+        
+        return getActiveItemsByIds(rankedIds);
+    }
+    
+    /**
+     * Load active items by id, preserving the order of the given ids
+     */
+    private List<Item> getActiveItemsByIds(List<Integer> itemIds) {
+        List<Item> items = new ArrayList<>();
+        if (itemIds.isEmpty()) {
+            return items;
+        }
+        
+        StringBuilder sql = new StringBuilder(SELECT_ACTIVE_ITEMS_BY_IDS).append("(");
+        for (int i = 0; i < itemIds.size(); i++) {
+            sql.append(i > 0 ? ", ?" : "?");
+        }
+        sql.append(")");
+        
+        try (Connection connection = DatabaseConnection.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql.toString())) {
+            
+            for (int i = 0; i < itemIds.size(); i++) {
+                statement.setInt(i + 1, itemIds.get(i));
+            }
+            
+            Map<Integer, Item> itemsById = new HashMap<>();
+            ResultSet resultSet = statement.executeQuery();
+            
+            while (resultSet.next()) {
+                Item item = extractItemFromResultSet(resultSet);
+                itemsById.put(item.getId(), item);
+            }
+            
+            for (Integer itemId : itemIds) {
+                Item item = itemsById.get(itemId);
+                if (item != null) {
+                    items.add(item);
+                }
+            }
+            
+        } catch (SQLException e) {
+            LOG.error("Error loading search results", e);
+        }
+        
+        return items;
+    }
+    
+    /**
+     * Search items by title or author with a LIKE pattern
+     */
+    private List<Item> searchItemsByPattern(String searchQuery) {
         List<Item> items = new ArrayList<>();
         
         try (Connection connection = DatabaseConnection.getConnection();
@@ -571,8 +952,7 @@ public class ItemDAO {
             }
             
         } catch (SQLException e) {
-            System.err.println("ItemDAO: Error searching items - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error searching items", e);
         }
         
         return items;
@@ -582,6 +962,10 @@ public class ItemDAO {
      * Get recent items (newest first)
      */
     public List<Item> getRecentItems(int limit) {
+        return cachedList(CACHE_KEY_RECENT + limit, () -> loadRecentItems(limit));
+    }
+    
+    private List<Item> loadRecentItems(int limit) {
         List<Item> items = new ArrayList<>();
         
         try (Connection connection = DatabaseConnection.getConnection();
@@ -595,8 +979,8 @@ public class ItemDAO {
             }
             
         } catch (SQLException e) {
-            System.err.println("ItemDAO: Error getting recent items - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error getting recent items", e);
+            return null;
         }
         
         return items;
@@ -606,6 +990,10 @@ public class ItemDAO {
      * Get featured items (items with offers)
      */
     public List<Item> getFeaturedItems(int limit) {
+        return cachedList(CACHE_KEY_FEATURED + limit, () -> loadFeaturedItems(limit));
+    }
+    
+    private List<Item> loadFeaturedItems(int limit) {
         List<Item> items = new ArrayList<>();
         
         try (Connection connection = DatabaseConnection.getConnection();
@@ -619,8 +1007,8 @@ public class ItemDAO {
             }
             
         } catch (SQLException e) {
-            System.err.println("ItemDAO: Error getting featured items - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error getting featured items", e);
+            return null;
         }
         
         return items;
@@ -641,7 +1029,8 @@ public class ItemDAO {
             int rowsAffected = statement.executeUpdate();
             
             if (rowsAffected > 0) {
-                System.out.println("ItemDAO: Stock updated successfully for item ID: " + itemId + ", New stock: " + newStock);
+                LOG.debug("Stock updated successfully for item ID", "itemId", itemId, "newStock", newStock);
+                invalidateCatalogEntriesContaining(itemId);
                 
                 // Update status based on stock
                 if (newStock == 0) {
@@ -654,8 +1043,7 @@ public class ItemDAO {
             }
             
         } catch (SQLException e) {
-            System.err.println("ItemDAO: Error updating stock - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error updating stock", e);
         }
         
         return false;
@@ -675,7 +1063,8 @@ public class ItemDAO {
             int rowsAffected = statement.executeUpdate();
             
             if (rowsAffected > 0) {
-                System.out.println("ItemDAO: Stock decreased successfully for item ID: " + itemId + ", Quantity: " + quantity);
+                LOG.debug("Stock decreased successfully for item ID", "itemId", itemId, "quantity", quantity);
+                invalidateCatalogEntriesContaining(itemId);
                 
                 // Check if stock is now zero and update status
                 int currentStock = getCurrentStock(itemId);
@@ -685,13 +1074,12 @@ public class ItemDAO {
                 
                 return true;
             } else {
-                System.out.println("ItemDAO: Insufficient stock for item ID: " + itemId);
+                LOG.debug("Insufficient stock for item ID", "itemId", itemId);
                 return false;
             }
             
         } catch (SQLException e) {
-            System.err.println("ItemDAO: Error decreasing stock - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error decreasing stock", e);
         }
         
         return false;
@@ -710,7 +1098,8 @@ public class ItemDAO {
             int rowsAffected = statement.executeUpdate();
             
             if (rowsAffected > 0) {
-                System.out.println("ItemDAO: Stock increased successfully for item ID: " + itemId + ", Quantity: " + quantity);
+                LOG.debug("Stock increased successfully for item ID", "itemId", itemId, "quantity", quantity);
+                invalidateCatalogEntriesContaining(itemId);
                 
                 // If item was out of stock, make it active
                 Item item = getItemById(itemId);
@@ -722,8 +1111,7 @@ public class ItemDAO {
             }
             
         } catch (SQLException e) {
-            System.err.println("ItemDAO: Error increasing stock - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error increasing stock", e);
         }
         
         return false;
@@ -744,8 +1132,7 @@ public class ItemDAO {
             }
             
         } catch (SQLException e) {
-            System.err.println("ItemDAO: Error getting current stock - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error getting current stock", e);
         }
         
         return 0;
@@ -772,13 +1159,18 @@ public class ItemDAO {
             int rowsAffected = statement.executeUpdate();
             
             if (rowsAffected > 0) {
-                System.out.println("ItemDAO: Status updated successfully for item ID: " + itemId + ", Status: " + status);
+                LOG.debug("Status updated successfully for item ID", "itemId", itemId, "status", status);
+                invalidateCatalogForStatusChange(itemId, status);
+                if (Item.STATUS_ACTIVE.equals(status)) {
+                    SEARCH_INDEX.refreshItem(itemId);
+                } else {
+                    SEARCH_INDEX.removeItem(itemId);
+                }
                 return true;
             }
             
         } catch (SQLException e) {
-            System.err.println("ItemDAO: Error updating status - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error updating status", e);
         }
         
         return false;
@@ -789,7 +1181,7 @@ public class ItemDAO {
      */
     public boolean bulkUpdateStock(List<Integer> itemIds, List<Integer> quantities) {
         if (itemIds.size() != quantities.size()) {
-            System.err.println("ItemDAO: Item IDs and quantities lists must have the same size");
+            LOG.warn("Item IDs and quantities lists must have the same size");
             return false;
         }
         
@@ -825,7 +1217,10 @@ public class ItemDAO {
             
             if (allSuccessful) {
                 connection.commit();
-                System.out.println("ItemDAO: Bulk stock update successful for " + itemIds.size() + " items");
+                LOG.debug("Bulk stock update successful", "itemCount", itemIds.size());
+                for (int itemId : itemIds) {
+                    invalidateCatalogEntriesContaining(itemId);
+                }
                 
                 // Update status for items that are now out of stock
                 for (int itemId : itemIds) {
@@ -838,19 +1233,18 @@ public class ItemDAO {
                 return true;
             } else {
                 connection.rollback();
-                System.err.println("ItemDAO: Bulk stock update failed - insufficient stock for one or more items");
+                LOG.warn("Bulk stock update failed - insufficient stock for one or more items");
                 return false;
             }
             
         } catch (SQLException e) {
-            System.err.println("ItemDAO: Error in bulk stock update - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error in bulk stock update", e);
             
             if (connection != null) {
                 try {
                     connection.rollback();
                 } catch (SQLException rollbackEx) {
-                    System.err.println("ItemDAO: Error rolling back transaction - " + rollbackEx.getMessage());
+                    LOG.error("Error rolling back transaction", "error", rollbackEx.getMessage());
                 }
             }
         } finally {
@@ -861,17 +1255,191 @@ public class ItemDAO {
                     connection.close();
                 }
             } catch (SQLException e) {
-                System.err.println("ItemDAO: Error closing resources - " + e.getMessage());
+                LOG.error("Error closing resources", "error", e.getMessage());
             }
         }
         
         return false;
     }
     
+    /**
+     * Reserve stock for order lines on the caller's connection and transaction.
+     * Every line is a conditional decrement, so concurrent checkouts cannot oversell
+     * and no pre-read is needed. The caller must roll back if any line fails.
+     * Rows are locked in item id order, so checkouts sharing items cannot deadlock.
+     * @return Lines that could not be reserved, and the items that sold out;
+     *         pass the sold out ids to itemsSoldOut after commit
+     */
+    public StockReservation reserveStock(Connection connection, List<OrderItem> lines) throws SQLException {
+        StockReservation reservation = new StockReservation();
+        List<OrderItem> failedLines = reservation.failedLines;
+        List<OrderItem> batchedLines = new ArrayList<>();
+        
+        List<OrderItem> orderedLines = new ArrayList<>(lines);
+        orderedLines.sort(Comparator.comparingInt(OrderItem::getItemId));
+        
+        try (PreparedStatement statement = connection.prepareStatement(RESERVE_STOCK)) {
+            for (OrderItem line : orderedLines) {
+                if (line.getQuantity() <= 0) {
+                    failedLines.add(line);
+                    continue;
+                }
+                statement.setInt(1, line.getQuantity());
+                statement.setInt(2, line.getItemId());
+                statement.setInt(3, line.getQuantity());
+                statement.addBatch();
+                batchedLines.add(line);
+            }
+            
+            if (!batchedLines.isEmpty()) {
+                int[] results = statement.executeBatch();
+                for (int i = 0; i < results.length; i++) {
+                    if (results[i] == 0 || results[i] == Statement.EXECUTE_FAILED) {
+                        failedLines.add(batchedLines.get(i));
+                    }
+                }
+            }
+        }
+        
+        if (!failedLines.isEmpty()) {
+            LOG.debug("Stock reservation failed", "failedLines", failedLines.size(), "lines", lines.size());
+            return reservation;
+        }
+        
+        // Flag items that just sold out, in the same transaction.
+        // The decrements above hold the row locks, so the items read here are exactly the ones flagged below
+        String selectSql = SELECT_SOLD_OUT_ITEMS + buildPlaceholders(batchedLines.size());
+        try (PreparedStatement statement = connection.prepareStatement(selectSql)) {
+            for (int i = 0; i < batchedLines.size(); i++) {
+                statement.setInt(i + 1, batchedLines.get(i).getItemId());
+            }
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    reservation.soldOutItemIds.add(resultSet.getInt(1));
+                }
+            }
+        }
+        
+        if (reservation.soldOutItemIds.isEmpty()) {
+            return reservation;
+        }
+        
+        String updateSql = MARK_SOLD_OUT_ITEMS + buildPlaceholders(reservation.soldOutItemIds.size());
+        try (PreparedStatement statement = connection.prepareStatement(updateSql)) {
+            for (int i = 0; i < reservation.soldOutItemIds.size(); i++) {
+                statement.setInt(i + 1, reservation.soldOutItemIds.get(i));
+            }
+            statement.executeUpdate();
+        }
+        
+        return reservation;
+    }
+    
+    /**
+     * Return stock for cancelled order lines on the caller's connection and transaction.
+     * Items that had sold out become active again, as with increaseStock.
+     * Quantities are summed per item and applied in item id order, one increment
+     * per item, so restocks cannot deadlock against reservations or each other.
+     * @return Ids of the items that became active again; pass them to itemsReactivated after commit
+     */
+    public List<Integer> restoreStock(Connection connection, List<OrderItem> lines) throws SQLException {
+        Map<Integer, Integer> quantities = new TreeMap<>();
+        for (OrderItem line : lines) {
+            if (line.getQuantity() > 0) {
+                quantities.merge(line.getItemId(), line.getQuantity(), Integer::sum);
+            }
+        }
+        
+        List<Integer> itemIds = new ArrayList<>(quantities.keySet());
+        if (itemIds.isEmpty()) {
+            return itemIds;
+        }
+        
+        try (PreparedStatement statement = connection.prepareStatement(INCREASE_STOCK)) {
+            for (Map.Entry<Integer, Integer> entry : quantities.entrySet()) {
+                statement.setInt(1, entry.getValue());
+                statement.setInt(2, entry.getKey());
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+        
+        // The increments above hold the row locks, so the items read here are exactly the ones reactivated below
+        List<Integer> reactivatedIds = new ArrayList<>();
+        String selectSql = SELECT_RESTOCKED_ITEMS + buildPlaceholders(itemIds.size());
+        try (PreparedStatement statement = connection.prepareStatement(selectSql)) {
+            for (int i = 0; i < itemIds.size(); i++) {
+                statement.setInt(i + 1, itemIds.get(i));
+            }
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    reactivatedIds.add(resultSet.getInt(1));
+                }
+            }
+        }
+        
+        if (reactivatedIds.isEmpty()) {
+            return reactivatedIds;
+        }
+        
+        String updateSql = MARK_RESTOCKED_ITEMS + buildPlaceholders(reactivatedIds.size());
+        try (PreparedStatement statement = connection.prepareStatement(updateSql)) {
+            for (int i = 0; i < reactivatedIds.size(); i++) {
+                statement.setInt(i + 1, reactivatedIds.get(i));
+            }
+            statement.executeUpdate();
+        }
+        
+        return reactivatedIds;
+    }
+    
+    private static String buildPlaceholders(int count) {
+        StringBuilder placeholders = new StringBuilder("(");
+        for (int i = 0; i < count; i++) {
+            placeholders.append(i > 0 ? ", ?" : "?");
+        }
+        return placeholders.append(")").toString();
+    }
+    
+    /**
+     * Drop cached listings after a stock reservation or restock has been committed
+     */
+    void stockChangeCommitted(List<OrderItem> lines) {
+        for (OrderItem line : lines) {
+            invalidateCatalogEntriesContaining(line.getItemId());
+        }
+    }
+    
+    /**
+     * Take items that a committed reservation moved from active to out_of_stock
+     * out of the listings and the search index
+     */
+    void itemsSoldOut(List<Integer> itemIds) {
+        for (Integer itemId : itemIds) {
+            invalidateCatalogForStatusChange(itemId, Item.STATUS_OUT_OF_STOCK);
+            SEARCH_INDEX.removeItem(itemId);
+        }
+    }
+    
+    /**
+     * Bring items that a committed restock moved from out_of_stock back to active
+     * into the listings and the search index
+     */
+    void itemsReactivated(List<Integer> itemIds) {
+        for (Integer itemId : itemIds) {
+            invalidateCatalogForStatusChange(itemId, Item.STATUS_ACTIVE);
+            SEARCH_INDEX.refreshItem(itemId);
+        }
+    }
+    
     /**
      * Get low stock items (stock <= threshold)
      */
     public List<Item> getLowStockItems(int threshold) {
+        return sharedList("low-stock:" + threshold, () -> loadLowStockItems(threshold));
+    }
+    
+    private List<Item> loadLowStockItems(int threshold) {
         String sql = "SELECT i.*, c.name as category_name FROM items i " +
                     "LEFT JOIN categories c ON i.category_id = c.id " +
                     "WHERE i.stock <= ? AND i.status = 'active' " +
@@ -890,8 +1458,7 @@ public class ItemDAO {
             }
             
         } catch (SQLException e) {
-            System.err.println("ItemDAO: Error getting low stock items - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error getting low stock items", e);
         }
         
         return items;
@@ -904,6 +1471,150 @@ public class ItemDAO {
         return getItemsByStatus("out_of_stock");
     }
     
+    // ==================== READ COALESCING ====================
+    
+    /**
+     * Get single-flight counters for catalog listings, item lists and lookups
+     */
+    public static List<SingleFlight.Stats> getReadCoalescingStats() {
+        List<SingleFlight.Stats> stats = new ArrayList<>();
+        stats.add(CATALOG_CACHE.getLoadStats());
+        stats.add(LIST_READS.getStats());
+        stats.add(ITEM_READS.getStats());
+        return stats;
+    }
+    
+    /**
+     * Run a list query, joining an identical one already in flight.
+     * Every caller gets its own copies, since callers modify the items they receive.
+     */
+    private List<Item> sharedList(String key, Supplier<List<Item>> loader) {
+        List<Item> items = LIST_READS.execute(key, loader);
+        List<Item> copies = new ArrayList<>(items.size());
+        for (Item item : items) {
+            copies.add(copyOf(item));
+        }
+        return copies;
+    }
+    
+    private Item sharedItem(String key, Supplier<Item> loader) {
+        Item item = ITEM_READS.execute(key, loader);
+        return item != null ? copyOf(item) : null;
+    }
+    
+    /**
+     * Detach reads in flight so callers after a write do not join a read that started before it
+     */
+    private static void forgetInFlightReads() {
+        LIST_READS.forgetAll();
+        ITEM_READS.forgetAll();
+    }
+    
+    // ==================== CATALOG CACHE ====================
+    
+    /**
+     * Get catalog cache hit/miss/eviction counters
+     */
+    public static QueryCache.Stats getCatalogCacheStats() {
+        return CATALOG_CACHE.getStats();
+    }
+    
+    /**
+     * Get status count cache counters
+     */
+    public static QueryCache.Stats getStatusCountCacheStats() {
+        return STATUS_COUNT_CACHE.getStats();
+    }
+    
+    /**
+     * Read a listing through the catalog cache.
+     * Callers get their own list; the Item objects are shared and must be treated as read-only.
+     */
+    private List<Item> cachedList(String key, Supplier<List<Item>> loader) {
+        List<Item> items = cachedListView(key, loader);
+        return items != null ? new ArrayList<>(items) : new ArrayList<>();
+    }
+    
+    /**
+     * Get the shared, unmodifiable cached listing, or null if it could not be loaded
+     */
+    private List<Item> cachedListView(String key, Supplier<List<Item>> loader) {
+        return CATALOG_CACHE.getOrLoad(key, () -> {
+            List<Item> loaded = loader.get();
+            return loaded != null ? Collections.unmodifiableList(loaded) : null;
+        });
+    }
+    
+    /**
+     * Invalidate listings that contain the item or that it may now appear in
+     */
+    private void invalidateCatalogForItem(int itemId, int categoryId, String status, BigDecimal offerPrice) {
+        boolean active = status == null || status.trim().isEmpty() || Item.STATUS_ACTIVE.equals(status);
+        boolean featured = active && offerPrice != null && offerPrice.compareTo(BigDecimal.ZERO) > 0;
+        String categoryKey = CACHE_KEY_CATEGORY + categoryId;
+        
+        forgetInFlightReads();
+        CATALOG_CACHE.invalidateIf((key, items) ->
+            containsItem(items, itemId)
+                || key.equals(categoryKey)
+                || (active && (key.equals(CACHE_KEY_ACTIVE) || key.startsWith(CACHE_KEY_RECENT)))
+                || (featured && key.startsWith(CACHE_KEY_FEATURED)));
+    }
+    
+    /**
+     * Invalidate listings affected by a status change.
+     * An item becoming active may enter the active, recent and featured listings.
+     */
+    private void invalidateCatalogForStatusChange(int itemId, String status) {
+        List<Item> activeItems = CATALOG_CACHE.peek(CACHE_KEY_ACTIVE);
+        boolean mayEnterActiveListings = Item.STATUS_ACTIVE.equals(status)
+            && (activeItems == null || !containsItem(activeItems, itemId));
+        
+        forgetInFlightReads();
+        CATALOG_CACHE.invalidateIf((key, items) ->
+            containsItem(items, itemId)
+                || (mayEnterActiveListings && !key.startsWith(CACHE_KEY_CATEGORY)));
+    }
+    
+    /**
+     * Invalidate listings that contain the item
+     */
+    private void invalidateCatalogEntriesContaining(int itemId) {
+        forgetInFlightReads();
+        CATALOG_CACHE.invalidateIf((key, items) -> containsItem(items, itemId));
+    }
+    
+    private static boolean containsItem(List<Item> items, int itemId) {
+        for (Item item : items) {
+            if (item.getId() == itemId) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Copy an item
+     */
+    private static Item copyOf(Item source) {
+        Item item = new Item();
+        item.setId(source.getId());
+        item.setTitle(source.getTitle());
+        item.setAuthor(source.getAuthor());
+        item.setCategoryId(source.getCategoryId());
+        item.setCategoryName(source.getCategoryName());
+        item.setPrice(source.getPrice());
+        item.setOfferPrice(source.getOfferPrice());
+        item.setStock(source.getStock());
+        item.setDescription(source.getDescription());
+        item.setImagePath(source.getImagePath());
+        item.setReferenceNo(source.getReferenceNo());
+        item.setStatus(source.getStatus());
+        item.setCreatedAt(source.getCreatedAt());
+        item.setUpdatedAt(source.getUpdatedAt());
+        return item;
+    }
+    
     /**
      * Extract Item object from ResultSet
      */
@@ -925,4 +1636,29 @@ public class ItemDAO {
         item.setUpdatedAt(resultSet.getTimestamp("updated_at"));
         return item;
     }
-}
\ No newline at end of file
+    
+    /**
+     * Result of reserveStock
+     */
+    public static class StockReservation {
+        public List<OrderItem> failedLines = new ArrayList<>();
+        public List<Integer> soldOutItemIds = new ArrayList<>();
+    }
+    
+    /**
+     * Active items by id, tied to the cached listing it was built from
+     */
+    private static final class ActiveItemIndex {
+        private final List<Item> source;
+        private final Map<Integer, Item> itemsById;
+        
+        private ActiveItemIndex(List<Item> source) {
+            Map<Integer, Item> byId = new HashMap<>(source.size() * 2);
+            for (Item item : source) {
+                byId.put(item.getId(), item);
+            }
+            this.source = source;
+            this.itemsById = Collections.unmodifiableMap(byId);
+        }
+    }
+}
@@ -0,0 +1,390 @@
+package com.pahanaedu.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.pahanaedu.utils.DatabaseConnection;
+import com.pahanaedu.utils.Log;
+
+/**
+ * In-memory inverted index over the title, author and category name of active items.
+ *
+ * Terms are kept in a sorted map so a query token matches every indexed term it is a
+ * prefix of. Every query token must match; documents are ranked by where and how
+ * exactly each token matched, then newest first. The index only returns item ids,
+ * and ItemDAO loads the rows by primary key, so stock and prices are never stale.
+ */
+class ItemSearchIndex {
+
+    private static final Log LOG = Log.get(ItemSearchIndex.class);
+
+    private static final String SELECT_INDEXABLE_ITEMS =
+        "SELECT i.id, i.title, i.author, i.created_at, c.name as category_name FROM items i " +
+        "LEFT JOIN categories c ON i.category_id = c.id " +
+        "WHERE i.status = 'active'";
+
+    private static final String SELECT_INDEXABLE_ITEM =
+        "SELECT i.id, i.title, i.author, i.created_at, c.name as category_name FROM items i " +
+        "LEFT JOIN categories c ON i.category_id = c.id " +
+        "WHERE i.status = 'active' AND i.id = ?";
+
+    // Field bits stored in postings
+    private static final int FIELD_TITLE = 1;
+    private static final int FIELD_AUTHOR = 2;
+    private static final int FIELD_CATEGORY = 4;
+
+    // Relevance weights: exact term match and prefix match per field
+    private static final int TITLE_EXACT = 10;
+    private static final int TITLE_PREFIX = 6;
+    private static final int AUTHOR_EXACT = 5;
+    private static final int AUTHOR_PREFIX = 3;
+    private static final int CATEGORY_EXACT = 2;
+    private static final int CATEGORY_PREFIX = 1;
+
+    private static final ItemSearchIndex INSTANCE = new ItemSearchIndex();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private TreeMap<String, Map<Integer, Integer>> postings = new TreeMap<>();
+    private Map<Integer, Document> documents = new HashMap<>();
+
+    // Lifecycle state, guarded by "this"
+    private boolean built;
+    private boolean stale;
+    private boolean building;
+    private final Set<Integer> refreshedWhileBuilding = new HashSet<>();
+
+    private ItemSearchIndex() {
+    }
+
+    static ItemSearchIndex getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Search the index
+     * @return Ranked item ids, best match first, or null if the index is unavailable
+     */
+    List<Integer> search(String query, int limit) {
+        if (!ensureBuilt()) {
+            return null;
+        }
+
+        List<String> queryTokens = tokenize(query);
+        if (queryTokens.isEmpty()) {
+            return null;
+        }
+
+        // Longer tokens are more selective, so intersect from them first
+        queryTokens.sort((a, b) -> b.length() - a.length());
+
+        lock.readLock().lock();
+        try {
+            Map<Integer, Integer> scores = null;
+
+            for (String token : queryTokens) {
+                Map<Integer, Integer> tokenScores = scoreToken(token, scores);
+                if (tokenScores.isEmpty()) {
+                    return Collections.emptyList();
+                }
+                if (scores != null) {
+                    for (Map.Entry<Integer, Integer> entry : tokenScores.entrySet()) {
+                        entry.setValue(entry.getValue() + scores.get(entry.getKey()));
+                    }
+                }
+                scores = tokenScores;
+            }
+
+            return topResults(scores, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Re-read one item from the database and update its index entry
+     */
+    void refreshItem(int itemId) {
+        synchronized (this) {
+            if (building) {
+                refreshedWhileBuilding.add(itemId);
+                return;
+            }
+            if (!built) {
+                return;
+            }
+        }
+
+        try (Connection connection = DatabaseConnection.getConnection();
+             PreparedStatement statement = connection.prepareStatement(SELECT_INDEXABLE_ITEM)) {
+
+            statement.setInt(1, itemId);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                Document document = resultSet.next() ? extractDocument(resultSet) : null;
+
+                lock.writeLock().lock();
+                try {
+                    removeDocument(postings, documents, itemId);
+                    if (document != null) {
+                        addDocument(postings, documents, document);
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+
+        } catch (SQLException e) {
+            LOG.error("Error refreshing item", "itemId", itemId, "error", e.getMessage());
+            markStale();
+        }
+    }
+
+    /**
+     * Remove an item from the index
+     */
+    void removeItem(int itemId) {
+        synchronized (this) {
+            if (building) {
+                refreshedWhileBuilding.add(itemId);
+                return;
+            }
+        }
+
+        lock.writeLock().lock();
+        try {
+            removeDocument(postings, documents, itemId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Schedule a full rebuild on the next search, e.g. after a category rename
+     */
+    synchronized void markStale() {
+        stale = true;
+    }
+
+    /**
+     * Build the index on first use or after it was marked stale
+     */
+    private boolean ensureBuilt() {
+        synchronized (this) {
+            if (built && !stale) {
+                return true;
+            }
+            if (building) {
+                // Serve the previous generation while another thread rebuilds
+                return built;
+            }
+            building = true;
+            stale = false;
+            refreshedWhileBuilding.clear();
+        }
+
+        boolean success = false;
+        try {
+            long start = System.currentTimeMillis();
+            TreeMap<String, Map<Integer, Integer>> newPostings = new TreeMap<>();
+            Map<Integer, Document> newDocuments = new HashMap<>();
+
+            try (Connection connection = DatabaseConnection.getConnection();
+                 PreparedStatement statement = connection.prepareStatement(SELECT_INDEXABLE_ITEMS);
+                 ResultSet resultSet = statement.executeQuery()) {
+
+                while (resultSet.next()) {
+                    addDocument(newPostings, newDocuments, extractDocument(resultSet));
+                }
+            }
+
+            lock.writeLock().lock();
+            try {
+                postings = newPostings;
+                documents = newDocuments;
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            success = true;
+            LOG.info("Index built",
+                    "items", newDocuments.size(),
+                    "terms", newPostings.size(),
+                    "elapsedMs", System.currentTimeMillis() - start);
+
+        } catch (SQLException e) {
+            LOG.error("Error building index", e);
+        }
+
+        List<Integer> pending;
+        synchronized (this) {
+            building = false;
+            built = built || success;
+            if (!success) {
+                stale = true;
+            }
+            pending = new ArrayList<>(refreshedWhileBuilding);
+            refreshedWhileBuilding.clear();
+        }
+
+        // Apply writes that happened while the snapshot was being read
+        for (int itemId : pending) {
+            refreshItem(itemId);
+        }
+
+        return built;
+    }
+
+    /**
+     * Score every document matching one query token, restricted to the current candidates
+     */
+    private Map<Integer, Integer> scoreToken(String token, Map<Integer, Integer> candidates) {
+        Map<Integer, Integer> tokenScores = new HashMap<>();
+
+        for (Map.Entry<String, Map<Integer, Integer>> term :
+                postings.subMap(token, true, token + Character.MAX_VALUE, false).entrySet()) {
+
+            boolean exact = term.getKey().length() == token.length();
+
+            for (Map.Entry<Integer, Integer> posting : term.getValue().entrySet()) {
+                Integer itemId = posting.getKey();
+                if (candidates != null && !candidates.containsKey(itemId)) {
+                    continue;
+                }
+
+                int fields = posting.getValue();
+                int score = 0;
+                if ((fields & FIELD_TITLE) != 0) score = Math.max(score, exact ? TITLE_EXACT : TITLE_PREFIX);
+                if ((fields & FIELD_AUTHOR) != 0) score = Math.max(score, exact ? AUTHOR_EXACT : AUTHOR_PREFIX);
+                if ((fields & FIELD_CATEGORY) != 0) score = Math.max(score, exact ? CATEGORY_EXACT : CATEGORY_PREFIX);
+
+                tokenScores.merge(itemId, score, Math::max);
+            }
+        }
+
+        return tokenScores;
+    }
+
+    /**
+     * Select the best results by score, newest first on ties
+     */
+    private List<Integer> topResults(Map<Integer, Integer> scores, int limit) {
+        PriorityQueue<int[]> heap = new PriorityQueue<>(limit + 1, (a, b) -> compareResults(a, b));
+
+        for (Map.Entry<Integer, Integer> entry : scores.entrySet()) {
+            heap.offer(new int[] { entry.getKey(), entry.getValue() });
+            if (heap.size() > limit) {
+                heap.poll();
+            }
+        }
+
+        List<Integer> results = new ArrayList<>(heap.size());
+        while (!heap.isEmpty()) {
+            results.add(heap.poll()[0]);
+        }
+        Collections.reverse(results);
+        return results;
+    }
+
+    /**
+     * Order results worst first, for the bounded min-heap
+     */
+    private int compareResults(int[] a, int[] b) {
+        if (a[1] != b[1]) {
+            return Integer.compare(a[1], b[1]);
+        }
+        Document docA = documents.get(a[0]);
+        Document docB = documents.get(b[0]);
+        int byDate = Long.compare(docA.createdAt, docB.createdAt);
+        return byDate != 0 ? byDate : Integer.compare(a[0], b[0]);
+    }
+
+    private static Document extractDocument(ResultSet resultSet) throws SQLException {
+        Document document = new Document();
+        document.itemId = resultSet.getInt("id");
+        Timestamp createdAt = resultSet.getTimestamp("created_at");
+        document.createdAt = createdAt != null ? createdAt.getTime() : 0L;
+        document.terms = new HashMap<>();
+        addTerms(document.terms, resultSet.getString("title"), FIELD_TITLE);
+        addTerms(document.terms, resultSet.getString("author"), FIELD_AUTHOR);
+        addTerms(document.terms, resultSet.getString("category_name"), FIELD_CATEGORY);
+        return document;
+    }
+
+    private static void addTerms(Map<String, Integer> terms, String text, int field) {
+        for (String token : tokenize(text)) {
+            terms.merge(token, field, (a, b) -> a | b);
+        }
+    }
+
+    private static void addDocument(TreeMap<String, Map<Integer, Integer>> postings,
+                                    Map<Integer, Document> documents, Document document) {
+        documents.put(document.itemId, document);
+        for (Map.Entry<String, Integer> term : document.terms.entrySet()) {
+            postings.computeIfAbsent(term.getKey(), key -> new HashMap<>())
+                    .put(document.itemId, term.getValue());
+        }
+    }
+
+    private static void removeDocument(TreeMap<String, Map<Integer, Integer>> postings,
+                                       Map<Integer, Document> documents, int itemId) {
+        Document document = documents.remove(itemId);
+        if (document == null) {
+            return;
+        }
+        for (String term : document.terms.keySet()) {
+            Map<Integer, Integer> termPostings = postings.get(term);
+            if (termPostings != null) {
+                termPostings.remove(itemId);
+                if (termPostings.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+
+    /**
+     * Split text into lower-case letter/digit tokens
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean tokenChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (tokenChar && start < 0) {
+                start = i;
+            } else if (!tokenChar && start >= 0) {
+                tokens.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Indexed terms of one item with the fields each term occurs in
+     */
+    private static final class Document {
+        private int itemId;
+        private long createdAt;
+        private Map<String, Integer> terms;
+    }
+}
@@ -1,23 +1,37 @@
 package com.pahanaedu.dao;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.BiPredicate;
 
 import com.pahanaedu.models.Order;
 import com.pahanaedu.models.OrderItem;
+import com.pahanaedu.models.PromoCode;
 import com.pahanaedu.utils.DatabaseConnection;
+import com.pahanaedu.utils.Log;
+import com.pahanaedu.utils.RowHandler;
 
 /**
  * Data Access Object for Order operations - Enhanced with promo code support
  */
 public class OrderDAO {
     
+    private static final Log LOG = Log.get(OrderDAO.class);
+    
     // SQL Queries - Updated with new fields
     private static final String INSERT_ORDER = 
         "INSERT INTO orders (user_id, total_amount, subtotal, shipping_amount, discount_amount, " +
@@ -53,7 +67,8 @@ public class OrderDAO {
         "LEFT JOIN users u ON o.user_id = u.id " +
         "ORDER BY o.created_at DESC";
     
-    private static final String SELECT_ORDER_ITEMS = 
+    // Prefix for batched order item loading; the IN list is appended per chunk
+    private static final String SELECT_ORDER_ITEMS_FOR_ORDERS = 
         "SELECT oi.*, " +
         "i.title as item_title, " +
         "i.author as item_author, " +
@@ -61,11 +76,45 @@ public class OrderDAO {
         "i.reference_no as item_reference_no " +
         "FROM order_items oi " +
         "LEFT JOIN items i ON oi.item_id = i.id " +
-        "WHERE oi.order_id = ?";
+        "WHERE oi.order_id IN ";
+    
+    // Maximum number of order ids bound into a single IN (...) query
+    private static final int ORDER_ITEMS_BATCH_SIZE = 500;
+    
+    // Base query for filtered, keyset-paginated order listing
+    private static final String SELECT_ORDERS_PAGE = 
+        "SELECT o.*, " +
+        "CONCAT(u.first_name, ' ', u.last_name) as customer_name, " +
+        "u.email as customer_email " +
+        "FROM orders o " +
+        "LEFT JOIN users u ON o.user_id = u.id";
+    
+    private static final String COUNT_FILTERED_ORDERS = 
+        "SELECT COUNT(*), " +
+        "SUM(CASE WHEN o.promo_code IS NOT NULL AND TRIM(o.promo_code) <> '' THEN 1 ELSE 0 END) " +
+        "FROM orders o";
+    
+    private static final String COUNT_ALL_ORDERS = 
+        "SELECT COUNT(*) FROM orders";
+    
+    private static final int MAX_PAGE_SIZE = 200;
+    
+    private final OrderStatsDAO orderStatsDAO = new OrderStatsDAO();
+    private final SalesRollupDAO salesRollupDAO = new SalesRollupDAO();
+    private final SalesLedgerDAO salesLedgerDAO = new SalesLedgerDAO();
+    private final ItemDAO itemDAO = new ItemDAO();
+    private final PromoCodeDAO promoCodeDAO = new PromoCodeDAO();
     
     private static final String UPDATE_ORDER_STATUS = 
         "UPDATE orders SET status = ?, updated_at = CURRENT_TIMESTAMP WHERE id = ?";
     
+    // IN list appended per chunk
+    private static final String SELECT_ORDER_LINES = 
+        "SELECT order_id, item_id, quantity FROM order_items WHERE order_id IN ";
+    
+    // Maximum number of orders whose status is changed in a single transaction
+    private static final int STATUS_CHANGE_CHUNK_SIZE = 500;
+    
     private static final String UPDATE_PAYMENT_STATUS = 
         "UPDATE orders SET payment_status = ?, transaction_id = ?, updated_at = CURRENT_TIMESTAMP WHERE id = ?";
     
@@ -79,14 +128,45 @@ public class OrderDAO {
      * Create new order with order items - Enhanced with promo support
      */
     public int createOrder(Order order) {
+        return createOrder(order, false).orderId;
+    }
+    
+    /**
+     * Place an order, reserving stock for every line in the same transaction.
+     * The order is only created when all lines can be reserved.
+     */
+    public OrderPlacement placeOrder(Order order) {
+        return createOrder(order, true);
+    }
+    
+    /**
+     * Create order and order items in one transaction, optionally reserving stock first
+     */
+    private OrderPlacement createOrder(Order order, boolean reserveStock) {
+        OrderPlacement placement = new OrderPlacement();
         Connection connection = null;
         PreparedStatement orderStatement = null;
         PreparedStatement itemStatement = null;
         
         try {
+            // Must run before the transaction starts, as they may create their tables
+            salesRollupDAO.prepare();
+            salesLedgerDAO.prepare();
+            
             connection = DatabaseConnection.getConnection();
             connection.setAutoCommit(false); // Start transaction
             
+            // Reserve stock before inserting anything
+            ItemDAO.StockReservation reservation = null;
+            if (reserveStock) {
+                reservation = itemDAO.reserveStock(connection, order.getOrderItems());
+                placement.failedLines = reservation.failedLines;
+                if (!placement.failedLines.isEmpty()) {
+                    connection.rollback();
+                    return placement;
+                }
+            }
+            
             // Insert order with all new fields
             orderStatement = connection.prepareStatement(INSERT_ORDER, Statement.RETURN_GENERATED_KEYS);
             orderStatement.setInt(1, order.getUserId());
@@ -141,25 +221,34 @@ public class OrderDAO {
                     
                     itemStatement.executeBatch();
                     
+                    salesRollupDAO.recordOrderCreated(connection, SalesRollupDAO.CHANNEL_ONLINE, orderId, order.getStatus());
+                    salesLedgerDAO.recordOrderCreated(connection, SalesRollupDAO.CHANNEL_ONLINE, orderId, order.getStatus());
+                    
                     connection.commit(); // Commit transaction
-                    System.out.println("OrderDAO: Order created successfully - ID: " + orderId + 
-                                     (order.getPromoCode() != null ? ", Promo: " + order.getPromoCode() : "") +
-                                     (order.getDiscountAmount() != null ? ", Discount: " + order.getDiscountAmount() : ""));
-                    return orderId;
+                    orderStatsDAO.recordOrderCreated(order);
+                    if (reservation != null) {
+                        itemDAO.stockChangeCommitted(order.getOrderItems());
+                        itemDAO.itemsSoldOut(reservation.soldOutItemIds);
+                    }
+                    LOG.debug("Order created successfully",
+                            "id", orderId,
+                            "promoCode", order.getPromoCode(),
+                            "discount", order.getDiscountAmount());
+                    placement.orderId = orderId;
+                    return placement;
                 }
             }
             
             connection.rollback(); // Rollback on failure
             
         } catch (SQLException e) {
-            System.err.println("OrderDAO: Error creating order - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error creating order", e);
             
             if (connection != null) {
                 try {
                     connection.rollback();
                 } catch (SQLException rollbackEx) {
-                    System.err.println("OrderDAO: Error rolling back transaction - " + rollbackEx.getMessage());
+                    LOG.error("Error rolling back transaction", "error", rollbackEx.getMessage());
                 }
             }
         } finally {
@@ -171,11 +260,11 @@ public class OrderDAO {
                     connection.close();
                 }
             } catch (SQLException e) {
-                System.err.println("OrderDAO: Error closing resources - " + e.getMessage());
+                LOG.error("Error closing resources", "error", e.getMessage());
             }
         }
         
-        return 0;
+        return placement;
     }
     
     /**
@@ -190,13 +279,12 @@ public class OrderDAO {
             
             if (resultSet.next()) {
                 Order order = extractOrderFromResultSet(resultSet);
-                order.setOrderItems(getOrderItems(orderId));
+                loadOrderItems(connection, Collections.singletonList(order));
                 return order;
             }
             
         } catch (SQLException e) {
-            System.err.println("OrderDAO: Error getting order by ID - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error getting order by ID", e);
         }
         
         return null;
@@ -206,6 +294,13 @@ public class OrderDAO {
      * Get orders by user ID
      */
     public List<Order> getOrdersByUser(int userId) {
+        return getOrdersByUser(userId, true);
+    }
+    
+    /**
+     * Get orders by user ID, optionally skipping order items for list views
+     */
+    public List<Order> getOrdersByUser(int userId, boolean includeItems) {
         List<Order> orders = new ArrayList<>();
         
         try (Connection connection = DatabaseConnection.getConnection();
@@ -215,16 +310,17 @@ public class OrderDAO {
             ResultSet resultSet = statement.executeQuery();
             
             while (resultSet.next()) {
-                Order order = extractOrderFromResultSet(resultSet);
-                order.setOrderItems(getOrderItems(order.getId()));
-                orders.add(order);
+                orders.add(extractOrderFromResultSet(resultSet));
+            }
+            
+            if (includeItems) {
+                loadOrderItems(connection, orders);
             }
             
-            System.out.println("OrderDAO: Retrieved " + orders.size() + " orders for user " + userId);
+            LOG.debug("Retrieved orders for user", "ordersCount", orders.size(), "userId", userId);
             
         } catch (SQLException e) {
-            System.err.println("OrderDAO: Error getting orders by user - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error getting orders by user", e);
         }
         
         return orders;
@@ -234,6 +330,13 @@ public class OrderDAO {
      * Get all orders
      */
     public List<Order> getAllOrders() {
+        return getAllOrders(true);
+    }
+    
+    /**
+     * Get all orders, optionally skipping order items for list views
+     */
+    public List<Order> getAllOrders(boolean includeItems) {
         List<Order> orders = new ArrayList<>();
         
         try (Connection connection = DatabaseConnection.getConnection();
@@ -242,76 +345,440 @@ public class OrderDAO {
             ResultSet resultSet = statement.executeQuery();
             
             while (resultSet.next()) {
-                Order order = extractOrderFromResultSet(resultSet);
-                order.setOrderItems(getOrderItems(order.getId()));
-                orders.add(order);
+                orders.add(extractOrderFromResultSet(resultSet));
+            }
+            
+            if (includeItems) {
+                loadOrderItems(connection, orders);
             }
             
         } catch (SQLException e) {
-            System.err.println("OrderDAO: Error getting all orders - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error getting all orders", e);
         }
         
         return orders;
     }
     
     /**
-     * Get order items by order ID
+     * Find one page of orders matching the query, newest first.
+     * Filters run in SQL and pages are addressed by a (created_at, id) keyset cursor,
+     * so deep pages cost the same as the first one given an index on orders(created_at, id).
      */
-    private List<OrderItem> getOrderItems(int orderId) {
-        List<OrderItem> items = new ArrayList<>();
+    public OrderPage findOrders(OrderQuery query) {
+        try {
+            return loadOrderPage(query);
+        } catch (SQLException e) {
+            LOG.error("Error finding orders", e);
+        }
         
-        try (Connection connection = DatabaseConnection.getConnection();
-             PreparedStatement statement = connection.prepareStatement(SELECT_ORDER_ITEMS)) {
+        return new OrderPage();
+    }
+    
+    private OrderPage loadOrderPage(OrderQuery query) throws SQLException {
+        OrderPage page = new OrderPage();
+        int pageSize = Math.max(1, Math.min(query.pageSize, MAX_PAGE_SIZE));
+        
+        List<Object> parameters = new ArrayList<>();
+        StringBuilder sql = new StringBuilder(SELECT_ORDERS_PAGE);
+        appendFilters(sql, parameters, query, true);
+        sql.append(" ORDER BY o.created_at DESC, o.id DESC LIMIT ?");
+        parameters.add(pageSize + 1);
+        
+        Connection conn = DatabaseConnection.getConnection();
+        if (conn == null) {
+            throw new SQLException("No database connection available");
+        }
+        
+        try (Connection connection = conn;
+             PreparedStatement statement = connection.prepareStatement(sql.toString())) {
             
-            statement.setInt(1, orderId);
-            ResultSet resultSet = statement.executeQuery();
+            bindParameters(statement, parameters);
             
-            while (resultSet.next()) {
-                OrderItem item = new OrderItem();
-                item.setId(resultSet.getInt("id"));
-                item.setOrderId(resultSet.getInt("order_id"));
-                item.setItemId(resultSet.getInt("item_id"));
-                item.setQuantity(resultSet.getInt("quantity"));
-                item.setPrice(resultSet.getBigDecimal("price"));
-                item.setItemTitle(resultSet.getString("item_title"));
-                item.setItemAuthor(resultSet.getString("item_author"));
-                item.setItemImagePath(resultSet.getString("item_image_path"));
-                
-                items.add(item);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    if (page.orders.size() == pageSize) {
+                        page.hasMore = true;
+                        break;
+                    }
+                    page.orders.add(extractOrderFromResultSet(resultSet));
+                }
             }
             
-        } catch (SQLException e) {
-            System.err.println("OrderDAO: Error getting order items - " + e.getMessage());
-            e.printStackTrace();
+            if (!page.orders.isEmpty()) {
+                Order last = page.orders.get(page.orders.size() - 1);
+                page.nextCreatedAt = last.getCreatedAt();
+                page.nextId = last.getId();
+            }
+            
+            if (query.includeItems) {
+                loadOrderItems(connection, page.orders);
+            }
+            
+            if (query.includeCounts) {
+                countOrders(connection, query, page);
+            }
         }
         
-        return items;
+        return page;
     }
     
     /**
-     * Update order status
+     * Stream all orders newest first, one keyset page at a time,
+     * so only a single page of orders and items is held in memory
+     * @throws SQLException if a page fails to load, possibly after earlier pages were handled
      */
-    public boolean updateOrderStatus(int orderId, String status) {
+    public void forEachOrder(boolean includeItems, RowHandler<Order> handler) throws IOException, SQLException {
+        OrderQuery query = new OrderQuery();
+        query.pageSize = MAX_PAGE_SIZE;
+        query.includeItems = includeItems;
+        query.includeCounts = false;
+        
+        OrderPage page;
+        do {
+            try {
+                page = loadOrderPage(query);
+            } catch (SQLException e) {
+                LOG.error("Error streaming orders", e);
+                throw e;
+            }
+            for (Order order : page.orders) {
+                handler.handle(order);
+            }
+            query.cursorCreatedAt = page.nextCreatedAt;
+            query.cursorId = page.nextId;
+        } while (page.hasMore);
+    }
+    
+    /**
+     * Count all orders
+     */
+    public int countAllOrders() {
         try (Connection connection = DatabaseConnection.getConnection();
-             PreparedStatement statement = connection.prepareStatement(UPDATE_ORDER_STATUS)) {
+             PreparedStatement statement = connection.prepareStatement(COUNT_ALL_ORDERS);
+             ResultSet resultSet = statement.executeQuery()) {
             
-            statement.setString(1, status);
-            statement.setInt(2, orderId);
+            if (resultSet.next()) {
+                return resultSet.getInt(1);
+            }
             
-            int rowsAffected = statement.executeUpdate();
+        } catch (SQLException e) {
+            LOG.error("Error counting all orders", e);
+        }
+        
+        return 0;
+    }
+    
+    /**
+     * Fill the filtered and promo counts of a page, ignoring the cursor
+     */
+    private void countOrders(Connection connection, OrderQuery query, OrderPage page) throws SQLException {
+        List<Object> parameters = new ArrayList<>();
+        StringBuilder sql = new StringBuilder(COUNT_FILTERED_ORDERS);
+        appendFilters(sql, parameters, query, false);
+        
+        try (PreparedStatement statement = connection.prepareStatement(sql.toString())) {
+            bindParameters(statement, parameters);
             
-            if (rowsAffected > 0) {
-                System.out.println("OrderDAO: Order status updated - ID: " + orderId + ", Status: " + status);
-                return true;
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (resultSet.next()) {
+                    page.filteredCount = resultSet.getInt(1);
+                    page.ordersWithPromo = resultSet.getInt(2);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Append WHERE conditions for the query filters and, optionally, the keyset cursor
+     */
+    private void appendFilters(StringBuilder sql, List<Object> parameters, OrderQuery query, boolean withCursor) {
+        List<String> conditions = new ArrayList<>();
+        
+        if (query.status != null && !query.status.isEmpty()) {
+            conditions.add("o.status = ?");
+            parameters.add(query.status);
+        }
+        
+        if (query.paymentMethod != null && !query.paymentMethod.isEmpty()) {
+            conditions.add("o.payment_method = ?");
+            parameters.add(query.paymentMethod);
+        }
+        
+        if (query.createdFrom != null) {
+            conditions.add("o.created_at >= ?");
+            parameters.add(query.createdFrom);
+        }
+        
+        if (withCursor && query.cursorCreatedAt != null) {
+            conditions.add("(o.created_at < ? OR (o.created_at = ? AND o.id < ?))");
+            parameters.add(query.cursorCreatedAt);
+            parameters.add(query.cursorCreatedAt);
+            parameters.add(query.cursorId);
+        } else if (withCursor && query.cursorId > 0) {
+            // Orders without created_at sort after every dated order, so only they remain
+            conditions.add("(o.created_at IS NULL AND o.id < ?)");
+            parameters.add(query.cursorId);
+        }
+        
+        if (!conditions.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+    }
+    
+    /**
+     * Bind positional parameters collected while building a dynamic query
+     */
+    private void bindParameters(PreparedStatement statement, List<Object> parameters) throws SQLException {
+        for (int i = 0; i < parameters.size(); i++) {
+            Object value = parameters.get(i);
+            if (value instanceof Timestamp) {
+                statement.setTimestamp(i + 1, (Timestamp) value);
+            } else if (value instanceof Integer) {
+                statement.setInt(i + 1, (Integer) value);
+            } else {
+                statement.setString(i + 1, (String) value);
+            }
+        }
+    }
+    
+    /**
+     * Load order items for a list of orders in chunked IN (...) queries on the given connection
+     */
+    private void loadOrderItems(Connection connection, List<Order> orders) throws SQLException {
+        Map<Integer, Order> ordersById = new HashMap<>();
+        for (Order order : orders) {
+            order.setOrderItems(new ArrayList<>());
+            ordersById.put(order.getId(), order);
+        }
+        
+        List<Integer> orderIds = new ArrayList<>(ordersById.keySet());
+        
+        for (int from = 0; from < orderIds.size(); from += ORDER_ITEMS_BATCH_SIZE) {
+            List<Integer> chunk = orderIds.subList(from, Math.min(from + ORDER_ITEMS_BATCH_SIZE, orderIds.size()));
+            String sql = SELECT_ORDER_ITEMS_FOR_ORDERS + buildPlaceholders(chunk.size()) + " ORDER BY oi.order_id, oi.id";
+            
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    statement.setInt(i + 1, chunk.get(i));
+                }
+                
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        OrderItem item = extractOrderItemFromResultSet(resultSet);
+                        Order order = ordersById.get(item.getOrderId());
+                        if (order != null) {
+                            order.getOrderItems().add(item);
+                        }
+                    }
+                }
+            }
+        }
+    }
+    
+    /**
+     * Build a "(?, ?, ...)" placeholder list
+     */
+    private String buildPlaceholders(int count) {
+        StringBuilder placeholders = new StringBuilder("(");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) placeholders.append(", ");
+            placeholders.append("?");
+        }
+        return placeholders.append(")").toString();
+    }
+    
+    /**
+     * Extract OrderItem object from ResultSet
+     */
+    private OrderItem extractOrderItemFromResultSet(ResultSet resultSet) throws SQLException {
+        OrderItem item = new OrderItem();
+        item.setId(resultSet.getInt("id"));
+        item.setOrderId(resultSet.getInt("order_id"));
+        item.setItemId(resultSet.getInt("item_id"));
+        item.setQuantity(resultSet.getInt("quantity"));
+        item.setPrice(resultSet.getBigDecimal("price"));
+        item.setItemTitle(resultSet.getString("item_title"));
+        item.setItemAuthor(resultSet.getString("item_author"));
+        item.setItemImagePath(resultSet.getString("item_image_path"));
+        return item;
+    }
+    
+    /**
+     * Update order status, accepting any transition; cancelling restocks and releases promo usage
+     */
+    public boolean updateOrderStatus(int orderId, String status) {
+        return changeOrderStatus(orderId, status, null).updated;
+    }
+    
+    /**
+     * Change order status in one transaction. The order row is locked and the transition
+     * checked against its current status, so concurrent changes cannot both pass the check.
+     * Cancelling returns every line's quantity to stock in the same transaction; the promo
+     * code use is released once the transaction has committed.
+     * @param allowed Transition rule given the current and new status, or null to allow any
+     */
+    public StatusChange changeOrderStatus(int orderId, String status, BiPredicate<String, String> allowed) {
+        return changeOrderStatuses(Collections.singletonList(orderId), status, allowed).get(orderId);
+    }
+    
+    /**
+     * Change the status of many orders as changeOrderStatus does for one. Orders are
+     * processed in id order, STATUS_CHANGE_CHUNK_SIZE per transaction: each chunk locks
+     * its rows with one query and applies all allowed changes as one JDBC batch. A
+     * failed chunk leaves its orders unchanged and does not affect other chunks.
+     * @return One result per distinct order id, in id order
+     */
+    public Map<Integer, StatusChange> changeOrderStatuses(Collection<Integer> orderIds, String status,
+                                                          BiPredicate<String, String> allowed) {
+        List<Integer> ids = new ArrayList<>(new TreeSet<>(orderIds));
+        Map<Integer, StatusChange> changes = new LinkedHashMap<>();
+        for (Integer id : ids) {
+            changes.put(id, new StatusChange());
+        }
+        
+        // Must run before the transactions start, as they may create their tables
+        salesRollupDAO.prepare();
+        salesLedgerDAO.prepare();
+        
+        for (int from = 0; from < ids.size(); from += STATUS_CHANGE_CHUNK_SIZE) {
+            List<Integer> chunk = ids.subList(from, Math.min(from + STATUS_CHANGE_CHUNK_SIZE, ids.size()));
+            changeStatusChunk(chunk, status, allowed, changes);
+        }
+        
+        return changes;
+    }
+    
+    private void changeStatusChunk(List<Integer> ids, String status, BiPredicate<String, String> allowed,
+                                   Map<Integer, StatusChange> changes) {
+        try (Connection connection = DatabaseConnection.getConnection()) {
+            connection.setAutoCommit(false);
+            
+            try {
+                // Lock the rows and capture their previous contribution to the statistics and rollups
+                Map<Integer, OrderStatsDAO.OrderSnapshot> before = orderStatsDAO.readOrderSnapshots(connection, ids);
+                List<Integer> updating = new ArrayList<>();
+                List<Integer> cancelling = new ArrayList<>();
+                List<Integer> reinstating = new ArrayList<>();
+                
+                for (Integer id : ids) {
+                    OrderStatsDAO.OrderSnapshot snapshot = before.get(id);
+                    if (snapshot == null) continue;
+                    
+                    StatusChange change = changes.get(id);
+                    change.found = true;
+                    change.previousStatus = snapshot.status;
+                    if (allowed != null && !allowed.test(snapshot.status, status)) continue;
+                    
+                    change.allowed = true;
+                    updating.add(id);
+                    boolean wasCancelled = Order.STATUS_CANCELLED.equals(snapshot.status);
+                    if (Order.STATUS_CANCELLED.equals(status) && !wasCancelled) {
+                        cancelling.add(id);
+                    } else if (!Order.STATUS_CANCELLED.equals(status) && wasCancelled) {
+                        reinstating.add(id);
+                    }
+                }
+                
+                if (updating.isEmpty()) {
+                    connection.rollback();
+                    return;
+                }
+                
+                try (PreparedStatement statement = connection.prepareStatement(UPDATE_ORDER_STATUS)) {
+                    for (Integer id : updating) {
+                        statement.setString(1, status);
+                        statement.setInt(2, id);
+                        statement.addBatch();
+                    }
+                    statement.executeBatch();
+                }
+                
+                List<OrderItem> restockedLines = new ArrayList<>();
+                List<Integer> reactivatedItemIds = new ArrayList<>();
+                if (!cancelling.isEmpty()) {
+                    for (OrderItem line : readOrderLines(connection, cancelling)) {
+                        changes.get(line.getOrderId()).restockedLines.add(line);
+                        restockedLines.add(line);
+                    }
+                    reactivatedItemIds = itemDAO.restoreStock(connection, restockedLines);
+                }
+                
+                // Only moves into or out of cancelled affect the rollups and the ledger
+                boolean cancelled = Order.STATUS_CANCELLED.equals(status);
+                List<Integer> crossing = cancelled ? cancelling : reinstating;
+                salesRollupDAO.recordCancellationChanges(connection, SalesRollupDAO.CHANNEL_ONLINE, crossing, cancelled);
+                salesLedgerDAO.recordCancellationChanges(connection, SalesRollupDAO.CHANNEL_ONLINE, crossing, cancelled);
+                connection.commit();
+                
+                for (Integer id : updating) {
+                    changes.get(id).updated = true;
+                    orderStatsDAO.recordStatusChanged(before.get(id), status);
+                }
+                if (!cancelling.isEmpty()) {
+                    itemDAO.stockChangeCommitted(restockedLines);
+                    itemDAO.itemsReactivated(reactivatedItemIds);
+                    for (Integer id : cancelling) {
+                        changes.get(id).promoReleased = releasePromoUsage(before.get(id).promoCode);
+                    }
+                }
+                LOG.debug("Order status updated", "orders", updating.size(), "status", status,
+                          "restockedLines", restockedLines.size());
+                
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
             }
             
         } catch (SQLException e) {
-            System.err.println("OrderDAO: Error updating order status - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error updating order status", e, "orders", ids.size());
         }
+    }
+    
+    /**
+     * Read the item and quantity of each line of the given orders on the caller's connection
+     */
+    private List<OrderItem> readOrderLines(Connection connection, List<Integer> orderIds) throws SQLException {
+        List<OrderItem> lines = new ArrayList<>();
         
-        return false;
+        try (PreparedStatement statement = connection.prepareStatement(
+                SELECT_ORDER_LINES + buildPlaceholders(orderIds.size()))) {
+            for (int i = 0; i < orderIds.size(); i++) {
+                statement.setInt(i + 1, orderIds.get(i));
+            }
+            
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    OrderItem line = new OrderItem();
+                    line.setOrderId(resultSet.getInt("order_id"));
+                    line.setItemId(resultSet.getInt("item_id"));
+                    line.setQuantity(resultSet.getInt("quantity"));
+                    lines.add(line);
+                }
+            }
+        }
+        
+        return lines;
+    }
+    
+    /**
+     * Give back the use of a cancelled order's promo code
+     * @return true if a use was released
+     */
+    private boolean releasePromoUsage(String promoCode) {
+        if (promoCode == null || promoCode.trim().isEmpty()) {
+            return false;
+        }
+        
+        PromoCode promo = promoCodeDAO.getPromoCodeByCode(promoCode);
+        if (promo == null) {
+            LOG.warn("Promo code of cancelled order no longer exists", "promoCode", promoCode);
+            return false;
+        }
+        
+        promoCodeDAO.releaseUsage(promo.getId());
+        return true;
     }
     
     /**
@@ -334,15 +801,15 @@ public class OrderDAO {
             int rowsAffected = statement.executeUpdate();
             
             if (rowsAffected > 0) {
-                System.out.println("OrderDAO: Payment status updated - ID: " + orderId + 
-                                 ", Status: " + paymentStatus + 
-                                 (transactionId != null ? ", Transaction: " + transactionId : ""));
+                LOG.debug("Payment status updated",
+                        "id", orderId,
+                        "status", paymentStatus,
+                        "transactionId", transactionId);
                 return true;
             }
             
         } catch (SQLException e) {
-            System.err.println("OrderDAO: Error updating payment status - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error updating payment status", e);
         }
         
         return false;
@@ -366,8 +833,7 @@ public class OrderDAO {
             }
             
         } catch (SQLException e) {
-            System.err.println("OrderDAO: Error checking order ownership - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error checking order ownership", e);
         }
         
         return false;
@@ -388,8 +854,7 @@ public class OrderDAO {
             }
             
         } catch (SQLException e) {
-            System.err.println("OrderDAO: Error counting orders by status - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error counting orders by status", e);
         }
         
         return 0;
@@ -410,8 +875,7 @@ public class OrderDAO {
             }
             
         } catch (SQLException e) {
-            System.err.println("OrderDAO: Error counting user orders - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error counting user orders", e);
         }
         
         return 0;
@@ -436,7 +900,7 @@ public class OrderDAO {
             order.setOrderNotes(resultSet.getString("order_notes"));
         } catch (SQLException e) {
             // If columns don't exist (older orders), continue without them
-            System.out.println("OrderDAO: Some new columns not found, using defaults");
+            LOG.debug("Some new columns not found, using defaults");
         }
         
         order.setStatus(resultSet.getString("status"));
@@ -450,4 +914,54 @@ public class OrderDAO {
         
         return order;
     }
-}
\ No newline at end of file
+    
+    /**
+     * Filters and keyset cursor for findOrders
+     */
+    public static class OrderQuery {
+        public String status;
+        public String paymentMethod;
+        public Timestamp createdFrom;
+        public Timestamp cursorCreatedAt;
+        public int cursorId;
+        public int pageSize = 50;
+        public boolean includeItems = true;
+        public boolean includeCounts = true;
+    }
+    
+    /**
+     * One page of findOrders results
+     */
+    public static class OrderPage {
+        public List<Order> orders = new ArrayList<>();
+        public boolean hasMore;
+        public Timestamp nextCreatedAt;
+        public int nextId;
+        public int filteredCount;
+        public int ordersWithPromo;
+    }
+    
+    /**
+     * Result of changeOrderStatus
+     */
+    public static class StatusChange {
+        public boolean found;
+        public boolean allowed;
+        public boolean updated;
+        public String previousStatus;
+        public List<OrderItem> restockedLines = new ArrayList<>();
+        public boolean promoReleased;
+    }
+    
+    /**
+     * Result of placeOrder
+     */
+    public static class OrderPlacement {
+        public int orderId;
+        public List<OrderItem> failedLines = new ArrayList<>();
+        
+        public boolean isSuccess() {
+            return orderId > 0;
+        }
+    }
+}
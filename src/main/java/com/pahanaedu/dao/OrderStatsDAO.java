@@ -0,0 +1,287 @@
+package com.pahanaedu.dao;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.pahanaedu.models.Order;
+import com.pahanaedu.utils.DatabaseConnection;
+import com.pahanaedu.utils.Log;
+
+/**
+ * Data Access Object for order statistics.
+ *
+ * Statistics are computed in one grouped SQL pass over the orders table. In
+ * incremental mode the per-status totals are kept in memory after the first
+ * computation and updated by OrderDAO on order creation and status changes, so
+ * dashboards read them without touching the database. The totals are
+ * recomputed from SQL periodically to absorb changes made outside this DAO.
+ */
+public class OrderStatsDAO {
+
+    private static final Log LOG = Log.get(OrderStatsDAO.class);
+
+    private static final String SELECT_ORDER_STATS_BY_STATUS =
+        "SELECT status, COUNT(*) as order_count, " +
+        "COALESCE(SUM(total_amount), 0) as revenue, " +
+        "SUM(CASE WHEN promo_code IS NOT NULL AND TRIM(promo_code) <> '' AND total_amount IS NOT NULL " +
+        "THEN 1 ELSE 0 END) as promo_orders, " +
+        "COALESCE(SUM(CASE WHEN promo_code IS NOT NULL AND TRIM(promo_code) <> '' AND total_amount IS NOT NULL " +
+        "AND discount_amount > 0 THEN discount_amount ELSE 0 END), 0) as promo_discount " +
+        "FROM orders GROUP BY status";
+
+    // IN list and FOR UPDATE appended per call
+    private static final String SELECT_ORDER_STATS_ROWS =
+        "SELECT id, status, total_amount, discount_amount, promo_code FROM orders WHERE id IN ";
+
+    // Maximum age of the running totals before they are recomputed from SQL
+    private static final long RESYNC_INTERVAL_MS = 5 * 60 * 1000;
+
+    private static final Object LOCK = new Object();
+    private static volatile boolean incrementalEnabled = true;
+    private static Map<String, StatusTotals> runningTotals;
+    private static long runningTotalsLoadedAt;
+
+    /**
+     * Enable or disable the in-memory incremental mode
+     */
+    public static void setIncrementalEnabled(boolean enabled) {
+        synchronized (LOCK) {
+            incrementalEnabled = enabled;
+            runningTotals = null;
+        }
+    }
+
+    /**
+     * Get order statistics, from the running totals when incremental mode is active
+     */
+    public OrderStats getOrderStats() {
+        if (incrementalEnabled) {
+            synchronized (LOCK) {
+                if (runningTotals != null
+                        && System.currentTimeMillis() - runningTotalsLoadedAt < RESYNC_INTERVAL_MS) {
+                    return buildStats(runningTotals);
+                }
+            }
+        }
+
+        Map<String, StatusTotals> totals = loadTotalsByStatus();
+        if (totals == null) {
+            return new OrderStats();
+        }
+
+        if (incrementalEnabled) {
+            synchronized (LOCK) {
+                runningTotals = totals;
+                runningTotalsLoadedAt = System.currentTimeMillis();
+                return buildStats(runningTotals);
+            }
+        }
+
+        return buildStats(totals);
+    }
+
+    /**
+     * Compute order statistics directly from SQL, bypassing the running totals
+     */
+    public OrderStats computeOrderStats() {
+        Map<String, StatusTotals> totals = loadTotalsByStatus();
+        return totals != null ? buildStats(totals) : new OrderStats();
+    }
+
+    /**
+     * Add a newly created order to the running totals
+     */
+    public void recordOrderCreated(Order order) {
+        synchronized (LOCK) {
+            if (runningTotals == null) return;
+            totalsFor(order.getStatus()).add(order.getTotalAmount(), order.getDiscountAmount(),
+                                             order.getPromoCode(), 1);
+        }
+    }
+
+    /**
+     * Move an order's contribution between status buckets after a status change
+     */
+    public void recordStatusChanged(OrderSnapshot before, String newStatus) {
+        if (before == null || newStatus == null || newStatus.equals(before.status)) return;
+
+        synchronized (LOCK) {
+            if (runningTotals == null) return;
+            totalsFor(before.status).add(before.totalAmount, before.discountAmount, before.promoCode, -1);
+            totalsFor(newStatus).add(before.totalAmount, before.discountAmount, before.promoCode, 1);
+        }
+    }
+
+    /**
+     * Read the fields of orders that contribute to the statistics, on the caller's connection.
+     * Inside a transaction the rows stay locked until it ends; they are locked in id order.
+     * @return Snapshots by order id; ids that do not exist are absent
+     */
+    public Map<Integer, OrderSnapshot> readOrderSnapshots(Connection connection, List<Integer> orderIds)
+            throws SQLException {
+        Map<Integer, OrderSnapshot> snapshots = new HashMap<>();
+        if (orderIds.isEmpty()) {
+            return snapshots;
+        }
+
+        StringBuilder sql = new StringBuilder(SELECT_ORDER_STATS_ROWS).append("(");
+        for (int i = 0; i < orderIds.size(); i++) {
+            sql.append(i > 0 ? ", ?" : "?");
+        }
+        sql.append(") ORDER BY id FOR UPDATE");
+
+        try (PreparedStatement statement = connection.prepareStatement(sql.toString())) {
+            for (int i = 0; i < orderIds.size(); i++) {
+                statement.setInt(i + 1, orderIds.get(i));
+            }
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    OrderSnapshot snapshot = new OrderSnapshot();
+                    snapshot.status = resultSet.getString("status");
+                    snapshot.totalAmount = resultSet.getBigDecimal("total_amount");
+                    snapshot.discountAmount = resultSet.getBigDecimal("discount_amount");
+                    snapshot.promoCode = resultSet.getString("promo_code");
+                    snapshots.put(resultSet.getInt("id"), snapshot);
+                }
+            }
+        }
+        return snapshots;
+    }
+
+    /**
+     * Run the grouped statistics query
+     */
+    private Map<String, StatusTotals> loadTotalsByStatus() {
+        Map<String, StatusTotals> totals = new HashMap<>();
+
+        try (Connection connection = DatabaseConnection.getConnection();
+             PreparedStatement statement = connection.prepareStatement(SELECT_ORDER_STATS_BY_STATUS);
+             ResultSet resultSet = statement.executeQuery()) {
+
+            while (resultSet.next()) {
+                StatusTotals statusTotals = new StatusTotals();
+                statusTotals.orderCount = resultSet.getLong("order_count");
+                statusTotals.revenue = resultSet.getBigDecimal("revenue");
+                statusTotals.promoOrders = resultSet.getLong("promo_orders");
+                statusTotals.promoDiscount = resultSet.getBigDecimal("promo_discount");
+                totals.put(statusKey(resultSet.getString("status")), statusTotals);
+            }
+
+            return totals;
+
+        } catch (SQLException e) {
+            LOG.error("Error computing order statistics", e);
+        }
+
+        return null;
+    }
+
+    private StatusTotals totalsFor(String status) {
+        return runningTotals.computeIfAbsent(statusKey(status), key -> new StatusTotals());
+    }
+
+    private static String statusKey(String status) {
+        return status != null ? status : "unknown";
+    }
+
+    /**
+     * Fold per-status totals into the dashboard statistics
+     */
+    private OrderStats buildStats(Map<String, StatusTotals> totals) {
+        OrderStats stats = new OrderStats();
+
+        for (Map.Entry<String, StatusTotals> entry : totals.entrySet()) {
+            String status = entry.getKey();
+            StatusTotals statusTotals = entry.getValue();
+            int count = (int) statusTotals.orderCount;
+
+            stats.totalOrders += count;
+            switch (status) {
+                case Order.STATUS_PENDING:
+                    stats.pendingOrders += count;
+                    break;
+                case Order.STATUS_CONFIRMED:
+                    stats.confirmedOrders += count;
+                    break;
+                case Order.STATUS_SHIPPED:
+                    stats.shippedOrders += count;
+                    break;
+                case Order.STATUS_DELIVERED:
+                    stats.deliveredOrders += count;
+                    break;
+                case Order.STATUS_CANCELLED:
+                    stats.cancelledOrders += count;
+                    break;
+                default:
+                    break;
+            }
+
+            // Revenue and promo figures exclude cancelled orders
+            if (!Order.STATUS_CANCELLED.equals(status)) {
+                stats.totalRevenue = stats.totalRevenue.add(statusTotals.revenue);
+                stats.ordersWithPromo += (int) statusTotals.promoOrders;
+                stats.totalDiscount = stats.totalDiscount.add(statusTotals.promoDiscount);
+            }
+        }
+
+        stats.revenueWithoutDiscount = stats.totalRevenue.add(stats.totalDiscount);
+        return stats;
+    }
+
+    /**
+     * Running totals for a single order status
+     */
+    private static class StatusTotals {
+        long orderCount;
+        BigDecimal revenue = BigDecimal.ZERO;
+        long promoOrders;
+        BigDecimal promoDiscount = BigDecimal.ZERO;
+
+        void add(BigDecimal totalAmount, BigDecimal discountAmount, String promoCode, int sign) {
+            BigDecimal multiplier = BigDecimal.valueOf(sign);
+            orderCount += sign;
+            if (totalAmount == null) return;
+
+            revenue = revenue.add(totalAmount.multiply(multiplier));
+            if (promoCode != null && !promoCode.trim().isEmpty()) {
+                promoOrders += sign;
+                if (discountAmount != null && discountAmount.compareTo(BigDecimal.ZERO) > 0) {
+                    promoDiscount = promoDiscount.add(discountAmount.multiply(multiplier));
+                }
+            }
+        }
+    }
+
+    /**
+     * Statistics-relevant fields of an order captured before a change
+     */
+    public static class OrderSnapshot {
+        public String status;
+        public BigDecimal totalAmount;
+        public BigDecimal discountAmount;
+        public String promoCode;
+    }
+
+    /**
+     * Inner class for order statistics
+     */
+    public static class OrderStats {
+        public int totalOrders;
+        public int pendingOrders;
+        public int confirmedOrders;
+        public int shippedOrders;
+        public int deliveredOrders;
+        public int cancelledOrders;
+        public BigDecimal totalRevenue = BigDecimal.ZERO;
+        public int ordersWithPromo;
+        public BigDecimal totalDiscount = BigDecimal.ZERO;
+        public BigDecimal revenueWithoutDiscount = BigDecimal.ZERO;
+    }
+}
@@ -7,16 +7,86 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.pahanaedu.models.PromoCode;
 import com.pahanaedu.utils.DatabaseConnection;
+import com.pahanaedu.utils.Log;
+import com.pahanaedu.utils.QueryCache;
+import com.pahanaedu.utils.SingleFlight;
 
 /**
  * PromoCode Data Access Object
  * Handles all database operations for promotional codes
+ * 
+ * Lookups by code are served from a short-lived cache. Usage is counted in
+ * memory per promo code: redeemUsage reserves one use with a compare-and-set
+ * against the usage limit, so concurrent checkouts never exceed the limit and
+ * never wait on the promo_codes row lock. Counted uses are added to the
+ * database in periodic batched updates.
  */
 public class PromoCodeDAO {
     
+    private static final Log LOG = Log.get(PromoCodeDAO.class);
+    
+    private static final String INCREMENT_USAGE_COUNT = 
+        "UPDATE promo_codes SET usage_count = usage_count + ?, " +
+        "updated_at = CURRENT_TIMESTAMP WHERE id = ?";
+    
+    private static final String SELECT_USAGE = 
+        "SELECT usage_count, usage_limit FROM promo_codes WHERE id = ?";
+    
+    private static final long USAGE_FLUSH_INTERVAL_MS = 1000;
+    
+    // Promo codes by normalized code, shared by all PromoCodeDAO instances
+    private static final QueryCache<String, PromoCode> PROMO_CACHE =
+        new QueryCache<>("promo", 512, 30 * 1000);
+    
+    // Concurrent reads of the active promo code list share one query
+    private static final String ACTIVE_READ_KEY = "active";
+    private static final SingleFlight<String, List<PromoCode>> ACTIVE_READS = new SingleFlight<>("active-promos");
+    
+    // Authoritative in-memory usage counters by promo code id
+    private static final Map<Integer, UsageCounter> USAGE_COUNTERS = new ConcurrentHashMap<>();
+    
+    private static final ScheduledExecutorService USAGE_FLUSHER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "promo-usage-flusher");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    static {
+        USAGE_FLUSHER.scheduleWithFixedDelay(PromoCodeDAO::flushUsageCounts,
+                                             USAGE_FLUSH_INTERVAL_MS, USAGE_FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Stop the usage flusher and write any counted uses to the database
+     */
+    public static void shutdown() {
+        USAGE_FLUSHER.shutdown();
+        flushUsageCounts();
+    }
+    
+    /**
+     * Get promo code cache hit/miss/eviction counters
+     */
+    public static QueryCache.Stats getPromoCacheStats() {
+        return PROMO_CACHE.getStats();
+    }
+    
+    /**
+     * Get single-flight counters for the active promo code list
+     */
+    public static SingleFlight.Stats getActiveReadStats() {
+        return ACTIVE_READS.getStats();
+    }
+    
     /**
      * Create a new promo code
      */
@@ -57,13 +127,13 @@ public class PromoCodeDAO {
                 if (keys.next()) {
                     promoCode.setId(keys.getInt(1));
                 }
-                System.out.println("PromoCodeDAO: Created promo code - " + promoCode.getCode());
+                ACTIVE_READS.forgetAll();
+                LOG.debug("Created promo code", "code", promoCode.getCode());
                 return true;
             }
             
         } catch (SQLException e) {
-            System.err.println("PromoCodeDAO: Error creating promo code - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error creating promo code", e);
         }
         
         return false;
@@ -89,11 +159,10 @@ public class PromoCodeDAO {
                 promoCodes.add(promoCode);
             }
             
-            System.out.println("PromoCodeDAO: Retrieved " + promoCodes.size() + " promo codes");
+            LOG.debug("Retrieved promo codes", "promoCodesCount", promoCodes.size());
             
         } catch (SQLException e) {
-            System.err.println("PromoCodeDAO: Error retrieving promo codes - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error retrieving promo codes", e);
         }
         
         return promoCodes;
@@ -121,32 +190,51 @@ public class PromoCodeDAO {
             }
             
         } catch (SQLException e) {
-            System.err.println("PromoCodeDAO: Error retrieving promo code by ID - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error retrieving promo code by ID", e);
         }
         
         return null;
     }
     
     /**
-     * Get promo code by code string
+     * Get promo code by code string.
+     * Served from the promo cache; the usage count reflects uses not yet flushed.
      */
     public PromoCode getPromoCodeByCode(String code) {
+        String normalizedCode = code.toUpperCase().trim();
+        PromoCode cached = PROMO_CACHE.getOrLoad(normalizedCode, () -> loadPromoCodeByCode(normalizedCode));
+        if (cached == null) {
+            return null;
+        }
+        
+        // Hand out a copy so callers never see or modify the shared instance
+        PromoCode promoCode = copyOf(cached);
+        UsageCounter counter = USAGE_COUNTERS.get(promoCode.getId());
+        if (counter != null) {
+            promoCode.setUsageCount(counter.used.get());
+        }
+        return promoCode;
+    }
+    
+    private PromoCode loadPromoCodeByCode(String code) {
         String sql = "SELECT * FROM promo_codes WHERE code = ?";
         
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
-            stmt.setString(1, code.toUpperCase().trim());
+            stmt.setString(1, code);
             ResultSet rs = stmt.executeQuery();
             
             if (rs.next()) {
-                return mapResultSetToPromoCode(rs);
+                PromoCode promoCode = mapResultSetToPromoCode(rs);
+                UsageCounter counter = USAGE_COUNTERS.computeIfAbsent(promoCode.getId(),
+                        id -> new UsageCounter(promoCode.getUsageCount()));
+                counter.limit = promoCode.getUsageLimit();
+                return promoCode;
             }
             
         } catch (SQLException e) {
-            System.err.println("PromoCodeDAO: Error retrieving promo code by code - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error retrieving promo code by code", e);
         }
         
         return null;
@@ -189,13 +277,19 @@ public class PromoCodeDAO {
             int rowsAffected = stmt.executeUpdate();
             
             if (rowsAffected > 0) {
-                System.out.println("PromoCodeDAO: Updated promo code - " + promoCode.getCode());
+                // The code itself may have changed, so drop every cached lookup
+                PROMO_CACHE.invalidateAll();
+                ACTIVE_READS.forgetAll();
+                UsageCounter counter = USAGE_COUNTERS.get(promoCode.getId());
+                if (counter != null) {
+                    counter.limit = promoCode.getUsageLimit();
+                }
+                LOG.debug("Updated promo code", "code", promoCode.getCode());
                 return true;
             }
             
         } catch (SQLException e) {
-            System.err.println("PromoCodeDAO: Error updating promo code - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error updating promo code", e);
         }
         
         return false;
@@ -214,13 +308,15 @@ public class PromoCodeDAO {
             int rowsAffected = stmt.executeUpdate();
             
             if (rowsAffected > 0) {
-                System.out.println("PromoCodeDAO: Deleted promo code with ID - " + id);
+                PROMO_CACHE.invalidateAll();
+                ACTIVE_READS.forgetAll();
+                USAGE_COUNTERS.remove(id);
+                LOG.debug("Deleted promo code with ID", "id", id);
                 return true;
             }
             
         } catch (SQLException e) {
-            System.err.println("PromoCodeDAO: Error deleting promo code - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error deleting promo code", e);
         }
         
         return false;
@@ -244,7 +340,7 @@ public class PromoCodeDAO {
             }
             
         } catch (SQLException e) {
-            System.err.println("PromoCodeDAO: Error checking promo code existence - " + e.getMessage());
+            LOG.error("Error checking promo code existence", "error", e.getMessage());
         }
         
         return false;
@@ -258,34 +354,140 @@ public class PromoCodeDAO {
     }
     
     /**
-     * Increment usage count
+     * Increment usage count.
+     * Counts one use without enforcing the usage limit; prefer redeemUsage.
      */
     public boolean incrementUsageCount(int promoCodeId) {
-        String sql = "UPDATE promo_codes SET usage_count = usage_count + 1, " +
-                    "updated_at = CURRENT_TIMESTAMP WHERE id = ?";
+        UsageCounter counter = getUsageCounter(promoCodeId);
+        if (counter == null) {
+            return false;
+        }
+        
+        counter.used.incrementAndGet();
+        counter.pending.incrementAndGet();
+        return true;
+    }
+    
+    /**
+     * Reserve one use of a promo code, atomically enforcing its usage limit
+     * @return false if the limit has been reached or the promo code does not exist
+     */
+    public boolean redeemUsage(int promoCodeId) {
+        UsageCounter counter = getUsageCounter(promoCodeId);
+        if (counter == null) {
+            return false;
+        }
+        
+        if (counter.tryAcquire()) {
+            return true;
+        }
+        
+        LOG.debug("Usage limit reached for promo code ID", "promoCodeId", promoCodeId);
+        return false;
+    }
+    
+    /**
+     * Give back a use reserved by redeemUsage, e.g. when the order was not placed or was cancelled
+     */
+    public void releaseUsage(int promoCodeId) {
+        UsageCounter counter = getUsageCounter(promoCodeId);
+        if (counter != null) {
+            counter.used.decrementAndGet();
+            counter.pending.decrementAndGet();
+        }
+    }
+    
+    /**
+     * Get the usage counter of a promo code, reading its current count on first use
+     */
+    private UsageCounter getUsageCounter(int promoCodeId) {
+        UsageCounter counter = USAGE_COUNTERS.get(promoCodeId);
+        if (counter != null) {
+            return counter;
+        }
         
         try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+             PreparedStatement stmt = conn.prepareStatement(SELECT_USAGE)) {
             
             stmt.setInt(1, promoCodeId);
-            int rowsAffected = stmt.executeUpdate();
+            ResultSet rs = stmt.executeQuery();
             
-            if (rowsAffected > 0) {
-                System.out.println("PromoCodeDAO: Incremented usage count for promo code ID - " + promoCodeId);
-                return true;
+            if (rs.next()) {
+                int usageCount = rs.getInt("usage_count");
+                Integer usageLimit = rs.getObject("usage_limit", Integer.class);
+                counter = USAGE_COUNTERS.computeIfAbsent(promoCodeId, id -> new UsageCounter(usageCount));
+                counter.limit = usageLimit;
+                return counter;
             }
             
         } catch (SQLException e) {
-            System.err.println("PromoCodeDAO: Error incrementing usage count - " + e.getMessage());
+            LOG.error("Error reading usage count", "error", e.getMessage());
         }
         
-        return false;
+        return null;
+    }
+    
+    /**
+     * Add the uses counted since the last flush to promo_codes in one batch
+     */
+    private static void flushUsageCounts() {
+        List<Integer> ids = new ArrayList<>();
+        List<Integer> deltas = new ArrayList<>();
+        
+        for (Map.Entry<Integer, UsageCounter> entry : USAGE_COUNTERS.entrySet()) {
+            int delta = entry.getValue().pending.get();
+            if (delta != 0) {
+                ids.add(entry.getKey());
+                deltas.add(delta);
+            }
+        }
+        
+        if (ids.isEmpty()) {
+            return;
+        }
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(INCREMENT_USAGE_COUNT)) {
+            
+            conn.setAutoCommit(false);
+            for (int i = 0; i < ids.size(); i++) {
+                stmt.setInt(1, deltas.get(i));
+                stmt.setInt(2, ids.get(i));
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+            conn.commit();
+            
+            // Only subtract what was written; uses counted meanwhile stay pending
+            for (int i = 0; i < ids.size(); i++) {
+                UsageCounter counter = USAGE_COUNTERS.get(ids.get(i));
+                if (counter != null) {
+                    counter.pending.addAndGet(-deltas.get(i));
+                }
+            }
+            
+        } catch (SQLException e) {
+            LOG.error("Error flushing usage counts", "error", e.getMessage());
+        } catch (Exception e) {
+            LOG.error("Usage flush failed", "error", e.getMessage());
+        }
     }
     
     /**
      * Get active promo codes
      */
     public List<PromoCode> getActivePromoCodes() {
+        List<PromoCode> shared = ACTIVE_READS.execute(ACTIVE_READ_KEY, this::loadActivePromoCodes);
+        
+        // Hand out copies so concurrent callers never modify each other's instances
+        List<PromoCode> promoCodes = new ArrayList<>(shared.size());
+        for (PromoCode promoCode : shared) {
+            promoCodes.add(copyOf(promoCode));
+        }
+        return promoCodes;
+    }
+    
+    private List<PromoCode> loadActivePromoCodes() {
         List<PromoCode> promoCodes = new ArrayList<>();
         String sql = "SELECT * FROM promo_codes WHERE status = ? AND start_date <= CURDATE() " +
                     "AND end_date >= CURDATE() ORDER BY created_at DESC";
@@ -301,7 +503,7 @@ public class PromoCodeDAO {
             }
             
         } catch (SQLException e) {
-            System.err.println("PromoCodeDAO: Error retrieving active promo codes - " + e.getMessage());
+            LOG.error("Error retrieving active promo codes", "error", e.getMessage());
         }
         
         return promoCodes;
@@ -334,12 +536,37 @@ public class PromoCodeDAO {
             }
             
         } catch (SQLException e) {
-            System.err.println("PromoCodeDAO: Error retrieving promo code stats - " + e.getMessage());
+            LOG.error("Error retrieving promo code stats", "error", e.getMessage());
         }
         
         return stats;
     }
     
+    /**
+     * Copy a promo code
+     */
+    private PromoCode copyOf(PromoCode source) {
+        PromoCode promoCode = new PromoCode();
+        
+        promoCode.setId(source.getId());
+        promoCode.setCode(source.getCode());
+        promoCode.setDescription(source.getDescription());
+        promoCode.setDiscountType(source.getDiscountType());
+        promoCode.setDiscountValue(source.getDiscountValue());
+        promoCode.setMinimumOrderAmount(source.getMinimumOrderAmount());
+        promoCode.setUsageLimit(source.getUsageLimit());
+        promoCode.setUsageCount(source.getUsageCount());
+        promoCode.setStartDate(source.getStartDate());
+        promoCode.setEndDate(source.getEndDate());
+        promoCode.setStatus(source.getStatus());
+        promoCode.setCreatedBy(source.getCreatedBy());
+        promoCode.setCreatedAt(source.getCreatedAt());
+        promoCode.setUpdatedAt(source.getUpdatedAt());
+        promoCode.setCreatedByName(source.getCreatedByName());
+        
+        return promoCode;
+    }
+    
     /**
      * Map ResultSet to PromoCode object
      */
@@ -356,7 +583,9 @@ public class PromoCodeDAO {
         Integer usageLimit = rs.getObject("usage_limit", Integer.class);
         promoCode.setUsageLimit(usageLimit);
         
-        promoCode.setUsageCount(rs.getInt("usage_count"));
+        // Include uses counted in memory but not yet flushed
+        UsageCounter counter = USAGE_COUNTERS.get(promoCode.getId());
+        promoCode.setUsageCount(counter != null ? counter.used.get() : rs.getInt("usage_count"));
         promoCode.setStartDate(rs.getDate("start_date"));
         promoCode.setEndDate(rs.getDate("end_date"));
         promoCode.setStatus(rs.getString("status"));
@@ -377,4 +606,33 @@ public class PromoCodeDAO {
         public int expiredCodes;
         public int totalUsage;
     }
-}
\ No newline at end of file
+    
+    /**
+     * In-memory usage count of one promo code
+     */
+    private static class UsageCounter {
+        // Uses including those not yet written to the database
+        private final AtomicInteger used;
+        // Uses counted since the last flush; negative after releases
+        private final AtomicInteger pending = new AtomicInteger();
+        private volatile Integer limit;
+        
+        private UsageCounter(int usageCount) {
+            this.used = new AtomicInteger(usageCount);
+        }
+        
+        private boolean tryAcquire() {
+            while (true) {
+                int current = used.get();
+                Integer usageLimit = limit;
+                if (usageLimit != null && current >= usageLimit) {
+                    return false;
+                }
+                if (used.compareAndSet(current, current + 1)) {
+                    pending.incrementAndGet();
+                    return true;
+                }
+            }
+        }
+    }
+}
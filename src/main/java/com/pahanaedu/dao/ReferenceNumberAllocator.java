@@ -0,0 +1,153 @@
+package com.pahanaedu.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.pahanaedu.utils.DatabaseConnection;
+import com.pahanaedu.utils.Log;
+
+/**
+ * Sequence-backed allocator for human-readable reference numbers.
+ *
+ * Each named sequence is one row in reference_sequences holding the highest
+ * number ever reserved. A range is reserved with a single atomic UPDATE that
+ * returns the new high-water mark through LAST_INSERT_ID, so concurrent
+ * reservations, on this node or any other, never overlap. Single numbers are
+ * handed out from an in-memory block without touching the database. Numbers
+ * left in a block when the application stops are skipped, never reused.
+ */
+class ReferenceNumberAllocator {
+
+    private static final Log LOG = Log.get(ReferenceNumberAllocator.class);
+
+    private static final String CREATE_SEQUENCE_TABLE =
+        "CREATE TABLE IF NOT EXISTS reference_sequences (" +
+        "name VARCHAR(64) NOT NULL PRIMARY KEY, " +
+        "high_water BIGINT NOT NULL)";
+
+    private static final String RESERVE_RANGE =
+        "UPDATE reference_sequences SET high_water = LAST_INSERT_ID(high_water + ?) WHERE name = ?";
+
+    private static final String SELECT_LAST_INSERT_ID = "SELECT LAST_INSERT_ID()";
+
+    private final String sequenceName;
+    private final int blockSize;
+    private final String seedQuery;
+
+    private volatile Block currentBlock;
+    private volatile boolean sequenceReady;
+
+    /**
+     * @param seedQuery Query that selects the sequence name and the highest number already in use,
+     *                  used once to create the sequence row; it takes the name as its only parameter
+     */
+    ReferenceNumberAllocator(String sequenceName, int blockSize, String seedQuery) {
+        this.sequenceName = sequenceName;
+        this.blockSize = blockSize;
+        this.seedQuery = seedQuery;
+    }
+
+    /**
+     * Take the next number from the in-memory block, reserving a new block when it runs out
+     * @return The number, or -1 if a new block could not be reserved
+     */
+    long next() {
+        while (true) {
+            Block block = currentBlock;
+            if (block != null) {
+                long value = block.cursor.getAndIncrement();
+                if (value <= block.last) {
+                    return value;
+                }
+            }
+
+            synchronized (this) {
+                // Another thread may have refilled while this one waited
+                if (currentBlock == block) {
+                    long first = reserve(blockSize);
+                    if (first < 0) {
+                        return -1;
+                    }
+                    currentBlock = new Block(first, first + blockSize - 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reserve a range of consecutive numbers directly from the sequence
+     * @return First number of the range, or -1 on a database error
+     */
+    long reserve(int count) {
+        try (Connection connection = DatabaseConnection.getConnection()) {
+
+            if (!sequenceReady) {
+                createSequence(connection);
+            }
+
+            try (PreparedStatement statement = connection.prepareStatement(RESERVE_RANGE)) {
+                statement.setInt(1, count);
+                statement.setString(2, sequenceName);
+
+                if (statement.executeUpdate() == 0) {
+                    // The row was removed after startup; recreate it and retry once
+                    sequenceReady = false;
+                    createSequence(connection);
+                    if (statement.executeUpdate() == 0) {
+                        LOG.warn("Sequence is missing", "sequenceName", sequenceName);
+                        return -1;
+                    }
+                }
+            }
+
+            // LAST_INSERT_ID is per connection, so this reads our own reservation
+            try (Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery(SELECT_LAST_INSERT_ID)) {
+
+                if (resultSet.next()) {
+                    return resultSet.getLong(1) - count + 1;
+                }
+            }
+
+        } catch (SQLException e) {
+            LOG.error("Error reserving numbers", e, "count", count, "sequenceName", sequenceName);
+        }
+
+        return -1;
+    }
+
+    /**
+     * Create the sequence table and row if missing, seeding the row from existing data
+     */
+    private void createSequence(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(CREATE_SEQUENCE_TABLE);
+        }
+
+        // INSERT IGNORE keeps the existing row if another node created it first
+        try (PreparedStatement statement = connection.prepareStatement(
+                "INSERT IGNORE INTO reference_sequences (name, high_water) " + seedQuery)) {
+            statement.setString(1, sequenceName);
+            statement.executeUpdate();
+        }
+
+        sequenceReady = true;
+    }
+
+    /**
+     * Range of reserved numbers handed out in order
+     */
+    private static final class Block {
+        private final AtomicLong cursor;
+        private final long last;
+
+        private Block(long first, long last) {
+            this.cursor = new AtomicLong(first);
+            this.last = last;
+        }
+    }
+}
@@ -0,0 +1,424 @@
+package com.pahanaedu.dao;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.pahanaedu.models.Order;
+import com.pahanaedu.utils.DatabaseConnection;
+import com.pahanaedu.utils.Log;
+
+/**
+ * Data Access Object for the unified sales ledger.
+ *
+ * Online orders and POS sales are both recorded in sales_ledger, an
+ * append-only table written in the same transaction that creates an order or
+ * changes its status. A new order appends one "sale" entry per line plus, when
+ * discounts or shipping make the order total differ from its lines, one
+ * adjustment entry without an item. Cancelling appends "cancel" entries that
+ * negate the sale entries, and reinstating appends "reinstate" entries that
+ * restore them; entries are never updated or deleted.
+ *
+ * Entries carry the sale date of the original order and every reporting index
+ * leads with it, so a date-range query reads only that slice of an index that
+ * also covers the summed columns. Item and category groupings report line
+ * amounts before order-level discounts and shipping; the other groupings
+ * include them and match the order totals.
+ *
+ * The table is created at application startup (or, failing that, on first
+ * use) and filled from the order tables when it is empty. The check and the
+ * backfill run under a database-wide named lock, so two nodes starting
+ * together cannot both backfill and double the history. Until the ledger is
+ * available, recording throws, so the order write is rolled back rather than
+ * committed without its entries.
+ */
+public class SalesLedgerDAO {
+
+    private static final Log LOG = Log.get(SalesLedgerDAO.class);
+
+    public static final String ENTRY_SALE = "sale";
+    public static final String ENTRY_CANCEL = "cancel";
+    public static final String ENTRY_REINSTATE = "reinstate";
+
+    // Longest range a single query may cover
+    private static final int MAX_RANGE_DAYS = 366 * 10;
+
+    private static final String CREATE_LEDGER_TABLE =
+        "CREATE TABLE IF NOT EXISTS sales_ledger (" +
+        "id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY, " +
+        "recorded_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, " +
+        "sale_date DATE NOT NULL, " +
+        "channel VARCHAR(16) NOT NULL, " +
+        "order_id INT NOT NULL, " +
+        "cashier_id INT NOT NULL, " +
+        "item_id INT NULL, " +
+        "category_id INT NULL, " +
+        "entry_type VARCHAR(16) NOT NULL, " +
+        "quantity INT NOT NULL, " +
+        "amount DECIMAL(14,2) NOT NULL, " +
+        "KEY idx_sales_ledger_order (channel, order_id), " +
+        "KEY idx_sales_ledger_day (sale_date, channel, cashier_id, quantity, amount), " +
+        "KEY idx_sales_ledger_item (sale_date, item_id, quantity, amount), " +
+        "KEY idx_sales_ledger_category (sale_date, category_id, quantity, amount))";
+
+    private static final String SELECT_ANY_ENTRY =
+        "SELECT 1 FROM sales_ledger LIMIT 1";
+
+    // Named lock held by the node checking and backfilling the ledger
+    private static final String BACKFILL_LOCK_NAME = "pahanaedu.sales_ledger.backfill";
+    private static final int BACKFILL_LOCK_TIMEOUT_SECONDS = 300;
+
+    private static final String GET_BACKFILL_LOCK = "SELECT GET_LOCK(?, ?)";
+    private static final String RELEASE_BACKFILL_LOCK = "SELECT RELEASE_LOCK(?)";
+
+    private static final String LEDGER_COLUMNS =
+        "(sale_date, channel, order_id, cashier_id, item_id, category_id, entry_type, quantity, amount) ";
+
+    private static final String ORDER_FILTER = "WHERE o.id = ?";
+
+    private static final String APPEND_ONLINE_LINES = onlineLinesSql(ORDER_FILTER);
+    private static final String APPEND_ONLINE_ADJUSTMENT = onlineAdjustmentSql(ORDER_FILTER);
+    private static final String APPEND_POS_LINES = posLinesSql(ORDER_FILTER);
+    private static final String APPEND_POS_ADJUSTMENT = posAdjustmentSql(ORDER_FILTER);
+
+    // Parameters: entry type, sign, sign, channel, order id
+    private static final String APPEND_REVERSAL =
+        "INSERT INTO sales_ledger " + LEDGER_COLUMNS +
+        "SELECT sale_date, channel, order_id, cashier_id, item_id, category_id, ?, ? * quantity, ? * amount " +
+        "FROM sales_ledger WHERE channel = ? AND order_id = ? AND entry_type = '" + ENTRY_SALE + "'";
+
+    // Parameters: entry type, sign, sign, channel, then the order ids
+    private static final String APPEND_REVERSALS =
+        "INSERT INTO sales_ledger " + LEDGER_COLUMNS +
+        "SELECT sale_date, channel, order_id, cashier_id, item_id, category_id, ?, ? * quantity, ? * amount " +
+        "FROM sales_ledger WHERE channel = ? AND entry_type = '" + ENTRY_SALE + "' AND order_id IN ";
+
+    private static final String BACKFILL_CANCELLED =
+        "INSERT INTO sales_ledger " + LEDGER_COLUMNS +
+        "SELECT l.sale_date, l.channel, l.order_id, l.cashier_id, l.item_id, l.category_id, " +
+        "'" + ENTRY_CANCEL + "', -l.quantity, -l.amount FROM sales_ledger l " +
+        "LEFT JOIN orders o ON l.channel = '" + SalesRollupDAO.CHANNEL_ONLINE + "' AND o.id = l.order_id " +
+        "LEFT JOIN cashier_orders co ON l.channel = '" + SalesRollupDAO.CHANNEL_POS + "' AND co.id = l.order_id " +
+        "WHERE o.status = 'cancelled' OR co.status = 'cancelled'";
+
+    private static final Object LOCK = new Object();
+    private static volatile boolean ready;
+
+    private static String onlineLinesSql(String filter) {
+        return "INSERT INTO sales_ledger " + LEDGER_COLUMNS +
+            "SELECT DATE(o.created_at), '" + SalesRollupDAO.CHANNEL_ONLINE + "', o.id, 0, oi.item_id, i.category_id, " +
+            "'" + ENTRY_SALE + "', oi.quantity, oi.quantity * oi.price " +
+            "FROM orders o JOIN order_items oi ON oi.order_id = o.id " +
+            "LEFT JOIN items i ON i.id = oi.item_id " + filter;
+    }
+
+    private static String onlineAdjustmentSql(String filter) {
+        return "INSERT INTO sales_ledger " + LEDGER_COLUMNS +
+            "SELECT * FROM (SELECT DATE(o.created_at) as sale_date, '" + SalesRollupDAO.CHANNEL_ONLINE + "' as channel, " +
+            "o.id as order_id, 0 as cashier_id, NULL as item_id, NULL as category_id, " +
+            "'" + ENTRY_SALE + "' as entry_type, 0 as quantity, " +
+            "COALESCE(o.total_amount, 0) - COALESCE(SUM(oi.quantity * oi.price), 0) as amount " +
+            "FROM orders o LEFT JOIN order_items oi ON oi.order_id = o.id " + filter + " GROUP BY o.id) adjustment " +
+            "WHERE adjustment.amount <> 0";
+    }
+
+    private static String posLinesSql(String filter) {
+        return "INSERT INTO sales_ledger " + LEDGER_COLUMNS +
+            "SELECT DATE(o.created_at), '" + SalesRollupDAO.CHANNEL_POS + "', o.id, o.cashier_id, oi.item_id, i.category_id, " +
+            "'" + ENTRY_SALE + "', oi.quantity, oi.total_price " +
+            "FROM cashier_orders o JOIN cashier_order_items oi ON oi.cashier_order_id = o.id " +
+            "LEFT JOIN items i ON i.id = oi.item_id " + filter;
+    }
+
+    private static String posAdjustmentSql(String filter) {
+        return "INSERT INTO sales_ledger " + LEDGER_COLUMNS +
+            "SELECT * FROM (SELECT DATE(o.created_at) as sale_date, '" + SalesRollupDAO.CHANNEL_POS + "' as channel, " +
+            "o.id as order_id, o.cashier_id as cashier_id, NULL as item_id, NULL as category_id, " +
+            "'" + ENTRY_SALE + "' as entry_type, 0 as quantity, " +
+            "COALESCE(o.total_amount, 0) - COALESCE(SUM(oi.total_price), 0) as amount " +
+            "FROM cashier_orders o LEFT JOIN cashier_order_items oi ON oi.cashier_order_id = o.id " + filter +
+            " GROUP BY o.id) adjustment WHERE adjustment.amount <> 0";
+    }
+
+    /**
+     * Create and backfill the ledger table if needed. Call before opening the
+     * transaction that records into it, since DDL would commit that transaction.
+     * @return true if the ledger is available
+     */
+    public boolean prepare() {
+        if (ready) {
+            return true;
+        }
+
+        synchronized (LOCK) {
+            if (ready) {
+                return true;
+            }
+
+            try (Connection connection = DatabaseConnection.getConnection();
+                 Statement statement = connection.createStatement()) {
+
+                statement.execute(CREATE_LEDGER_TABLE);
+
+                acquireBackfillLock(connection);
+                try {
+                    boolean empty;
+                    try (ResultSet resultSet = statement.executeQuery(SELECT_ANY_ENTRY)) {
+                        empty = !resultSet.next();
+                    }
+
+                    if (empty) {
+                        backfill(connection, statement);
+                    }
+                } finally {
+                    releaseBackfillLock(connection);
+                }
+
+                ready = true;
+
+            } catch (SQLException e) {
+                LOG.error("Error preparing sales ledger", e);
+            }
+        }
+
+        return ready;
+    }
+
+    private void acquireBackfillLock(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(GET_BACKFILL_LOCK)) {
+            statement.setString(1, BACKFILL_LOCK_NAME);
+            statement.setInt(2, BACKFILL_LOCK_TIMEOUT_SECONDS);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (!resultSet.next() || resultSet.getInt(1) != 1) {
+                    throw new SQLException("Timed out waiting for the sales ledger backfill lock");
+                }
+            }
+        }
+    }
+
+    private void releaseBackfillLock(Connection connection) {
+        try (PreparedStatement statement = connection.prepareStatement(RELEASE_BACKFILL_LOCK)) {
+            statement.setString(1, BACKFILL_LOCK_NAME);
+            statement.executeQuery().close();
+        } catch (SQLException e) {
+            LOG.error("Error releasing sales ledger backfill lock", "error", e.getMessage());
+        }
+    }
+
+    /**
+     * Record the full history of both order tables in one transaction
+     */
+    private void backfill(Connection connection, Statement statement) throws SQLException {
+        long start = System.currentTimeMillis();
+        connection.setAutoCommit(false);
+
+        try {
+            int entries = statement.executeUpdate(onlineLinesSql(""));
+            entries += statement.executeUpdate(onlineAdjustmentSql(""));
+            entries += statement.executeUpdate(posLinesSql(""));
+            entries += statement.executeUpdate(posAdjustmentSql(""));
+            entries += statement.executeUpdate(BACKFILL_CANCELLED);
+            connection.commit();
+
+            LOG.info("Sales ledger backfilled", "entries", entries,
+                     "elapsedMs", System.currentTimeMillis() - start);
+
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Append sale entries for a newly inserted order, on the caller's transaction
+     */
+    public void recordOrderCreated(Connection connection, String channel, int orderId, String status)
+            throws SQLException {
+        requireReady();
+
+        boolean pos = SalesRollupDAO.CHANNEL_POS.equals(channel);
+        appendForOrder(connection, pos ? APPEND_POS_LINES : APPEND_ONLINE_LINES, orderId);
+        appendForOrder(connection, pos ? APPEND_POS_ADJUSTMENT : APPEND_ONLINE_ADJUSTMENT, orderId);
+
+        if (Order.STATUS_CANCELLED.equals(status)) {
+            appendReversal(connection, channel, orderId, ENTRY_CANCEL, -1);
+        }
+    }
+
+    /**
+     * Append cancel or reinstate entries for a status change, on the caller's transaction.
+     * Only moves into or out of cancelled affect the ledger.
+     */
+    public void recordStatusChanged(Connection connection, String channel, int orderId,
+                                    String previousStatus, String newStatus) throws SQLException {
+        requireReady();
+
+        boolean wasCancelled = Order.STATUS_CANCELLED.equals(previousStatus);
+        boolean isCancelled = Order.STATUS_CANCELLED.equals(newStatus);
+        if (wasCancelled == isCancelled) return;
+
+        if (isCancelled) {
+            appendReversal(connection, channel, orderId, ENTRY_CANCEL, -1);
+        } else {
+            appendReversal(connection, channel, orderId, ENTRY_REINSTATE, 1);
+        }
+    }
+
+    /**
+     * Append cancel (or reinstate) entries for many orders that all moved into
+     * (or all moved out of) cancelled, with one statement on the caller's transaction
+     */
+    public void recordCancellationChanges(Connection connection, String channel, List<Integer> orderIds,
+                                          boolean cancelled) throws SQLException {
+        requireReady();
+        if (orderIds.isEmpty()) return;
+
+        String sql = APPEND_REVERSALS + buildPlaceholders(orderIds.size());
+        int sign = cancelled ? -1 : 1;
+
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, cancelled ? ENTRY_CANCEL : ENTRY_REINSTATE);
+            statement.setInt(2, sign);
+            statement.setInt(3, sign);
+            statement.setString(4, channel);
+            for (int i = 0; i < orderIds.size(); i++) {
+                statement.setInt(i + 5, orderIds.get(i));
+            }
+            statement.executeUpdate();
+        }
+    }
+
+    private void requireReady() throws SQLException {
+        if (!ready) {
+            throw new SQLException("Sales ledger is unavailable");
+        }
+    }
+
+    private static String buildPlaceholders(int count) {
+        StringBuilder placeholders = new StringBuilder("(");
+        for (int i = 0; i < count; i++) {
+            placeholders.append(i > 0 ? ", ?" : "?");
+        }
+        return placeholders.append(")").toString();
+    }
+
+    private void appendForOrder(Connection connection, String sql, int orderId) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setInt(1, orderId);
+            statement.executeUpdate();
+        }
+    }
+
+    private void appendReversal(Connection connection, String channel, int orderId,
+                                String entryType, int sign) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(APPEND_REVERSAL)) {
+            statement.setString(1, entryType);
+            statement.setInt(2, sign);
+            statement.setInt(3, sign);
+            statement.setString(4, channel);
+            statement.setInt(5, orderId);
+            statement.executeUpdate();
+        }
+    }
+
+    /**
+     * Sum quantity and revenue over an inclusive date range, grouped as requested
+     * @param channel Channel to restrict to, or null for all channels
+     * @return One row per group ordered by group key, or an empty list on error
+     */
+    public List<LedgerRow> query(LocalDate from, LocalDate to, GroupBy groupBy, String channel) {
+        List<LedgerRow> rows = new ArrayList<>();
+
+        if (from == null || to == null || groupBy == null || to.isBefore(from)
+                || from.plusDays(MAX_RANGE_DAYS).isBefore(to) || !prepare()) {
+            return rows;
+        }
+
+        StringBuilder sql = new StringBuilder(256);
+        sql.append("SELECT g.group_key, g.quantity, g.revenue");
+        sql.append(groupBy.labelColumn != null ? ", " + groupBy.labelColumn : ", NULL");
+        sql.append(" as label FROM (SELECT ").append(groupBy.column).append(" as group_key, ")
+           .append("SUM(quantity) as quantity, SUM(amount) as revenue FROM sales_ledger ")
+           .append("WHERE sale_date BETWEEN ? AND ?");
+        if (channel != null) {
+            sql.append(" AND channel = ?");
+        }
+        if (groupBy.itemLevel) {
+            sql.append(" AND ").append(groupBy.column).append(" IS NOT NULL");
+        }
+        sql.append(" GROUP BY ").append(groupBy.column).append(") g");
+        if (groupBy.labelJoin != null) {
+            sql.append(" LEFT JOIN ").append(groupBy.labelJoin);
+        }
+        sql.append(" ORDER BY g.group_key");
+
+        try (Connection connection = DatabaseConnection.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql.toString())) {
+
+            statement.setDate(1, Date.valueOf(from));
+            statement.setDate(2, Date.valueOf(to));
+            if (channel != null) {
+                statement.setString(3, channel);
+            }
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    LedgerRow row = new LedgerRow();
+                    row.key = resultSet.getString("group_key");
+                    row.label = resultSet.getString("label");
+                    row.quantity = resultSet.getLong("quantity");
+                    row.revenue = resultSet.getBigDecimal("revenue");
+                    rows.add(row);
+                }
+            }
+
+        } catch (SQLException e) {
+            LOG.error("Error querying sales ledger", e, "groupBy", groupBy, "from", from, "to", to);
+        }
+
+        return rows;
+    }
+
+    /**
+     * Supported groupings; the column names are fixed here, never taken from input
+     */
+    public enum GroupBy {
+        DAY("sale_date", false, null, null),
+        CHANNEL("channel", false, null, null),
+        CASHIER("cashier_id", false, "CONCAT(u.first_name, ' ', u.last_name)", "users u ON u.id = g.group_key"),
+        ITEM("item_id", true, "i.title", "items i ON i.id = g.group_key"),
+        CATEGORY("category_id", true, "c.name", "categories c ON c.id = g.group_key");
+
+        private final String column;
+        private final boolean itemLevel;
+        private final String labelColumn;
+        private final String labelJoin;
+
+        GroupBy(String column, boolean itemLevel, String labelColumn, String labelJoin) {
+            this.column = column;
+            this.itemLevel = itemLevel;
+            this.labelColumn = labelColumn;
+            this.labelJoin = labelJoin;
+        }
+    }
+
+    /**
+     * Totals for one group in a ledger query
+     */
+    public static class LedgerRow {
+        public String key;
+        public String label;
+        public long quantity;
+        public BigDecimal revenue = BigDecimal.ZERO;
+    }
+}
@@ -0,0 +1,305 @@
+package com.pahanaedu.dao;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.pahanaedu.models.Order;
+import com.pahanaedu.utils.DatabaseConnection;
+import com.pahanaedu.utils.Log;
+
+/**
+ * Data Access Object for daily sales rollups.
+ *
+ * One row per day, channel and cashier holds the order count, the cancelled
+ * count and the revenue of non-cancelled orders. OrderDAO and CashierOrderDAO
+ * update the row inside the same transaction that creates an order or changes
+ * its status, so dashboards read today's figures with a primary key lookup
+ * instead of scanning the order tables. Online orders are recorded with
+ * cashier id 0. The day is taken from the order's created_at as stored by the
+ * database, so it matches the CURDATE() used when reading.
+ *
+ * The table is created at application startup (or, failing that, on first
+ * use) and filled from the order tables when it is empty. Until it is
+ * available, recording throws, so the order write is rolled back rather than
+ * committed without its rollup; a later backfill would otherwise find the
+ * table non-empty and never add the missed order. Reads fall back to querying
+ * the order tables.
+ */
+public class SalesRollupDAO {
+
+    private static final Log LOG = Log.get(SalesRollupDAO.class);
+
+    public static final String CHANNEL_ONLINE = "online";
+    public static final String CHANNEL_POS = "pos";
+
+    private static final String CREATE_ROLLUP_TABLE =
+        "CREATE TABLE IF NOT EXISTS daily_sales_rollups (" +
+        "sale_date DATE NOT NULL, " +
+        "channel VARCHAR(16) NOT NULL, " +
+        "cashier_id INT NOT NULL, " +
+        "order_count INT NOT NULL DEFAULT 0, " +
+        "cancelled_count INT NOT NULL DEFAULT 0, " +
+        "revenue DECIMAL(14,2) NOT NULL DEFAULT 0, " +
+        "PRIMARY KEY (sale_date, channel, cashier_id))";
+
+    private static final String SELECT_ANY_ROLLUP =
+        "SELECT 1 FROM daily_sales_rollups LIMIT 1";
+
+    // Backfill statements; INSERT IGNORE keeps rows another node wrote first
+    private static final String BACKFILL_ONLINE =
+        "INSERT IGNORE INTO daily_sales_rollups " +
+        "(sale_date, channel, cashier_id, order_count, cancelled_count, revenue) " +
+        "SELECT DATE(created_at), '" + CHANNEL_ONLINE + "', 0, COUNT(*), " +
+        "SUM(CASE WHEN status = 'cancelled' THEN 1 ELSE 0 END), " +
+        "COALESCE(SUM(CASE WHEN status = 'cancelled' THEN 0 ELSE total_amount END), 0) " +
+        "FROM orders GROUP BY DATE(created_at)";
+
+    private static final String BACKFILL_POS =
+        "INSERT IGNORE INTO daily_sales_rollups " +
+        "(sale_date, channel, cashier_id, order_count, cancelled_count, revenue) " +
+        "SELECT DATE(created_at), '" + CHANNEL_POS + "', cashier_id, COUNT(*), " +
+        "SUM(CASE WHEN status = 'cancelled' THEN 1 ELSE 0 END), " +
+        "COALESCE(SUM(CASE WHEN status = 'cancelled' THEN 0 ELSE total_amount END), 0) " +
+        "FROM cashier_orders GROUP BY DATE(created_at), cashier_id";
+
+    private static final String ON_DUPLICATE_ADD =
+        " ON DUPLICATE KEY UPDATE " +
+        "order_count = order_count + VALUES(order_count), " +
+        "cancelled_count = cancelled_count + VALUES(cancelled_count), " +
+        "revenue = revenue + VALUES(revenue)";
+
+    // Add one order; parameters are the cancelled delta (0 or 1), the revenue sign and the order id
+    private static final String ADD_ONLINE_ORDER =
+        "INSERT INTO daily_sales_rollups " +
+        "(sale_date, channel, cashier_id, order_count, cancelled_count, revenue) " +
+        "SELECT DATE(created_at), '" + CHANNEL_ONLINE + "', 0, ?, ?, ? * COALESCE(total_amount, 0) " +
+        "FROM orders WHERE id = ?" + ON_DUPLICATE_ADD;
+
+    private static final String ADD_POS_ORDER =
+        "INSERT INTO daily_sales_rollups " +
+        "(sale_date, channel, cashier_id, order_count, cancelled_count, revenue) " +
+        "SELECT DATE(created_at), '" + CHANNEL_POS + "', cashier_id, ?, ?, ? * COALESCE(total_amount, 0) " +
+        "FROM cashier_orders WHERE id = ?" + ON_DUPLICATE_ADD;
+
+    // Move many orders into or out of cancelled; parameters are the cancelled delta, the revenue sign and the order ids
+    private static final String MOVE_ONLINE_ORDERS =
+        "INSERT INTO daily_sales_rollups " +
+        "(sale_date, channel, cashier_id, order_count, cancelled_count, revenue) " +
+        "SELECT DATE(created_at), '" + CHANNEL_ONLINE + "', 0, 0, ? * COUNT(*), ? * COALESCE(SUM(total_amount), 0) " +
+        "FROM orders WHERE id IN %s GROUP BY DATE(created_at)" + ON_DUPLICATE_ADD;
+
+    private static final String MOVE_POS_ORDERS =
+        "INSERT INTO daily_sales_rollups " +
+        "(sale_date, channel, cashier_id, order_count, cancelled_count, revenue) " +
+        "SELECT DATE(created_at), '" + CHANNEL_POS + "', cashier_id, 0, ? * COUNT(*), ? * COALESCE(SUM(total_amount), 0) " +
+        "FROM cashier_orders WHERE id IN %s GROUP BY DATE(created_at), cashier_id" + ON_DUPLICATE_ADD;
+
+    private static final String SELECT_CASHIER_TODAY =
+        "SELECT order_count, cancelled_count, revenue FROM daily_sales_rollups " +
+        "WHERE sale_date = CURDATE() AND channel = '" + CHANNEL_POS + "' AND cashier_id = ?";
+
+    private static final String SELECT_TODAY_BY_CHANNEL =
+        "SELECT channel, SUM(order_count) as order_count, SUM(cancelled_count) as cancelled_count, " +
+        "COALESCE(SUM(revenue), 0) as revenue FROM daily_sales_rollups " +
+        "WHERE sale_date = CURDATE() GROUP BY channel";
+
+    private static final Object LOCK = new Object();
+    private static volatile boolean ready;
+
+    /**
+     * Create and backfill the rollup table if needed. Call before opening the
+     * transaction that records into it, since DDL would commit that transaction.
+     * @return true if rollups are available
+     */
+    public boolean prepare() {
+        if (ready) {
+            return true;
+        }
+
+        synchronized (LOCK) {
+            if (ready) {
+                return true;
+            }
+
+            try (Connection connection = DatabaseConnection.getConnection();
+                 Statement statement = connection.createStatement()) {
+
+                statement.execute(CREATE_ROLLUP_TABLE);
+
+                boolean empty;
+                try (ResultSet resultSet = statement.executeQuery(SELECT_ANY_ROLLUP)) {
+                    empty = !resultSet.next();
+                }
+
+                if (empty) {
+                    long start = System.currentTimeMillis();
+                    int rows = statement.executeUpdate(BACKFILL_ONLINE);
+                    rows += statement.executeUpdate(BACKFILL_POS);
+                    LOG.info("Sales rollups backfilled", "rows", rows,
+                             "elapsedMs", System.currentTimeMillis() - start);
+                }
+
+                ready = true;
+
+            } catch (SQLException e) {
+                LOG.error("Error preparing sales rollups", e);
+            }
+        }
+
+        return ready;
+    }
+
+    /**
+     * Add a newly inserted order to its day's rollup, on the caller's transaction
+     */
+    public void recordOrderCreated(Connection connection, String channel, int orderId, String status)
+            throws SQLException {
+        requireReady();
+
+        boolean cancelled = Order.STATUS_CANCELLED.equals(status);
+        add(connection, channel, orderId, 1, cancelled ? 1 : 0, cancelled ? 0 : 1);
+    }
+
+    /**
+     * Adjust the rollup for a status change, on the caller's transaction.
+     * Only moves into or out of cancelled change the figures.
+     */
+    public void recordStatusChanged(Connection connection, String channel, int orderId,
+                                    String previousStatus, String newStatus) throws SQLException {
+        requireReady();
+
+        boolean wasCancelled = Order.STATUS_CANCELLED.equals(previousStatus);
+        boolean isCancelled = Order.STATUS_CANCELLED.equals(newStatus);
+        if (wasCancelled == isCancelled) return;
+
+        int delta = isCancelled ? 1 : -1;
+        add(connection, channel, orderId, 0, delta, -delta);
+    }
+
+    /**
+     * Adjust the rollups for many orders that all moved into (or all moved out of)
+     * cancelled, with one statement on the caller's transaction
+     */
+    public void recordCancellationChanges(Connection connection, String channel, List<Integer> orderIds,
+                                          boolean cancelled) throws SQLException {
+        requireReady();
+        if (orderIds.isEmpty()) return;
+
+        String sql = String.format(CHANNEL_POS.equals(channel) ? MOVE_POS_ORDERS : MOVE_ONLINE_ORDERS,
+                                   buildPlaceholders(orderIds.size()));
+        int delta = cancelled ? 1 : -1;
+
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setInt(1, delta);
+            statement.setInt(2, -delta);
+            for (int i = 0; i < orderIds.size(); i++) {
+                statement.setInt(i + 3, orderIds.get(i));
+            }
+            statement.executeUpdate();
+        }
+    }
+
+    private void requireReady() throws SQLException {
+        if (!ready) {
+            throw new SQLException("Sales rollups are unavailable");
+        }
+    }
+
+    private static String buildPlaceholders(int count) {
+        StringBuilder placeholders = new StringBuilder("(");
+        for (int i = 0; i < count; i++) {
+            placeholders.append(i > 0 ? ", ?" : "?");
+        }
+        return placeholders.append(")").toString();
+    }
+
+    private void add(Connection connection, String channel, int orderId,
+                     int orderCount, int cancelledCount, int revenueSign) throws SQLException {
+        String sql = CHANNEL_POS.equals(channel) ? ADD_POS_ORDER : ADD_ONLINE_ORDER;
+
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setInt(1, orderCount);
+            statement.setInt(2, cancelledCount);
+            statement.setInt(3, revenueSign);
+            statement.setInt(4, orderId);
+            statement.executeUpdate();
+        }
+    }
+
+    /**
+     * Get today's POS figures for a cashier
+     * @return The figures, or null if rollups are unavailable
+     */
+    public DailySales getCashierToday(int cashierId) {
+        if (!prepare()) {
+            return null;
+        }
+
+        try (Connection connection = DatabaseConnection.getConnection();
+             PreparedStatement statement = connection.prepareStatement(SELECT_CASHIER_TODAY)) {
+
+            statement.setInt(1, cashierId);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? extractDailySales(resultSet) : new DailySales();
+            }
+
+        } catch (SQLException e) {
+            LOG.error("Error getting cashier sales for today", e, "cashierId", cashierId);
+        }
+
+        return null;
+    }
+
+    /**
+     * Get today's figures per channel across all cashiers
+     * @return Figures keyed by channel; channels without orders today are present with zeros
+     */
+    public Map<String, DailySales> getTodayByChannel() {
+        Map<String, DailySales> byChannel = new HashMap<>();
+        byChannel.put(CHANNEL_ONLINE, new DailySales());
+        byChannel.put(CHANNEL_POS, new DailySales());
+
+        if (!prepare()) {
+            return byChannel;
+        }
+
+        try (Connection connection = DatabaseConnection.getConnection();
+             PreparedStatement statement = connection.prepareStatement(SELECT_TODAY_BY_CHANNEL);
+             ResultSet resultSet = statement.executeQuery()) {
+
+            while (resultSet.next()) {
+                byChannel.put(resultSet.getString("channel"), extractDailySales(resultSet));
+            }
+
+        } catch (SQLException e) {
+            LOG.error("Error getting today's sales by channel", e);
+        }
+
+        return byChannel;
+    }
+
+    private DailySales extractDailySales(ResultSet resultSet) throws SQLException {
+        DailySales sales = new DailySales();
+        sales.orderCount = resultSet.getInt("order_count");
+        sales.cancelledCount = resultSet.getInt("cancelled_count");
+        sales.revenue = resultSet.getBigDecimal("revenue");
+        return sales;
+    }
+
+    /**
+     * Order count and revenue for one day
+     */
+    public static class DailySales {
+        public int orderCount;
+        public int cancelledCount;
+        public BigDecimal revenue = BigDecimal.ZERO;
+    }
+}
@@ -5,19 +5,53 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.mindrot.jbcrypt.BCrypt;
 
 import com.pahanaedu.models.User;
 import com.pahanaedu.utils.DatabaseConnection;
+import com.pahanaedu.utils.Log;
+import com.pahanaedu.utils.QueryCache;
 
 /**
  * Data Access Object for User operations
  * Handles all database operations related to users
+ * 
+ * Password checks run on a small dedicated executor sized to the CPU count, so
+ * a burst of logins cannot occupy every container thread with BCrypt work. When
+ * its queue is full, logins are rejected immediately as busy.
  */
 public class UserDAO {
     
+    private static final Log LOG = Log.get(UserDAO.class);
+    
+    // BCrypt cost for new hashes; stored hashes with another cost are rehashed on login
+    private static final int PASSWORD_COST = Integer.getInteger("pahanaedu.bcrypt.cost", 12);
+    
+    // Authentication executor limits
+    private static final int AUTH_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+    private static final int AUTH_QUEUE_CAPACITY = 64;
+    private static final long AUTH_WAIT_TIMEOUT_MS = 10000;
+    
+    private static final ThreadPoolExecutor AUTH_EXECUTOR = createAuthExecutor();
+    
+    // Dashboard counts; not invalidated on writes, so they lag by at most the TTL
+    private static final String CACHE_KEY_ROLE_COUNTS = "role-counts";
+    private static final QueryCache<String, Map<String, Integer>> ROLE_COUNT_CACHE =
+        new QueryCache<>("user-role-counts", 1, 5 * 1000);
+    
     // SQL Queries
     private static final String INSERT_USER = 
         "INSERT INTO users (first_name, last_name, email, password, phone, role, status) VALUES (?, ?, ?, ?, ?, ?, ?)";
@@ -40,12 +74,19 @@ public class UserDAO {
     private static final String UPDATE_PASSWORD = 
         "UPDATE users SET password = ? WHERE email = ?";
     
+    // Only replaces the hash that was verified, so a concurrent password change wins
+    private static final String REHASH_PASSWORD = 
+        "UPDATE users SET password = ? WHERE id = ? AND password = ?";
+    
     private static final String DELETE_USER = 
         "DELETE FROM users WHERE id = ?";
     
     private static final String COUNT_USERS_BY_ROLE = 
         "SELECT COUNT(*) FROM users WHERE role = ?";
     
+    private static final String COUNT_USERS_GROUPED_BY_ROLE = 
+        "SELECT role, COUNT(*) FROM users GROUP BY role";
+    
     private static final String CHECK_EMAIL_EXISTS = 
         "SELECT COUNT(*) FROM users WHERE email = ?";
     
@@ -79,13 +120,12 @@ public class UserDAO {
             int rowsAffected = statement.executeUpdate();
             
             if (rowsAffected > 0) {
-                System.out.println("UserDAO: Customer created successfully - " + user.getEmail());
+                LOG.debug("Customer created successfully", "email", user.getEmail());
                 return true;
             }
             
         } catch (SQLException e) {
-            System.err.println("UserDAO: Error creating user - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error creating user", e);
         }
         
         return false;
@@ -114,14 +154,12 @@ public class UserDAO {
             int rowsAffected = statement.executeUpdate();
             
             if (rowsAffected > 0) {
-                System.out.println("UserDAO: User created by admin - " + user.getEmail() + 
-                                 " (Role: " + user.getRole() + ")");
+                LOG.debug("User created by admin", "email", user.getEmail(), "role", user.getRole());
                 return true;
             }
             
         } catch (SQLException e) {
-            System.err.println("UserDAO: Error creating user by admin - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error creating user by admin", e);
         }
         
         return false;
@@ -131,9 +169,24 @@ public class UserDAO {
      * Validate user login credentials
      * @param email User email
      * @param password Plain text password
-     * @return User object if valid, null otherwise
+     * @return User object if login successful, null otherwise (including when busy)
      */
     public User validateLogin(String email, String password) {
+        LoginResult result = authenticate(email, password);
+        return result.user;
+    }
+    
+    /**
+     * Authenticate a user, verifying the password on the authentication executor
+     * @param email User email
+     * @param password Plain text password
+     * @return Login result; busy if the authentication queue is full
+     */
+    public LoginResult authenticate(String email, String password) {
+        User user = null;
+        String storedPassword = null;
+        
+        // Read the user first so no connection is held while hashing
         try (Connection connection = DatabaseConnection.getConnection();
              PreparedStatement statement = connection.prepareStatement(SELECT_USER_BY_EMAIL)) {
             
@@ -141,29 +194,55 @@ public class UserDAO {
             ResultSet resultSet = statement.executeQuery();
             
             if (resultSet.next()) {
-                String storedPassword = resultSet.getString("password");
-                
-                // Verify password
-                if (verifyPassword(password, storedPassword)) {
-                    User user = extractUserFromResultSet(resultSet);
-                    
-                    System.out.println("UserDAO: Login successful - " + email + 
-                                     " (Role: " + user.getRole() + 
-                                     ", Status: " + user.getStatus() + ")");
-                    return user;
-                } else {
-                    System.out.println("UserDAO: Password verification failed - " + email);
-                }
-            } else {
-                System.out.println("UserDAO: User not found - " + email);
+                storedPassword = resultSet.getString("password");
+                user = extractUserFromResultSet(resultSet);
             }
             
         } catch (SQLException e) {
-            System.err.println("UserDAO: Error validating login - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error validating login", e);
+            return LoginResult.failed();
         }
         
-        return null;
+        if (user == null) {
+            LOG.debug("User not found", "email", email);
+            return LoginResult.failed();
+        }
+        
+        Future<Boolean> verification;
+        try {
+            String hash = storedPassword;
+            verification = AUTH_EXECUTOR.submit(() -> verifyPassword(password, hash));
+        } catch (RejectedExecutionException e) {
+            LOG.warn("Authentication queue full, rejecting login", "email", email);
+            return LoginResult.busy();
+        }
+        
+        boolean verified;
+        try {
+            verified = verification.get(AUTH_WAIT_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            verification.cancel(true);
+            LOG.warn("Password verification timed out", "email", email);
+            return LoginResult.busy();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return LoginResult.failed();
+        } catch (ExecutionException e) {
+            LOG.warn("Error verifying password", "cause", e.getCause());
+            return LoginResult.failed();
+        }
+        
+        if (!verified) {
+            LOG.debug("Password verification failed", "email", email);
+            return LoginResult.failed();
+        }
+        
+        if (needsRehash(storedPassword)) {
+            scheduleRehash(user.getId(), password, storedPassword);
+        }
+        
+        LOG.debug("Login successful", "email", email, "role", user.getRole(), "status", user.getStatus());
+        return LoginResult.success(user);
     }
     
     /**
@@ -183,8 +262,7 @@ public class UserDAO {
             }
             
         } catch (SQLException e) {
-            System.err.println("UserDAO: Error getting user by ID - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error getting user by ID", e);
         }
         
         return null;
@@ -207,8 +285,7 @@ public class UserDAO {
             }
             
         } catch (SQLException e) {
-            System.err.println("UserDAO: Error getting user by email - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error getting user by email", e);
         }
         
         return null;
@@ -231,8 +308,7 @@ public class UserDAO {
             }
             
         } catch (SQLException e) {
-            System.err.println("UserDAO: Error getting all users - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error getting all users", e);
         }
         
         return users;
@@ -257,8 +333,7 @@ public class UserDAO {
             }
             
         } catch (SQLException e) {
-            System.err.println("UserDAO: Error getting users by role - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error getting users by role", e);
         }
         
         return users;
@@ -283,13 +358,12 @@ public class UserDAO {
             int rowsAffected = statement.executeUpdate();
             
             if (rowsAffected > 0) {
-                System.out.println("UserDAO: User updated successfully - " + user.getEmail());
+                LOG.debug("User updated successfully", "email", user.getEmail());
                 return true;
             }
             
         } catch (SQLException e) {
-            System.err.println("UserDAO: Error updating user - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error updating user", e);
         }
         
         return false;
@@ -312,13 +386,12 @@ public class UserDAO {
             int rowsAffected = statement.executeUpdate();
             
             if (rowsAffected > 0) {
-                System.out.println("UserDAO: Password updated successfully - " + email);
+                LOG.debug("Password updated successfully", "email", email);
                 return true;
             }
             
         } catch (SQLException e) {
-            System.err.println("UserDAO: Error updating password - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error updating password", e);
         }
         
         return false;
@@ -337,13 +410,12 @@ public class UserDAO {
             int rowsAffected = statement.executeUpdate();
             
             if (rowsAffected > 0) {
-                System.out.println("UserDAO: User deleted successfully - ID: " + id);
+                LOG.debug("User deleted successfully", "id", id);
                 return true;
             }
             
         } catch (SQLException e) {
-            System.err.println("UserDAO: Error deleting user - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error deleting user", e);
         }
         
         return false;
@@ -366,8 +438,7 @@ public class UserDAO {
             }
             
         } catch (SQLException e) {
-            System.err.println("UserDAO: Error checking email existence - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error checking email existence", e);
         }
         
         return false;
@@ -392,8 +463,7 @@ public class UserDAO {
             }
             
         } catch (SQLException e) {
-            System.err.println("UserDAO: Error checking email existence (excluding ID) - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error checking email existence (excluding ID)", e);
         }
         
         return false;
@@ -416,13 +486,44 @@ public class UserDAO {
             }
             
         } catch (SQLException e) {
-            System.err.println("UserDAO: Error getting user count by role - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error getting user count by role", e);
         }
         
         return 0;
     }
     
+    /**
+     * Count users in every role with one grouped query, shared by concurrent callers for a few seconds
+     * @return User count by role; roles without users are absent
+     */
+    public Map<String, Integer> getUserCountsByRole() {
+        Map<String, Integer> counts = ROLE_COUNT_CACHE.getOrLoad(CACHE_KEY_ROLE_COUNTS, () -> {
+            try (Connection connection = DatabaseConnection.getConnection();
+                 PreparedStatement statement = connection.prepareStatement(COUNT_USERS_GROUPED_BY_ROLE);
+                 ResultSet resultSet = statement.executeQuery()) {
+                
+                Map<String, Integer> loaded = new HashMap<>();
+                while (resultSet.next()) {
+                    loaded.put(resultSet.getString(1), resultSet.getInt(2));
+                }
+                return Collections.unmodifiableMap(loaded);
+                
+            } catch (SQLException e) {
+                LOG.error("Error counting users grouped by role", e);
+                return null;
+            }
+        });
+        
+        return counts != null ? counts : Collections.emptyMap();
+    }
+    
+    /**
+     * Get role count cache counters
+     */
+    public static QueryCache.Stats getRoleCountCacheStats() {
+        return ROLE_COUNT_CACHE.getStats();
+    }
+    
     /**
      * Check if user has specific role
      * @param email User email
@@ -443,8 +544,7 @@ public class UserDAO {
             }
             
         } catch (SQLException e) {
-            System.err.println("UserDAO: Error checking user role - " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error checking user role", e);
         }
         
         return false;
@@ -477,8 +577,77 @@ public class UserDAO {
      * @return Hashed password
      */
     private String hashPassword(String plainTextPassword) {
-        // Generate salt and hash password with cost factor 12
-        return BCrypt.hashpw(plainTextPassword, BCrypt.gensalt(12));
+        // Generate salt and hash password with the configured cost factor
+        return BCrypt.hashpw(plainTextPassword, BCrypt.gensalt(PASSWORD_COST));
+    }
+    
+    /**
+     * Check whether a stored hash was created with a different cost factor
+     */
+    private boolean needsRehash(String hashedPassword) {
+        // Hashes look like $2a$12$..., with the cost in the third field
+        if (hashedPassword == null || hashedPassword.length() < 7 || hashedPassword.charAt(6) != '$') {
+            return false;
+        }
+        try {
+            return Integer.parseInt(hashedPassword.substring(4, 6)) != PASSWORD_COST;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+    
+    /**
+     * Rehash a verified password with the current cost in the background.
+     * Skipped when the executor is busy; the next login retries.
+     */
+    private void scheduleRehash(int userId, String plainTextPassword, String oldHash) {
+        try {
+            AUTH_EXECUTOR.execute(() -> {
+                String newHash = hashPassword(plainTextPassword);
+                
+                try (Connection connection = DatabaseConnection.getConnection();
+                     PreparedStatement statement = connection.prepareStatement(REHASH_PASSWORD)) {
+                    
+                    statement.setString(1, newHash);
+                    statement.setInt(2, userId);
+                    statement.setString(3, oldHash);
+                    
+                    if (statement.executeUpdate() > 0) {
+                        LOG.debug("Password rehashed", "cost", PASSWORD_COST, "userId", userId);
+                    }
+                    
+                } catch (SQLException e) {
+                    LOG.error("Error rehashing password", "error", e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Rehash on a later login
+        }
+    }
+    
+    /**
+     * Create the bounded executor that runs password checks and rehashes
+     */
+    private static ThreadPoolExecutor createAuthExecutor() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                AUTH_THREADS, AUTH_THREADS, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(AUTH_QUEUE_CAPACITY),
+                r -> {
+                    Thread thread = new Thread(r, "auth-hasher-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+    
+    /**
+     * Stop the authentication executor
+     */
+    public static void shutdown() {
+        AUTH_EXECUTOR.shutdownNow();
     }
     
     /**
@@ -491,8 +660,37 @@ public class UserDAO {
         try {
             return BCrypt.checkpw(plainTextPassword, hashedPassword);
         } catch (Exception e) {
-            System.err.println("UserDAO: Error verifying password - " + e.getMessage());
+            LOG.error("Error verifying password", "error", e.getMessage());
             return false;
         }
     }
-}
\ No newline at end of file
+    
+    /**
+     * Outcome of an authentication attempt
+     */
+    public static class LoginResult {
+        public final User user;
+        public final boolean busy;
+        
+        private LoginResult(User user, boolean busy) {
+            this.user = user;
+            this.busy = busy;
+        }
+        
+        static LoginResult success(User user) {
+            return new LoginResult(user, false);
+        }
+        
+        static LoginResult failed() {
+            return new LoginResult(null, false);
+        }
+        
+        static LoginResult busy() {
+            return new LoginResult(null, true);
+        }
+        
+        public boolean isSuccess() {
+            return user != null;
+        }
+    }
+}
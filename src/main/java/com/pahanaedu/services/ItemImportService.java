@@ -0,0 +1,515 @@
+package com.pahanaedu.services;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.pahanaedu.dao.CategoryDAO;
+import com.pahanaedu.dao.ItemDAO;
+import com.pahanaedu.models.Category;
+import com.pahanaedu.models.Item;
+import com.pahanaedu.utils.Log;
+
+/**
+ * Bulk catalog import from CSV or NDJSON.
+ *
+ * The input is parsed one record at a time and inserted in JDBC batches, so a
+ * file of any size is never held in memory as a whole. Category names are
+ * resolved case-insensitively against a map loaded once per import. Rows that
+ * fail validation or insertion are reported individually and do not stop the
+ * rest of the file.
+ */
+public class ItemImportService {
+
+    private static final Log LOG = Log.get(ItemImportService.class);
+
+    public static final String FORMAT_CSV = "csv";
+    public static final String FORMAT_NDJSON = "ndjson";
+
+    public static final int DEFAULT_BATCH_SIZE = 500;
+    public static final int MAX_BATCH_SIZE = 5000;
+
+    // Row errors beyond this are counted but not reported one by one
+    private static final int MAX_REPORTED_ERRORS = 1000;
+
+    private final ItemDAO itemDAO;
+    private final CategoryDAO categoryDAO;
+
+    public ItemImportService(ItemDAO itemDAO, CategoryDAO categoryDAO) {
+        this.itemDAO = itemDAO;
+        this.categoryDAO = categoryDAO;
+    }
+
+    /**
+     * Receives progress while an import runs
+     */
+    public interface ImportListener {
+        void onRowError(long rowNumber, String message) throws IOException;
+
+        void onBatchComplete(ImportSummary progress) throws IOException;
+    }
+
+    /**
+     * Import items from the reader
+     * @param format FORMAT_CSV or FORMAT_NDJSON
+     * @throws IllegalArgumentException if the format is unknown or the CSV header is unusable
+     * @throws IOException if reading the input or reporting progress fails
+     */
+    public ImportSummary importItems(Reader input, String format, int batchSize, ImportListener listener)
+            throws IOException {
+        RecordSource source;
+        if (FORMAT_CSV.equals(format)) {
+            source = new CsvRecordSource(input);
+        } else if (FORMAT_NDJSON.equals(format)) {
+            source = new NdjsonRecordSource(input);
+        } else {
+            throw new IllegalArgumentException("Unsupported import format: " + format);
+        }
+
+        int effectiveBatchSize = Math.max(1, Math.min(batchSize, MAX_BATCH_SIZE));
+        CategoryLookup categories = new CategoryLookup(categoryDAO.getAllCategories());
+        ImportSummary summary = new ImportSummary();
+        long startTime = System.currentTimeMillis();
+
+        List<Item> batch = new ArrayList<>(effectiveBatchSize);
+        List<Long> batchRows = new ArrayList<>(effectiveBatchSize);
+
+        while (true) {
+            Map<String, String> record;
+            try {
+                record = source.next();
+            } catch (RecordFormatException e) {
+                summary.rowsRead++;
+                reportRowError(summary, listener, e.rowNumber, e.getMessage());
+                continue;
+            }
+            if (record == null) {
+                break;
+            }
+
+            summary.rowsRead++;
+            long rowNumber = source.rowNumber();
+
+            try {
+                batch.add(toItem(record, categories));
+                batchRows.add(rowNumber);
+            } catch (IllegalArgumentException e) {
+                reportRowError(summary, listener, rowNumber, e.getMessage());
+            }
+
+            if (batch.size() >= effectiveBatchSize) {
+                flushBatch(batch, batchRows, summary, listener);
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            flushBatch(batch, batchRows, summary, listener);
+        }
+
+        summary.elapsedMs = System.currentTimeMillis() - startTime;
+        LOG.info("Import finished",
+                "rowsImported", summary.rowsImported,
+                "rowsRead", summary.rowsRead,
+                "batches", summary.batches,
+                "elapsedMs", summary.elapsedMs);
+        return summary;
+    }
+
+    private void flushBatch(List<Item> batch, List<Long> batchRows, ImportSummary summary,
+                            ImportListener listener) throws IOException {
+        Map<Integer, String> failures = itemDAO.insertItems(batch);
+
+        for (int i = 0; i < batch.size(); i++) {
+            String error = failures.get(i);
+            if (error != null) {
+                reportRowError(summary, listener, batchRows.get(i), error);
+            }
+        }
+
+        summary.rowsImported += batch.size() - failures.size();
+        summary.batches++;
+        batch.clear();
+        batchRows.clear();
+
+        listener.onBatchComplete(summary);
+    }
+
+    private void reportRowError(ImportSummary summary, ImportListener listener, long rowNumber, String message)
+            throws IOException {
+        summary.rowsFailed++;
+        if (summary.rowsFailed <= MAX_REPORTED_ERRORS) {
+            listener.onRowError(rowNumber, message);
+        } else {
+            summary.errorsTruncated = true;
+        }
+    }
+
+    /**
+     * Validate one record and convert it to an item
+     */
+    private Item toItem(Map<String, String> record, CategoryLookup categories) {
+        String title = field(record, "title");
+        String author = field(record, "author");
+        String priceStr = field(record, "price");
+        String stockStr = field(record, "stock");
+
+        if (title == null || author == null || priceStr == null || stockStr == null) {
+            throw new IllegalArgumentException("Title, author, category, price, and stock are required");
+        }
+
+        Item item = new Item();
+        item.setTitle(title);
+        item.setAuthor(author);
+        item.setCategoryId(categories.resolve(field(record, "categoryid"), field(record, "category")));
+
+        item.setPrice(parseAmount(priceStr, "price"));
+        String offerPriceStr = field(record, "offerprice");
+        if (offerPriceStr != null) {
+            item.setOfferPrice(parseAmount(offerPriceStr, "offer price"));
+        }
+
+        try {
+            int stock = Integer.parseInt(stockStr);
+            if (stock < 0) {
+                throw new IllegalArgumentException("Stock cannot be negative");
+            }
+            item.setStock(stock);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid stock: " + stockStr);
+        }
+
+        item.setDescription(field(record, "description"));
+        item.setImagePath(field(record, "imagepath"));
+
+        String referenceNo = field(record, "referenceno");
+        if (referenceNo == null) {
+            referenceNo = field(record, "reference");
+        }
+        item.setReferenceNo(referenceNo);
+
+        String status = field(record, "status");
+        if (status == null) {
+            status = Item.STATUS_ACTIVE;
+        } else {
+            status = status.toLowerCase(Locale.ROOT);
+            if (!Item.STATUS_ACTIVE.equals(status) && !Item.STATUS_INACTIVE.equals(status)
+                    && !Item.STATUS_OUT_OF_STOCK.equals(status)) {
+                throw new IllegalArgumentException("Invalid status: " + status);
+            }
+        }
+        item.setStatus(status);
+
+        return item;
+    }
+
+    private static BigDecimal parseAmount(String value, String name) {
+        try {
+            BigDecimal amount = new BigDecimal(value);
+            if (amount.signum() < 0) {
+                throw new IllegalArgumentException("Invalid " + name + ": " + value);
+            }
+            return amount;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + name + ": " + value);
+        }
+    }
+
+    /**
+     * Get a trimmed field value, or null if it is missing or blank
+     */
+    private static String field(Map<String, String> record, String name) {
+        String value = record.get(name);
+        if (value == null) {
+            return null;
+        }
+        value = value.trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    /**
+     * Normalize a column name so "Category ID", "category_id" and "categoryId" match
+     */
+    private static String normalizeName(String name) {
+        StringBuilder normalized = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                normalized.append(Character.toLowerCase(c));
+            }
+        }
+        return normalized.toString();
+    }
+
+    /**
+     * Category names and ids known at the start of the import
+     */
+    private static final class CategoryLookup {
+        private final Map<String, Integer> idsByName = new HashMap<>();
+        private final Set<Integer> ids = new HashSet<>();
+
+        private CategoryLookup(List<Category> categories) {
+            for (Category category : categories) {
+                ids.add(category.getId());
+                if (category.getName() != null) {
+                    idsByName.put(category.getName().trim().toLowerCase(Locale.ROOT), category.getId());
+                }
+            }
+        }
+
+        private int resolve(String categoryId, String categoryName) {
+            if (categoryId != null) {
+                try {
+                    int id = Integer.parseInt(categoryId);
+                    if (ids.contains(id)) {
+                        return id;
+                    }
+                } catch (NumberFormatException e) {
+                    // Reported as unknown below
+                }
+                throw new IllegalArgumentException("Unknown category ID: " + categoryId);
+            }
+            if (categoryName != null) {
+                Integer id = idsByName.get(categoryName.toLowerCase(Locale.ROOT));
+                if (id != null) {
+                    return id;
+                }
+                throw new IllegalArgumentException("Unknown category: " + categoryName);
+            }
+            throw new IllegalArgumentException("Title, author, category, price, and stock are required");
+        }
+    }
+
+    /**
+     * Sequential source of records keyed by normalized column name
+     */
+    private interface RecordSource {
+        /**
+         * @return The next record, or null at end of input
+         * @throws RecordFormatException if a single record is malformed and was skipped
+         */
+        Map<String, String> next() throws IOException;
+
+        /**
+         * Line number where the last returned record started
+         */
+        long rowNumber();
+    }
+
+    private static final class RecordFormatException extends IOException {
+        private static final long serialVersionUID = 1L;
+        private final long rowNumber;
+
+        private RecordFormatException(long rowNumber, String message) {
+            super(message);
+            this.rowNumber = rowNumber;
+        }
+    }
+
+    /**
+     * RFC 4180 CSV reader: the first record is the header, fields may be quoted,
+     * and quoted fields may contain commas, doubled quotes and line breaks.
+     */
+    private static final class CsvRecordSource implements RecordSource {
+        private final Reader reader;
+        private final String[] columns;
+        private final StringBuilder field = new StringBuilder();
+        private long line = 1;
+        private long recordLine;
+        private int pushedBack = -2;
+
+        private CsvRecordSource(Reader input) throws IOException {
+            this.reader = input instanceof BufferedReader ? input : new BufferedReader(input);
+
+            List<String> header = readRecord();
+            if (header == null) {
+                throw new IllegalArgumentException("CSV input is empty");
+            }
+            columns = new String[header.size()];
+            boolean hasTitle = false;
+            for (int i = 0; i < header.size(); i++) {
+                String name = header.get(i);
+                if (i == 0 && !name.isEmpty() && name.charAt(0) == '\uFEFF') {
+                    name = name.substring(1);
+                }
+                columns[i] = normalizeName(name);
+                hasTitle |= "title".equals(columns[i]);
+            }
+            if (!hasTitle) {
+                throw new IllegalArgumentException("CSV header must include a title column");
+            }
+        }
+
+        @Override
+        public Map<String, String> next() throws IOException {
+            List<String> values;
+            do {
+                values = readRecord();
+                if (values == null) {
+                    return null;
+                }
+            } while (values.size() == 1 && values.get(0).isEmpty()); // Blank line
+
+            if (values.size() > columns.length) {
+                throw new RecordFormatException(recordLine,
+                        "Expected " + columns.length + " fields but found " + values.size());
+            }
+
+            Map<String, String> record = new HashMap<>();
+            for (int i = 0; i < values.size(); i++) {
+                record.put(columns[i], values.get(i));
+            }
+            return record;
+        }
+
+        @Override
+        public long rowNumber() {
+            return recordLine;
+        }
+
+        /**
+         * Read one record, or null at end of input
+         */
+        private List<String> readRecord() throws IOException {
+            int c = read();
+            if (c == -1) {
+                return null;
+            }
+
+            recordLine = line;
+            List<String> values = new ArrayList<>();
+            field.setLength(0);
+            boolean quoted = false;
+
+            while (true) {
+                if (quoted) {
+                    if (c == -1) {
+                        throw new RecordFormatException(recordLine, "Unterminated quoted field");
+                    }
+                    if (c == '"') {
+                        int following = read();
+                        if (following == '"') {
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                            c = following;
+                            continue;
+                        }
+                    } else {
+                        if (c == '\n') {
+                            line++;
+                        }
+                        field.append((char) c);
+                    }
+                } else if (c == '"' && field.length() == 0) {
+                    quoted = true;
+                } else if (c == ',') {
+                    values.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\r' || c == '\n' || c == -1) {
+                    if (c == '\r') {
+                        int following = read();
+                        if (following != '\n') {
+                            pushedBack = following;
+                        }
+                    }
+                    if (c != -1) {
+                        line++;
+                    }
+                    values.add(field.toString());
+                    return values;
+                } else {
+                    field.append((char) c);
+                }
+                c = read();
+            }
+        }
+
+        private int read() throws IOException {
+            if (pushedBack != -2) {
+                int c = pushedBack;
+                pushedBack = -2;
+                return c;
+            }
+            return reader.read();
+        }
+    }
+
+    /**
+     * Newline-delimited JSON reader: one object per line, blank lines ignored.
+     * Nested values are skipped; scalars are read as their string form.
+     */
+    private static final class NdjsonRecordSource implements RecordSource {
+        private final BufferedReader reader;
+        private long line;
+
+        private NdjsonRecordSource(Reader input) {
+            this.reader = input instanceof BufferedReader ? (BufferedReader) input : new BufferedReader(input);
+        }
+
+        @Override
+        public Map<String, String> next() throws IOException {
+            String text;
+            do {
+                text = reader.readLine();
+                if (text == null) {
+                    return null;
+                }
+                line++;
+            } while (text.trim().isEmpty());
+
+            try (JsonReader json = new JsonReader(new StringReader(text))) {
+                Map<String, String> record = new LinkedHashMap<>();
+                json.beginObject();
+                while (json.hasNext()) {
+                    String name = normalizeName(json.nextName());
+                    JsonToken token = json.peek();
+                    if (token == JsonToken.STRING || token == JsonToken.NUMBER) {
+                        record.put(name, json.nextString());
+                    } else if (token == JsonToken.BOOLEAN) {
+                        record.put(name, String.valueOf(json.nextBoolean()));
+                    } else {
+                        json.skipValue();
+                    }
+                }
+                json.endObject();
+                if (json.peek() != JsonToken.END_DOCUMENT) {
+                    throw new RecordFormatException(line, "Unexpected content after object");
+                }
+                return record;
+            } catch (RecordFormatException e) {
+                throw e;
+            } catch (IOException | IllegalStateException e) {
+                throw new RecordFormatException(line, "Malformed JSON: " + e.getMessage());
+            }
+        }
+
+        @Override
+        public long rowNumber() {
+            return line;
+        }
+    }
+
+    /**
+     * Running totals of an import, reported after every batch and at the end
+     */
+    public static class ImportSummary {
+        public long rowsRead;
+        public long rowsImported;
+        public long rowsFailed;
+        public int batches;
+        public boolean errorsTruncated;
+        public long elapsedMs;
+    }
+}
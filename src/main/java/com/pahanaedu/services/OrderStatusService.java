@@ -0,0 +1,76 @@
+package com.pahanaedu.services;
+
+import java.util.Collection;
+import java.util.Map;
+
+import com.pahanaedu.dao.OrderDAO;
+import com.pahanaedu.models.Order;
+
+/**
+ * Order status state machine.
+ *
+ * Holds the allowed status transitions and applies them through
+ * OrderDAO.changeOrderStatus, which checks the rule against the locked order
+ * row and, on cancellation, restocks the order's lines in the same
+ * transaction and releases its promo code use after commit. Delivered and
+ * cancelled are final, so a cancelled order is never restocked twice.
+ */
+public class OrderStatusService {
+
+    private final OrderDAO orderDAO;
+
+    public OrderStatusService(OrderDAO orderDAO) {
+        this.orderDAO = orderDAO;
+    }
+
+    /**
+     * Apply a status change made by staff
+     */
+    public OrderDAO.StatusChange changeStatus(int orderId, String newStatus) {
+        return orderDAO.changeOrderStatus(orderId, newStatus, OrderStatusService::isValidStatusTransition);
+    }
+
+    /**
+     * Apply the same status change made by staff to many orders, validating each one
+     * @return One result per distinct order id
+     */
+    public Map<Integer, OrderDAO.StatusChange> changeStatuses(Collection<Integer> orderIds, String newStatus) {
+        return orderDAO.changeOrderStatuses(orderIds, newStatus, OrderStatusService::isValidStatusTransition);
+    }
+
+    /**
+     * Cancel an order on the customer's behalf; only pending and confirmed orders can be cancelled
+     */
+    public OrderDAO.StatusChange cancelByCustomer(int orderId) {
+        return orderDAO.changeOrderStatus(orderId, Order.STATUS_CANCELLED,
+                (currentStatus, newStatus) -> isCustomerCancellable(currentStatus));
+    }
+
+    /**
+     * Check if status transition is valid
+     */
+    public static boolean isValidStatusTransition(String currentStatus, String newStatus) {
+        // Cannot change from delivered or cancelled
+        if (Order.STATUS_DELIVERED.equals(currentStatus) && !Order.STATUS_DELIVERED.equals(newStatus))
+            return false;
+        if (Order.STATUS_CANCELLED.equals(currentStatus) && !Order.STATUS_CANCELLED.equals(newStatus))
+            return false;
+
+        // Cannot go back to pending
+        if (!Order.STATUS_PENDING.equals(currentStatus) && Order.STATUS_PENDING.equals(newStatus))
+            return false;
+
+        // Cannot skip steps (with some flexibility for admin)
+        if (Order.STATUS_PENDING.equals(currentStatus) && Order.STATUS_SHIPPED.equals(newStatus))
+            return false;
+        if ((Order.STATUS_PENDING.equals(currentStatus) || Order.STATUS_CONFIRMED.equals(currentStatus))
+            && Order.STATUS_DELIVERED.equals(newStatus))
+            return false;
+
+        return true;
+    }
+
+    private static boolean isCustomerCancellable(String currentStatus) {
+        return Order.STATUS_PENDING.equals(currentStatus) || Order.STATUS_CONFIRMED.equals(currentStatus);
+    }
+}
@@ -0,0 +1,30 @@
+package com.pahanaedu.services;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Payment gateway used by the checkout pipeline.
+ *
+ * Charges complete asynchronously so no request thread waits on the gateway.
+ * Implementations must never complete the future exceptionally for a declined
+ * payment; a declined charge is a PaymentResult with success set to false.
+ */
+public interface PaymentGateway {
+    
+    /**
+     * Charge an online payment
+     * @return Future completed with the gateway's decision
+     */
+    CompletableFuture<PaymentResult> charge(BigDecimal amount, String reference);
+    
+    /**
+     * Refund a previously approved charge
+     */
+    void refund(String transactionId, BigDecimal amount);
+    
+    /**
+     * Release any threads held by the gateway
+     */
+    void shutdown();
+}
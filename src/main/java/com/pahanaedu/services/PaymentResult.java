@@ -0,0 +1,36 @@
+package com.pahanaedu.services;
+
+/**
+ * Payment Result class for structured payment responses
+ */
+public class PaymentResult {
+    private final boolean success;
+    private final String transactionId;
+    private final String errorMessage;
+    
+    public PaymentResult(boolean success, String transactionId, String errorMessage) {
+        this.success = success;
+        this.transactionId = transactionId;
+        this.errorMessage = errorMessage;
+    }
+    
+    public static PaymentResult approved(String transactionId) {
+        return new PaymentResult(true, transactionId, null);
+    }
+    
+    public static PaymentResult declined(String errorMessage) {
+        return new PaymentResult(false, null, errorMessage);
+    }
+    
+    public boolean isSuccess() {
+        return success;
+    }
+    
+    public String getTransactionId() {
+        return transactionId;
+    }
+    
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+}
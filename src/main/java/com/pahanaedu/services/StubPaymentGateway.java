@@ -0,0 +1,73 @@
+package com.pahanaedu.services;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import com.pahanaedu.utils.Log;
+
+/**
+ * Local payment gateway that approves every charge after a simulated latency.
+ *
+ * The latency is a timer on a single scheduler thread rather than a sleep, so
+ * any number of in-flight charges cost no threads. A declining instance can be
+ * created to exercise the failure path without a real gateway.
+ */
+public class StubPaymentGateway implements PaymentGateway {
+    
+    private static final Log LOG = Log.get(StubPaymentGateway.class);
+    
+    public static final long DEFAULT_LATENCY_MS = 1500;
+    
+    private final long latencyMs;
+    private final boolean declineAll;
+    private final ScheduledExecutorService scheduler;
+    
+    public StubPaymentGateway() {
+        this(DEFAULT_LATENCY_MS, false);
+    }
+    
+    public StubPaymentGateway(long latencyMs, boolean declineAll) {
+        this.latencyMs = latencyMs;
+        this.declineAll = declineAll;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "stub-payment-gateway");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    @Override
+    public CompletableFuture<PaymentResult> charge(BigDecimal amount, String reference) {
+        CompletableFuture<PaymentResult> result = new CompletableFuture<>();
+        
+        scheduler.schedule(() -> {
+            if (declineAll) {
+                result.complete(PaymentResult.declined("Payment was declined"));
+                return;
+            }
+            
+            // Generate transaction ID
+            String transactionId = "TXN" + System.currentTimeMillis() + 
+                                   String.format("%04d", ThreadLocalRandom.current().nextInt(10000));
+            
+            LOG.debug("Payment processed", "transactionId", transactionId, "reference", reference, "amount", amount);
+            result.complete(PaymentResult.approved(transactionId));
+        }, latencyMs, TimeUnit.MILLISECONDS);
+        
+        return result;
+    }
+    
+    @Override
+    public void refund(String transactionId, BigDecimal amount) {
+        LOG.debug("Processing refund", "transaction", transactionId, "amount", amount);
+    }
+    
+    @Override
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
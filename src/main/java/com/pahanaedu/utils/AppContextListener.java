@@ -0,0 +1,59 @@
+package com.pahanaedu.utils;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import javax.servlet.annotation.WebListener;
+
+import com.pahanaedu.dao.CartDAO;
+import com.pahanaedu.dao.CategoryDAO;
+import com.pahanaedu.dao.PromoCodeDAO;
+import com.pahanaedu.dao.SalesLedgerDAO;
+import com.pahanaedu.dao.SalesRollupDAO;
+import com.pahanaedu.dao.UserDAO;
+
+/**
+ * Prepares the sales summary tables and loads the category registry when the
+ * web application starts, and releases shared application resources when it
+ * is undeployed
+ */
+@WebListener
+public class AppContextListener implements ServletContextListener {
+
+    private static final Log LOG = Log.get(AppContextListener.class);
+
+    @Override
+    public void contextInitialized(ServletContextEvent sce) {
+        // Resources are initialized lazily on first use, except the sales rollup
+        // and ledger tables, which are created and backfilled here so they never
+        // stall a checkout, and the category registry below. Order writes retry
+        // the preparation if it fails here.
+        try {
+            new SalesRollupDAO().prepare();
+            new SalesLedgerDAO().prepare();
+        } catch (RuntimeException e) {
+            LOG.error("Error preparing sales tables at startup", e);
+        }
+
+        // Loaded here so the first catalog request does not pay for it; reads retry if it fails
+        try {
+            CategoryDAO.preload();
+        } catch (RuntimeException e) {
+            LOG.error("Error loading category registry at startup", e);
+        }
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent sce) {
+        // Flush write-behind state while the pool is still open
+        CartDAO.shutdown();
+        PromoCodeDAO.shutdown();
+        UserDAO.shutdown();
+        LOG.info("Pending cart changes and promo code usage flushed");
+
+        DatabaseConnection.shutdown();
+        LOG.info("Database connection pool shut down");
+
+        // Last, so everything logged above is written out
+        Log.shutdown();
+    }
+}
@@ -0,0 +1,374 @@
+package com.pahanaedu.utils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.pahanaedu.models.CashierOrderItem;
+
+/**
+ * Single-pass parser for the cashier POS order items payload.
+ *
+ * Expects a JSON array such as [{"itemId":1,"quantity":2,"price":100.00}] and
+ * decodes each object straight into a CashierOrderItem. Keys are compared in
+ * place and numbers are accumulated from the characters, so no intermediate
+ * strings are created per line. Unknown keys are skipped with their values,
+ * and numeric values may also be sent as quoted strings.
+ */
+public final class CashierOrderItemParser {
+
+    private static final int FIELD_UNKNOWN = 0;
+    private static final int FIELD_ITEM_ID = 1;
+    private static final int FIELD_QUANTITY = 2;
+    private static final int FIELD_PRICE = 3;
+
+    // Exponents beyond this are left to BigDecimal's own parser
+    private static final int MAX_FAST_EXPONENT = 1000;
+
+    private final CharSequence input;
+    private final int length;
+    private int pos;
+
+    // State of the most recently scanned number
+    private int numberStart;
+    private int numberEnd;
+    private long unscaled;
+    private int scale;
+    private boolean fitsInLong;
+
+    private CashierOrderItemParser(CharSequence input) {
+        this.input = input;
+        this.length = input.length();
+    }
+
+    /**
+     * Parse an order items payload
+     * @return Lines with a positive item id and quantity, in payload order
+     * @throws IllegalArgumentException if the payload is not a valid items array
+     */
+    public static List<CashierOrderItem> parse(CharSequence json) {
+        if (json == null) {
+            throw new IllegalArgumentException("Order items payload is missing");
+        }
+        return new CashierOrderItemParser(json).parseArray();
+    }
+
+    private List<CashierOrderItem> parseArray() {
+        List<CashierOrderItem> items = new ArrayList<>();
+
+        skipWhitespace();
+        expect('[');
+        skipWhitespace();
+
+        if (peek() == ']') {
+            pos++;
+        } else {
+            while (true) {
+                skipWhitespace();
+                CashierOrderItem item = parseItem();
+                if (item != null) {
+                    items.add(item);
+                }
+                skipWhitespace();
+                char c = next();
+                if (c == ']') {
+                    break;
+                }
+                if (c != ',') {
+                    throw error("Expected ',' or ']'");
+                }
+            }
+        }
+
+        skipWhitespace();
+        if (pos != length) {
+            throw error("Unexpected content after items array");
+        }
+        return items;
+    }
+
+    /**
+     * Parse one line item object
+     * @return The decoded item, or null if it has no valid item id or quantity
+     */
+    private CashierOrderItem parseItem() {
+        expect('{');
+        skipWhitespace();
+
+        int itemId = 0;
+        int quantity = 0;
+        BigDecimal price = BigDecimal.ZERO;
+
+        if (peek() == '}') {
+            pos++;
+            return null;
+        }
+
+        while (true) {
+            skipWhitespace();
+            int field = readKey();
+            skipWhitespace();
+            expect(':');
+            skipWhitespace();
+
+            if (field == FIELD_UNKNOWN || peek() == 'n') {
+                // Unknown keys and null values leave the defaults in place
+                skipValue();
+            } else if (field == FIELD_ITEM_ID) {
+                itemId = readInt();
+            } else if (field == FIELD_QUANTITY) {
+                quantity = readInt();
+            } else {
+                price = readDecimal();
+            }
+
+            skipWhitespace();
+            char c = next();
+            if (c == '}') {
+                break;
+            }
+            if (c != ',') {
+                throw error("Expected ',' or '}'");
+            }
+        }
+
+        if (itemId > 0 && quantity > 0) {
+            return new CashierOrderItem(itemId, quantity, price);
+        }
+        return null;
+    }
+
+    /**
+     * Read an object key and identify it without copying it
+     */
+    private int readKey() {
+        expect('"');
+        int start = pos;
+        boolean escaped = false;
+
+        while (true) {
+            char c = next();
+            if (c == '"') {
+                break;
+            }
+            if (c == '\\') {
+                next();
+                escaped = true;
+            }
+        }
+
+        if (escaped) {
+            return FIELD_UNKNOWN;
+        }
+
+        int end = pos - 1;
+        if (keyEquals(start, end, "itemId")) return FIELD_ITEM_ID;
+        if (keyEquals(start, end, "quantity")) return FIELD_QUANTITY;
+        if (keyEquals(start, end, "price")) return FIELD_PRICE;
+        return FIELD_UNKNOWN;
+    }
+
+    private boolean keyEquals(int start, int end, String key) {
+        if (end - start != key.length()) {
+            return false;
+        }
+        for (int i = 0; i < key.length(); i++) {
+            if (input.charAt(start + i) != key.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int readInt() {
+        scanNumber();
+        if (fitsInLong && scale == 0 && unscaled >= Integer.MIN_VALUE && unscaled <= Integer.MAX_VALUE) {
+            return (int) unscaled;
+        }
+        try {
+            return scannedDecimal().intValueExact();
+        } catch (ArithmeticException e) {
+            throw error("Expected an integer");
+        }
+    }
+
+    private BigDecimal readDecimal() {
+        scanNumber();
+        return scannedDecimal();
+    }
+
+    private BigDecimal scannedDecimal() {
+        if (fitsInLong) {
+            return BigDecimal.valueOf(unscaled, scale);
+        }
+        return new BigDecimal(input.subSequence(numberStart, numberEnd).toString());
+    }
+
+    /**
+     * Scan a JSON number, optionally wrapped in quotes, into unscaled value and scale
+     */
+    private void scanNumber() {
+        boolean quoted = peek() == '"';
+        if (quoted) {
+            pos++;
+        }
+
+        numberStart = pos;
+        unscaled = 0;
+        scale = 0;
+        fitsInLong = true;
+
+        boolean negative = peek() == '-';
+        if (negative) {
+            pos++;
+        }
+
+        int digits = 0;
+        while (isDigit(peek())) {
+            accumulate(next() - '0');
+            digits++;
+        }
+        if (peek() == '.') {
+            pos++;
+            while (isDigit(peek())) {
+                accumulate(next() - '0');
+                scale++;
+                digits++;
+            }
+        }
+        if (digits == 0) {
+            throw error("Expected a number");
+        }
+
+        if (peek() == 'e' || peek() == 'E') {
+            pos++;
+            boolean negativeExponent = peek() == '-';
+            if (negativeExponent || peek() == '+') {
+                pos++;
+            }
+            int exponent = 0;
+            int exponentDigits = 0;
+            while (isDigit(peek())) {
+                if (exponent <= MAX_FAST_EXPONENT) {
+                    exponent = exponent * 10 + (next() - '0');
+                } else {
+                    pos++;
+                }
+                exponentDigits++;
+            }
+            if (exponentDigits == 0) {
+                throw error("Expected an exponent");
+            }
+            if (exponent > MAX_FAST_EXPONENT) {
+                fitsInLong = false;
+            } else {
+                scale += negativeExponent ? exponent : -exponent;
+            }
+        }
+
+        numberEnd = pos;
+        if (negative) {
+            unscaled = -unscaled;
+        }
+        if (quoted) {
+            expect('"');
+        }
+    }
+
+    private void accumulate(int digit) {
+        if (unscaled > (Long.MAX_VALUE - digit) / 10) {
+            fitsInLong = false;
+        } else {
+            unscaled = unscaled * 10 + digit;
+        }
+    }
+
+    /**
+     * Skip any JSON value: string, object, array, number or literal
+     */
+    private void skipValue() {
+        char c = peek();
+
+        if (c == '"') {
+            skipString();
+        } else if (c == '{' || c == '[') {
+            int depth = 0;
+            do {
+                char ch = peek();
+                if (ch == '"') {
+                    skipString();
+                    continue;
+                }
+                pos++;
+                if (ch == '{' || ch == '[') {
+                    depth++;
+                } else if (ch == '}' || ch == ']') {
+                    depth--;
+                } else if (pos > length) {
+                    throw error("Unexpected end of input");
+                }
+            } while (depth > 0);
+        } else {
+            int start = pos;
+            while (pos < length && !isDelimiter(input.charAt(pos))) {
+                pos++;
+            }
+            if (pos == start) {
+                throw error("Expected a value");
+            }
+        }
+    }
+
+    private void skipString() {
+        expect('"');
+        while (true) {
+            char c = next();
+            if (c == '"') {
+                return;
+            }
+            if (c == '\\') {
+                next();
+            }
+        }
+    }
+
+    private void skipWhitespace() {
+        while (pos < length) {
+            char c = input.charAt(pos);
+            if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+                return;
+            }
+            pos++;
+        }
+    }
+
+    private void expect(char expected) {
+        if (pos >= length || input.charAt(pos) != expected) {
+            throw error("Expected '" + expected + "'");
+        }
+        pos++;
+    }
+
+    private char peek() {
+        return pos < length ? input.charAt(pos) : '\0';
+    }
+
+    private char next() {
+        if (pos >= length) {
+            throw error("Unexpected end of input");
+        }
+        return input.charAt(pos++);
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isDelimiter(char c) {
+        return c == ',' || c == '}' || c == ']' || c == ' ' || c == '\t' || c == '\n' || c == '\r';
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at position " + pos);
+    }
+}
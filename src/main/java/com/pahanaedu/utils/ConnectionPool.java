@@ -0,0 +1,390 @@
+package com.pahanaedu.utils;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded JDBC connection pool used by DatabaseConnection.
+ *
+ * Borrowed connections are handed out as proxies whose close() returns the
+ * physical connection to the pool, so existing try-with-resources code keeps
+ * working unchanged. Waiting threads are served in FIFO order by a fair
+ * semaphore that also caps the total number of open connections.
+ * Statements created on a borrowed connection are wrapped as well, so the
+ * latency of every execute call is recorded in Metrics by SQL text.
+ */
+public class ConnectionPool {
+
+    private static final Log LOG = Log.get(ConnectionPool.class);
+
+    // Set -Dpahanaedu.metrics.sql=false to hand out statements unwrapped
+    private static final boolean TIME_STATEMENTS =
+        Boolean.parseBoolean(System.getProperty("pahanaedu.metrics.sql", "true"));
+
+    private final String url;
+    private final String username;
+    private final String password;
+
+    private final int minIdle;
+    private final int maxSize;
+    private final long connectionTimeoutMs;
+    private final long idleTimeoutMs;
+    private final int validationTimeoutSeconds;
+    private final long leakDetectionThresholdMs;
+
+    private final Semaphore permits;
+    private final LinkedBlockingDeque<PooledEntry> idle = new LinkedBlockingDeque<>();
+    private final Map<PooledEntry, Boolean> inUse = new ConcurrentHashMap<>();
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final AtomicBoolean shutdown = new AtomicBoolean(false);
+    private final ScheduledExecutorService housekeeper;
+
+    public ConnectionPool(String url, String username, String password,
+                          int minIdle, int maxSize, long connectionTimeoutMs,
+                          long idleTimeoutMs, int validationTimeoutSeconds,
+                          long leakDetectionThresholdMs) {
+        if (maxSize < 1 || minIdle < 0 || minIdle > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: min=" + minIdle + ", max=" + maxSize);
+        }
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.minIdle = minIdle;
+        this.maxSize = maxSize;
+        this.connectionTimeoutMs = connectionTimeoutMs;
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+        this.leakDetectionThresholdMs = leakDetectionThresholdMs;
+        this.permits = new Semaphore(maxSize, true);
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "connection-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1000L, Math.min(idleTimeoutMs, leakDetectionThresholdMs) / 2);
+        housekeeper.scheduleWithFixedDelay(this::housekeep, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrow a connection, waiting up to the connection timeout for a free slot
+     * @return Pooled connection; closing it returns it to the pool
+     * @throws SQLException if the pool is shut down, exhausted or the database is unreachable
+     */
+    public Connection borrow() throws SQLException {
+        if (shutdown.get()) {
+            throw new SQLException("ConnectionPool: pool has been shut down");
+        }
+
+        try {
+            if (!permits.tryAcquire(connectionTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new SQLException("ConnectionPool: timed out after " + connectionTimeoutMs
+                        + "ms waiting for a connection (active=" + getActiveCount()
+                        + ", max=" + maxSize + ", waiting=" + getWaitingCount() + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("ConnectionPool: interrupted while waiting for a connection", e);
+        }
+
+        try {
+            PooledEntry entry = takeValidIdle();
+            if (entry == null) {
+                entry = openEntry();
+            }
+            entry.borrowedAt = System.currentTimeMillis();
+            entry.borrower = leakDetectionThresholdMs > 0 ? new Exception("Connection borrowed here") : null;
+            entry.leakReported = false;
+            inUse.put(entry, Boolean.TRUE);
+            return entry.newLease();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Close all idle connections and stop the housekeeper.
+     * Connections still in use are closed when they are returned.
+     */
+    public void shutdown() {
+        if (!shutdown.compareAndSet(false, true)) {
+            return;
+        }
+        housekeeper.shutdownNow();
+        PooledEntry entry;
+        while ((entry = idle.pollFirst()) != null) {
+            closePhysical(entry);
+        }
+    }
+
+    public int getTotalCount() {
+        return totalConnections.get();
+    }
+
+    public int getActiveCount() {
+        return inUse.size();
+    }
+
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    public int getWaitingCount() {
+        return permits.getQueueLength();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Poll idle connections (most recently used first) until a valid one is found
+     */
+    private PooledEntry takeValidIdle() {
+        PooledEntry entry;
+        while ((entry = idle.pollFirst()) != null) {
+            if (isUsable(entry)) {
+                return entry;
+            }
+            closePhysical(entry);
+        }
+        return null;
+    }
+
+    private boolean isUsable(PooledEntry entry) {
+        try {
+            return !entry.physical.isClosed() && entry.physical.isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private PooledEntry openEntry() throws SQLException {
+        Connection physical = DriverManager.getConnection(url, username, password);
+        totalConnections.incrementAndGet();
+        return new PooledEntry(physical);
+    }
+
+    /**
+     * Return a physical connection to the idle queue, resetting any state a DAO may have left behind
+     */
+    private void release(PooledEntry entry) {
+        inUse.remove(entry);
+        entry.borrower = null;
+        try {
+            boolean reusable = !shutdown.get() && !entry.physical.isClosed();
+            if (reusable) {
+                if (!entry.physical.getAutoCommit()) {
+                    entry.physical.rollback();
+                    entry.physical.setAutoCommit(true);
+                }
+                entry.physical.clearWarnings();
+                entry.lastReturnedAt = System.currentTimeMillis();
+                idle.offerFirst(entry);
+            } else {
+                closePhysical(entry);
+            }
+        } catch (SQLException e) {
+            LOG.error("Discarding connection that failed to reset", "error", e.getMessage());
+            closePhysical(entry);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void closePhysical(PooledEntry entry) {
+        try {
+            entry.physical.close();
+        } catch (SQLException e) {
+            LOG.error("Error closing physical connection", "error", e.getMessage());
+        } finally {
+            totalConnections.decrementAndGet();
+        }
+    }
+
+    /**
+     * Evict idle connections above the minimum, top the pool back up and report leaks
+     */
+    private void housekeep() {
+        try {
+            long now = System.currentTimeMillis();
+
+            Iterator<PooledEntry> iterator = idle.descendingIterator();
+            while (iterator.hasNext() && idle.size() > minIdle) {
+                PooledEntry entry = iterator.next();
+                if (now - entry.lastReturnedAt > idleTimeoutMs && idle.remove(entry)) {
+                    closePhysical(entry);
+                }
+            }
+
+            while (!shutdown.get() && idle.size() < minIdle && totalConnections.get() < maxSize) {
+                if (!permits.tryAcquire()) {
+                    break;
+                }
+                try {
+                    PooledEntry entry = openEntry();
+                    entry.lastReturnedAt = now;
+                    idle.offerLast(entry);
+                } finally {
+                    permits.release();
+                }
+            }
+
+            if (leakDetectionThresholdMs > 0) {
+                for (PooledEntry entry : inUse.keySet()) {
+                    if (!entry.leakReported && now - entry.borrowedAt > leakDetectionThresholdMs) {
+                        entry.leakReported = true;
+                        Exception borrower = entry.borrower;
+                        if (borrower != null) {
+                            LOG.error("Possible connection leak", borrower, "heldMs", now - entry.borrowedAt);
+                        } else {
+                            LOG.warn("Possible connection leak", "heldMs", now - entry.borrowedAt);
+                        }
+                    }
+                }
+            }
+        } catch (Exception e) {
+            LOG.error("Housekeeping failed", "error", e.getMessage());
+        }
+    }
+
+    /**
+     * A physical connection plus the bookkeeping the pool needs for it
+     */
+    private final class PooledEntry {
+
+        private final Connection physical;
+        private volatile long borrowedAt;
+        private volatile long lastReturnedAt;
+        private volatile Exception borrower;
+        private volatile boolean leakReported;
+
+        private PooledEntry(Connection physical) {
+            this.physical = physical;
+            this.lastReturnedAt = System.currentTimeMillis();
+        }
+
+        private Connection newLease() {
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[] { Connection.class },
+                    new LeaseHandler(this));
+        }
+    }
+
+    /**
+     * Proxy handler for one borrow; close() hands the connection back exactly once
+     */
+    private final class LeaseHandler implements InvocationHandler {
+
+        private final PooledEntry entry;
+        private final AtomicBoolean closed = new AtomicBoolean(false);
+
+        private LeaseHandler(PooledEntry entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (closed.compareAndSet(false, true)) {
+                        release(entry);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed.get() || entry.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + entry.physical + "]";
+                default:
+                    break;
+            }
+
+            if (closed.get()) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+
+            Object result;
+            try {
+                result = method.invoke(entry.physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+
+            if (TIME_STATEMENTS && result instanceof Statement) {
+                // prepareStatement/prepareCall carry their SQL; plain statements pass it to execute
+                Metrics.Timer timer = args != null && args.length > 0 && args[0] instanceof String
+                        ? Metrics.statement((String) args[0]) : null;
+                return Proxy.newProxyInstance(
+                        Statement.class.getClassLoader(),
+                        new Class<?>[] { method.getReturnType() },
+                        new StatementHandler((Statement) result, timer));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Proxy handler that times the execute methods of one statement
+     */
+    private static final class StatementHandler implements InvocationHandler {
+
+        private final Statement statement;
+        private final Metrics.Timer preparedTimer;
+
+        private StatementHandler(Statement statement, Metrics.Timer preparedTimer) {
+            this.statement = statement;
+            this.preparedTimer = preparedTimer;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Metrics.Timer timer = null;
+            if (method.getName().startsWith("execute")) {
+                timer = args != null && args.length > 0 && args[0] instanceof String
+                        ? Metrics.statement((String) args[0]) : preparedTimer;
+            }
+
+            if (timer == null) {
+                try {
+                    return method.invoke(statement, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+
+            long start = timer.start();
+            boolean failed = true;
+            try {
+                Object result = method.invoke(statement, args);
+                failed = false;
+                return result;
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            } finally {
+                timer.stop(start, failed);
+            }
+        }
+    }
+}
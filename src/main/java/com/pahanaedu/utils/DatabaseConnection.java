@@ -1,42 +1,73 @@
 package com.pahanaedu.utils;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 
 public class DatabaseConnection {
     
+    private static final Log LOG = Log.get(DatabaseConnection.class);
+    
     // Database connection details - Change these according to your setup
-    private static final String URL = "jdbc:mysql://localhost:3306/bookshop_edu";
+    // rewriteBatchedStatements sends each JDBC batch to the server in a single round trip.
+    // useServerPrepStmts parses each statement once on the server and cachePrepStmts keeps
+    // the parsed statement per pooled connection after close(), so repeated DAO calls only
+    // send parameters. The cache is an LRU of prepStmtCacheSize statements per connection;
+    // with POOL_MAX_SIZE connections that stays well under the server's max_prepared_stmt_count.
+    private static final String URL = "jdbc:mysql://localhost:3306/bookshop_edu" +
+            "?rewriteBatchedStatements=true" +
+            "&useServerPrepStmts=true" +
+            "&cachePrepStmts=true" +
+            "&prepStmtCacheSize=250" +
+            "&prepStmtCacheSqlLimit=2048";
     private static final String USERNAME = "root"; // Change to your MySQL username
     private static final String PASSWORD = ""; // Change to your MySQL password
     
+    // Connection pool sizing
+    private static final int POOL_MIN_IDLE = 2;
+    private static final int POOL_MAX_SIZE = 20;
+    private static final long POOL_CONNECTION_TIMEOUT_MS = 10000;
+    private static final long POOL_IDLE_TIMEOUT_MS = 5 * 60 * 1000;
+    private static final int POOL_VALIDATION_TIMEOUT_SECONDS = 2;
+    private static final long POOL_LEAK_DETECTION_THRESHOLD_MS = 60 * 1000;
+    
+    // Server-wide counters, so they include other clients of the same server
+    private static final String SELECT_STATEMENT_COUNTERS =
+            "SHOW GLOBAL STATUS WHERE Variable_name IN " +
+            "('Com_stmt_prepare', 'Com_stmt_execute', 'Prepared_stmt_count')";
+    
+    private static final ConnectionPool POOL;
+    
     static {
         try {
             // Load MySQL JDBC driver
             Class.forName("com.mysql.cj.jdbc.Driver");
         } catch (ClassNotFoundException e) {
-            System.err.println("MySQL JDBC Driver not found!");
-            e.printStackTrace();
+            LOG.error("MySQL JDBC Driver not found!", e);
         }
+        
+        POOL = new ConnectionPool(URL, USERNAME, PASSWORD,
+                POOL_MIN_IDLE, POOL_MAX_SIZE, POOL_CONNECTION_TIMEOUT_MS,
+                POOL_IDLE_TIMEOUT_MS, POOL_VALIDATION_TIMEOUT_SECONDS,
+                POOL_LEAK_DETECTION_THRESHOLD_MS);
     }
     
     /**
-     * Get database connection
-     * @return Connection object
+     * Get database connection from the pool
+     * @return Connection object; closing it returns it to the pool
      */
     public static Connection getConnection() {
         try {
-            return DriverManager.getConnection(URL, USERNAME, PASSWORD);
+            return POOL.borrow();
         } catch (SQLException e) {
-            System.err.println("Database connection failed!");
-            e.printStackTrace();
+            LOG.error("Database connection failed!", e);
             return null;
         }
     }
     
     /**
-     * Close database connection
+     * Return database connection to the pool
      * @param connection Connection to close
      */
     public static void closeConnection(Connection connection) {
@@ -44,9 +75,64 @@ public class DatabaseConnection {
             try {
                 connection.close();
             } catch (SQLException e) {
-                System.err.println("Error closing connection!");
-                e.printStackTrace();
+                LOG.error("Error closing connection!", e);
+            }
+        }
+    }
+    
+    /**
+     * Read the server's prepared statement counters. With the statement cache working,
+     * prepares stop growing once every pooled connection has seen each statement while
+     * executes keep growing, so the executes-per-prepare ratio climbs with traffic.
+     * @return Counters, or null if they could not be read
+     */
+    public static StatementCacheStats getStatementCacheStats() {
+        try (Connection connection = getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(SELECT_STATEMENT_COUNTERS)) {
+            
+            StatementCacheStats stats = new StatementCacheStats();
+            while (resultSet.next()) {
+                String name = resultSet.getString(1);
+                long value = resultSet.getLong(2);
+                if ("Com_stmt_prepare".equalsIgnoreCase(name)) {
+                    stats.prepares = value;
+                } else if ("Com_stmt_execute".equalsIgnoreCase(name)) {
+                    stats.executes = value;
+                } else if ("Prepared_stmt_count".equalsIgnoreCase(name)) {
+                    stats.openStatements = value;
+                }
             }
+            return stats;
+            
+        } catch (SQLException e) {
+            LOG.error("Error reading prepared statement counters", "error", e.getMessage());
         }
+        
+        return null;
+    }
+    
+    /**
+     * Get the shared connection pool
+     * @return ConnectionPool instance
+     */
+    public static ConnectionPool getPool() {
+        return POOL;
+    }
+    
+    /**
+     * Close all pooled connections
+     */
+    public static void shutdown() {
+        POOL.shutdown();
+    }
+    
+    /**
+     * Server prepared statement counters
+     */
+    public static class StatementCacheStats {
+        public long prepares;
+        public long executes;
+        public long openStatements;
     }
-}
\ No newline at end of file
+}
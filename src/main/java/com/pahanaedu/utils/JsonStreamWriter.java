@@ -0,0 +1,172 @@
+package com.pahanaedu.utils;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import javax.servlet.http.HttpServletResponse;
+
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Streaming JSON writer for list endpoints.
+ *
+ * Writes straight to the servlet output stream through a small buffer, so large
+ * listings are never held in memory as a whole. String properties are written
+ * as "" when null, matching the format of the existing hand-built responses.
+ * In line mode each top-level object is written as one line of NDJSON and
+ * flushed to the client as soon as it is complete.
+ */
+public class JsonStreamWriter implements Closeable {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Writer out;
+    private final JsonWriter writer;
+    private boolean started;
+
+    public JsonStreamWriter(Writer out) {
+        this.out = out;
+        this.writer = new JsonWriter(out);
+        this.writer.setSerializeNulls(true);
+    }
+
+    /**
+     * Open a streaming JSON writer on the response output stream
+     */
+    public static JsonStreamWriter open(HttpServletResponse response) throws IOException {
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        Writer out = new BufferedWriter(
+                new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8), BUFFER_SIZE);
+        return new JsonStreamWriter(out);
+    }
+
+    /**
+     * Open a newline-delimited JSON writer on the response output stream
+     */
+    public static JsonStreamWriter openLines(HttpServletResponse response) throws IOException {
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        Writer out = new BufferedWriter(
+                new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8), BUFFER_SIZE);
+        JsonStreamWriter json = new JsonStreamWriter(out);
+        // Lenient mode permits several top-level values in one stream
+        json.writer.setLenient(true);
+        return json;
+    }
+
+    /**
+     * Terminate the current top-level object with a newline and send it
+     */
+    public JsonStreamWriter endLine() throws IOException {
+        writer.flush();
+        out.write('\n');
+        out.flush();
+        return this;
+    }
+
+    /**
+     * Whether any JSON has been written yet
+     */
+    public boolean isStarted() {
+        return started;
+    }
+
+    public JsonStreamWriter beginObject() throws IOException {
+        started = true;
+        writer.beginObject();
+        return this;
+    }
+
+    public JsonStreamWriter beginObject(String name) throws IOException {
+        writer.name(name);
+        writer.beginObject();
+        return this;
+    }
+
+    public JsonStreamWriter endObject() throws IOException {
+        writer.endObject();
+        return this;
+    }
+
+    public JsonStreamWriter beginArray(String name) throws IOException {
+        writer.name(name);
+        writer.beginArray();
+        return this;
+    }
+
+    public JsonStreamWriter endArray() throws IOException {
+        writer.endArray();
+        return this;
+    }
+
+    public JsonStreamWriter property(String name, String value) throws IOException {
+        writer.name(name).value(value != null ? value : "");
+        return this;
+    }
+
+    public JsonStreamWriter property(String name, Number value) throws IOException {
+        writer.name(name);
+        if (value != null) {
+            writer.value(value);
+        } else {
+            writer.nullValue();
+        }
+        return this;
+    }
+
+    public JsonStreamWriter property(String name, long value) throws IOException {
+        writer.name(name).value(value);
+        return this;
+    }
+
+    public JsonStreamWriter property(String name, boolean value) throws IOException {
+        writer.name(name).value(value);
+        return this;
+    }
+
+    /**
+     * Write a complete error response; only valid before anything else was written
+     */
+    public void writeError(String message) throws IOException {
+        beginObject().property("success", false).property("message", message).endObject();
+    }
+
+    /**
+     * Close the streamed array and its enclosing top-level object, then write
+     * "success": true. Streamed listings report success after their rows, so a
+     * client can only see success once the listing is known to be complete.
+     */
+    public void endList() throws IOException {
+        endArray().property("success", true).endObject();
+    }
+
+    /**
+     * Close a streamed array that failed between rows and mark the whole
+     * response as failed, so the rows already sent are not taken as complete
+     */
+    public void failList(String message) throws IOException {
+        endArray().property("success", false).property("message", message).endObject();
+    }
+
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    /**
+     * Close the underlying stream. A document left incomplete by a failure
+     * part-way through is closed as is; the caller has already logged the cause.
+     */
+    @Override
+    public void close() {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            // JsonWriter closes the stream before reporting an incomplete document
+        }
+    }
+}
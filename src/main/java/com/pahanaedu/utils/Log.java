@@ -0,0 +1,314 @@
+package com.pahanaedu.utils;
+
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchronous structured logger.
+ *
+ * Callers append a record to a bounded lock-free ring buffer and return; one
+ * daemon thread formats the records and writes them to stdout (DEBUG, INFO) or
+ * stderr (WARN, ERROR). Each line is a timestamp, level, logger name and
+ * message followed by key=value fields. Level checks come first, so a disabled
+ * call does no formatting and allocates nothing beyond its arguments. When the
+ * buffer is full, DEBUG and INFO records are dropped and counted while WARN
+ * and ERROR records are written by the calling thread.
+ *
+ * The level is read from -Dpahanaedu.log.level (default INFO).
+ */
+public final class Log {
+
+    public enum Level { DEBUG, INFO, WARN, ERROR, OFF }
+
+    private static final int BUFFER_CAPACITY = 8192; // Must be a power of two
+    private static final int MASK = BUFFER_CAPACITY - 1;
+    private static final long IDLE_PARK_NANOS = 1_000_000;
+
+    private static final AtomicReferenceArray<Record> BUFFER = new AtomicReferenceArray<>(BUFFER_CAPACITY);
+    private static final AtomicLong HEAD = new AtomicLong(); // Next sequence to claim
+    private static final AtomicLong TAIL = new AtomicLong(); // Next sequence to write
+    private static final LongAdder DROPPED = new LongAdder();
+
+    private static volatile Level threshold = parseLevel(System.getProperty("pahanaedu.log.level"), Level.INFO);
+    private static volatile boolean running = true;
+    private static final Thread WRITER;
+
+    static {
+        WRITER = new Thread(Log::drainLoop, "async-logger");
+        WRITER.setDaemon(true);
+        WRITER.start();
+    }
+
+    private final String name;
+
+    private Log(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Get a logger named after the class
+     */
+    public static Log get(Class<?> owner) {
+        return new Log(owner.getSimpleName());
+    }
+
+    public static void setLevel(Level level) {
+        threshold = level;
+    }
+
+    public static Level getLevel() {
+        return threshold;
+    }
+
+    /**
+     * Number of DEBUG and INFO records discarded because the buffer was full
+     */
+    public static long getDroppedCount() {
+        return DROPPED.sum();
+    }
+
+    public boolean isDebugEnabled() {
+        return threshold.compareTo(Level.DEBUG) <= 0;
+    }
+
+    public boolean isEnabled(Level level) {
+        return threshold.compareTo(level) <= 0;
+    }
+
+    public void debug(String message) {
+        if (isDebugEnabled()) append(Level.DEBUG, message, null, null);
+    }
+
+    public void debug(String message, String key, Object value) {
+        if (isDebugEnabled()) append(Level.DEBUG, message, null, new Object[] { key, value });
+    }
+
+    public void debug(String message, String key1, Object value1, String key2, Object value2) {
+        if (isDebugEnabled()) append(Level.DEBUG, message, null, new Object[] { key1, value1, key2, value2 });
+    }
+
+    public void debug(String message, Object... fields) {
+        if (isDebugEnabled()) append(Level.DEBUG, message, null, fields);
+    }
+
+    public void info(String message) {
+        if (isEnabled(Level.INFO)) append(Level.INFO, message, null, null);
+    }
+
+    public void info(String message, String key, Object value) {
+        if (isEnabled(Level.INFO)) append(Level.INFO, message, null, new Object[] { key, value });
+    }
+
+    public void info(String message, String key1, Object value1, String key2, Object value2) {
+        if (isEnabled(Level.INFO)) append(Level.INFO, message, null, new Object[] { key1, value1, key2, value2 });
+    }
+
+    public void info(String message, Object... fields) {
+        if (isEnabled(Level.INFO)) append(Level.INFO, message, null, fields);
+    }
+
+    public void warn(String message) {
+        if (isEnabled(Level.WARN)) append(Level.WARN, message, null, null);
+    }
+
+    public void warn(String message, String key, Object value) {
+        if (isEnabled(Level.WARN)) append(Level.WARN, message, null, new Object[] { key, value });
+    }
+
+    public void warn(String message, Object... fields) {
+        if (isEnabled(Level.WARN)) append(Level.WARN, message, null, fields);
+    }
+
+    public void error(String message) {
+        if (isEnabled(Level.ERROR)) append(Level.ERROR, message, null, null);
+    }
+
+    public void error(String message, Throwable error) {
+        if (isEnabled(Level.ERROR)) append(Level.ERROR, message, error, null);
+    }
+
+    public void error(String message, Throwable error, Object... fields) {
+        if (isEnabled(Level.ERROR)) append(Level.ERROR, message, error, fields);
+    }
+
+    public void error(String message, String key, Object value) {
+        if (isEnabled(Level.ERROR)) append(Level.ERROR, message, null, new Object[] { key, value });
+    }
+
+    public void error(String message, Object... fields) {
+        if (isEnabled(Level.ERROR)) append(Level.ERROR, message, null, fields);
+    }
+
+    private void append(Level level, String message, Throwable error, Object[] fields) {
+        Record record = new Record(System.currentTimeMillis(), level, name,
+                                   Thread.currentThread().getName(), message, fields, error);
+
+        while (true) {
+            long sequence = HEAD.get();
+            if (sequence - TAIL.get() >= BUFFER_CAPACITY) {
+                if (level.compareTo(Level.WARN) >= 0) {
+                    write(record); // Never lose warnings and errors
+                } else {
+                    DROPPED.increment();
+                }
+                return;
+            }
+            if (HEAD.compareAndSet(sequence, sequence + 1)) {
+                BUFFER.set((int) sequence & MASK, record);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Writer thread: drain records in sequence order, flushing after each burst
+     */
+    private static void drainLoop() {
+        while (running || TAIL.get() != HEAD.get()) {
+            if (drain() == 0) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    private static synchronized int drain() {
+        int written = 0;
+        long tail = TAIL.get();
+
+        while (tail != HEAD.get()) {
+            int index = (int) tail & MASK;
+            Record record = BUFFER.get(index);
+            if (record == null) {
+                // Claimed but not yet published; pick it up on the next pass
+                break;
+            }
+            BUFFER.set(index, null);
+            TAIL.set(++tail);
+            write(record);
+            written++;
+        }
+
+        if (written > 0) {
+            System.out.flush();
+            System.err.flush();
+        }
+        return written;
+    }
+
+    private static void write(Record record) {
+        PrintStream stream = record.level.compareTo(Level.WARN) >= 0 ? System.err : System.out;
+        stream.println(format(record));
+        if (record.error != null) {
+            StringWriter trace = new StringWriter();
+            record.error.printStackTrace(new PrintWriter(trace));
+            stream.print(trace);
+        }
+    }
+
+    private static String format(Record record) {
+        StringBuilder line = new StringBuilder(128);
+        line.append(Instant.ofEpochMilli(record.timestamp)).append(' ')
+            .append(record.level).append(record.level.name().length() == 4 ? "  " : " ")
+            .append('[').append(record.thread).append("] ")
+            .append(record.logger).append(" - ").append(record.message);
+
+        Object[] fields = record.fields;
+        if (fields != null) {
+            for (int i = 0; i + 1 < fields.length; i += 2) {
+                line.append(' ').append(fields[i]).append('=');
+                appendValue(line, fields[i + 1]);
+            }
+        }
+        if (record.error != null) {
+            line.append(" error=");
+            appendValue(line, record.error.getMessage());
+        }
+        return line.toString();
+    }
+
+    /**
+     * Append a field value, quoting it when it contains spaces, quotes or '='
+     */
+    private static void appendValue(StringBuilder line, Object value) {
+        String text = String.valueOf(value);
+        boolean quote = text.isEmpty();
+        for (int i = 0; i < text.length() && !quote; i++) {
+            char c = text.charAt(i);
+            quote = c <= ' ' || c == '"' || c == '=';
+        }
+        if (!quote) {
+            line.append(text);
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                line.append('\\').append(c);
+            } else if (c == '\n') {
+                line.append("\\n");
+            } else if (c == '\r') {
+                line.append("\\r");
+            } else {
+                line.append(c);
+            }
+        }
+        line.append('"');
+    }
+
+    private static Level parseLevel(String value, Level defaultLevel) {
+        if (value == null) {
+            return defaultLevel;
+        }
+        try {
+            return Level.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return defaultLevel;
+        }
+    }
+
+    /**
+     * Stop the writer thread after writing everything already logged
+     */
+    public static void shutdown() {
+        running = false;
+        LockSupport.unpark(WRITER);
+        try {
+            WRITER.join(2000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        drain();
+    }
+
+    /**
+     * One log call captured for the writer thread
+     */
+    private static final class Record {
+        private final long timestamp;
+        private final Level level;
+        private final String logger;
+        private final String thread;
+        private final String message;
+        private final Object[] fields;
+        private final Throwable error;
+
+        private Record(long timestamp, Level level, String logger, String thread,
+                       String message, Object[] fields, Throwable error) {
+            this.timestamp = timestamp;
+            this.level = level;
+            this.logger = logger;
+            this.thread = thread;
+            this.message = message;
+            this.fields = fields;
+            this.error = error;
+        }
+    }
+}
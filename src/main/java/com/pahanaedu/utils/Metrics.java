@@ -0,0 +1,167 @@
+package com.pahanaedu.utils;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide registry of request and SQL statement metrics.
+ *
+ * Endpoints are recorded by MetricsFilter and statements by ConnectionPool, so
+ * controllers and DAOs need no changes to be measured. Each name gets one
+ * Timer holding a latency histogram, an error count and an in-flight gauge.
+ * The number of names is capped so unexpected paths or generated SQL cannot
+ * grow the registry without bound; the excess is folded into one "other" entry.
+ */
+public final class Metrics {
+
+    private static final int MAX_ENDPOINTS = 256;
+    private static final int MAX_STATEMENTS = 512;
+    private static final String OVERFLOW_NAME = "other";
+
+    private static final Map<String, Timer> ENDPOINTS = new ConcurrentHashMap<>();
+    private static final Map<String, Timer> STATEMENTS = new ConcurrentHashMap<>();
+
+    private static final long STARTED_AT = System.currentTimeMillis();
+
+    private Metrics() {
+    }
+
+    /**
+     * Get the timer for an endpoint, e.g. "GET /admin/items/list"
+     */
+    public static Timer endpoint(String name) {
+        return lookup(ENDPOINTS, name, MAX_ENDPOINTS);
+    }
+
+    /**
+     * Get the timer for a SQL statement; the text is normalized so that
+     * generated IN lists of different lengths share one entry
+     */
+    public static Timer statement(String sql) {
+        Timer timer = STATEMENTS.get(sql);
+        if (timer != null) {
+            return timer;
+        }
+        return lookup(STATEMENTS, normalizeSql(sql), MAX_STATEMENTS);
+    }
+
+    /**
+     * Endpoint timers sorted by name
+     */
+    public static Map<String, Timer> getEndpoints() {
+        return new TreeMap<>(ENDPOINTS);
+    }
+
+    /**
+     * Statement timers sorted by normalized SQL
+     */
+    public static Map<String, Timer> getStatements() {
+        return new TreeMap<>(STATEMENTS);
+    }
+
+    public static long getStartedAt() {
+        return STARTED_AT;
+    }
+
+    private static Timer lookup(Map<String, Timer> timers, String name, int maxSize) {
+        Timer timer = timers.get(name);
+        if (timer != null) {
+            return timer;
+        }
+        if (timers.size() >= maxSize) {
+            return timers.computeIfAbsent(OVERFLOW_NAME, key -> new Timer());
+        }
+        return timers.computeIfAbsent(name, key -> new Timer());
+    }
+
+    /**
+     * Collapse whitespace and placeholder lists: "IN (?, ?, ?)" becomes "IN (?...)"
+     */
+    static String normalizeSql(String sql) {
+        StringBuilder normalized = new StringBuilder(sql.length());
+        boolean pendingSpace = false;
+        int i = 0;
+
+        while (i < sql.length()) {
+            char c = sql.charAt(i);
+
+            if (Character.isWhitespace(c)) {
+                pendingSpace = normalized.length() > 0;
+                i++;
+                continue;
+            }
+            if (pendingSpace) {
+                normalized.append(' ');
+                pendingSpace = false;
+            }
+
+            if (c == '?') {
+                // Swallow any following ", ?" repetitions
+                int end = i + 1;
+                boolean repeated = false;
+                while (true) {
+                    int j = end;
+                    while (j < sql.length() && Character.isWhitespace(sql.charAt(j))) j++;
+                    if (j >= sql.length() || sql.charAt(j) != ',') break;
+                    j++;
+                    while (j < sql.length() && Character.isWhitespace(sql.charAt(j))) j++;
+                    if (j >= sql.length() || sql.charAt(j) != '?') break;
+                    end = j + 1;
+                    repeated = true;
+                }
+                normalized.append(repeated ? "?..." : "?");
+                i = end;
+                continue;
+            }
+
+            normalized.append(c);
+            i++;
+        }
+
+        return normalized.toString();
+    }
+
+    /**
+     * Latency, error and concurrency figures for one endpoint or statement
+     */
+    public static final class Timer {
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder errors = new LongAdder();
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        /**
+         * Mark the start of a timed operation
+         * @return Start time to pass to stop()
+         */
+        public long start() {
+            inFlight.incrementAndGet();
+            return System.nanoTime();
+        }
+
+        /**
+         * Mark the end of an operation started with start()
+         */
+        public void stop(long startNanos, boolean failed) {
+            inFlight.decrementAndGet();
+            latency.record((System.nanoTime() - startNanos) / 1000);
+            if (failed) {
+                errors.increment();
+            }
+        }
+
+        public LatencyHistogram.Snapshot getLatency() {
+            return latency.snapshot();
+        }
+
+        public long getErrors() {
+            return errors.sum();
+        }
+
+        public int getInFlight() {
+            return inFlight.get();
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.pahanaedu.utils;
+
+import java.io.IOException;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.annotation.WebFilter;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Records latency, errors and in-flight requests per endpoint.
+ *
+ * Endpoints are named by method and path with numeric segments replaced by
+ * {id}, e.g. "POST /customer/orders/{id}/cancel". Static resources are counted
+ * under a single name. Asynchronous requests are timed until they complete.
+ */
+@WebFilter(urlPatterns = "/*", asyncSupported = true)
+public class MetricsFilter implements Filter {
+
+    private static final String STATIC_ENDPOINT = "GET (static)";
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        // Nothing to initialize
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+
+        if (!(request instanceof HttpServletRequest) || !(response instanceof HttpServletResponse)) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        HttpServletResponse httpResponse = (HttpServletResponse) response;
+        Metrics.Timer timer = Metrics.endpoint(endpointName(httpRequest));
+        long start = timer.start();
+        boolean failed = true;
+
+        try {
+            chain.doFilter(request, response);
+            failed = false;
+        } finally {
+            if (!failed && httpRequest.isAsyncStarted()) {
+                httpRequest.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        timer.stop(start, isServerError(event.getSuppliedResponse()));
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                        // onComplete follows once the timeout has been handled
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                        // onComplete follows once the error has been handled
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                        event.getAsyncContext().addListener(this);
+                    }
+                });
+            } else {
+                timer.stop(start, failed || httpResponse.getStatus() >= 500);
+            }
+        }
+    }
+
+    private static boolean isServerError(ServletResponse response) {
+        return response instanceof HttpServletResponse && ((HttpServletResponse) response).getStatus() >= 500;
+    }
+
+    /**
+     * Build a bounded endpoint name from the request method and path
+     */
+    static String endpointName(HttpServletRequest request) {
+        String path = request.getServletPath();
+        if (request.getPathInfo() != null) {
+            path += request.getPathInfo();
+        }
+        if (path.isEmpty()) {
+            path = "/";
+        }
+
+        if (isStaticResource(path)) {
+            return STATIC_ENDPOINT;
+        }
+
+        StringBuilder name = new StringBuilder(request.getMethod().length() + path.length() + 1);
+        name.append(request.getMethod()).append(' ');
+
+        int segmentStart = 0;
+        while (segmentStart < path.length()) {
+            int segmentEnd = path.indexOf('/', segmentStart + 1);
+            if (segmentEnd < 0) {
+                segmentEnd = path.length();
+            }
+            if (isNumericSegment(path, segmentStart + 1, segmentEnd)) {
+                name.append("/{id}");
+            } else {
+                name.append(path, segmentStart, segmentEnd);
+            }
+            segmentStart = segmentEnd;
+        }
+
+        return name.toString();
+    }
+
+    private static boolean isNumericSegment(String path, int start, int end) {
+        if (start >= end) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            char c = path.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isStaticResource(String path) {
+        if (path.startsWith("/js/") || path.startsWith("/css/") || path.startsWith("/images/")) {
+            return true;
+        }
+        int dot = path.lastIndexOf('.');
+        return dot > path.lastIndexOf('/') && !path.endsWith(".jsp");
+    }
+
+    @Override
+    public void destroy() {
+        // Nothing to release
+    }
+}
@@ -0,0 +1,192 @@
+package com.pahanaedu.utils;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiPredicate;
+import java.util.function.Supplier;
+
+/**
+ * Size-bounded LRU cache with per-entry TTL for DAO query results.
+ *
+ * Values are loaded outside the cache lock. A load that races with an
+ * invalidation is returned to its caller but not cached, so a write that
+ * invalidates entries can never be overwritten by an older read.
+ *
+ * Concurrent misses on the same key are coalesced through a SingleFlight:
+ * the first caller runs the loader and the others wait for its result, so a
+ * burst of identical requests on an expired entry costs one query. Callers
+ * arriving after an invalidation start a fresh load rather than joining one
+ * that may predate the write.
+ */
+public class QueryCache<K, V> {
+
+    private final String name;
+    private final int maxEntries;
+    private final long ttlMs;
+    private final LinkedHashMap<K, Entry<V>> entries;
+    private final SingleFlight<K, V> loads;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private long generation;
+
+    public QueryCache(String name, int maxEntries, long ttlMs) {
+        this.name = name;
+        this.maxEntries = maxEntries;
+        this.ttlMs = ttlMs;
+        this.loads = new SingleFlight<>(name);
+        this.entries = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() > QueryCache.this.maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Get a cached value, or load and cache it on a miss
+     * @param loader Supplies the value; returning null means "do not cache"
+     * @return Cached or freshly loaded value, possibly null
+     */
+    public V getOrLoad(K key, Supplier<V> loader) {
+        synchronized (this) {
+            Entry<V> entry = entries.get(key);
+            if (entry != null) {
+                if (System.currentTimeMillis() < entry.expiresAt) {
+                    hits.incrementAndGet();
+                    return entry.value;
+                }
+                entries.remove(key);
+                evictions.incrementAndGet();
+            }
+        }
+
+        return loads.execute(key, () -> load(key, loader));
+    }
+
+    private V load(K key, Supplier<V> loader) {
+        long loadGeneration;
+
+        synchronized (this) {
+            // A load that finished just before this one started may already have filled the entry
+            Entry<V> entry = entries.get(key);
+            if (entry != null && System.currentTimeMillis() < entry.expiresAt) {
+                hits.incrementAndGet();
+                return entry.value;
+            }
+            misses.incrementAndGet();
+            loadGeneration = generation;
+        }
+
+        V value = loader.get();
+
+        if (value != null) {
+            synchronized (this) {
+                if (loadGeneration == generation) {
+                    entries.put(key, new Entry<>(value, System.currentTimeMillis() + ttlMs));
+                }
+            }
+        }
+
+        return value;
+    }
+
+    /**
+     * Get a cached value without loading it
+     */
+    public synchronized V peek(K key) {
+        Entry<V> entry = entries.get(key);
+        return entry != null && System.currentTimeMillis() < entry.expiresAt ? entry.value : null;
+    }
+
+    /**
+     * Remove a single entry
+     */
+    public synchronized void invalidate(K key) {
+        generation++;
+        entries.remove(key);
+        loads.forget(key);
+    }
+
+    /**
+     * Remove every entry matching the predicate
+     * @return Number of entries removed
+     */
+    public synchronized int invalidateIf(BiPredicate<K, V> predicate) {
+        generation++;
+        int removed = 0;
+        Iterator<Map.Entry<K, Entry<V>>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<K, Entry<V>> entry = iterator.next();
+            if (predicate.test(entry.getKey(), entry.getValue().value)) {
+                iterator.remove();
+                removed++;
+            }
+        }
+        loads.forgetAll();
+        return removed;
+    }
+
+    /**
+     * Remove all entries
+     */
+    public synchronized void invalidateAll() {
+        generation++;
+        entries.clear();
+        loads.forgetAll();
+    }
+
+    /**
+     * Get a snapshot of the cache counters
+     */
+    public synchronized Stats getStats() {
+        Stats stats = new Stats();
+        stats.name = name;
+        stats.hits = hits.get();
+        stats.misses = misses.get();
+        stats.evictions = evictions.get();
+        stats.coalesced = loads.getStats().shared;
+        stats.size = entries.size();
+        stats.maxEntries = maxEntries;
+        return stats;
+    }
+
+    /**
+     * Get the single-flight counters of the loads behind this cache
+     */
+    public SingleFlight.Stats getLoadStats() {
+        return loads.getStats();
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long expiresAt;
+
+        private Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * Inner class for cache statistics
+     */
+    public static class Stats {
+        public String name;
+        public long hits;
+        public long misses;
+        public long evictions;
+        public long coalesced;
+        public int size;
+        public int maxEntries;
+    }
+}
@@ -0,0 +1,17 @@
+package com.pahanaedu.utils;
+
+import java.io.IOException;
+
+/**
+ * Callback receiving DAO results one row at a time
+ */
+@FunctionalInterface
+public interface RowHandler<T> {
+
+    /**
+     * Handle a single row
+     * @param row Row mapped to its model object
+     * @throws IOException if the row could not be written to its destination
+     */
+    void handle(T row) throws IOException;
+}
@@ -0,0 +1,109 @@
+package com.pahanaedu.utils;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent identical calls into one.
+ *
+ * The first caller for a key runs the supplier; callers arriving with the same
+ * key while it runs wait and receive the same result (or exception) instead of
+ * running their own. Nothing is kept once the call completes, so a later call
+ * always runs again. The shared result reaches every waiting caller and must
+ * be treated as read-only or copied per caller.
+ *
+ * forget() detaches an in-flight call, so callers arriving afterwards start a
+ * new one; use it when a write makes a running read stale.
+ */
+public class SingleFlight<K, V> {
+
+    private final String name;
+    private final Map<K, Call<V>> calls = new ConcurrentHashMap<>();
+
+    private final AtomicLong executions = new AtomicLong();
+    private final AtomicLong shared = new AtomicLong();
+
+    public SingleFlight(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Run the supplier, or wait for the identical call already in flight
+     * @return The supplier's result, shared with every caller that joined
+     */
+    public V execute(K key, Supplier<V> supplier) {
+        Call<V> call = new Call<>();
+        Call<V> inFlight = calls.putIfAbsent(key, call);
+        if (inFlight != null) {
+            shared.incrementAndGet();
+            return inFlight.await();
+        }
+
+        executions.incrementAndGet();
+        try {
+            V value = supplier.get();
+            call.result.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            call.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            calls.remove(key, call);
+        }
+    }
+
+    /**
+     * Detach the call in flight for a key; its current waiters still get its result
+     */
+    public void forget(K key) {
+        calls.remove(key);
+    }
+
+    /**
+     * Detach every call in flight
+     */
+    public void forgetAll() {
+        calls.clear();
+    }
+
+    /**
+     * Get a snapshot of the counters
+     */
+    public Stats getStats() {
+        Stats stats = new Stats();
+        stats.name = name;
+        stats.executions = executions.get();
+        stats.shared = shared.get();
+        stats.inFlight = calls.size();
+        return stats;
+    }
+
+    private static final class Call<V> {
+        private final CompletableFuture<V> result = new CompletableFuture<>();
+
+        private V await() {
+            try {
+                return result.join();
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+                if (cause instanceof Error) throw (Error) cause;
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Inner class for single-flight statistics
+     */
+    public static class Stats {
+        public String name;
+        public long executions;
+        public long shared;
+        public int inFlight;
+    }
+}
@@ -24,6 +24,7 @@ document.addEventListener('DOMContentLoaded', () => {
     let currentItems = [];
     let currentCategories = [];
     let currentOrders = [];
+    let ordersNextCursor = null;
     let currentPromoCodes = [];
     
     // Current edit/delete items
@@ -756,12 +757,15 @@ document.addEventListener('DOMContentLoaded', () => {
     /**
      * Load orders
      */
-    function loadOrders() {
+    function loadOrders(loadMore) {
         console.log('📦 Loading orders...');
         const ordersTableBody = document.getElementById('ordersTableBody');
         if (!ordersTableBody) return;
         
-        ordersTableBody.innerHTML = '<tr><td colspan="8" class="loading">🔄 Loading orders...</td></tr>';
+        const appending = loadMore === true && ordersNextCursor;
+        if (!appending) {
+            ordersTableBody.innerHTML = '<tr><td colspan="8" class="loading">🔄 Loading orders...</td></tr>';
+        }
         
         // Get filter values
         const statusFilter = document.getElementById('statusFilter');
@@ -777,6 +781,7 @@ document.addEventListener('DOMContentLoaded', () => {
         if (statusValue) params.append('status', statusValue);
         if (paymentValue) params.append('payment', paymentValue);
         if (dateValue) params.append('date', dateValue);
+        if (appending) params.append('cursor', ordersNextCursor);
         if (params.toString()) ordersUrl += '?' + params.toString();
         
         fetch(ordersUrl, {
@@ -786,7 +791,8 @@ document.addEventListener('DOMContentLoaded', () => {
         .then(response => response.json())
         .then(data => {
             if (data.success) {
-                currentOrders = data.orders || [];
+                currentOrders = appending ? currentOrders.concat(data.orders || []) : (data.orders || []);
+                ordersNextCursor = data.hasMore ? data.nextCursor : null;
                 displayOrders(currentOrders);
             } else {
                 showOrdersError('Failed to load orders: ' + data.message);
@@ -874,7 +880,10 @@ document.addEventListener('DOMContentLoaded', () => {
 	                </td>
 	            </tr>
 	        `;
-	    }).join('');
+	    }).join('') + (ordersNextCursor ?
+	        `<tr><td colspan="9" class="loading">
+	            <button class="btn btn-view" onclick="loadOrders(true)">⬇️ Load more orders</button>
+	         </td></tr>` : '');
 	}
 
     /**